@@ -0,0 +1,58 @@
+package de.codecentric.reedelk.rabbitmq.benchmark;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Delivery;
+import de.codecentric.reedelk.rabbitmq.internal.attribute.RabbitMQConsumerAttributes;
+import de.codecentric.reedelk.runtime.api.message.MessageAttributeKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the creation of the consumer message attributes and the cost of the
+ * different access patterns of a flow: no access at all, only the correlation id
+ * or all the AMQP properties.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConsumerAttributesBenchmark {
+
+    public enum Access {
+        NONE, CORRELATION_ID, PROPERTIES
+    }
+
+    @Param({"0", "8", "32"})
+    private int headerCount;
+
+    @Param({"NONE", "CORRELATION_ID", "PROPERTIES"})
+    private Access access;
+
+    private Delivery delivery;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AMQP.BasicProperties properties = Stubs.properties("application/json", headerCount);
+        delivery = Stubs.delivery(1, properties, new byte[0]);
+    }
+
+    @Benchmark
+    public Object create() {
+        RabbitMQConsumerAttributes attributes = new RabbitMQConsumerAttributes(delivery);
+        switch (access) {
+            case CORRELATION_ID:
+                return attributes.get(MessageAttributeKey.CORRELATION_ID);
+            case PROPERTIES:
+                @SuppressWarnings("unchecked")
+                Map<String, Serializable> properties = (Map<String, Serializable>) attributes.get("properties");
+                return properties.size();
+            default:
+                return attributes;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package de.codecentric.reedelk.rabbitmq.benchmark;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DeliverCallback;
+import de.codecentric.reedelk.rabbitmq.component.ConsumerErrorPolicy;
+import de.codecentric.reedelk.rabbitmq.internal.*;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ConsumerMetrics;
+import de.codecentric.reedelk.runtime.api.component.InboundEventListener;
+import de.codecentric.reedelk.runtime.api.component.OnResult;
+import de.codecentric.reedelk.runtime.api.flow.FlowContext;
+import de.codecentric.reedelk.runtime.api.message.Message;
+import de.codecentric.reedelk.runtime.api.message.content.MimeType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the consumer delivery path: from the delivery handed over by the client
+ * library to the flow message, including the ack of the delivery once the flow completed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConsumerDeliveryBenchmark {
+
+    public enum AckMode {
+        AUTO, EXPLICIT, EXPLICIT_BATCHED
+    }
+
+    @Param({"64", "4096", "262144"})
+    private int payloadSize;
+
+    @Param({"text/plain", "application/json", "application/octet-stream"})
+    private String mimeType;
+
+    @Param({"0", "8", "32"})
+    private int headerCount;
+
+    @Param({"AUTO", "EXPLICIT", "EXPLICIT_BATCHED"})
+    private AckMode ackMode;
+
+    private ScheduledExecutorService scheduler;
+    private AckAggregator ackAggregator;
+    private DeliverCallback callback;
+    private AMQP.BasicProperties properties;
+    private byte[] body;
+    private long deliveryTag;
+
+    private final FlowCompletingListener listener = new FlowCompletingListener();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        Channel channel = Stubs.channel();
+        DeliveryDecoder decoder = new DeliveryDecoder(
+                MimeType.parse(mimeType, MimeType.APPLICATION_BINARY), StandardCharsets.UTF_8, true);
+
+        if (ackMode == AckMode.AUTO) {
+            callback = new ConsumerDeliverCallbackAutoAck(listener, decoder, null, ConsumerMetrics.NOOP);
+        } else {
+            ConsumerErrorHandler errorHandler = new ConsumerErrorHandler(channel, ConsumerErrorPolicy.REQUEUE, 0, 0, scheduler);
+            ackAggregator = ackMode == AckMode.EXPLICIT_BATCHED ?
+                    new AckAggregator(channel, 64, 100, scheduler, ConsumerMetrics.NOOP) :
+                    null;
+            callback = new ConsumerDeliverCallbackExplicitAck(listener, decoder, null, channel, errorHandler, ackAggregator, null, null, ConsumerMetrics.NOOP);
+        }
+
+        properties = Stubs.properties(mimeType, headerCount);
+        body = Payloads.of(payloadSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (ackAggregator != null) ackAggregator.flush();
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public void handle(Blackhole blackhole) throws Exception {
+        listener.blackhole = blackhole;
+        callback.handle("consumer-tag", Stubs.delivery(++deliveryTag, properties, body));
+    }
+
+    /**
+     * Completes the flow as soon as the message is received.
+     */
+    static class FlowCompletingListener implements InboundEventListener {
+
+        private final FlowContext flowContext = Stubs.flowContext();
+        private Blackhole blackhole;
+
+        @Override
+        public void onEvent(Message message) {
+            blackhole.consume(message);
+        }
+
+        @Override
+        public void onEvent(Message message, OnResult onResult) {
+            blackhole.consume(message);
+            onResult.onResult(flowContext, message);
+        }
+    }
+}
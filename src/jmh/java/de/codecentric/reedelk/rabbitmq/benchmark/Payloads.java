@@ -0,0 +1,24 @@
+package de.codecentric.reedelk.rabbitmq.benchmark;
+
+public class Payloads {
+
+    private static final byte[] ALPHABET = "{\"id\":1234,\"name\":\"reedelk\",\"tags\":[\"a\",\"b\"]}".getBytes();
+
+    private Payloads() {
+    }
+
+    /**
+     * A text payload of the given size, compressible as typical JSON/text would be.
+     */
+    public static byte[] of(int size) {
+        byte[] payload = new byte[size];
+        for (int offset = 0; offset < size; offset += ALPHABET.length) {
+            System.arraycopy(ALPHABET, 0, payload, offset, Math.min(ALPHABET.length, size - offset));
+        }
+        return payload;
+    }
+
+    public static String asString(int size) {
+        return new String(of(size));
+    }
+}
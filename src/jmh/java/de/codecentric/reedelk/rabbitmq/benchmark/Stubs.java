@@ -0,0 +1,144 @@
+package de.codecentric.reedelk.rabbitmq.benchmark;
+
+import com.rabbitmq.client.*;
+import com.rabbitmq.client.impl.LongStringHelper;
+import de.codecentric.reedelk.runtime.api.converter.ConverterService;
+import de.codecentric.reedelk.runtime.api.flow.FlowContext;
+import de.codecentric.reedelk.runtime.api.script.ScriptEngineService;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stand-ins for the broker client and the runtime services,
+ * so that the benchmarks run offline, without a broker.
+ */
+public class Stubs {
+
+    private Stubs() {
+    }
+
+    /**
+     * A channel which discards published messages and acks/nacks. In confirm mode
+     * every published message is confirmed (acked) as soon as it is published.
+     */
+    public static Channel channel() {
+        AtomicLong nextPublishSeqNo = new AtomicLong(1);
+        ConfirmListener[] confirmListener = new ConfirmListener[1];
+        return stub(Channel.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "isOpen":
+                    return true;
+                case "getNextPublishSeqNo":
+                    return nextPublishSeqNo.get();
+                case "addConfirmListener":
+                    if (args[0] instanceof ConfirmListener) confirmListener[0] = (ConfirmListener) args[0];
+                    return null;
+                case "basicPublish":
+                    long sequenceNumber = nextPublishSeqNo.getAndIncrement();
+                    if (confirmListener[0] != null) confirmListener[0].handleAck(sequenceNumber, false);
+                    return null;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    public static Connection connection(Channel channel) {
+        return stub(Connection.class, (proxy, method, args) ->
+                "createChannel".equals(method.getName()) ? channel : defaultValue(method.getReturnType()));
+    }
+
+    public static ConverterService converter() {
+        return new ConverterService() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <O> O convert(Object input, Class<O> output) {
+                if (output != byte[].class) throw new UnsupportedOperationException(output.getName());
+                if (input instanceof byte[]) return (O) input;
+                return (O) input.toString().getBytes(StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    /**
+     * A script engine evaluating any script to the given result.
+     */
+    public static ScriptEngineService scriptEngine(Object result) {
+        return stub(ScriptEngineService.class, (proxy, method, args) ->
+                "evaluate".equals(method.getName()) ? Optional.of(result) : defaultValue(method.getReturnType()));
+    }
+
+    public static FlowContext flowContext() {
+        return stub(FlowContext.class, (proxy, method, args) -> defaultValue(method.getReturnType()));
+    }
+
+    public static AMQP.BasicProperties properties(String contentType, int headerCount) {
+        Map<String, Object> headers = new HashMap<>();
+        for (int i = 0; i < headerCount; i++) {
+            headers.put("x-header-" + i, LongStringHelper.asLongString("value-" + i));
+        }
+        return new AMQP.BasicProperties.Builder()
+                .contentType(contentType)
+                .correlationId("3f2a7c1e-8d4b-4e6f-9a0b-1c2d3e4f5a6b")
+                .messageId("message-id")
+                .deliveryMode(2)
+                .priority(0)
+                .timestamp(new java.util.Date(0))
+                .headers(headerCount > 0 ? headers : null)
+                .build();
+    }
+
+    public static Delivery delivery(long deliveryTag, AMQP.BasicProperties properties, byte[] body) {
+        Envelope envelope = new Envelope(deliveryTag, false, "", "queue_inbound");
+        return new Delivery(envelope, properties, body);
+    }
+
+    /**
+     * Sets a field not exposed through a setter, e.g. the services injected by OSGi.
+     */
+    public static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return type.getSimpleName() + "Stub";
+                }
+            }
+            return handler.invoke(proxy, method, args);
+        });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        if (type == int.class) return 0;
+        if (type == short.class) return (short) 0;
+        return (byte) 0;
+    }
+}
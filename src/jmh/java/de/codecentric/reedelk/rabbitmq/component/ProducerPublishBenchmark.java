@@ -0,0 +1,89 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.rabbitmq.benchmark.Payloads;
+import de.codecentric.reedelk.rabbitmq.benchmark.Stubs;
+import de.codecentric.reedelk.runtime.api.flow.FlowContext;
+import de.codecentric.reedelk.runtime.api.message.Message;
+import de.codecentric.reedelk.runtime.api.message.MessageBuilder;
+import de.codecentric.reedelk.runtime.api.message.content.MimeType;
+import de.codecentric.reedelk.runtime.api.script.dynamicvalue.DynamicString;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures RabbitMQProducer.apply, from the flow message to the message written on the channel.
+ * It lives in the component package to configure the producer without a broker connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProducerPublishBenchmark {
+
+    public enum PayloadType {
+        STRING, BYTES
+    }
+
+    @Param({"64", "4096", "262144"})
+    private int payloadSize;
+
+    @Param({"STRING", "BYTES"})
+    private PayloadType payloadType;
+
+    @Param({"false", "true"})
+    private boolean scriptQueueName;
+
+    @Param({"false", "true"})
+    private boolean confirms;
+
+    @Param({"none", "gzip"})
+    private String compression;
+
+    private RabbitMQProducer producer;
+    private FlowContext flowContext;
+    private Message message;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RabbitMQProducerConfirmConfiguration confirmConfiguration = new RabbitMQProducerConfirmConfiguration();
+        confirmConfiguration.setEnabled(confirms);
+
+        RabbitMQProducerCompressionConfiguration compressionConfiguration = new RabbitMQProducerCompressionConfiguration();
+        compressionConfiguration.setCodec(compression);
+
+        producer = new RabbitMQProducer();
+        producer.setQueueName(DynamicString.from(scriptQueueName ? "#['queue_outbound']" : "queue_outbound"));
+        producer.setConfirmConfiguration(confirmConfiguration);
+        producer.setCompressionConfiguration(compressionConfiguration);
+        Stubs.inject(producer, "converter", Stubs.converter());
+        Stubs.inject(producer, "scriptEngine", Stubs.scriptEngine("queue_outbound"));
+        producer.configure();
+        producer.openChannels(Stubs.connection(Stubs.channel()), 1);
+
+        flowContext = Stubs.flowContext();
+        MessageBuilder builder = MessageBuilder.get(ProducerPublishBenchmark.class);
+        message = payloadType == PayloadType.STRING ?
+                builder.withString(Payloads.asString(payloadSize), MimeType.TEXT_PLAIN).build() :
+                builder.withBinary(Payloads.of(payloadSize), MimeType.APPLICATION_BINARY).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        producer.dispose();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Message apply() {
+        return producer.apply(flowContext, message);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Message applyContended() {
+        return producer.apply(flowContext, message);
+    }
+}
@@ -0,0 +1,35 @@
+package de.codecentric.reedelk.rabbitmq.codec;
+
+import java.io.IOException;
+
+/**
+ * A payload compression codec. The RabbitMQ Producer compresses the payload with the codec
+ * selected in its configuration and sets the codec encoding as the message 'contentEncoding'
+ * property. The RabbitMQ Consumer decompresses the payload of messages whose 'contentEncoding'
+ * matches the encoding of a codec. Additional codecs are discovered with java.util.ServiceLoader:
+ * implementations must be thread safe.
+ */
+public interface CompressionCodec {
+
+    /**
+     * The content encoding identifying this codec (e.g. 'gzip'), case insensitive.
+     */
+    String encoding();
+
+    byte[] compress(byte[] data) throws IOException;
+
+    byte[] decompress(byte[] data) throws IOException;
+
+    /**
+     * Decompresses the data failing with an IOException when the decompressed data is larger
+     * than 'maxSize' bytes. The default implementation checks the size of the decompressed data:
+     * codecs should override it to stop decompressing as soon as the limit is exceeded.
+     */
+    default byte[] decompress(byte[] data, int maxSize) throws IOException {
+        byte[] decompressed = decompress(data);
+        if (decompressed.length > maxSize) {
+            throw new IOException("The decompressed data exceeds the maximum size of " + maxSize + " bytes");
+        }
+        return decompressed;
+    }
+}
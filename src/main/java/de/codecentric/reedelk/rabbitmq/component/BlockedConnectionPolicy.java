@@ -0,0 +1,18 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.DisplayName;
+
+public enum BlockedConnectionPolicy {
+
+    @DisplayName("Wait")
+    WAIT,
+
+    @DisplayName("Fail")
+    FAIL,
+
+    @DisplayName("Buffer")
+    BUFFER,
+
+    @DisplayName("Fallback Connection")
+    FALLBACK
+}
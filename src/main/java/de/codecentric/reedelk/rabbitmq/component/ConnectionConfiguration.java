@@ -1,5 +1,6 @@
 package de.codecentric.reedelk.rabbitmq.component;
 
+import com.rabbitmq.client.ConnectionFactory;
 import de.codecentric.reedelk.runtime.api.annotation.*;
 import de.codecentric.reedelk.runtime.api.component.Implementor;
 import org.osgi.service.component.annotations.Component;
@@ -11,6 +12,24 @@ import static org.osgi.service.component.annotations.ServiceScope.PROTOTYPE;
 @Component(service = ConnectionConfiguration.class, scope = PROTOTYPE)
 public class ConnectionConfiguration implements Implementor {
 
+    public static final int DEFAULT_MAX_CHANNELS = 2047;
+    public static final int DEFAULT_MANAGEMENT_PORT = 15672;
+    public static final int DEFAULT_LOCAL_QUEUE_CAPACITY = 10000;
+    public static final long DEFAULT_LOCAL_PUBLISH_TIMEOUT = 30000;
+    public static final int DEFAULT_NIO_THREADS = 1;
+    public static final int DEFAULT_NIO_BUFFER_SIZE = 32768;
+
+    @Property("Transport")
+    @Example("LOCAL")
+    @DefaultValue("AMQP")
+    @Description("AMQP connects to a RabbitMQ broker. Local connects to an in-memory broker of this runtime: " +
+            "messages published by producers are consumed by consumers of the same runtime without going " +
+            "through the network, they are not durable and they are lost when the runtime stops. " +
+            "The virtual host identifies the in-memory broker: the default virtual host '/' is the same broker " +
+            "as a 'local://' connection URI without name. Exchanges are not supported, messages are published " +
+            "to the default exchange only.")
+    private ConnectionTransport transport;
+
     @Property("Username")
     @Hint("guest")
     @Example("guest")
@@ -46,6 +65,40 @@ public class ConnectionConfiguration implements Implementor {
     @Description("The port to use for connections to the broker.")
     private Integer portNumber;
 
+    @Property("Addresses")
+    @Hint("node1:5672,node2:5672,node3:5672")
+    @Example("node1:5672,node2:5672,node3:5672")
+    @Description("Comma separated list of the host[:port] addresses of the nodes of a cluster. " +
+            "When set, connections are spread across these nodes instead of connecting to the host name: " +
+            "addresses without a port use the port number.")
+    private String addresses;
+
+    @Property("Placement Strategy")
+    @Example("QUEUE_LEADER_LOCAL")
+    @DefaultValue("ROUND_ROBIN")
+    @Description("How the components are spread across the addresses. Round Robin assigns the addresses to the " +
+            "components in turn, Shuffle a random address to each component. Queue Leader Local connects consumers " +
+            "to the node hosting the leader of their queue, looked up with the management API, and the other " +
+            "components round robin. Components assigned the same address share its connections. " +
+            "A recovering connection fails over to the next address.")
+    private PlacementStrategy placement;
+
+    @Property("Management Port")
+    @Hint("15672")
+    @Example("15672")
+    @DefaultValue("15672")
+    @When(propertyName = "placement", propertyValue = "QUEUE_LEADER_LOCAL")
+    @Description("The port of the management HTTP API used to look up the leader of the queues.")
+    private Integer managementPort;
+
+    @Property("Management HTTPS")
+    @Example("true")
+    @DefaultValue("false")
+    @When(propertyName = "placement", propertyValue = "QUEUE_LEADER_LOCAL")
+    @Description("If true the management API is called over HTTPS, otherwise over plain HTTP: " +
+            "the user name and password are sent with each queue leader look up.")
+    private Boolean managementHttps;
+
     @Property("Automatic Recovery")
     @Example("true")
     @InitValue("true")
@@ -54,6 +107,127 @@ public class ConnectionConfiguration implements Implementor {
             "is performed when the network connection with the server fails.")
     private Boolean automaticRecovery;
 
+    @Property("Local Queue Capacity")
+    @Hint("10000")
+    @Example("1000")
+    @DefaultValue("10000")
+    @When(propertyName = "transport", propertyValue = "LOCAL")
+    @Description("The maximum number of messages in each in-memory queue: publishers wait while a queue is full. " +
+            "The in-memory broker uses the capacity of the last connection opened to it.")
+    private Integer localQueueCapacity;
+
+    @Property("Local Publish Timeout (ms)")
+    @Hint("30000")
+    @Example("5000")
+    @DefaultValue("30000")
+    @When(propertyName = "transport", propertyValue = "LOCAL")
+    @Description("The maximum time in milliseconds a publisher waits for room in a full in-memory queue, after which publishing fails.")
+    private Long localPublishTimeout;
+
+    @Property("Max Channels per Connection")
+    @Hint("2047")
+    @Example("256")
+    @DefaultValue("2047")
+    @Description("Components using this configuration share the same broker connection. " +
+            "This is the maximum number of channels opened on a single connection: when the limit " +
+            "would be exceeded, a new connection with the same configuration is opened.")
+    private Integer maxChannels;
+
+    @Property("Heartbeat (s)")
+    @Hint("60")
+    @Example("30")
+    @DefaultValue("60")
+    @Description("The requested heartbeat timeout in seconds. Zero disables heartbeats.")
+    private Integer heartbeat;
+
+    @Property("Channel Max")
+    @Hint("2047")
+    @Example("512")
+    @DefaultValue("2047")
+    @Description("The requested maximum channel number negotiated with the broker. Zero means unlimited. " +
+            "Connections are shared up to the lowest of this value and the max channels per connection.")
+    private Integer channelMax;
+
+    @Property("Frame Max (bytes)")
+    @Hint("0")
+    @Example("131072")
+    @DefaultValue("0")
+    @Description("The requested maximum frame size in bytes negotiated with the broker. Zero means unlimited.")
+    private Integer frameMax;
+
+    @Property("Socket Receive Buffer Size (bytes)")
+    @Hint("0")
+    @Example("262144")
+    @DefaultValue("0")
+    @Description("The size in bytes of the socket receive buffer (SO_RCVBUF). Zero uses the operating system default.")
+    private Integer socketReceiveBufferSize;
+
+    @Property("Socket Send Buffer Size (bytes)")
+    @Hint("0")
+    @Example("262144")
+    @DefaultValue("0")
+    @Description("The size in bytes of the socket send buffer (SO_SNDBUF). Zero uses the operating system default.")
+    private Integer socketSendBufferSize;
+
+    @Property("Use NIO")
+    @Example("true")
+    @DefaultValue("false")
+    @Description("If true connections use non-blocking IO: a small number of IO threads read from " +
+            "and write to the sockets of all the connections with this configuration, " +
+            "instead of one reader thread per connection.")
+    private Boolean useNio;
+
+    @Property("NIO Threads")
+    @Hint("1")
+    @Example("4")
+    @DefaultValue("1")
+    @When(propertyName = "useNio", propertyValue = "true")
+    @Description("The number of IO threads shared by the connections with this configuration.")
+    private Integer nioThreads;
+
+    @Property("NIO Read Buffer Size (bytes)")
+    @Hint("32768")
+    @Example("65536")
+    @DefaultValue("32768")
+    @When(propertyName = "useNio", propertyValue = "true")
+    @Description("The size in bytes of the buffer used by each connection to read from the socket.")
+    private Integer nioReadBufferSize;
+
+    @Property("NIO Write Buffer Size (bytes)")
+    @Hint("32768")
+    @Example("65536")
+    @DefaultValue("32768")
+    @When(propertyName = "useNio", propertyValue = "true")
+    @Description("The size in bytes of the buffer used by each connection to write to the socket.")
+    private Integer nioWriteBufferSize;
+
+    @Property("Shared Consumer Executor")
+    @Example("true")
+    @DefaultValue("false")
+    @Description("If true consumer deliveries of all the connections opened by the module with the same number " +
+            "of executor threads are dispatched by one shared executor, instead of a work pool per connection.")
+    private Boolean sharedExecutor;
+
+    @Property("Shared Consumer Executor Threads")
+    @Hint("8")
+    @Example("16")
+    @DefaultValue("Number of available processors * 2")
+    @When(propertyName = "sharedExecutor", propertyValue = "true")
+    @Description("The number of threads of the shared consumer executor.")
+    private Integer sharedExecutorThreads;
+
+    public void setTransport(ConnectionTransport transport) {
+        this.transport = transport;
+    }
+
+    public void setLocalQueueCapacity(Integer localQueueCapacity) {
+        this.localQueueCapacity = localQueueCapacity;
+    }
+
+    public void setLocalPublishTimeout(Long localPublishTimeout) {
+        this.localPublishTimeout = localPublishTimeout;
+    }
+
     public void setUserName(String userName) {
         this.userName = userName;
     }
@@ -74,10 +248,94 @@ public class ConnectionConfiguration implements Implementor {
         this.portNumber = portNumber;
     }
 
+    public void setAddresses(String addresses) {
+        this.addresses = addresses;
+    }
+
+    public void setPlacement(PlacementStrategy placement) {
+        this.placement = placement;
+    }
+
+    public void setManagementPort(Integer managementPort) {
+        this.managementPort = managementPort;
+    }
+
+    public void setManagementHttps(Boolean managementHttps) {
+        this.managementHttps = managementHttps;
+    }
+
     public void setAutomaticRecovery(Boolean automaticRecovery) {
         this.automaticRecovery = automaticRecovery;
     }
 
+    public void setMaxChannels(Integer maxChannels) {
+        this.maxChannels = maxChannels;
+    }
+
+    public void setHeartbeat(Integer heartbeat) {
+        this.heartbeat = heartbeat;
+    }
+
+    public void setChannelMax(Integer channelMax) {
+        this.channelMax = channelMax;
+    }
+
+    public void setFrameMax(Integer frameMax) {
+        this.frameMax = frameMax;
+    }
+
+    public void setSocketReceiveBufferSize(Integer socketReceiveBufferSize) {
+        this.socketReceiveBufferSize = socketReceiveBufferSize;
+    }
+
+    public void setSocketSendBufferSize(Integer socketSendBufferSize) {
+        this.socketSendBufferSize = socketSendBufferSize;
+    }
+
+    public void setUseNio(Boolean useNio) {
+        this.useNio = useNio;
+    }
+
+    public void setNioThreads(Integer nioThreads) {
+        this.nioThreads = nioThreads;
+    }
+
+    public void setNioReadBufferSize(Integer nioReadBufferSize) {
+        this.nioReadBufferSize = nioReadBufferSize;
+    }
+
+    public void setNioWriteBufferSize(Integer nioWriteBufferSize) {
+        this.nioWriteBufferSize = nioWriteBufferSize;
+    }
+
+    public void setSharedExecutor(Boolean sharedExecutor) {
+        this.sharedExecutor = sharedExecutor;
+    }
+
+    public void setSharedExecutorThreads(Integer sharedExecutorThreads) {
+        this.sharedExecutorThreads = sharedExecutorThreads;
+    }
+
+    public static ConnectionTransport transport(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.transport))
+                .orElse(ConnectionTransport.AMQP);
+    }
+
+    public static int localQueueCapacity(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.localQueueCapacity))
+                .filter(capacity -> capacity > 0)
+                .orElse(DEFAULT_LOCAL_QUEUE_CAPACITY);
+    }
+
+    public static long localPublishTimeout(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.localPublishTimeout))
+                .filter(timeout -> timeout > 0)
+                .orElse(DEFAULT_LOCAL_PUBLISH_TIMEOUT);
+    }
+
     public static String userName(ConnectionConfiguration configuration) {
         return ofNullable(configuration)
                 .flatMap(config -> ofNullable(config.userName))
@@ -108,9 +366,117 @@ public class ConnectionConfiguration implements Implementor {
                 .orElse(5672);
     }
 
+    public static String addresses(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.addresses))
+                .filter(addresses -> !addresses.trim().isEmpty())
+                .orElse(null);
+    }
+
+    public static PlacementStrategy placement(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.placement))
+                .orElse(PlacementStrategy.ROUND_ROBIN);
+    }
+
+    public static int managementPort(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.managementPort))
+                .filter(port -> port > 0)
+                .orElse(DEFAULT_MANAGEMENT_PORT);
+    }
+
+    public static boolean isManagementHttps(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.managementHttps))
+                .orElse(false);
+    }
+
     public static boolean isAutomaticRecovery(ConnectionConfiguration configuration) {
         return ofNullable(configuration)
                 .flatMap(config -> ofNullable(config.automaticRecovery))
                 .orElse(false);
     }
+
+    public static int maxChannels(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.maxChannels))
+                .filter(maxChannels -> maxChannels > 0)
+                .orElse(DEFAULT_MAX_CHANNELS);
+    }
+
+    public static int heartbeat(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.heartbeat))
+                .filter(heartbeat -> heartbeat >= 0)
+                .orElse(ConnectionFactory.DEFAULT_HEARTBEAT);
+    }
+
+    public static int channelMax(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.channelMax))
+                .filter(channelMax -> channelMax >= 0)
+                .orElse(ConnectionFactory.DEFAULT_CHANNEL_MAX);
+    }
+
+    public static int frameMax(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.frameMax))
+                .filter(frameMax -> frameMax >= 0)
+                .orElse(ConnectionFactory.DEFAULT_FRAME_MAX);
+    }
+
+    public static int socketReceiveBufferSize(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.socketReceiveBufferSize))
+                .filter(size -> size > 0)
+                .orElse(0);
+    }
+
+    public static int socketSendBufferSize(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.socketSendBufferSize))
+                .filter(size -> size > 0)
+                .orElse(0);
+    }
+
+    public static boolean isUseNio(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.useNio))
+                .orElse(false);
+    }
+
+    public static int nioThreads(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.nioThreads))
+                .filter(threads -> threads > 0)
+                .orElse(DEFAULT_NIO_THREADS);
+    }
+
+    public static int nioReadBufferSize(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.nioReadBufferSize))
+                .filter(size -> size > 0)
+                .orElse(DEFAULT_NIO_BUFFER_SIZE);
+    }
+
+    public static int nioWriteBufferSize(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.nioWriteBufferSize))
+                .filter(size -> size > 0)
+                .orElse(DEFAULT_NIO_BUFFER_SIZE);
+    }
+
+    public static boolean isSharedExecutor(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.sharedExecutor))
+                .orElse(false);
+    }
+
+    public static int sharedExecutorThreads(ConnectionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.sharedExecutorThreads))
+                .filter(threads -> threads > 0)
+                .orElse(Runtime.getRuntime().availableProcessors() * 2);
+    }
 }
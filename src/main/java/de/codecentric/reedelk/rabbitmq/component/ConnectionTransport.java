@@ -0,0 +1,12 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.DisplayName;
+
+public enum ConnectionTransport {
+
+    @DisplayName("AMQP (network)")
+    AMQP,
+
+    @DisplayName("Local (in-memory, same runtime)")
+    LOCAL
+}
@@ -0,0 +1,15 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.DisplayName;
+
+public enum ConsumerErrorPolicy {
+
+    @DisplayName("Nack and requeue")
+    REQUEUE,
+
+    @DisplayName("Nack to dead letter exchange")
+    DEAD_LETTER,
+
+    @DisplayName("Requeue after delay")
+    DELAYED_REQUEUE
+}
@@ -0,0 +1,15 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.DisplayName;
+
+public enum DispatchExecutor {
+
+    @DisplayName("Connection Work Pool")
+    CONNECTION,
+
+    @DisplayName("Thread Pool")
+    THREAD_POOL,
+
+    @DisplayName("Virtual Threads (JDK 21+)")
+    VIRTUAL_THREADS
+}
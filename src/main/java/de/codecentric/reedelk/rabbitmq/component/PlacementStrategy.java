@@ -0,0 +1,15 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.DisplayName;
+
+public enum PlacementStrategy {
+
+    @DisplayName("Round Robin")
+    ROUND_ROBIN,
+
+    @DisplayName("Shuffle")
+    SHUFFLE,
+
+    @DisplayName("Queue Leader Local")
+    QUEUE_LEADER_LOCAL
+}
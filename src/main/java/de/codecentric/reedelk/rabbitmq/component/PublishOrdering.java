@@ -0,0 +1,15 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.DisplayName;
+
+public enum PublishOrdering {
+
+    @DisplayName("None")
+    NONE,
+
+    @DisplayName("Per Routing Key")
+    ROUTING_KEY,
+
+    @DisplayName("Per Correlation ID")
+    CORRELATION_ID
+}
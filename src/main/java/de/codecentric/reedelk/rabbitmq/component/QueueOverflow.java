@@ -0,0 +1,28 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.DisplayName;
+
+public enum QueueOverflow {
+
+    @DisplayName("Drop Head")
+    DROP_HEAD("drop-head"),
+
+    @DisplayName("Reject Publish")
+    REJECT_PUBLISH("reject-publish"),
+
+    @DisplayName("Reject Publish to Dead Letter")
+    REJECT_PUBLISH_DLX("reject-publish-dlx");
+
+    private final String argument;
+
+    QueueOverflow(String argument) {
+        this.argument = argument;
+    }
+
+    /**
+     * The value of the 'x-overflow' queue argument.
+     */
+    public String argument() {
+        return argument;
+    }
+}
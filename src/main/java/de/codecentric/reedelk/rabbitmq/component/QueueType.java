@@ -0,0 +1,28 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.DisplayName;
+
+public enum QueueType {
+
+    @DisplayName("Classic")
+    CLASSIC("classic"),
+
+    @DisplayName("Quorum")
+    QUORUM("quorum"),
+
+    @DisplayName("Stream")
+    STREAM("stream");
+
+    private final String argument;
+
+    QueueType(String argument) {
+        this.argument = argument;
+    }
+
+    /**
+     * The value of the 'x-queue-type' queue argument.
+     */
+    public String argument() {
+        return argument;
+    }
+}
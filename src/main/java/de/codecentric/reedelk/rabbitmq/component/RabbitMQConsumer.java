@@ -1,28 +1,51 @@
 package de.codecentric.reedelk.rabbitmq.component;
 
 import com.rabbitmq.client.Channel;
-import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DeliverCallback;
 import de.codecentric.reedelk.rabbitmq.internal.*;
 import de.codecentric.reedelk.rabbitmq.internal.attribute.RabbitMQConsumerAttributes;
+import de.codecentric.reedelk.rabbitmq.internal.attribute.RabbitMQConsumerBatchAttributes;
+import de.codecentric.reedelk.rabbitmq.internal.chunk.ChunkReassembler;
+import de.codecentric.reedelk.rabbitmq.internal.commons.CharsetUtils;
 import de.codecentric.reedelk.rabbitmq.internal.exception.RabbitMQConsumerException;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ConsumerMetrics;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.MetricsRegistry;
+import de.codecentric.reedelk.rabbitmq.internal.stream.FileOffsetStore;
+import de.codecentric.reedelk.rabbitmq.internal.stream.StreamOffsetTracker;
 import de.codecentric.reedelk.runtime.api.annotation.*;
 import de.codecentric.reedelk.runtime.api.component.AbstractInbound;
 import de.codecentric.reedelk.runtime.api.message.content.MimeType;
 import org.osgi.service.component.annotations.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static de.codecentric.reedelk.rabbitmq.internal.commons.Messages.RabbitMQConsumer.CONSUME_ERROR;
 import static de.codecentric.reedelk.runtime.api.commons.ComponentPrecondition.Configuration.requireNotBlank;
+import static de.codecentric.reedelk.runtime.api.commons.ComponentPrecondition.Configuration.requireTrue;
 import static java.util.Optional.of;
 import static java.util.Optional.ofNullable;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.osgi.service.component.annotations.ServiceScope.PROTOTYPE;
 
 @ModuleComponent("RabbitMQ Consumer")
 @ComponentOutput(
-        attributes = RabbitMQConsumerAttributes.class,
-        payload = { String.class, byte[].class },
-        description = "The data consumed from the broker queue")
+        attributes = { RabbitMQConsumerAttributes.class, RabbitMQConsumerBatchAttributes.class },
+        payload = { String.class, byte[].class, List.class },
+        description = "The data consumed from the broker queue. " +
+                "When 'Batch Size' is greater than 1, the list of the data of the messages in the batch.")
 @Description("Consumes messages from a RabbitMQ broker queue whenever a message " +
                 "is published to the subscribed queue. The component might be configured " +
                 "to create the source queue if it does not exists already. " +
@@ -31,6 +54,10 @@ import static org.osgi.service.component.annotations.ServiceScope.PROTOTYPE;
 @Component(service = RabbitMQConsumer.class, scope = PROTOTYPE)
 public class RabbitMQConsumer extends AbstractInbound {
 
+    private static final Logger logger = LoggerFactory.getLogger(RabbitMQConsumer.class);
+
+    private static final long OFFSET_COMMIT_INTERVAL = 1000;
+
     @DialogTitle("RabbitMQ Connection Factory")
     @Property("Connection")
     private ConnectionConfiguration connection;
@@ -42,7 +69,7 @@ public class RabbitMQConsumer extends AbstractInbound {
     @When(propertyName = "connection", propertyValue = When.NULL)
     @When(propertyName = "connection", propertyValue = "{'ref': '" + When.BLANK + "'}")
     @Description("Configure a connection using the provided AMQP URI " +
-            "containing the connection data.")
+            "containing the connection data. A 'local://name' URI connects to the in-memory broker 'name' of this runtime instead of a RabbitMQ broker.")
     private String connectionURI;
 
     @Property("Queue Name")
@@ -73,43 +100,181 @@ public class RabbitMQConsumer extends AbstractInbound {
             " False to acknowledge the message only if the flow executed successfully.")
     private boolean autoAck;
 
-    private Channel channel;
-    private Connection client;
+    @Example("true")
+    @DefaultValue("false")
+    @Property("Lazy Text Decoding")
+    @Description("Text content (e.g. 'text/plain' mime type) is decoded using the charset of the message content type, " +
+            "or the charset of the configured mime type, or UTF-8. If true, the payload is a string stream which keeps " +
+            "the consumed bytes and decodes them only when a following component consumes it. " +
+            "Batches are always decoded.")
+    private boolean lazyTextDecoding;
+
+    @Example("1048576")
+    @Hint("67108864")
+    @DefaultValue("67108864")
+    @Property("Max Decompressed Size (bytes)")
+    @Description("The maximum size in bytes of the payload of a compressed message once decompressed. " +
+            "Messages which cannot be decompressed or exceeding this size are not delivered to the flow: " +
+            "they are settled according to the error policy.")
+    private Integer maxDecompressedSize;
+
+    @Property("Concurrency")
+    @Group("Concurrency")
+    private RabbitMQConsumerConcurrencyConfiguration concurrencyConfiguration;
+
+    @Property("Dispatch")
+    @Group("Dispatch")
+    private RabbitMQConsumerDispatchConfiguration dispatchConfiguration;
+
+    @Property("Acknowledgement")
+    @Group("Acknowledgement")
+    @When(propertyName = "autoAck", propertyValue = "false")
+    private RabbitMQConsumerAckConfiguration ackConfiguration;
+
+    @Property("Flow Control")
+    @Group("Flow Control")
+    private RabbitMQConsumerFlowControlConfiguration flowControlConfiguration;
+
+    @Property("Stream")
+    @Group("Stream")
+    private RabbitMQConsumerStreamConfiguration streamConfiguration;
+
+    @Property("Batch Consume")
+    @Group("Batch Consume")
+    private RabbitMQConsumerBatchConfiguration batchConfiguration;
+
+    @Property("Chunked Messages")
+    @Group("Chunked Messages")
+    private RabbitMQConsumerChunkConfiguration chunkConfiguration;
+
+    @Example("true")
+    @DefaultValue("false")
+    @Property("Export Metrics (JMX)")
+    @Description("If true deliveries, redeliveries, unacknowledged deliveries, the latency from delivery to flow start " +
+            "and from flow completion to ack are recorded and exported as a JMX MBean tagged by queue name.")
+    private boolean exportMetrics;
+
+    private final List<Channel> channels = new CopyOnWriteArrayList<>();
+    private final List<ChannelConsumer> channelConsumers = new CopyOnWriteArrayList<>();
+    private final List<AckAggregator> ackAggregators = new CopyOnWriteArrayList<>();
+    private final List<ConsumerBatchDeliverCallback> batchCallbacks = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private ExecutorService flowControlExecutor;
+    private ExecutorService dispatchExecutor;
+    private StreamOffsetTracker offsetTracker;
+    private ConnectionLease lease;
+    private ConsumerMetrics metrics = ConsumerMetrics.NOOP;
+    private final Object pauseLock = new Object();
+    private int pauseRequests;
 
     @Override
     public void onStart() {
         requireNotBlank(RabbitMQConsumer.class, queueName, "Queue Name must not be empty");
+        int consumers = RabbitMQConsumerConcurrencyConfiguration.consumers(concurrencyConfiguration);
+        if (RabbitMQConsumerStreamConfiguration.isEnabled(streamConfiguration)) {
+            requireTrue(RabbitMQConsumer.class, !autoAck,
+                    "Consume Stream: a stream must be consumed with Auto Acknowledge set to false.");
+            if (consumers > 1) {
+                // Streams are not destructive: each consumer would receive all the messages.
+                logger.warn(String.format("Stream queue=[%s] is consumed by a single consumer, %d concurrent consumers were configured.", queueName, consumers));
+                consumers = 1;
+            }
+            offsetTracker = createOffsetTracker();
+        }
+        if (chunkConfiguration != null) {
+            // The broker spreads the chunks of a message across the channels of the consumers.
+            requireTrue(RabbitMQConsumer.class, consumers == 1,
+                    "Chunked Messages: chunked messages must be consumed by a single consumer, set Concurrent Consumers to 1.");
+        }
+        if (RabbitMQConsumerDispatchConfiguration.executor(dispatchConfiguration) != DispatchExecutor.CONNECTION) {
+            // Deliveries waiting for a dispatch thread are bounded by the prefetch count only.
+            requireTrue(RabbitMQConsumer.class, !autoAck,
+                    "Dispatch: Thread Pool and Virtual Threads executors require Auto Acknowledge set to false.");
+        }
+        if (RabbitMQConsumerBatchConfiguration.size(batchConfiguration) > 1) {
+            requireTrue(RabbitMQConsumer.class, chunkConfiguration == null,
+                    "Batch Consume: chunked messages cannot be consumed in batches, remove the Chunked Messages configuration or set Batch Size to 1.");
+        }
+        if (RabbitMQConsumerFlowControlConfiguration.isEnabled(flowControlConfiguration)) {
+            // The deliveries sent by the broker before the consumer is paused
+            // are bounded by the prefetch count, which requires explicit acks.
+            requireTrue(RabbitMQConsumer.class, !autoAck,
+                    "Flow Control: in-flight limits require Auto Acknowledge set to false.");
+            requireTrue(RabbitMQConsumer.class,
+                    RabbitMQConsumerConcurrencyConfiguration.prefetchCount(concurrencyConfiguration) > 0 ||
+                            RabbitMQConsumerFlowControlConfiguration.maxMessages(flowControlConfiguration) > 0,
+                    "Flow Control: Max In-Flight Bytes requires a Prefetch Count greater than zero.");
+        }
         if (connection == null) {
             requireNotBlank(RabbitMQConsumer.class, connectionURI, "Connection URI must not be empty");
-            client = ConnectionFactoryProvider.from(connectionURI);
-        } else {
-            client = ConnectionFactoryProvider.from(connection);
         }
+        if (exportMetrics) metrics = MetricsRegistry.consumer(queueName);
 
         try {
-            channel = client.createChannel();
-            createQueueIfNeeded();
+            lease = connection == null ?
+                    ConnectionRegistry.acquire(connectionURI, consumers, queueName) :
+                    ConnectionRegistry.acquire(connection, consumers, queueName);
+
             MimeType queueMessageContentType = MimeType.parse(messageMimeType, MimeType.TEXT_PLAIN);
-            if (autoAck) {
-                channel.basicConsume(queueName, true,
-                        new ConsumerDeliverCallbackAutoAck( this, queueMessageContentType),
-                        new ConsumerCancelCallback());
-            } else {
-                channel.basicConsume(queueName, false,
-                        new ConsumerDeliverCallbackExplicitAck( this, queueMessageContentType, channel),
-                        new ConsumerCancelCallback());
+            Charset defaultCharset = CharsetUtils.fromContentType(messageMimeType).orElse(StandardCharsets.UTF_8);
+            DeliveryDecoder decoder = new DeliveryDecoder(RabbitMQConsumer.class, queueMessageContentType,
+                    defaultCharset, !lazyTextDecoding, maxDecompressedSize());
+            ChunkReassembler reassembler = createReassembler();
+            InFlightBudget budget = createBudgetIfNeeded();
+            dispatchExecutor = createDispatchExecutorIfNeeded();
+            for (int i = 0; i < consumers; i++) {
+                // Each consumer has its own channel: deliveries of different channels are dispatched in parallel.
+                Channel channel = lease.connection().createChannel();
+                channels.add(channel);
+                if (i == 0) createQueueIfNeeded(channel);
+                consume(channel, decoder, reassembler, budget);
             }
 
         } catch (IOException exception) {
+            // The consumer is not going to be shut down: the connection
+            // and the channels acquired so far must be released now.
+            onShutdown();
             String error = CONSUME_ERROR.format(queueName, exception.getMessage());
             throw new RabbitMQConsumerException(error, exception);
+        } catch (RuntimeException exception) {
+            onShutdown();
+            throw exception;
         }
     }
 
     @Override
     public void onShutdown() {
-        ChannelUtils.closeSilently(channel);
-        ChannelUtils.closeSilently(client);
+        // Send the acks of the messages already processed before closing the channels.
+        ackAggregators.forEach(AckAggregator::flush);
+        ackAggregators.clear();
+        batchCallbacks.forEach(ConsumerBatchDeliverCallback::close);
+        batchCallbacks.clear();
+        if (offsetTracker != null) {
+            offsetTracker.commit();
+            offsetTracker = null;
+        }
+        channelConsumers.clear();
+        channels.forEach(ChannelUtils::closeSilently);
+        channels.clear();
+        if (dispatchExecutor != null) {
+            dispatchExecutor.shutdownNow();
+            dispatchExecutor = null;
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        synchronized (this) {
+            if (flowControlExecutor != null) {
+                flowControlExecutor.shutdownNow();
+                flowControlExecutor = null;
+            }
+        }
+        if (lease != null) lease.release();
+        if (metrics != ConsumerMetrics.NOOP) {
+            MetricsRegistry.release(metrics);
+            metrics = ConsumerMetrics.NOOP;
+        }
     }
 
     public void setConnection(ConnectionConfiguration connection) {
@@ -136,6 +301,52 @@ public class RabbitMQConsumer extends AbstractInbound {
         this.autoAck = autoAck;
     }
 
+    public void setLazyTextDecoding(Boolean lazyTextDecoding) {
+        this.lazyTextDecoding = lazyTextDecoding;
+    }
+
+    public void setMaxDecompressedSize(Integer maxDecompressedSize) {
+        this.maxDecompressedSize = maxDecompressedSize;
+    }
+
+    public void setAckConfiguration(RabbitMQConsumerAckConfiguration ackConfiguration) {
+        this.ackConfiguration = ackConfiguration;
+    }
+
+    public void setChunkConfiguration(RabbitMQConsumerChunkConfiguration chunkConfiguration) {
+        this.chunkConfiguration = chunkConfiguration;
+    }
+
+    public void setStreamConfiguration(RabbitMQConsumerStreamConfiguration streamConfiguration) {
+        this.streamConfiguration = streamConfiguration;
+    }
+
+    public void setBatchConfiguration(RabbitMQConsumerBatchConfiguration batchConfiguration) {
+        this.batchConfiguration = batchConfiguration;
+    }
+
+    public void setConcurrencyConfiguration(RabbitMQConsumerConcurrencyConfiguration concurrencyConfiguration) {
+        this.concurrencyConfiguration = concurrencyConfiguration;
+    }
+
+    public void setDispatchConfiguration(RabbitMQConsumerDispatchConfiguration dispatchConfiguration) {
+        this.dispatchConfiguration = dispatchConfiguration;
+    }
+
+    public void setFlowControlConfiguration(RabbitMQConsumerFlowControlConfiguration flowControlConfiguration) {
+        this.flowControlConfiguration = flowControlConfiguration;
+    }
+
+    public void setExportMetrics(Boolean exportMetrics) {
+        this.exportMetrics = exportMetrics;
+    }
+
+    private int maxDecompressedSize() {
+        return ofNullable(maxDecompressedSize)
+                .filter(size -> size > 0)
+                .orElse(DeliveryDecoder.DEFAULT_MAX_DECOMPRESSED_SIZE);
+    }
+
     private boolean shouldDeclareQueue() {
         return ofNullable(queueConfiguration)
                 .flatMap(queueConfiguration ->
@@ -143,13 +354,232 @@ public class RabbitMQConsumer extends AbstractInbound {
                 .orElse(false);
     }
 
-    private void createQueueIfNeeded() throws IOException {
+    private void consume(Channel channel, DeliveryDecoder decoder, ChunkReassembler reassembler, InFlightBudget budget) throws IOException {
+        if (!autoAck) {
+            int prefetchCount = RabbitMQConsumerConcurrencyConfiguration.prefetchCount(concurrencyConfiguration);
+            // Streams can only be consumed with a prefetch count.
+            if (offsetTracker != null && prefetchCount == 0) prefetchCount = RabbitMQConsumerStreamConfiguration.DEFAULT_PREFETCH_COUNT;
+            // In-flight limits are enforced only if the deliveries sent ahead by the broker are bounded.
+            if (budget != null && prefetchCount == 0) prefetchCount = RabbitMQConsumerFlowControlConfiguration.maxMessages(flowControlConfiguration);
+            // Deliveries dispatched to an executor wait for a thread without bounds otherwise.
+            if (dispatchExecutor != null && prefetchCount == 0) prefetchCount = RabbitMQConsumerDispatchConfiguration.poolSize(dispatchConfiguration);
+            if (prefetchCount > 0) {
+                boolean global = RabbitMQConsumerConcurrencyConfiguration.isGlobalPrefetch(concurrencyConfiguration);
+                channel.basicQos(prefetchCount, global);
+            }
+        }
+
+        DeliverCallback deliverCallback;
+        AckAggregator ackAggregator = null;
+        int batchSize = RabbitMQConsumerBatchConfiguration.size(batchConfiguration);
+        if (batchSize > 1) {
+            deliverCallback = createBatchCallback(channel, decoder, batchSize, budget);
+        } else if (autoAck) {
+            deliverCallback = new ConsumerDeliverCallbackAutoAck(this, decoder, reassembler, metrics);
+        } else {
+            ackAggregator = createAckAggregatorIfNeeded(channel);
+            deliverCallback = new ConsumerDeliverCallbackExplicitAck(this, decoder, reassembler, channel,
+                    createErrorHandler(channel), ackAggregator, offsetTracker, budget, metrics);
+        }
+        if (dispatchExecutor != null) {
+            // Batches are collected and stream offsets are tracked in delivery order.
+            boolean ordered = batchSize > 1 || offsetTracker != null ||
+                    RabbitMQConsumerDispatchConfiguration.isPreserveOrdering(dispatchConfiguration);
+            deliverCallback = new DispatchingDeliverCallback(deliverCallback, dispatchExecutor, ordered, channel, ackAggregator);
+        }
+        ChannelConsumer channelConsumer = offsetTracker == null ?
+                new ChannelConsumer(channel, queueName, autoAck, deliverCallback, new ConsumerCancelCallback()) :
+                new ChannelConsumer(channel, queueName, autoAck, deliverCallback, new ConsumerCancelCallback(), offsetTracker::arguments);
+        channelConsumers.add(channelConsumer);
+        channelConsumer.start();
+    }
+
+    private ConsumerBatchDeliverCallback createBatchCallback(Channel channel, DeliveryDecoder decoder, int batchSize, InFlightBudget budget) {
+        long timeout = RabbitMQConsumerBatchConfiguration.timeout(batchConfiguration);
+        // Each delivery of a failed batch is settled according to the error policy.
+        BatchAcker batchAcker = autoAck ? null : new BatchAcker(channel, createErrorHandler(channel), metrics);
+        ConsumerBatchDeliverCallback batchCallback =
+                new ConsumerBatchDeliverCallback(this, decoder, batchSize, timeout, scheduler(), batchAcker, offsetTracker, budget, metrics);
+        batchCallbacks.add(batchCallback);
+        return batchCallback;
+    }
+
+    private ExecutorService createDispatchExecutorIfNeeded() {
+        String name = "RabbitMQConsumer-" + queueName + "-dispatch";
+        int poolSize = RabbitMQConsumerDispatchConfiguration.poolSize(dispatchConfiguration);
+        switch (RabbitMQConsumerDispatchConfiguration.executor(dispatchConfiguration)) {
+            case THREAD_POOL:
+                return DispatchExecutors.threadPool(name, poolSize);
+            case VIRTUAL_THREADS:
+                return DispatchExecutors.virtualThreads(name, poolSize);
+            default:
+                // Deliveries are handled on the consumer work pool of the connection.
+                return null;
+        }
+    }
+
+    private StreamOffsetTracker createOffsetTracker() {
+        Object startOffset;
+        switch (RabbitMQConsumerStreamConfiguration.offset(streamConfiguration)) {
+            case FIRST:
+                startOffset = "first";
+                break;
+            case LAST:
+                startOffset = "last";
+                break;
+            case TIMESTAMP:
+                startOffset = new Date(RabbitMQConsumerStreamConfiguration.offsetTimestamp(streamConfiguration));
+                break;
+            case OFFSET:
+                startOffset = RabbitMQConsumerStreamConfiguration.offsetValue(streamConfiguration);
+                break;
+            default:
+                startOffset = "next";
+        }
+
+        if (!RabbitMQConsumerStreamConfiguration.isStoreOffsets(streamConfiguration)) {
+            return new StreamOffsetTracker(startOffset, null);
+        }
+
+        FileOffsetStore store = new FileOffsetStore(
+                Paths.get(RabbitMQConsumerStreamConfiguration.offsetStoreDirectory(streamConfiguration)),
+                RabbitMQConsumerStreamConfiguration.offsetStoreName(streamConfiguration, queueName));
+        StreamOffsetTracker tracker = new StreamOffsetTracker(startOffset, store);
+        scheduler().scheduleWithFixedDelay(tracker::commit, OFFSET_COMMIT_INTERVAL, OFFSET_COMMIT_INTERVAL, MILLISECONDS);
+        return tracker;
+    }
+
+    private InFlightBudget createBudgetIfNeeded() {
+        int maxMessages = RabbitMQConsumerFlowControlConfiguration.maxMessages(flowControlConfiguration);
+        long maxBytes = RabbitMQConsumerFlowControlConfiguration.maxBytes(flowControlConfiguration);
+        if (maxMessages == 0 && maxBytes == 0) return null;
+
+        return new InFlightBudget(maxMessages, maxBytes, new InFlightBudget.Listener() {
+            @Override
+            public void pause() {
+                requestPause();
+            }
+
+            @Override
+            public void resume() {
+                requestResume();
+            }
+        }, metrics);
+    }
+
+    private ChunkReassembler createReassembler() {
+        return new ChunkReassembler(
+                RabbitMQConsumerChunkConfiguration.bufferSize(chunkConfiguration),
+                RabbitMQConsumerChunkConfiguration.timeout(chunkConfiguration),
+                new ChunkReassembler.Listener() {
+                    @Override
+                    public void pause() {
+                        requestPause();
+                    }
+
+                    @Override
+                    public void resume() {
+                        requestResume();
+                    }
+                });
+    }
+
+    // Both the in-flight budget and the chunk reassembler may pause the consumers: they are
+    // resumed only when neither of them needs them paused. Consumers are cancelled and consumed
+    // again on a dedicated thread: pause and resume are requested by consumer and flow threads
+    // which must not block, and they must not wait behind ack flushes and offset commits.
+    private void requestPause() {
+        synchronized (pauseLock) {
+            if (pauseRequests++ == 0) {
+                execute(flowControlExecutor(), () -> channelConsumers.forEach(RabbitMQConsumer.this::pause));
+            }
+        }
+    }
+
+    private void requestResume() {
+        synchronized (pauseLock) {
+            if (--pauseRequests == 0) {
+                execute(flowControlExecutor(), () -> channelConsumers.forEach(RabbitMQConsumer.this::resume));
+            }
+        }
+    }
+
+    private void pause(ChannelConsumer channelConsumer) {
+        try {
+            channelConsumer.pause();
+        } catch (IOException exception) {
+            logger.warn(String.format("Could not pause consumer of queue=[%s]: %s", queueName, exception.getMessage()));
+        }
+    }
+
+    private void resume(ChannelConsumer channelConsumer) {
+        try {
+            channelConsumer.start();
+        } catch (IOException exception) {
+            logger.warn(String.format("Could not resume consumer of queue=[%s]: %s", queueName, exception.getMessage()));
+        }
+    }
+
+    private static void execute(ExecutorService executor, Runnable task) {
+        if (executor == null) return;
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException exception) {
+            // The consumer is shutting down.
+        }
+    }
+
+    private ConsumerErrorHandler createErrorHandler(Channel channel) {
+        ConsumerErrorPolicy errorPolicy = RabbitMQConsumerAckConfiguration.errorPolicy(ackConfiguration);
+        long requeueDelay = RabbitMQConsumerAckConfiguration.requeueDelay(ackConfiguration);
+        int maxRedeliveries = RabbitMQConsumerAckConfiguration.maxRedeliveries(ackConfiguration);
+        ScheduledExecutorService errorScheduler = errorPolicy == ConsumerErrorPolicy.DELAYED_REQUEUE ? scheduler() : null;
+        return new ConsumerErrorHandler(channel, errorPolicy, requeueDelay, maxRedeliveries, errorScheduler);
+    }
+
+    private synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "RabbitMQConsumer-" + queueName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    // Returns null once the consumer has been shut down: flows completing
+    // after shutdown must not start a new thread.
+    private synchronized ExecutorService flowControlExecutor() {
+        if (channels.isEmpty()) return null;
+        if (flowControlExecutor == null) {
+            flowControlExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "RabbitMQConsumer-FlowControl-" + queueName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return flowControlExecutor;
+    }
+
+    private AckAggregator createAckAggregatorIfNeeded(Channel channel) {
+        int batchSize = RabbitMQConsumerAckConfiguration.batchSize(ackConfiguration);
+        if (batchSize <= 1) return null;
+
+        long maxDelay = RabbitMQConsumerAckConfiguration.maxDelay(ackConfiguration);
+        AckAggregator ackAggregator = new AckAggregator(channel, batchSize, maxDelay, scheduler(), metrics);
+        ackAggregators.add(ackAggregator);
+        return ackAggregator;
+    }
+
+    private void createQueueIfNeeded(Channel channel) throws IOException {
         boolean shouldDeclareQueue = shouldDeclareQueue();
         if (shouldDeclareQueue) {
             boolean durable = RabbitMQConsumerQueueConfiguration.isDurable(queueConfiguration);
             boolean exclusive = RabbitMQConsumerQueueConfiguration.isExclusive(queueConfiguration);
             boolean autoDelete = RabbitMQConsumerQueueConfiguration.isAutoDelete(queueConfiguration);
-            channel.queueDeclare(queueName, durable, exclusive, autoDelete, null);
+            Map<String, Object> arguments = RabbitMQConsumerQueueConfiguration.arguments(queueConfiguration);
+            channel.queueDeclare(queueName, durable, exclusive, autoDelete, arguments);
         }
     }
 }
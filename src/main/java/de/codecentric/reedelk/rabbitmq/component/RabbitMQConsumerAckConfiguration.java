@@ -0,0 +1,113 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.*;
+import de.codecentric.reedelk.runtime.api.component.Implementor;
+import org.osgi.service.component.annotations.Component;
+
+import static java.util.Optional.ofNullable;
+import static org.osgi.service.component.annotations.ServiceScope.PROTOTYPE;
+
+@Component(service = RabbitMQConsumerAckConfiguration.class, scope = PROTOTYPE)
+public class RabbitMQConsumerAckConfiguration implements Implementor {
+
+    @Property("Ack Batch Size")
+    @Hint("50")
+    @Example("50")
+    @DefaultValue("1")
+    @Description("The number of successfully processed messages acknowledged to the broker with a single ack. " +
+            "A message is acknowledged only after all the messages delivered before it on the same channel " +
+            "have been processed. If 1 each message is acknowledged as soon as its flow completes.")
+    private Integer batchSize;
+
+    @Property("Ack Max Delay (ms)")
+    @Hint("100")
+    @Example("100")
+    @DefaultValue("100")
+    @Description("The maximum time in milliseconds a processed message waits for its ack " +
+            "before the pending acks are sent, even if the batch size has not been reached.")
+    private Long maxDelay;
+
+    @Property("On Flow Error")
+    @Example("DEAD_LETTER")
+    @DefaultValue("REQUEUE")
+    @Description("Defines what happens to a message when the flow processing it fails. " +
+            "'Nack and requeue': the message is immediately put back in the queue, " +
+            "until it exceeds the max redeliveries. " +
+            "'Nack to dead letter exchange': the message is rejected without requeue, the broker routes it " +
+            "to the dead letter exchange of the queue if one is configured, otherwise it is dropped. " +
+            "'Requeue after delay': the message is put back in the queue once the requeue delay expires.")
+    private ConsumerErrorPolicy errorPolicy;
+
+    @Property("Requeue Delay (ms)")
+    @Hint("1000")
+    @Example("1000")
+    @DefaultValue("1000")
+    @When(propertyName = "errorPolicy", propertyValue = "DELAYED_REQUEUE")
+    @Description("The time in milliseconds a message whose flow failed is held before being requeued.")
+    private Long requeueDelay;
+
+    @Property("Max Redeliveries")
+    @Hint("5")
+    @Example("5")
+    @DefaultValue("1")
+    @Description("When a failed message has already been redelivered at least this number of times, " +
+            "it is rejected without requeue (dead lettered). The count is taken from the 'x-delivery-count' header " +
+            "(quorum queues) or from the 'x-death' header (dead letter cycles). Classic queues only flag redelivered " +
+            "messages: a redelivered message without a count is dead lettered whatever the max redeliveries. " +
+            "Zero means no limit: a message is requeued until its flow succeeds.")
+    private Integer maxRedeliveries;
+
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setMaxDelay(Long maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    public void setErrorPolicy(ConsumerErrorPolicy errorPolicy) {
+        this.errorPolicy = errorPolicy;
+    }
+
+    public void setRequeueDelay(Long requeueDelay) {
+        this.requeueDelay = requeueDelay;
+    }
+
+    public void setMaxRedeliveries(Integer maxRedeliveries) {
+        this.maxRedeliveries = maxRedeliveries;
+    }
+
+    public static int batchSize(RabbitMQConsumerAckConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.batchSize))
+                .filter(batchSize -> batchSize > 0)
+                .orElse(1);
+    }
+
+    public static long maxDelay(RabbitMQConsumerAckConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.maxDelay))
+                .filter(maxDelay -> maxDelay > 0)
+                .orElse(100L);
+    }
+
+    public static ConsumerErrorPolicy errorPolicy(RabbitMQConsumerAckConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.errorPolicy))
+                .orElse(ConsumerErrorPolicy.REQUEUE);
+    }
+
+    public static long requeueDelay(RabbitMQConsumerAckConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.requeueDelay))
+                .filter(requeueDelay -> requeueDelay > 0)
+                .orElse(1000L);
+    }
+
+    public static int maxRedeliveries(RabbitMQConsumerAckConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.maxRedeliveries))
+                .filter(maxRedeliveries -> maxRedeliveries >= 0)
+                .orElse(1);
+    }
+}
@@ -0,0 +1,54 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.*;
+import de.codecentric.reedelk.runtime.api.component.Implementor;
+import org.osgi.service.component.annotations.Component;
+
+import static java.util.Optional.ofNullable;
+import static org.osgi.service.component.annotations.ServiceScope.PROTOTYPE;
+
+@Component(service = RabbitMQConsumerBatchConfiguration.class, scope = PROTOTYPE)
+public class RabbitMQConsumerBatchConfiguration implements Implementor {
+
+    @Property("Batch Size")
+    @Hint("100")
+    @Example("100")
+    @DefaultValue("1")
+    @Description("The maximum number of messages delivered on a channel collected into a single flow message. " +
+            "The payload of the flow message is the list of the message contents and its 'messages' attribute " +
+            "is the list of the attributes of each message. If 1 each message starts its own flow. " +
+            "Without auto acknowledge the prefetch count should be at least the batch size, " +
+            "otherwise batches are completed by the batch timeout only. When the flow of a batch fails, each of its " +
+            "messages is settled according to the error policy. Chunked messages cannot be consumed in batches.")
+    private Integer size;
+
+    @Property("Batch Timeout (ms)")
+    @Hint("1000")
+    @Example("1000")
+    @DefaultValue("1000")
+    @Description("The maximum time in milliseconds to wait for a batch to fill up: " +
+            "when it expires the messages collected so far start the flow, even if the batch size has not been reached.")
+    private Long timeout;
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    public void setTimeout(Long timeout) {
+        this.timeout = timeout;
+    }
+
+    public static int size(RabbitMQConsumerBatchConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.size))
+                .filter(size -> size > 0)
+                .orElse(1);
+    }
+
+    public static long timeout(RabbitMQConsumerBatchConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.timeout))
+                .filter(timeout -> timeout > 0)
+                .orElse(1000L);
+    }
+}
@@ -0,0 +1,54 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.*;
+import de.codecentric.reedelk.runtime.api.component.Implementor;
+import org.osgi.service.component.annotations.Component;
+
+import static java.util.Optional.ofNullable;
+import static org.osgi.service.component.annotations.ServiceScope.PROTOTYPE;
+
+@Component(service = RabbitMQConsumerChunkConfiguration.class, scope = PROTOTYPE)
+public class RabbitMQConsumerChunkConfiguration implements Implementor {
+
+    @Property("Reassembly Buffer (chunks)")
+    @Hint("16")
+    @Example("16")
+    @DefaultValue("16")
+    @Description("Messages published in chunks by a RabbitMQ Producer are reassembled into a stream payload. " +
+            "When this number of chunks of a message is buffered in memory waiting for the flow to read them, the consumer is " +
+            "paused until the flow has read half of them. All the chunks of a message are acknowledged together when its flow " +
+            "completes, or rejected if it fails: the prefetch count must be 0 or larger than the number of chunks of a message. " +
+            "Chunks of a message must be consumed in order: chunked messages require a single concurrent consumer.")
+    private Integer bufferSize;
+
+    @Property("Chunk Timeout (ms)")
+    @Hint("30000")
+    @Example("30000")
+    @DefaultValue("30000")
+    @Description("The maximum time in milliseconds to wait for the next chunk of a message, " +
+            "after which the flow reading the message fails. Chunks of a message whose flow has completed more than " +
+            "this time ago are discarded (rejected without requeue).")
+    private Long timeout;
+
+    public void setBufferSize(Integer bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public void setTimeout(Long timeout) {
+        this.timeout = timeout;
+    }
+
+    public static int bufferSize(RabbitMQConsumerChunkConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.bufferSize))
+                .filter(bufferSize -> bufferSize > 0)
+                .orElse(16);
+    }
+
+    public static long timeout(RabbitMQConsumerChunkConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.timeout))
+                .filter(timeout -> timeout > 0)
+                .orElse(30000L);
+    }
+}
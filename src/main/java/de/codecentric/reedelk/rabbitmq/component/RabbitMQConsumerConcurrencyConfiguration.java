@@ -0,0 +1,66 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.*;
+import de.codecentric.reedelk.runtime.api.component.Implementor;
+import org.osgi.service.component.annotations.Component;
+
+import static java.util.Optional.ofNullable;
+import static org.osgi.service.component.annotations.ServiceScope.PROTOTYPE;
+
+@Component(service = RabbitMQConsumerConcurrencyConfiguration.class, scope = PROTOTYPE)
+public class RabbitMQConsumerConcurrencyConfiguration implements Implementor {
+
+    @Property("Concurrent Consumers")
+    @Hint("4")
+    @Example("4")
+    @DefaultValue("1")
+    @Description("The number of consumers subscribed to the queue. Each consumer uses its own channel, " +
+            "hence messages are dispatched to the flow by several threads in parallel.")
+    private Integer consumers;
+
+    @Property("Prefetch Count")
+    @Hint("250")
+    @Example("250")
+    @DefaultValue("0")
+    @Description("The maximum number of messages the broker delivers to a consumer without " +
+            "receiving an acknowledgement. Zero means unlimited. It only applies when auto acknowledge is false.")
+    private Integer prefetchCount;
+
+    @Property("Global Prefetch")
+    @Example("true")
+    @DefaultValue("false")
+    @Description("If true the prefetch count is applied to the whole channel instead of to each consumer on the channel.")
+    private Boolean globalPrefetch;
+
+    public void setConsumers(Integer consumers) {
+        this.consumers = consumers;
+    }
+
+    public void setPrefetchCount(Integer prefetchCount) {
+        this.prefetchCount = prefetchCount;
+    }
+
+    public void setGlobalPrefetch(Boolean globalPrefetch) {
+        this.globalPrefetch = globalPrefetch;
+    }
+
+    public static int consumers(RabbitMQConsumerConcurrencyConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.consumers))
+                .filter(consumers -> consumers > 0)
+                .orElse(1);
+    }
+
+    public static int prefetchCount(RabbitMQConsumerConcurrencyConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.prefetchCount))
+                .filter(prefetchCount -> prefetchCount > 0)
+                .orElse(0);
+    }
+
+    public static boolean isGlobalPrefetch(RabbitMQConsumerConcurrencyConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.globalPrefetch))
+                .orElse(false);
+    }
+}
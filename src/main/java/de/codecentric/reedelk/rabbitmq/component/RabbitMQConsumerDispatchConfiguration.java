@@ -0,0 +1,74 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.*;
+import de.codecentric.reedelk.runtime.api.component.Implementor;
+import org.osgi.service.component.annotations.Component;
+
+import static java.util.Optional.ofNullable;
+import static org.osgi.service.component.annotations.ServiceScope.PROTOTYPE;
+
+@Component(service = RabbitMQConsumerDispatchConfiguration.class, scope = PROTOTYPE)
+public class RabbitMQConsumerDispatchConfiguration implements Implementor {
+
+    @Property("Dispatch Executor")
+    @Example("VIRTUAL_THREADS")
+    @DefaultValue("CONNECTION")
+    @Description("The executor running the flows of the consumed messages. Connection Work Pool runs them " +
+            "on the consumer threads of the connection, which are blocked for as long as a flow does blocking IO. " +
+            "Thread Pool runs them on a pool of threads owned by this consumer. Virtual Threads runs each flow " +
+            "on its own virtual thread on JDK 21 or later, and on a pool of threads on older JDKs. " +
+            "Thread Pool and Virtual Threads require Auto Acknowledge set to false: the number of messages waiting " +
+            "for a thread or in progress is bounded by the prefetch count, which is the thread pool size when no " +
+            "Prefetch Count is configured.")
+    private DispatchExecutor executor;
+
+    @Property("Thread Pool Size")
+    @Hint("64")
+    @Example("64")
+    @DefaultValue("64")
+    @When(propertyName = "executor", propertyValue = "THREAD_POOL")
+    @When(propertyName = "executor", propertyValue = "VIRTUAL_THREADS")
+    @Description("The number of threads of the pool. With virtual threads it is only used on JDKs older than 21.")
+    private Integer poolSize;
+
+    @Property("Preserve Ordering")
+    @Example("true")
+    @DefaultValue("false")
+    @When(propertyName = "executor", propertyValue = "THREAD_POOL")
+    @When(propertyName = "executor", propertyValue = "VIRTUAL_THREADS")
+    @Description("If true the messages delivered on a channel start their flows one at a time in delivery order, " +
+            "as with the connection work pool. If false they start in parallel. " +
+            "The chunks of a chunked message and batches are always dispatched in order.")
+    private Boolean preserveOrdering;
+
+    public void setExecutor(DispatchExecutor executor) {
+        this.executor = executor;
+    }
+
+    public void setPoolSize(Integer poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public void setPreserveOrdering(Boolean preserveOrdering) {
+        this.preserveOrdering = preserveOrdering;
+    }
+
+    public static DispatchExecutor executor(RabbitMQConsumerDispatchConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.executor))
+                .orElse(DispatchExecutor.CONNECTION);
+    }
+
+    public static int poolSize(RabbitMQConsumerDispatchConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.poolSize))
+                .filter(size -> size > 0)
+                .orElse(64);
+    }
+
+    public static boolean isPreserveOrdering(RabbitMQConsumerDispatchConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.preserveOrdering))
+                .orElse(false);
+    }
+}
@@ -0,0 +1,58 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.*;
+import de.codecentric.reedelk.runtime.api.component.Implementor;
+import org.osgi.service.component.annotations.Component;
+
+import static java.util.Optional.ofNullable;
+import static org.osgi.service.component.annotations.ServiceScope.PROTOTYPE;
+
+@Component(service = RabbitMQConsumerFlowControlConfiguration.class, scope = PROTOTYPE)
+public class RabbitMQConsumerFlowControlConfiguration implements Implementor {
+
+    @Property("Max In-Flight Messages")
+    @Hint("1000")
+    @Example("1000")
+    @DefaultValue("0")
+    @Description("The maximum number of messages whose flow has been started and has not completed yet. " +
+            "When the limit is reached the consumer stops consuming from the queue and it resumes once half " +
+            "of the in-flight flows have completed. Zero means unlimited. In-flight limits require Auto Acknowledge " +
+            "set to false: when no Prefetch Count is configured, this limit is used as prefetch count.")
+    private Integer maxMessages;
+
+    @Property("Max In-Flight Bytes")
+    @Hint("67108864")
+    @Example("67108864")
+    @DefaultValue("0")
+    @Description("The maximum total size in bytes of the message bodies whose flow has been started and has not " +
+            "completed yet. When the limit is reached the consumer stops consuming from the queue and it resumes " +
+            "once the in-flight bytes are below half of the limit. Zero means unlimited. It requires a Prefetch Count " +
+            "or Max In-Flight Messages greater than zero.")
+    private Long maxBytes;
+
+    public void setMaxMessages(Integer maxMessages) {
+        this.maxMessages = maxMessages;
+    }
+
+    public void setMaxBytes(Long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static boolean isEnabled(RabbitMQConsumerFlowControlConfiguration configuration) {
+        return maxMessages(configuration) > 0 || maxBytes(configuration) > 0;
+    }
+
+    public static int maxMessages(RabbitMQConsumerFlowControlConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.maxMessages))
+                .filter(maxMessages -> maxMessages > 0)
+                .orElse(0);
+    }
+
+    public static long maxBytes(RabbitMQConsumerFlowControlConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.maxBytes))
+                .filter(maxBytes -> maxBytes > 0)
+                .orElse(0L);
+    }
+}
@@ -1,9 +1,13 @@
 package de.codecentric.reedelk.rabbitmq.component;
 
+import de.codecentric.reedelk.rabbitmq.internal.QueueArguments;
 import de.codecentric.reedelk.runtime.api.annotation.*;
+import de.codecentric.reedelk.runtime.api.commons.StringUtils;
 import de.codecentric.reedelk.runtime.api.component.Implementor;
 import org.osgi.service.component.annotations.Component;
 
+import java.util.Map;
+
 import static java.util.Optional.ofNullable;
 import static org.osgi.service.component.annotations.ServiceScope.PROTOTYPE;
 
@@ -18,6 +22,14 @@ public class RabbitMQConsumerQueueConfiguration implements Implementor {
             " queue does not exists.")
     private Boolean create;
 
+    @Property("Queue Type")
+    @Example("QUORUM")
+    @DefaultValue("CLASSIC")
+    @When(propertyName = "create", propertyValue = "true")
+    @Description("The type of the queue to be created (x-queue-type). " +
+            "Quorum and stream queues are always durable, non exclusive and non auto delete.")
+    private QueueType type;
+
     @Property("Durable after restart")
     @Example("true")
     @DefaultValue("false")
@@ -39,6 +51,80 @@ public class RabbitMQConsumerQueueConfiguration implements Implementor {
     @Description("If true the server will delete the queue when it is no longer in use.")
     private Boolean autoDelete;
 
+    @Property("Lazy Mode")
+    @Example("true")
+    @DefaultValue("false")
+    @When(propertyName = "create", propertyValue = "true")
+    @Description("If true the queue is created in lazy mode (x-queue-mode=lazy): messages are moved to disk " +
+            "as early as possible and kept in memory only when requested by consumers, keeping broker memory " +
+            "bounded under long backlogs. Applies to classic queues only.")
+    private Boolean lazy;
+
+    @Property("Max Length")
+    @Hint("100000")
+    @Example("100000")
+    @DefaultValue("0")
+    @When(propertyName = "create", propertyValue = "true")
+    @Description("The maximum number of ready messages in the queue (x-max-length). Zero means unlimited. " +
+            "Not applicable to stream queues.")
+    private Integer maxLength;
+
+    @Property("Max Length Bytes")
+    @Hint("1073741824")
+    @Example("1073741824")
+    @DefaultValue("0")
+    @When(propertyName = "create", propertyValue = "true")
+    @Description("The maximum total size in bytes of the ready messages in the queue (x-max-length-bytes). Zero means unlimited.")
+    private Long maxLengthBytes;
+
+    @Property("Overflow Behaviour")
+    @Example("REJECT_PUBLISH")
+    @DefaultValue("DROP_HEAD")
+    @When(propertyName = "create", propertyValue = "true")
+    @Description("What the broker does when a max length is reached (x-overflow). " +
+            "'Drop Head': the oldest messages are dropped or dead lettered. " +
+            "'Reject Publish': new messages are rejected (nacked when publisher confirms are enabled). " +
+            "'Reject Publish to Dead Letter': new messages are rejected and dead lettered, not supported by quorum queues.")
+    private QueueOverflow overflow;
+
+    @Property("Message TTL (ms)")
+    @Hint("60000")
+    @Example("60000")
+    @DefaultValue("0")
+    @When(propertyName = "create", propertyValue = "true")
+    @Description("The time in milliseconds a message can stay in the queue before it expires " +
+            "and it is dropped or dead lettered (x-message-ttl). Zero means no expiration.")
+    private Long messageTtl;
+
+    @Property("Max Priority")
+    @Hint("10")
+    @Example("10")
+    @DefaultValue("0")
+    @When(propertyName = "create", propertyValue = "true")
+    @Description("The maximum priority supported by the queue, between 1 and 255 (x-max-priority). " +
+            "Zero means the queue does not support priorities. Applies to classic queues only.")
+    private Integer maxPriority;
+
+    @Property("Dead Letter Exchange")
+    @Hint("dlx")
+    @Example("dlx")
+    @When(propertyName = "create", propertyValue = "true")
+    @Description("The exchange messages are republished to when they are rejected without requeue, " +
+            "expire or are dropped because of a max length (x-dead-letter-exchange).")
+    private String deadLetterExchange;
+
+    @Property("Dead Letter Routing Key")
+    @Hint("queue_dead_letter")
+    @Example("queue_dead_letter")
+    @When(propertyName = "create", propertyValue = "true")
+    @Description("The routing key of the dead lettered messages (x-dead-letter-routing-key). " +
+            "If empty the original routing key of the message is used.")
+    private String deadLetterRoutingKey;
+
+    public void setType(QueueType type) {
+        this.type = type;
+    }
+
     public void setDurable(Boolean durable) {
         this.durable = durable;
     }
@@ -55,27 +141,136 @@ public class RabbitMQConsumerQueueConfiguration implements Implementor {
         this.create = create;
     }
 
+    public void setLazy(Boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    public void setMaxLength(Integer maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    public void setMaxLengthBytes(Long maxLengthBytes) {
+        this.maxLengthBytes = maxLengthBytes;
+    }
+
+    public void setOverflow(QueueOverflow overflow) {
+        this.overflow = overflow;
+    }
+
+    public void setMessageTtl(Long messageTtl) {
+        this.messageTtl = messageTtl;
+    }
+
+    public void setMaxPriority(Integer maxPriority) {
+        this.maxPriority = maxPriority;
+    }
+
+    public void setDeadLetterExchange(String deadLetterExchange) {
+        this.deadLetterExchange = deadLetterExchange;
+    }
+
+    public void setDeadLetterRoutingKey(String deadLetterRoutingKey) {
+        this.deadLetterRoutingKey = deadLetterRoutingKey;
+    }
+
     public static boolean isCreateNew(RabbitMQConsumerQueueConfiguration configuration) {
         return ofNullable(configuration)
                 .flatMap(config -> ofNullable(config.create))
                 .orElse(false);
     }
 
+    public static QueueType type(RabbitMQConsumerQueueConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.type))
+                .orElse(QueueType.CLASSIC);
+    }
+
     public static boolean isDurable(RabbitMQConsumerQueueConfiguration configuration) {
+        if (type(configuration) != QueueType.CLASSIC) return true;
         return ofNullable(configuration)
                 .flatMap(config -> ofNullable(config.durable))
                 .orElse(false);
     }
 
     public static boolean isExclusive(RabbitMQConsumerQueueConfiguration configuration) {
+        if (type(configuration) != QueueType.CLASSIC) return false;
         return ofNullable(configuration)
                 .flatMap(config -> ofNullable(config.exclusive))
                 .orElse(false);
     }
 
     public static boolean isAutoDelete(RabbitMQConsumerQueueConfiguration configuration) {
+        if (type(configuration) != QueueType.CLASSIC) return false;
         return ofNullable(configuration)
                 .flatMap(config -> ofNullable(config.autoDelete))
                 .orElse(false);
     }
+
+    public static boolean isLazy(RabbitMQConsumerQueueConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.lazy))
+                .orElse(false);
+    }
+
+    public static int maxLength(RabbitMQConsumerQueueConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.maxLength))
+                .filter(maxLength -> maxLength > 0)
+                .orElse(0);
+    }
+
+    public static long maxLengthBytes(RabbitMQConsumerQueueConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.maxLengthBytes))
+                .filter(maxLengthBytes -> maxLengthBytes > 0)
+                .orElse(0L);
+    }
+
+    public static QueueOverflow overflow(RabbitMQConsumerQueueConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.overflow))
+                .orElse(QueueOverflow.DROP_HEAD);
+    }
+
+    public static long messageTtl(RabbitMQConsumerQueueConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.messageTtl))
+                .filter(messageTtl -> messageTtl > 0)
+                .orElse(0L);
+    }
+
+    public static int maxPriority(RabbitMQConsumerQueueConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.maxPriority))
+                .filter(maxPriority -> maxPriority > 0)
+                .map(maxPriority -> Math.min(maxPriority, 255))
+                .orElse(0);
+    }
+
+    public static String deadLetterExchange(RabbitMQConsumerQueueConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.deadLetterExchange))
+                .filter(StringUtils::isNotBlank)
+                .orElse(null);
+    }
+
+    public static String deadLetterRoutingKey(RabbitMQConsumerQueueConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.deadLetterRoutingKey))
+                .filter(StringUtils::isNotBlank)
+                .orElse(null);
+    }
+
+    /**
+     * The arguments of the queue declaration, null if there are none.
+     */
+    public static Map<String, Object> arguments(RabbitMQConsumerQueueConfiguration configuration) {
+        return new QueueArguments(type(configuration))
+                .lazy(isLazy(configuration))
+                .maxLength(maxLength(configuration), maxLengthBytes(configuration), overflow(configuration))
+                .messageTtl(messageTtl(configuration))
+                .maxPriority(maxPriority(configuration))
+                .deadLetter(deadLetterExchange(configuration), deadLetterRoutingKey(configuration))
+                .build();
+    }
 }
@@ -0,0 +1,145 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.*;
+import de.codecentric.reedelk.runtime.api.component.Implementor;
+import org.osgi.service.component.annotations.Component;
+
+import java.nio.file.Paths;
+
+import static java.util.Optional.ofNullable;
+import static org.osgi.service.component.annotations.ServiceScope.PROTOTYPE;
+
+@Component(service = RabbitMQConsumerStreamConfiguration.class, scope = PROTOTYPE)
+public class RabbitMQConsumerStreamConfiguration implements Implementor {
+
+    public static final int DEFAULT_PREFETCH_COUNT = 100;
+
+    @Property("Consume Stream")
+    @Example("true")
+    @DefaultValue("false")
+    @Description("If true the queue is a stream queue (x-queue-type=stream). Streams are consumed without " +
+            "auto acknowledge and with a single consumer, starting from the configured offset. " +
+            "When the prefetch count is zero a prefetch count of " + DEFAULT_PREFETCH_COUNT + " is used.")
+    private Boolean enabled;
+
+    @Property("Start Offset")
+    @Example("FIRST")
+    @DefaultValue("NEXT")
+    @When(propertyName = "enabled", propertyValue = "true")
+    @Description("Where the consumption of the stream starts when there is no stored offset. " +
+            "'First': from the first message available in the stream. 'Last': from the last chunk of messages " +
+            "written to the stream. 'Next': from the next message written to the stream. " +
+            "'Timestamp': from the messages written at or after the given time. 'Offset': from the given offset.")
+    private StreamOffset offset;
+
+    @Property("Start Timestamp")
+    @Hint("1577836800000")
+    @Example("1577836800000")
+    @When(propertyName = "offset", propertyValue = "TIMESTAMP")
+    @Description("The time in milliseconds since the epoch from which the stream is consumed.")
+    private Long offsetTimestamp;
+
+    @Property("Start Offset Value")
+    @Hint("0")
+    @Example("5000")
+    @When(propertyName = "offset", propertyValue = "OFFSET")
+    @Description("The offset from which the stream is consumed.")
+    private Long offsetValue;
+
+    @Property("Store Offsets")
+    @Example("true")
+    @DefaultValue("false")
+    @When(propertyName = "enabled", propertyValue = "true")
+    @Description("If true the offset of the last message whose flow has completed (and of all the messages before it) " +
+            "is stored in a local file, and consumption resumes after it when the consumer is restarted, " +
+            "instead of starting from the configured start offset.")
+    private Boolean storeOffsets;
+
+    @Property("Offset Store Directory")
+    @Hint("/var/reedelk/rabbitmq-offsets")
+    @Example("/var/reedelk/rabbitmq-offsets")
+    @When(propertyName = "storeOffsets", propertyValue = "true")
+    @Description("The directory of the offset files. Defaults to 'rabbitmq-offsets' in the user home directory.")
+    private String offsetStoreDirectory;
+
+    @Property("Offset Store Name")
+    @Hint("orders-projection")
+    @Example("orders-projection")
+    @When(propertyName = "storeOffsets", propertyValue = "true")
+    @Description("The name identifying the offset of this consumer: consumers of the same stream " +
+            "in different flows must use different names. Defaults to the queue name.")
+    private String offsetStoreName;
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setOffset(StreamOffset offset) {
+        this.offset = offset;
+    }
+
+    public void setOffsetTimestamp(Long offsetTimestamp) {
+        this.offsetTimestamp = offsetTimestamp;
+    }
+
+    public void setOffsetValue(Long offsetValue) {
+        this.offsetValue = offsetValue;
+    }
+
+    public void setStoreOffsets(Boolean storeOffsets) {
+        this.storeOffsets = storeOffsets;
+    }
+
+    public void setOffsetStoreDirectory(String offsetStoreDirectory) {
+        this.offsetStoreDirectory = offsetStoreDirectory;
+    }
+
+    public void setOffsetStoreName(String offsetStoreName) {
+        this.offsetStoreName = offsetStoreName;
+    }
+
+    public static boolean isEnabled(RabbitMQConsumerStreamConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.enabled))
+                .orElse(false);
+    }
+
+    public static StreamOffset offset(RabbitMQConsumerStreamConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.offset))
+                .orElse(StreamOffset.NEXT);
+    }
+
+    public static long offsetTimestamp(RabbitMQConsumerStreamConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.offsetTimestamp))
+                .orElse(0L);
+    }
+
+    public static long offsetValue(RabbitMQConsumerStreamConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.offsetValue))
+                .filter(offsetValue -> offsetValue >= 0)
+                .orElse(0L);
+    }
+
+    public static boolean isStoreOffsets(RabbitMQConsumerStreamConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.storeOffsets))
+                .orElse(false);
+    }
+
+    public static String offsetStoreDirectory(RabbitMQConsumerStreamConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.offsetStoreDirectory))
+                .filter(directory -> !directory.trim().isEmpty())
+                .orElse(Paths.get(System.getProperty("user.home"), "rabbitmq-offsets").toString());
+    }
+
+    public static String offsetStoreName(RabbitMQConsumerStreamConfiguration configuration, String queueName) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.offsetStoreName))
+                .filter(name -> !name.trim().isEmpty())
+                .orElse(queueName);
+    }
+}
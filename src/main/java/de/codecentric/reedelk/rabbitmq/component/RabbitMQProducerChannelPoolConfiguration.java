@@ -0,0 +1,52 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.*;
+import de.codecentric.reedelk.runtime.api.component.Implementor;
+import org.osgi.service.component.annotations.Component;
+
+import static java.util.Optional.ofNullable;
+import static org.osgi.service.component.annotations.ServiceScope.PROTOTYPE;
+
+@Component(service = RabbitMQProducerChannelPoolConfiguration.class, scope = PROTOTYPE)
+public class RabbitMQProducerChannelPoolConfiguration implements Implementor {
+
+    @Property("Channel Pool Size")
+    @Hint("4")
+    @Example("4")
+    @DefaultValue("1")
+    @Description("The number of channels opened by the producer to publish messages. " +
+            "Messages published on different channels are published in parallel.")
+    private Integer size;
+
+    @Property("Publish Ordering")
+    @Example("ROUTING_KEY")
+    @DefaultValue("NONE")
+    @Description("Defines which messages must keep their publishing order. " +
+            "'None': each message is published on the first channel available. " +
+            "'Per Routing Key': messages with the same evaluated routing key are always published on the same channel, " +
+            "hence messages published to a single queue are not published in parallel. " +
+            "'Per Correlation ID': messages with the same correlation ID message attribute are always published " +
+            "on the same channel; messages without a correlation ID are published on the first channel available.")
+    private PublishOrdering ordering;
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    public void setOrdering(PublishOrdering ordering) {
+        this.ordering = ordering;
+    }
+
+    public static int size(RabbitMQProducerChannelPoolConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.size))
+                .filter(size -> size > 0)
+                .orElse(1);
+    }
+
+    public static PublishOrdering ordering(RabbitMQProducerChannelPoolConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.ordering))
+                .orElse(PublishOrdering.NONE);
+    }
+}
@@ -0,0 +1,51 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.*;
+import de.codecentric.reedelk.runtime.api.component.Implementor;
+import org.osgi.service.component.annotations.Component;
+
+import static java.util.Optional.ofNullable;
+import static org.osgi.service.component.annotations.ServiceScope.PROTOTYPE;
+
+@Component(service = RabbitMQProducerChunkConfiguration.class, scope = PROTOTYPE)
+public class RabbitMQProducerChunkConfiguration implements Implementor {
+
+    @Property("Chunk Size (bytes)")
+    @Hint("1048576")
+    @Example("1048576")
+    @DefaultValue("0")
+    @Description("If greater than zero, stream payloads and payloads larger than this size are published " +
+            "as a sequence of chunk messages of at most this size. Stream payloads are read and published " +
+            "chunk by chunk, without loading the whole payload in memory. A RabbitMQ Consumer reassembles " +
+            "the chunks into a stream payload. Zero disables chunking.")
+    private Integer chunkSize;
+
+    @Property("Stream Read Timeout (ms)")
+    @Hint("30000")
+    @Example("30000")
+    @DefaultValue("30000")
+    @Description("The maximum time in milliseconds to wait for the next data of a stream payload being published in chunks.")
+    private Long timeout;
+
+    public void setChunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public void setTimeout(Long timeout) {
+        this.timeout = timeout;
+    }
+
+    public static int chunkSize(RabbitMQProducerChunkConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.chunkSize))
+                .filter(chunkSize -> chunkSize > 0)
+                .orElse(0);
+    }
+
+    public static long timeout(RabbitMQProducerChunkConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.timeout))
+                .filter(timeout -> timeout > 0)
+                .orElse(30000L);
+    }
+}
@@ -0,0 +1,52 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.*;
+import de.codecentric.reedelk.runtime.api.component.Implementor;
+import org.osgi.service.component.annotations.Component;
+
+import static java.util.Optional.ofNullable;
+import static org.osgi.service.component.annotations.ServiceScope.PROTOTYPE;
+
+@Component(service = RabbitMQProducerCompressionConfiguration.class, scope = PROTOTYPE)
+public class RabbitMQProducerCompressionConfiguration implements Implementor {
+
+    @Property("Compression")
+    @Example("gzip")
+    @DefaultValue("none")
+    @Combo(editable = true, comboValues = {"none", "gzip", "deflate"})
+    @Description("The codec used to compress the message payload. The codec name is sent as the message " +
+            "'contentEncoding' property and a RabbitMQ Consumer transparently decompresses the payload. " +
+            "Besides 'gzip' and 'deflate', any codec registered as a CompressionCodec service can be used. Chunked messages are never compressed.")
+    private String codec;
+
+    @Property("Compression Threshold (bytes)")
+    @Hint("1024")
+    @Example("1024")
+    @DefaultValue("1024")
+    @Description("Payloads smaller than this size are published uncompressed: " +
+            "compressing small payloads costs more CPU than the bytes it saves.")
+    private Integer threshold;
+
+    public void setCodec(String codec) {
+        this.codec = codec;
+    }
+
+    public void setThreshold(Integer threshold) {
+        this.threshold = threshold;
+    }
+
+    public static String codec(RabbitMQProducerCompressionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.codec))
+                .map(String::trim)
+                .filter(codec -> !codec.isEmpty())
+                .orElse("none");
+    }
+
+    public static int threshold(RabbitMQProducerCompressionConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.threshold))
+                .filter(threshold -> threshold >= 0)
+                .orElse(1024);
+    }
+}
@@ -0,0 +1,70 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.*;
+import de.codecentric.reedelk.runtime.api.component.Implementor;
+import org.osgi.service.component.annotations.Component;
+
+import static java.util.Optional.ofNullable;
+import static org.osgi.service.component.annotations.ServiceScope.PROTOTYPE;
+
+@Component(service = RabbitMQProducerConfirmConfiguration.class, scope = PROTOTYPE)
+public class RabbitMQProducerConfirmConfiguration implements Implementor {
+
+    @Property("Publisher Confirms")
+    @Example("true")
+    @DefaultValue("false")
+    @Description("If true the channel is put in confirm mode and the flow continues only after the broker " +
+            "has confirmed the published message. The flow fails if the broker rejects (nack) the message " +
+            "or if the confirm does not arrive within the confirm timeout.")
+    private Boolean enabled;
+
+    @Property("Confirm Window Size")
+    @Hint("1024")
+    @Example("1024")
+    @DefaultValue("1024")
+    @When(propertyName = "enabled", propertyValue = "true")
+    @Description("The maximum number of published messages waiting for a broker confirm at any given time. " +
+            "When the window is full, publishers wait until a confirm frees a slot.")
+    private Integer windowSize;
+
+    @Property("Confirm Timeout (ms)")
+    @Hint("5000")
+    @Example("5000")
+    @DefaultValue("5000")
+    @When(propertyName = "enabled", propertyValue = "true")
+    @Description("The maximum time in milliseconds to wait for a free slot in the confirm window " +
+            "and for the broker confirm of a published message.")
+    private Long timeout;
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setWindowSize(Integer windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public void setTimeout(Long timeout) {
+        this.timeout = timeout;
+    }
+
+    public static boolean isEnabled(RabbitMQProducerConfirmConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.enabled))
+                .orElse(false);
+    }
+
+    public static int windowSize(RabbitMQProducerConfirmConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.windowSize))
+                .filter(size -> size > 0)
+                .orElse(1024);
+    }
+
+    public static long timeout(RabbitMQProducerConfirmConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.timeout))
+                .filter(timeout -> timeout > 0)
+                .orElse(5000L);
+    }
+}
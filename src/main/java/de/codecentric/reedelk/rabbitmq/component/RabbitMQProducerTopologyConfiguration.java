@@ -0,0 +1,123 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.*;
+import de.codecentric.reedelk.runtime.api.component.Implementor;
+import org.osgi.service.component.annotations.Component;
+
+import static java.util.Optional.ofNullable;
+import static org.osgi.service.component.annotations.ServiceScope.PROTOTYPE;
+
+@Component(service = RabbitMQProducerTopologyConfiguration.class, scope = PROTOTYPE)
+public class RabbitMQProducerTopologyConfiguration implements Implementor {
+
+    @Property("Declare Evaluated Topology")
+    @Example("true")
+    @DefaultValue("false")
+    @Description("If true the queue, the exchange and the binding " +
+            "are declared the first time each evaluated (e.g. dynamic) name is published to. " +
+            "Declared names are remembered per connection, so that publishing never repeats a declaration, " +
+            "and they are declared again after the connection has been recovered.")
+    private Boolean enabled;
+
+    @Property("Declare Queue")
+    @Example("true")
+    @DefaultValue("false")
+    @When(propertyName = "enabled", propertyValue = "true")
+    @Description("If true the evaluated queue is declared: with the Queue Configuration settings when 'Create new queue' " +
+            "is true, otherwise as a durable queue. The Queue Configuration is available for literal queue names only.")
+    private Boolean declareQueue;
+
+    @Property("Declare Exchange")
+    @Example("true")
+    @DefaultValue("false")
+    @When(propertyName = "enabled", propertyValue = "true")
+    @Description("If true the evaluated exchange is declared as a durable exchange of the given exchange type.")
+    private Boolean declareExchange;
+
+    @Property("Exchange Type")
+    @Example("topic")
+    @DefaultValue("direct")
+    @Combo(comboValues = {"direct", "fanout", "topic", "headers"})
+    @When(propertyName = "declareExchange", propertyValue = "true")
+    @Description("The type of the declared exchange.")
+    private String exchangeType;
+
+    @Property("Bind Queue")
+    @Example("true")
+    @DefaultValue("false")
+    @When(propertyName = "enabled", propertyValue = "true")
+    @Description("If true the evaluated queue is bound to the evaluated exchange with the queue name as binding key.")
+    private Boolean bindQueue;
+
+    @Property("Cache Size")
+    @Hint("10000")
+    @Example("10000")
+    @DefaultValue("10000")
+    @When(propertyName = "enabled", propertyValue = "true")
+    @Description("The maximum number of declarations remembered per connection. When the cache is full " +
+            "the oldest declarations are forgotten and declared again the next time they are published to.")
+    private Integer cacheSize;
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setDeclareQueue(Boolean declareQueue) {
+        this.declareQueue = declareQueue;
+    }
+
+    public void setDeclareExchange(Boolean declareExchange) {
+        this.declareExchange = declareExchange;
+    }
+
+    public void setExchangeType(String exchangeType) {
+        this.exchangeType = exchangeType;
+    }
+
+    public void setBindQueue(Boolean bindQueue) {
+        this.bindQueue = bindQueue;
+    }
+
+    public void setCacheSize(Integer cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public static boolean isEnabled(RabbitMQProducerTopologyConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.enabled))
+                .orElse(false);
+    }
+
+    public static boolean isDeclareQueue(RabbitMQProducerTopologyConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.declareQueue))
+                .orElse(false);
+    }
+
+    public static boolean isDeclareExchange(RabbitMQProducerTopologyConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.declareExchange))
+                .orElse(false);
+    }
+
+    public static String exchangeType(RabbitMQProducerTopologyConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.exchangeType))
+                .map(String::trim)
+                .filter(exchangeType -> !exchangeType.isEmpty())
+                .orElse("direct");
+    }
+
+    public static boolean isBindQueue(RabbitMQProducerTopologyConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.bindQueue))
+                .orElse(false);
+    }
+
+    public static int cacheSize(RabbitMQProducerTopologyConfiguration configuration) {
+        return ofNullable(configuration)
+                .flatMap(config -> ofNullable(config.cacheSize))
+                .filter(cacheSize -> cacheSize > 0)
+                .orElse(10000);
+    }
+}
@@ -0,0 +1,21 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import de.codecentric.reedelk.runtime.api.annotation.DisplayName;
+
+public enum StreamOffset {
+
+    @DisplayName("First")
+    FIRST,
+
+    @DisplayName("Last")
+    LAST,
+
+    @DisplayName("Next")
+    NEXT,
+
+    @DisplayName("Timestamp")
+    TIMESTAMP,
+
+    @DisplayName("Offset")
+    OFFSET
+}
@@ -0,0 +1,127 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.Channel;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ConsumerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Coalesces the acknowledgements of a channel into a single 'multiple' ack.
+ * Flows might complete out of order, therefore a delivery tag is acked only when all
+ * the lower delivery tags of the channel have been settled as well: the aggregator
+ * acks (multiple=true) up to the highest completed tag below the lowest delivery
+ * still being processed by a flow. Acks are flushed when the number of completed
+ * deliveries waiting for an ack reaches the batch size or when the max delay expires.
+ */
+public class AckAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(AckAggregator.class);
+
+    private final Channel channel;
+    private final int batchSize;
+    private final long maxDelay;
+    private final ScheduledExecutorService scheduler;
+    private final ConsumerMetrics metrics;
+
+    // Delivered to the flow and not completed yet.
+    private final TreeSet<Long> inProgress = new TreeSet<>();
+    // Completed successfully and not acked yet, with the time of completion.
+    private final TreeMap<Long, Long> completed = new TreeMap<>();
+
+    private ScheduledFuture<?> scheduledFlush;
+
+    public AckAggregator(Channel channel, int batchSize, long maxDelay, ScheduledExecutorService scheduler, ConsumerMetrics metrics) {
+        checkArgument(channel != null, "channel");
+        checkArgument(batchSize > 0, "batchSize");
+        checkArgument(scheduler != null, "scheduler");
+        checkArgument(metrics != null, "metrics");
+        this.channel = channel;
+        this.batchSize = batchSize;
+        this.maxDelay = maxDelay;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+    }
+
+    public synchronized void delivered(long deliveryTag) {
+        inProgress.add(deliveryTag);
+    }
+
+    public void completed(long deliveryTag) {
+        completed(deliveryTag, System.nanoTime());
+    }
+
+    /**
+     * @param completedAt the System.nanoTime() the flow of the delivery completed at.
+     */
+    public synchronized void completed(long deliveryTag, long completedAt) {
+        inProgress.remove(deliveryTag);
+        if (!channel.isOpen()) {
+            // The channel is gone: unacked deliveries will be redelivered by the broker.
+            metrics.unacked(-1);
+            return;
+        }
+
+        completed.put(deliveryTag, completedAt);
+        if (completed.size() >= batchSize) {
+            flush();
+        } else if (scheduledFlush == null) {
+            scheduledFlush = scheduler.schedule(this::flush, maxDelay, MILLISECONDS);
+        }
+    }
+
+    /**
+     * The delivery has been settled individually (e.g. rejected): it must
+     * not be acked anymore, but it no longer prevents higher tags from being acked.
+     */
+    public synchronized void settled(long deliveryTag) {
+        inProgress.remove(deliveryTag);
+    }
+
+    public synchronized void flush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+
+        if (!channel.isOpen()) {
+            metrics.unacked(-completed.size());
+            completed.clear();
+            return;
+        }
+
+        Long ackUpTo = inProgress.isEmpty() ?
+                completed.isEmpty() ? null : completed.lastKey() :
+                completed.lowerKey(inProgress.first());
+
+        if (ackUpTo != null) {
+            try {
+                channel.basicAck(ackUpTo, true);
+                NavigableMap<Long, Long> acked = completed.headMap(ackUpTo, true);
+                long now = System.nanoTime();
+                for (Long completedAt : acked.values()) {
+                    metrics.acked(now - completedAt);
+                }
+                metrics.unacked(-acked.size());
+                acked.clear();
+            } catch (IOException exception) {
+                String errorMessage = String.format("An error occurred while sending ack for tags up to=[%d]: %s", ackUpTo, exception.getMessage());
+                logger.error(errorMessage, exception);
+            }
+        }
+
+        // Completed deliveries still blocked by lower tags in progress are retried later.
+        if (!completed.isEmpty() && scheduledFlush == null) {
+            scheduledFlush = scheduler.schedule(this::flush, maxDelay, MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Delivery;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ConsumerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * Settles the batches of deliveries consumed on a channel: a batch whose flow completed
+ * successfully is acked with a single 'multiple' ack of its highest delivery tag, each delivery
+ * of a batch whose flow failed is settled by the error handler according to the error policy
+ * (e.g. dead lettered, requeued or requeued after a delay). Since a 'multiple' ack settles all the
+ * outstanding deliveries of the channel up to the given tag, a batch is acked only once all the
+ * batches delivered before it on the same channel have been settled, including the deliveries
+ * of a failed batch waiting for a delayed requeue: consecutive successful batches are acked together.
+ */
+public class BatchAcker {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchAcker.class);
+
+    private final Channel channel;
+    private final ConsumerErrorHandler errorHandler;
+    private final ConsumerMetrics metrics;
+
+    // The batches not settled yet by their highest delivery tag.
+    private final TreeMap<Long, Batch> batches = new TreeMap<>();
+    private boolean settling;
+
+    public BatchAcker(Channel channel, ConsumerErrorHandler errorHandler, ConsumerMetrics metrics) {
+        checkArgument(channel != null, "channel");
+        checkArgument(errorHandler != null, "errorHandler");
+        checkArgument(metrics != null, "metrics");
+        this.channel = channel;
+        this.errorHandler = errorHandler;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Must be invoked, in delivery order, when a batch is handed over to the flow.
+     */
+    public synchronized void delivered(List<Delivery> deliveries) {
+        batches.put(lastDeliveryTag(deliveries), new Batch(deliveries));
+        metrics.unacked(deliveries.size());
+    }
+
+    public synchronized void completed(long lastDeliveryTag, boolean success) {
+        Batch batch = batches.get(lastDeliveryTag);
+        if (batch == null || batch.success != null) return;
+        batch.success = success;
+        batch.completedAt = System.nanoTime();
+
+        // The channel is gone: unacked deliveries will be redelivered by the broker.
+        if (!channel.isOpen()) {
+            int unacked = batches.values().stream().mapToInt(pending -> pending.unsettled).sum();
+            metrics.unacked(-unacked);
+            batches.clear();
+            return;
+        }
+
+        settle();
+    }
+
+    // Must be invoked holding the lock. The error handler may run the settled
+    // callback of a delivery before returning: settle is then not re-entered.
+    private void settle() {
+        settling = true;
+        try {
+            Long ackUpTo = null;
+            int ackCount = 0;
+            long ackCompletedAt = 0;
+            while (!batches.isEmpty() && batches.firstEntry().getValue().success != null) {
+                Map.Entry<Long, Batch> first = batches.firstEntry();
+                Batch batch = first.getValue();
+                if (batch.success) {
+                    batches.pollFirstEntry();
+                    ackUpTo = first.getKey();
+                    ackCount += batch.size;
+                    if (ackCompletedAt == 0) ackCompletedAt = batch.completedAt;
+                    continue;
+                }
+
+                if (!batch.handled) {
+                    // The pending acks must be sent before the deliveries of the failed batch are
+                    // settled: a later 'multiple' ack would settle the requeued deliveries as well.
+                    ack(ackUpTo, ackCount, ackCompletedAt);
+                    ackUpTo = null;
+                    ackCount = 0;
+                    ackCompletedAt = 0;
+                    batch.handled = true;
+                    long lastDeliveryTag = first.getKey();
+                    batch.deliveries.forEach(delivery ->
+                            errorHandler.handle(delivery, () -> deliverySettled(lastDeliveryTag)));
+                }
+                if (batch.unsettled > 0) break;
+                batches.pollFirstEntry();
+            }
+            ack(ackUpTo, ackCount, ackCompletedAt);
+        } finally {
+            settling = false;
+        }
+    }
+
+    private synchronized void deliverySettled(long lastDeliveryTag) {
+        Batch batch = batches.get(lastDeliveryTag);
+        if (batch == null) return;
+        batch.unsettled--;
+        metrics.unacked(-1);
+        if (batch.unsettled == 0 && !settling) settle();
+    }
+
+    private void ack(Long deliveryTag, int count, long completedAt) {
+        if (deliveryTag == null) return;
+        try {
+            channel.basicAck(deliveryTag, true);
+            metrics.acked(System.nanoTime() - completedAt);
+        } catch (IOException exception) {
+            String errorMessage = String.format("An error occurred while sending ack for tags up to=[%d]: %s", deliveryTag, exception.getMessage());
+            logger.error(errorMessage, exception);
+        } finally {
+            metrics.unacked(-count);
+        }
+    }
+
+    private static long lastDeliveryTag(List<Delivery> deliveries) {
+        return deliveries.get(deliveries.size() - 1).getEnvelope().getDeliveryTag();
+    }
+
+    private static class Batch {
+
+        private final List<Delivery> deliveries;
+        private final int size;
+        private int unsettled;
+        private Boolean success;
+        private boolean handled;
+        private long completedAt;
+
+        private Batch(List<Delivery> deliveries) {
+            this.deliveries = deliveries;
+            this.size = deliveries.size();
+            this.unsettled = size;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.CancelCallback;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DeliverCallback;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * A consumer subscription of a channel which can be paused (the consumer is cancelled)
+ * and resumed (the queue is consumed again with the same callbacks). Deliveries sent by
+ * the broker before the cancellation are still dispatched to the deliver callback.
+ */
+public class ChannelConsumer {
+
+    private final Channel channel;
+    private final String queueName;
+    private final boolean autoAck;
+    private final DeliverCallback deliverCallback;
+    private final CancelCallback cancelCallback;
+    private final Supplier<Map<String, Object>> arguments;
+
+    private String consumerTag;
+
+    public ChannelConsumer(Channel channel, String queueName, boolean autoAck, DeliverCallback deliverCallback, CancelCallback cancelCallback) {
+        this(channel, queueName, autoAck, deliverCallback, cancelCallback, null);
+    }
+
+    /**
+     * @param arguments supplies the consumer arguments each time the queue is consumed, or null if there are none.
+     */
+    public ChannelConsumer(Channel channel, String queueName, boolean autoAck, DeliverCallback deliverCallback, CancelCallback cancelCallback, Supplier<Map<String, Object>> arguments) {
+        checkArgument(channel != null, "channel");
+        checkArgument(deliverCallback != null, "deliverCallback");
+        this.channel = channel;
+        this.queueName = queueName;
+        this.autoAck = autoAck;
+        this.deliverCallback = deliverCallback;
+        this.cancelCallback = cancelCallback;
+        this.arguments = arguments;
+    }
+
+    public synchronized void start() throws IOException {
+        if (consumerTag != null || !channel.isOpen()) return;
+        consumerTag = arguments == null ?
+                channel.basicConsume(queueName, autoAck, deliverCallback, cancelCallback) :
+                channel.basicConsume(queueName, autoAck, arguments.get(), deliverCallback, cancelCallback);
+    }
+
+    public synchronized void pause() throws IOException {
+        if (consumerTag == null) return;
+        String tag = consumerTag;
+        consumerTag = null;
+        if (channel.isOpen()) channel.basicCancel(tag);
+    }
+
+    public Channel channel() {
+        return channel;
+    }
+}
@@ -0,0 +1,42 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.BlockedListener;
+
+/**
+ * Tracks the connection.blocked / connection.unblocked notifications sent by the broker,
+ * e.g. when a memory or disk alarm goes off. While the connection is blocked the broker
+ * stops reading from the socket, hence a publish would block the publishing thread
+ * until the connection is unblocked.
+ */
+public class ConnectionBlockedState implements BlockedListener {
+
+    private final Runnable onUnblocked;
+
+    private volatile boolean blocked;
+    private volatile String reason;
+
+    public ConnectionBlockedState(Runnable onUnblocked) {
+        this.onUnblocked = onUnblocked;
+    }
+
+    public boolean isBlocked() {
+        return blocked;
+    }
+
+    public String reason() {
+        return reason;
+    }
+
+    @Override
+    public void handleBlocked(String reason) {
+        this.reason = reason;
+        this.blocked = true;
+    }
+
+    @Override
+    public void handleUnblocked() {
+        this.blocked = false;
+        this.reason = null;
+        onUnblocked.run();
+    }
+}
@@ -3,42 +3,109 @@ package de.codecentric.reedelk.rabbitmq.internal;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
 import de.codecentric.reedelk.rabbitmq.component.ConnectionConfiguration;
+import de.codecentric.reedelk.rabbitmq.component.ConnectionTransport;
+import de.codecentric.reedelk.rabbitmq.internal.local.LocalConnection;
 import de.codecentric.reedelk.runtime.api.exception.PlatformException;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeoutException;
 
+/**
+ * Opens the connections of the ConnectionRegistry. A connection factory is kept for as long
+ * as connections with the same parameters are open, so that with NIO the IO threads of the
+ * factory are shared by all the connections it opens instead of having one reader thread each.
+ */
 public class ConnectionFactoryProvider {
 
-    public static Connection from(String uri) {
-        ConnectionFactory connectionFactory = new ConnectionFactory();
+    private static final Map<List<Object>, ConnectionFactory> FACTORIES = new ConcurrentHashMap<>();
+
+    private ConnectionFactoryProvider() {
+    }
+
+    /**
+     * @param resolver the addresses of the cluster nodes, or null to connect to the host of the URI.
+     */
+    static Connection from(List<Object> key, String uri, FailoverAddressResolver resolver) {
+        if (LocalConnection.isLocal(uri)) return LocalConnection.open(uri);
+
+        ConnectionTuning tuning = ConnectionTuning.from(uri);
+        ConnectionFactory factory = FACTORIES.computeIfAbsent(key, k -> {
+            ConnectionFactory newFactory = new ConnectionFactory();
+            try {
+                newFactory.setUri(uri);
+            } catch (NoSuchAlgorithmException | KeyManagementException | URISyntaxException exception) {
+                throw new PlatformException(exception);
+            }
+            tuning.applyTo(newFactory);
+            return newFactory;
+        });
         try {
-            connectionFactory.setUri(uri);
-            return connectionFactory.newConnection();
-        } catch (IOException |
-                TimeoutException |
-                NoSuchAlgorithmException |
-                KeyManagementException |
-                URISyntaxException exception) {
+            return newConnection(factory, tuning, resolver);
+        } catch (IOException | TimeoutException exception) {
             throw new PlatformException(exception);
         }
     }
 
-    public static Connection from(ConnectionConfiguration configuration) {
-        ConnectionFactory factory = new ConnectionFactory();
+    /**
+     * @param resolver the addresses of the cluster nodes, or null to connect to the configured host.
+     */
+    static Connection from(List<Object> key, ConnectionConfiguration configuration, FailoverAddressResolver resolver) {
+        if (ConnectionConfiguration.transport(configuration) == ConnectionTransport.LOCAL) {
+            return LocalConnection.open(
+                    ConnectionConfiguration.virtualHost(configuration),
+                    ConnectionConfiguration.localQueueCapacity(configuration),
+                    ConnectionConfiguration.localPublishTimeout(configuration));
+        }
+
+        ConnectionTuning tuning = ConnectionTuning.from(configuration);
+        ConnectionFactory factory = FACTORIES.computeIfAbsent(key, k -> {
+            ConnectionFactory newFactory = new ConnectionFactory();
+            newFactory.setUsername(ConnectionConfiguration.userName(configuration));
+            newFactory.setPassword(ConnectionConfiguration.password(configuration));
+            newFactory.setVirtualHost(ConnectionConfiguration.virtualHost(configuration));
+            newFactory.setHost(ConnectionConfiguration.hostName(configuration));
+            newFactory.setPort(ConnectionConfiguration.port(configuration));
+            newFactory.setAutomaticRecoveryEnabled(ConnectionConfiguration.isAutomaticRecovery(configuration));
+            tuning.applyTo(newFactory);
+            return newFactory;
+        });
         try {
-            factory.setUsername(ConnectionConfiguration.userName(configuration));
-            factory.setPassword(ConnectionConfiguration.password(configuration));
-            factory.setVirtualHost(ConnectionConfiguration.virtualHost(configuration));
-            factory.setHost(ConnectionConfiguration.hostName(configuration));
-            factory.setPort(ConnectionConfiguration.port(configuration));
-            factory.setAutomaticRecoveryEnabled(ConnectionConfiguration.isAutomaticRecovery(configuration));
-            return factory.newConnection();
+            return newConnection(factory, tuning, resolver);
         } catch (IOException | TimeoutException e) {
             throw new PlatformException(e);
         }
     }
+
+    /**
+     * Called when the last connection opened with the given parameters has been closed.
+     */
+    static void release(List<Object> key) {
+        FACTORIES.remove(key);
+    }
+
+    private static Connection newConnection(ConnectionFactory factory, ConnectionTuning tuning, FailoverAddressResolver resolver) throws IOException, TimeoutException {
+        ExecutorService executor = tuning.isSharedDispatch() ?
+                ConsumerDispatchExecutors.get(tuning.dispatchThreads()) :
+                null;
+        if (resolver == null) {
+            return executor == null ? factory.newConnection() : factory.newConnection(executor);
+        }
+
+        // The resolver returns one address at a time: a connection which cannot
+        // be opened is attempted on the next address, until all have been tried.
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return factory.newConnection(executor, resolver);
+            } catch (IOException | TimeoutException exception) {
+                if (attempt >= resolver.size()) throw exception;
+            }
+        }
+    }
 }
@@ -0,0 +1,31 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.Connection;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A component's share of a connection obtained from the ConnectionRegistry.
+ * The lease must be released when the component is disposed.
+ */
+public class ConnectionLease {
+
+    private final ConnectionRegistry.SharedConnection sharedConnection;
+    private final int channels;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    ConnectionLease(ConnectionRegistry.SharedConnection sharedConnection, int channels) {
+        this.sharedConnection = sharedConnection;
+        this.channels = channels;
+    }
+
+    public Connection connection() {
+        return sharedConnection.connection();
+    }
+
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            ConnectionRegistry.release(sharedConnection, channels);
+        }
+    }
+}
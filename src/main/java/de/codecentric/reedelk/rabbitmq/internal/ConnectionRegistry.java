@@ -0,0 +1,220 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.Connection;
+import de.codecentric.reedelk.rabbitmq.component.ConnectionConfiguration;
+import de.codecentric.reedelk.rabbitmq.component.ConnectionTransport;
+import de.codecentric.reedelk.rabbitmq.internal.local.LocalConnection;
+import de.codecentric.reedelk.runtime.api.exception.PlatformException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * Shares broker connections among all the components of the module using the same
+ * connection parameters (same connection URI or same connection configuration values).
+ * Each component acquires a lease on a connection reserving the number of channels it
+ * is going to open: a connection is shared as long as it has enough free channel slots
+ * (see ConnectionConfiguration's max channels per connection), otherwise a new connection
+ * with the same parameters is opened. A connection is closed when its last lease is released.
+ * <p>
+ * Connections are opened and closed outside of the registry lock: components acquiring a
+ * connection being opened wait for it, while components using other connections are not held up.
+ * Connections which have been closed (e.g. by the broker, without recovery) are not
+ * shared anymore: they are closed when the components still holding them release them.
+ * Secrets are never part of the keys: the URI and the password are fingerprinted.
+ */
+public class ConnectionRegistry {
+
+    private static final Map<List<Object>, List<SharedConnection>> CONNECTIONS = new HashMap<>();
+
+    private ConnectionRegistry() {
+    }
+
+    public static ConnectionLease acquire(String uri, int channels) {
+        return acquire(uri, channels, null);
+    }
+
+    /**
+     * @param queueName the queue consumed by the component, used by the queue leader
+     *                  local placement strategy, or null if the component does not consume.
+     */
+    public static ConnectionLease acquire(String uri, int channels, String queueName) {
+        if (LocalConnection.isLocal(uri)) {
+            List<Object> key = Collections.singletonList(fingerprint(uri));
+            return acquire(key, channels, ConnectionConfiguration.DEFAULT_MAX_CHANNELS,
+                    () -> ConnectionFactoryProvider.from(key, uri, null));
+        }
+
+        ConnectionPlacement placement = ConnectionPlacement.from(uri);
+        int address = placement.assign(queueName);
+        List<Object> key = new ArrayList<>(Collections.singletonList(fingerprint(uri)));
+        key.addAll(placement.key(address));
+        int maxChannels = maxChannels(ConnectionConfiguration.DEFAULT_MAX_CHANNELS, ConnectionTuning.from(uri));
+        return acquire(key, channels, maxChannels,
+                () -> ConnectionFactoryProvider.from(key, uri, placement.resolver(address)));
+    }
+
+    public static ConnectionLease acquire(ConnectionConfiguration configuration, int channels) {
+        return acquire(configuration, channels, null);
+    }
+
+    /**
+     * @param queueName the queue consumed by the component, used by the queue leader
+     *                  local placement strategy, or null if the component does not consume.
+     */
+    public static ConnectionLease acquire(ConnectionConfiguration configuration, int channels, String queueName) {
+        List<Object> key = new ArrayList<>(Arrays.asList(
+                ConnectionConfiguration.transport(configuration),
+                ConnectionConfiguration.localQueueCapacity(configuration),
+                ConnectionConfiguration.userName(configuration),
+                fingerprint(ConnectionConfiguration.password(configuration)),
+                ConnectionConfiguration.virtualHost(configuration),
+                ConnectionConfiguration.hostName(configuration),
+                ConnectionConfiguration.port(configuration),
+                ConnectionConfiguration.addresses(configuration),
+                ConnectionConfiguration.placement(configuration),
+                ConnectionConfiguration.isAutomaticRecovery(configuration),
+                ConnectionConfiguration.maxChannels(configuration)));
+        ConnectionTuning tuning = ConnectionTuning.from(configuration);
+        key.addAll(tuning.key());
+        ConnectionPlacement placement = ConnectionPlacement.from(configuration);
+        // Local connections are not placed.
+        int address = ConnectionConfiguration.transport(configuration) == ConnectionTransport.AMQP ?
+                placement.assign(queueName) :
+                -1;
+        if (address >= 0) key.addAll(placement.key(address));
+        int maxChannels = maxChannels(ConnectionConfiguration.maxChannels(configuration), tuning);
+        return acquire(key, channels, maxChannels,
+                () -> ConnectionFactoryProvider.from(key, configuration, address >= 0 ? placement.resolver(address) : null));
+    }
+
+    // A connection cannot open more channels than the channel max negotiated with the broker.
+    private static int maxChannels(int maxChannels, ConnectionTuning tuning) {
+        int channelMax = tuning.channelMax();
+        return channelMax > 0 ? Math.min(maxChannels, channelMax) : maxChannels;
+    }
+
+    private static ConnectionLease acquire(List<Object> key, int channels, int maxChannels, ConnectionOpener opener) {
+        checkArgument(channels > 0, "channels");
+        SharedConnection target;
+        boolean opening;
+        synchronized (ConnectionRegistry.class) {
+            target = reserve(key, channels, maxChannels);
+            opening = target == null;
+            if (opening) {
+                target = new SharedConnection(key);
+                CONNECTIONS.computeIfAbsent(key, k -> new ArrayList<>()).add(target);
+                target.references++;
+                target.reservedChannels += channels;
+            }
+        }
+
+        try {
+            if (opening) {
+                target.opened.complete(opener.open());
+            }
+            target.opened.join();
+        } catch (RuntimeException exception) {
+            if (opening) target.opened.completeExceptionally(exception);
+            release(target, channels);
+            Throwable cause = exception instanceof CompletionException ? exception.getCause() : exception;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new PlatformException(cause);
+        }
+        return new ConnectionLease(target, channels);
+    }
+
+    // Must be called holding the registry lock. Returns null if no open
+    // (or being opened) connection has enough free channel slots.
+    private static SharedConnection reserve(List<Object> key, int channels, int maxChannels) {
+        List<SharedConnection> shared = CONNECTIONS.getOrDefault(key, Collections.emptyList());
+        for (SharedConnection candidate : shared) {
+            if (candidate.isUsable() && candidate.reservedChannels + channels <= maxChannels) {
+                candidate.references++;
+                candidate.reservedChannels += channels;
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    static void release(SharedConnection connection, int channels) {
+        synchronized (ConnectionRegistry.class) {
+            connection.references--;
+            connection.reservedChannels -= channels;
+            if (connection.references > 0) return;
+            List<SharedConnection> shared = CONNECTIONS.get(connection.key);
+            if (shared != null) {
+                shared.remove(connection);
+                if (shared.isEmpty()) {
+                    CONNECTIONS.remove(connection.key);
+                    ConnectionFactoryProvider.release(connection.key);
+                }
+            }
+        }
+
+        // The connection is not shared anymore: it is closed outside of the registry
+        // lock, since closing it blocks until the broker has replied or timed out.
+        if (!connection.isOpened()) return;
+        Connection client = connection.opened.join();
+        if (!client.isOpen()) {
+            // Stops the automatic recovery of a connection which is being recovered.
+            client.abort();
+        } else {
+            ChannelUtils.closeSilently(client);
+        }
+    }
+
+    static class SharedConnection {
+
+        private final List<Object> key;
+        private final CompletableFuture<Connection> opened = new CompletableFuture<>();
+        private int references;
+        private int reservedChannels;
+
+        SharedConnection(List<Object> key) {
+            this.key = key;
+        }
+
+        Connection connection() {
+            return opened.join();
+        }
+
+        private boolean isOpened() {
+            return opened.isDone() && !opened.isCompletedExceptionally();
+        }
+
+        // A connection being opened is usable, a connection which failed to open or has been closed is not.
+        private boolean isUsable() {
+            if (!opened.isDone()) return true;
+            if (opened.isCompletedExceptionally()) return false;
+            return opened.join().isOpen();
+        }
+    }
+
+    private static String fingerprint(String secret) {
+        if (secret == null) return null;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(secret.getBytes(StandardCharsets.UTF_8));
+            StringBuilder fingerprint = new StringBuilder(hash.length * 2);
+            for (byte value : hash) {
+                fingerprint.append(String.format("%02x", value));
+            }
+            return fingerprint.toString();
+        } catch (NoSuchAlgorithmException exception) {
+            // Every Java platform implements SHA-256.
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private interface ConnectionOpener {
+        Connection open();
+    }
+}
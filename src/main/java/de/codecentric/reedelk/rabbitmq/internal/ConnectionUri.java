@@ -0,0 +1,116 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import de.codecentric.reedelk.runtime.api.exception.PlatformException;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static de.codecentric.reedelk.rabbitmq.internal.commons.Messages.Connection.URI_PARAMETER_ERROR;
+
+/**
+ * A connection URI parsed by the module: its query parameters configure the tuning and the
+ * placement of the connections. The AMQP part of the URI is parsed by the client connection factory.
+ */
+class ConnectionUri {
+
+    private final URI uri;
+    private final Map<String, String> parameters = new HashMap<>();
+
+    private ConnectionUri(URI uri) {
+        this.uri = uri;
+        String query = uri.getRawQuery();
+        if (query == null) return;
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator < 0) continue;
+            parameters.put(decode(parameter.substring(0, separator)), decode(parameter.substring(separator + 1)));
+        }
+    }
+
+    static ConnectionUri parse(String uri) {
+        try {
+            return new ConnectionUri(new URI(uri));
+        } catch (URISyntaxException exception) {
+            throw new PlatformException(exception);
+        }
+    }
+
+    String userName() {
+        String userInfo = uri.getRawUserInfo();
+        if (userInfo == null) return "guest";
+        int separator = userInfo.indexOf(':');
+        return decode(separator < 0 ? userInfo : userInfo.substring(0, separator));
+    }
+
+    String password() {
+        String userInfo = uri.getRawUserInfo();
+        int separator = userInfo == null ? -1 : userInfo.indexOf(':');
+        return separator < 0 ? "guest" : decode(userInfo.substring(separator + 1));
+    }
+
+    /**
+     * True if the URI has the 'amqps' scheme, i.e. connections use TLS.
+     */
+    boolean isTls() {
+        return "amqps".equalsIgnoreCase(uri.getScheme());
+    }
+
+    /**
+     * The port of the URI, or -1 if it has none.
+     */
+    int port() {
+        return uri.getPort();
+    }
+
+    /**
+     * As for the client connection factory: no path is the default virtual host,
+     * otherwise the virtual host is the path without the leading slash.
+     */
+    String virtualHost() {
+        String path = uri.getRawPath();
+        return path == null || path.isEmpty() ? "/" : decode(path.substring(1));
+    }
+
+    String stringParameter(String name, String defaultValue) {
+        return parameters.getOrDefault(name, defaultValue);
+    }
+
+    int intParameter(String name, int defaultValue) {
+        String value = parameters.get(name);
+        if (value == null) return defaultValue;
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed >= 0) return parsed;
+        } catch (NumberFormatException exception) {
+            // Reported below.
+        }
+        throw new PlatformException(URI_PARAMETER_ERROR.format(name, value));
+    }
+
+    int positiveIntParameter(String name, int defaultValue) {
+        int value = intParameter(name, defaultValue);
+        if (value == 0) throw new PlatformException(URI_PARAMETER_ERROR.format(name, parameters.get(name)));
+        return value;
+    }
+
+    boolean booleanParameter(String name, boolean defaultValue) {
+        String value = parameters.get(name);
+        if (value == null) return defaultValue;
+        if ("true".equalsIgnoreCase(value.trim())) return true;
+        if ("false".equalsIgnoreCase(value.trim())) return false;
+        throw new PlatformException(URI_PARAMETER_ERROR.format(name, value));
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException exception) {
+            throw new PlatformException(exception);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.DeliverCallback;
+import com.rabbitmq.client.Delivery;
+import de.codecentric.reedelk.rabbitmq.internal.chunk.ChunkHeaders;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ConsumerMetrics;
+import de.codecentric.reedelk.rabbitmq.internal.stream.StreamOffsetTracker;
+import de.codecentric.reedelk.runtime.api.component.InboundEventListener;
+import de.codecentric.reedelk.runtime.api.component.OnResult;
+import de.codecentric.reedelk.runtime.api.flow.FlowContext;
+import de.codecentric.reedelk.runtime.api.message.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import static de.codecentric.reedelk.rabbitmq.internal.commons.Messages.RabbitMQConsumer.CHUNK_IN_BATCH_ERROR;
+import static de.codecentric.reedelk.rabbitmq.internal.commons.Messages.RabbitMQConsumer.DECODE_ERROR;
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Collects the deliveries of a channel into batches: a batch starts a single flow when it reaches
+ * the batch size or when the batch timeout expires, whichever comes first. With explicit
+ * acknowledgements the batch is settled by the BatchAcker, otherwise (batch acker is null)
+ * deliveries have already been acked by the broker. A batch which cannot be decoded fails
+ * without starting a flow. Chunked messages cannot be reassembled in batch mode: a chunk
+ * is never added to a batch, it fails on its own.
+ */
+public class ConsumerBatchDeliverCallback implements DeliverCallback {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerBatchDeliverCallback.class);
+
+    private final InboundEventListener listener;
+    private final DeliveryDecoder decoder;
+    private final int batchSize;
+    private final long timeout;
+    private final ScheduledExecutorService scheduler;
+    private final BatchAcker batchAcker;
+    private final StreamOffsetTracker offsetTracker;
+    private final InFlightBudget budget;
+    private final ConsumerMetrics metrics;
+
+    private List<Delivery> batch;
+    private long batchStartedAt;
+    private ScheduledFuture<?> scheduledFlush;
+
+    public ConsumerBatchDeliverCallback(InboundEventListener listener, DeliveryDecoder decoder, int batchSize, long timeout, ScheduledExecutorService scheduler, BatchAcker batchAcker, StreamOffsetTracker offsetTracker, InFlightBudget budget, ConsumerMetrics metrics) {
+        checkArgument(listener != null, "listener");
+        checkArgument(decoder != null, "decoder");
+        checkArgument(batchSize > 0, "batchSize");
+        checkArgument(scheduler != null, "scheduler");
+        checkArgument(metrics != null, "metrics");
+        this.listener = listener;
+        this.decoder = decoder;
+        this.batchSize = batchSize;
+        this.timeout = timeout;
+        this.scheduler = scheduler;
+        this.batchAcker = batchAcker;
+        this.offsetTracker = offsetTracker;
+        this.budget = budget;
+        this.metrics = metrics;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public void handle(String consumerTag, Delivery delivery) {
+        metrics.delivered(delivery.getEnvelope().isRedeliver());
+
+        if (ChunkHeaders.isChunk(delivery)) {
+            handleChunk(delivery);
+            return;
+        }
+
+        List<Delivery> full = null;
+        long startedAt;
+        synchronized (this) {
+            if (batch.isEmpty()) {
+                batchStartedAt = System.nanoTime();
+                scheduledFlush = schedule();
+            }
+            batch.add(delivery);
+            startedAt = batchStartedAt;
+            if (batch.size() >= batchSize) full = take();
+        }
+        if (full != null) start(full, startedAt);
+    }
+
+    private void handleChunk(Delivery chunk) {
+        long deliveryTag = chunk.getEnvelope().getDeliveryTag();
+        logger.error(CHUNK_IN_BATCH_ERROR.format(deliveryTag, ChunkHeaders.chunkId(chunk)));
+
+        // The deliveries collected so far start their flow before the chunk is settled:
+        // batches are registered to the acker in delivery order.
+        List<Delivery> pending = null;
+        long startedAt;
+        synchronized (this) {
+            startedAt = batchStartedAt;
+            if (!batch.isEmpty()) pending = take();
+            if (batchAcker != null) batchAcker.delivered(Collections.singletonList(chunk));
+        }
+        if (pending != null) start(pending, startedAt);
+        if (batchAcker != null) batchAcker.completed(deliveryTag, false);
+    }
+
+    /**
+     * Starts the flow of the deliveries collected so far.
+     */
+    public void flush() {
+        List<Delivery> pending;
+        long startedAt;
+        synchronized (this) {
+            if (batch.isEmpty()) return;
+            startedAt = batchStartedAt;
+            pending = take();
+        }
+        start(pending, startedAt);
+    }
+
+    /**
+     * Stops collecting deliveries. Without explicit acknowledgements the deliveries collected
+     * so far start their flow, otherwise they are redelivered once the channel is closed.
+     */
+    public void close() {
+        if (batchAcker == null) {
+            flush();
+        } else {
+            synchronized (this) {
+                if (scheduledFlush != null) scheduledFlush.cancel(false);
+                batch.clear();
+            }
+        }
+    }
+
+    // Must be called holding the lock: batches are registered to the acker, the budget
+    // and the offset tracker in delivery order, before any of them can complete.
+    private List<Delivery> take() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        List<Delivery> taken = batch;
+        batch = new ArrayList<>(batchSize);
+        if (batchAcker != null) batchAcker.delivered(taken);
+        if (budget != null) taken.forEach(delivery -> budget.acquire(delivery.getBody().length));
+        if (offsetTracker != null) taken.forEach(offsetTracker::delivered);
+        return taken;
+    }
+
+    private ScheduledFuture<?> schedule() {
+        try {
+            return scheduler.schedule(this::flush, timeout, MILLISECONDS);
+        } catch (RejectedExecutionException exception) {
+            // The consumer is shutting down.
+            return null;
+        }
+    }
+
+    private void start(List<Delivery> deliveries, long startedAt) {
+        final long lastDeliveryTag = lastDeliveryTag(deliveries);
+
+        Message message;
+        try {
+            message = decoder.decode(deliveries);
+        } catch (RuntimeException exception) {
+            logger.error(DECODE_ERROR.format(lastDeliveryTag, exception.getMessage()), exception);
+            completed(deliveries);
+            if (batchAcker != null) batchAcker.completed(lastDeliveryTag, false);
+            return;
+        }
+        metrics.flowStarted(System.nanoTime() - startedAt);
+
+        if (batchAcker == null && budget == null && offsetTracker == null) {
+            listener.onEvent(message);
+            return;
+        }
+
+        FlowCompletion.start(listener, message, new OnResult() {
+            @Override
+            public void onResult(FlowContext flowContext, Message message) {
+                completed(deliveries);
+                if (batchAcker != null) batchAcker.completed(lastDeliveryTag, true);
+            }
+
+            @Override
+            public void onError(FlowContext flowContext, Exception exception) {
+                completed(deliveries);
+                if (batchAcker != null) batchAcker.completed(lastDeliveryTag, false);
+            }
+        });
+    }
+
+    private void completed(List<Delivery> deliveries) {
+        if (budget != null) deliveries.forEach(delivery -> budget.release(delivery.getBody().length));
+        if (offsetTracker != null) deliveries.forEach(offsetTracker::completed);
+    }
+
+    private static long lastDeliveryTag(List<Delivery> deliveries) {
+        return deliveries.get(deliveries.size() - 1).getEnvelope().getDeliveryTag();
+    }
+}
@@ -2,52 +2,129 @@ package de.codecentric.reedelk.rabbitmq.internal;
 
 import com.rabbitmq.client.DeliverCallback;
 import com.rabbitmq.client.Delivery;
-import de.codecentric.reedelk.rabbitmq.component.RabbitMQConsumer;
-import de.codecentric.reedelk.rabbitmq.internal.attribute.RabbitMQConsumerAttributes;
+import de.codecentric.reedelk.rabbitmq.internal.chunk.ChunkHeaders;
+import de.codecentric.reedelk.rabbitmq.internal.chunk.ChunkReassembler;
+import de.codecentric.reedelk.rabbitmq.internal.chunk.ChunkSettler;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ConsumerMetrics;
 import de.codecentric.reedelk.runtime.api.message.Message;
-import de.codecentric.reedelk.runtime.api.message.MessageAttributes;
-import de.codecentric.reedelk.runtime.api.message.MessageBuilder;
-import de.codecentric.reedelk.runtime.api.message.content.MimeType;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import static de.codecentric.reedelk.rabbitmq.internal.commons.Messages.RabbitMQConsumer.DECODE_ERROR;
 import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
 
 abstract class ConsumerDeliverCallback implements DeliverCallback {
 
-    private final MimeType consumedMessageMimeType;
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerDeliverCallback.class);
 
-    ConsumerDeliverCallback(MimeType consumedMessageMimeType) {
-        checkArgument(consumedMessageMimeType != null, "consumedMessageMimeType");
-        this.consumedMessageMimeType = consumedMessageMimeType;
+    private final DeliveryDecoder decoder;
+    private final ChunkReassembler reassembler;
+    private final InFlightBudget budget;
+    protected final ConsumerMetrics metrics;
+
+    ConsumerDeliverCallback(DeliveryDecoder decoder, ChunkReassembler reassembler, InFlightBudget budget, ConsumerMetrics metrics) {
+        checkArgument(decoder != null, "decoder");
+        checkArgument(metrics != null, "metrics");
+        this.decoder = decoder;
+        this.reassembler = reassembler;
+        this.budget = budget;
+        this.metrics = metrics;
     }
 
     @Override
     public void handle(String consumerTag, Delivery delivery) {
-        // Message Content
-        byte[] content = delivery.getBody();
+        long deliveredAt = System.nanoTime();
+        metrics.delivered(delivery.getEnvelope().isRedeliver());
 
-        // Message Attributes
-        MessageAttributes attributes = new RabbitMQConsumerAttributes(delivery);
+        if (isChunk(delivery)) {
+            handleChunk(delivery, deliveredAt);
+            return;
+        }
 
-        Message inboundMessage;
+        // The delivery is registered before decoding it, so that
+        // it can be settled if it cannot be decoded.
+        onDelivered(delivery);
 
-        // Convert the payload to a suitable type according to the mime type.
-        if (String.class == consumedMessageMimeType.javaType()) {
-
-            inboundMessage = MessageBuilder.get(RabbitMQConsumer.class)
-                    .withString(new String(content), consumedMessageMimeType)
-                    .attributes(attributes)
-                    .build();
-        } else {
-            inboundMessage = MessageBuilder.get(RabbitMQConsumer.class)
-                    .withBinary(content, consumedMessageMimeType)
-                    .attributes(attributes)
-                    .build();
+        Message inboundMessage;
+        try {
+            inboundMessage = decoder.decode(delivery);
+        } catch (RuntimeException exception) {
+            onDecodeError(delivery, exception);
+            return;
         }
 
         // Notify event
+        metrics.flowStarted(System.nanoTime() - deliveredAt);
+        onEvent(inboundMessage, delivery);
+    }
+
+    private void handleChunk(Delivery delivery, long deliveredAt) {
+        // Each chunk is settled when the flow of its message completes.
+        onDelivered(delivery);
+        if (ChunkHeaders.index(delivery) != 0) {
+            reassembler.append(delivery, chunkSettler());
+            return;
+        }
+
+        // The first chunk starts the flow, its payload is the stream of all the chunks.
+        Publisher<byte[]> stream = reassembler.open(delivery, chunkSettler());
+        Message inboundMessage;
+        try {
+            inboundMessage = decoder.decode(delivery, stream);
+        } catch (RuntimeException exception) {
+            logger.error(DECODE_ERROR.format(delivery.getEnvelope().getDeliveryTag(), exception.getMessage()), exception);
+            reassembler.completed(delivery, false);
+            return;
+        }
+        metrics.flowStarted(System.nanoTime() - deliveredAt);
         onEvent(inboundMessage, delivery);
     }
 
+    /**
+     * Invoked for each delivery starting a flow before the delivery is decoded, and for each chunk of a chunked message.
+     */
+    protected void onDelivered(Delivery delivery) {
+    }
+
+    /**
+     * Invoked instead of onEvent when the delivery registered by onDelivered could not be decoded.
+     */
+    protected void onDecodeError(Delivery delivery, Exception exception) {
+        long deliveryTag = delivery.getEnvelope().getDeliveryTag();
+        logger.error(DECODE_ERROR.format(deliveryTag, exception.getMessage()), exception);
+    }
+
     protected abstract void onEvent(Message message, Delivery delivery);
 
+    /**
+     * Must be invoked before starting the flow of the given delivery: the consumer
+     * is paused if the delivery exhausts the in-flight budget.
+     */
+    protected void flowStarted(Delivery delivery) {
+        if (budget != null) budget.acquire(delivery.getBody().length);
+    }
+
+    protected void flowCompleted(Delivery delivery) {
+        if (budget != null) budget.release(delivery.getBody().length);
+    }
+
+    protected boolean isChunk(Delivery delivery) {
+        return reassembler != null && ChunkHeaders.isChunk(delivery);
+    }
+
+    /**
+     * Must be invoked when the flow started by the first chunk of a chunked message
+     * completes: all the chunks of the message are settled according to the flow outcome.
+     */
+    protected void chunkedFlowCompleted(Delivery firstChunk, boolean success) {
+        reassembler.completed(firstChunk, success);
+    }
+
+    /**
+     * Returns the settler of the chunks of the chunked messages.
+     */
+    protected ChunkSettler chunkSettler() {
+        return ChunkSettler.NOOP;
+    }
 }
@@ -1,9 +1,12 @@
 package de.codecentric.reedelk.rabbitmq.internal;
 
 import com.rabbitmq.client.Delivery;
+import de.codecentric.reedelk.rabbitmq.internal.chunk.ChunkReassembler;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ConsumerMetrics;
 import de.codecentric.reedelk.runtime.api.component.InboundEventListener;
+import de.codecentric.reedelk.runtime.api.component.OnResult;
+import de.codecentric.reedelk.runtime.api.flow.FlowContext;
 import de.codecentric.reedelk.runtime.api.message.Message;
-import de.codecentric.reedelk.runtime.api.message.content.MimeType;
 
 import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
 
@@ -11,15 +14,34 @@ public class ConsumerDeliverCallbackAutoAck extends ConsumerDeliverCallback {
 
     private final InboundEventListener listener;
 
-    public ConsumerDeliverCallbackAutoAck(InboundEventListener listener, MimeType consumedMessageMimeType) {
-        super(consumedMessageMimeType);
+    /**
+     * In-flight limits require explicit acks: auto ack callbacks have no in-flight budget.
+     */
+    public ConsumerDeliverCallbackAutoAck(InboundEventListener listener, DeliveryDecoder decoder, ChunkReassembler reassembler, ConsumerMetrics metrics) {
+        super(decoder, reassembler, null, metrics);
         checkArgument(listener != null, "listener");
         this.listener = listener;
     }
 
     @Override
     protected void onEvent(Message message, Delivery delivery) {
-        // Notify Event
-        listener.onEvent(message);
+        if (!isChunk(delivery)) {
+            // Notify Event
+            listener.onEvent(message);
+            return;
+        }
+
+        // The flow completion is needed to release the chunks of a chunked message.
+        FlowCompletion.start(listener, message, new OnResult() {
+            @Override
+            public void onResult(FlowContext flowContext, Message message) {
+                chunkedFlowCompleted(delivery, true);
+            }
+
+            @Override
+            public void onError(FlowContext flowContext, Exception exception) {
+                chunkedFlowCompleted(delivery, false);
+            }
+        });
     }
 }
@@ -2,11 +2,14 @@ package de.codecentric.reedelk.rabbitmq.internal;
 
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Delivery;
+import de.codecentric.reedelk.rabbitmq.internal.chunk.ChunkReassembler;
+import de.codecentric.reedelk.rabbitmq.internal.chunk.ChunkSettler;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ConsumerMetrics;
+import de.codecentric.reedelk.rabbitmq.internal.stream.StreamOffsetTracker;
 import de.codecentric.reedelk.runtime.api.component.InboundEventListener;
 import de.codecentric.reedelk.runtime.api.component.OnResult;
 import de.codecentric.reedelk.runtime.api.flow.FlowContext;
 import de.codecentric.reedelk.runtime.api.message.Message;
-import de.codecentric.reedelk.runtime.api.message.content.MimeType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,29 +22,133 @@ public class ConsumerDeliverCallbackExplicitAck extends ConsumerDeliverCallback
     private static final Logger logger = LoggerFactory.getLogger(ConsumerDeliverCallbackExplicitAck.class);
 
     private final Channel channel;
+    private final ConsumerErrorHandler errorHandler;
+    private final AckAggregator ackAggregator;
+    private final StreamOffsetTracker offsetTracker;
     private final InboundEventListener listener;
+    private final ChunkSettler chunkSettler = new ChunkSettler() {
+        @Override
+        public void ack(Delivery chunk) {
+            succeeded(chunk, System.nanoTime());
+        }
 
-    public ConsumerDeliverCallbackExplicitAck(InboundEventListener listener, MimeType consumedMessageMimeType, Channel channel) {
-        super(consumedMessageMimeType);
+        @Override
+        public void reject(Delivery chunk) {
+            failed(chunk);
+        }
+
+        @Override
+        public void discard(Delivery chunk) {
+            discarded(chunk);
+        }
+    };
+
+    public ConsumerDeliverCallbackExplicitAck(InboundEventListener listener, DeliveryDecoder decoder, ChunkReassembler reassembler, Channel channel, ConsumerErrorHandler errorHandler, AckAggregator ackAggregator, StreamOffsetTracker offsetTracker, InFlightBudget budget, ConsumerMetrics metrics) {
+        super(decoder, reassembler, budget, metrics);
         checkArgument(listener != null, "listener");
         checkArgument(channel != null, "channel");
+        checkArgument(errorHandler != null, "errorHandler");
         this.listener = listener;
         this.channel = channel;
+        this.errorHandler = errorHandler;
+        this.ackAggregator = ackAggregator;
+        this.offsetTracker = offsetTracker;
+    }
+
+    @Override
+    protected void onDelivered(Delivery delivery) {
+        // The tag is in progress until settled: a 'multiple' ack of the aggregator
+        // must not acknowledge it in the meantime. A dispatched delivery is already
+        // registered (see DispatchingDeliverCallback): registering it again is a no-op.
+        metrics.unacked(1);
+        if (ackAggregator != null) ackAggregator.delivered(delivery.getEnvelope().getDeliveryTag());
+        if (offsetTracker != null) offsetTracker.delivered(delivery);
+    }
+
+    @Override
+    protected void onDecodeError(Delivery delivery, Exception exception) {
+        super.onDecodeError(delivery, exception);
+        failed(delivery);
     }
 
     @Override
     protected void onEvent(Message message, Delivery delivery) {
-        final long deliveryTag = delivery.getEnvelope().getDeliveryTag();
-        listener.onEvent(message, new OnResult() {
+        boolean chunked = isChunk(delivery);
+        flowStarted(delivery);
+        FlowCompletion.start(listener, message, new OnResult() {
             @Override
             public void onResult(FlowContext flowContext, Message message) {
-                try {
-                    channel.basicAck(deliveryTag, false);
-                } catch (IOException exchange) {
-                    String errorMessage = String.format("An error occurred while sending ack for tag=[%d]: %s", deliveryTag, exchange.getMessage());
-                    logger.error(errorMessage, exchange);
+                long completedAt = System.nanoTime();
+                flowCompleted(delivery);
+                if (chunked) {
+                    chunkedFlowCompleted(delivery, true);
+                } else {
+                    succeeded(delivery, completedAt);
+                }
+            }
+
+            @Override
+            public void onError(FlowContext flowContext, Exception exception) {
+                flowCompleted(delivery);
+                if (chunked) {
+                    chunkedFlowCompleted(delivery, false);
+                } else {
+                    failed(delivery);
                 }
             }
         });
     }
+
+    @Override
+    protected ChunkSettler chunkSettler() {
+        return chunkSettler;
+    }
+
+    private void succeeded(Delivery delivery, long completedAt) {
+        long deliveryTag = delivery.getEnvelope().getDeliveryTag();
+        if (offsetTracker != null) offsetTracker.completed(delivery);
+        if (ackAggregator != null) {
+            ackAggregator.completed(deliveryTag, completedAt);
+            return;
+        }
+        ack(deliveryTag, completedAt);
+    }
+
+    private void failed(Delivery delivery) {
+        long deliveryTag = delivery.getEnvelope().getDeliveryTag();
+        // Stream messages are not redelivered: a failed message is committed as well.
+        if (offsetTracker != null) offsetTracker.completed(delivery);
+        // The delivery must be settled before any higher tag gets acked
+        // by the aggregator, otherwise a 'multiple' ack would acknowledge it.
+        errorHandler.handle(delivery, () -> {
+            metrics.unacked(-1);
+            if (ackAggregator != null) ackAggregator.settled(deliveryTag);
+        });
+    }
+
+    private void discarded(Delivery delivery) {
+        long deliveryTag = delivery.getEnvelope().getDeliveryTag();
+        if (offsetTracker != null) offsetTracker.completed(delivery);
+        try {
+            if (channel.isOpen()) channel.basicNack(deliveryTag, false, false);
+        } catch (IOException exception) {
+            String errorMessage = String.format("An error occurred while sending nack for tag=[%d]: %s", deliveryTag, exception.getMessage());
+            logger.error(errorMessage, exception);
+        } finally {
+            metrics.unacked(-1);
+            if (ackAggregator != null) ackAggregator.settled(deliveryTag);
+        }
+    }
+
+    private void ack(long deliveryTag, long completedAt) {
+        try {
+            channel.basicAck(deliveryTag, false);
+            metrics.acked(System.nanoTime() - completedAt);
+        } catch (IOException exchange) {
+            String errorMessage = String.format("An error occurred while sending ack for tag=[%d]: %s", deliveryTag, exchange.getMessage());
+            logger.error(errorMessage, exchange);
+        } finally {
+            metrics.unacked(-1);
+        }
+    }
 }
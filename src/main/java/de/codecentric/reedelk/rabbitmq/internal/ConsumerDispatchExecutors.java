@@ -0,0 +1,43 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * Consumer dispatch executors shared by all the connections opened by the module:
+ * connections configured with the same number of dispatch threads use the same
+ * executor instead of a dedicated consumer work pool each. The client still dispatches
+ * the deliveries of a channel one at a time, so per-channel ordering is preserved.
+ * Idle threads terminate, therefore an executor no longer used by any connection
+ * does not hold any thread.
+ */
+public class ConsumerDispatchExecutors {
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+    private static final Map<Integer, ExecutorService> EXECUTORS = new ConcurrentHashMap<>();
+
+    private ConsumerDispatchExecutors() {
+    }
+
+    public static ExecutorService get(int threads) {
+        checkArgument(threads > 0, "threads");
+        return EXECUTORS.computeIfAbsent(threads, ConsumerDispatchExecutors::create);
+    }
+
+    private static ExecutorService create(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "RabbitMQDispatch-" + threads + "-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,128 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Delivery;
+import de.codecentric.reedelk.rabbitmq.component.ConsumerErrorPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Settles the deliveries whose flow failed according to the configured error policy.
+ * Deliveries which have already been redelivered more than the max redeliveries are
+ * nacked without requeue, so that the broker dead letters (or drops) them instead of
+ * redelivering them over and over again.
+ */
+public class ConsumerErrorHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerErrorHandler.class);
+
+    private static final String HEADER_DELIVERY_COUNT = "x-delivery-count";
+    private static final String HEADER_DEATH = "x-death";
+    private static final String HEADER_DEATH_COUNT = "count";
+
+    private final Channel channel;
+    private final ConsumerErrorPolicy policy;
+    private final long requeueDelay;
+    private final int maxRedeliveries;
+    private final ScheduledExecutorService scheduler;
+
+    public ConsumerErrorHandler(Channel channel, ConsumerErrorPolicy policy, long requeueDelay, int maxRedeliveries, ScheduledExecutorService scheduler) {
+        checkArgument(channel != null, "channel");
+        checkArgument(policy != null, "policy");
+        checkArgument(policy != ConsumerErrorPolicy.DELAYED_REQUEUE || scheduler != null, "scheduler");
+        this.channel = channel;
+        this.policy = policy;
+        this.requeueDelay = requeueDelay;
+        this.maxRedeliveries = maxRedeliveries;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Nacks the given delivery and then runs the settled callback.
+     */
+    public void handle(Delivery delivery, Runnable settled) {
+        long deliveryTag = delivery.getEnvelope().getDeliveryTag();
+
+        if (policy == ConsumerErrorPolicy.DEAD_LETTER || exceedsMaxRedeliveries(delivery)) {
+            nack(deliveryTag, false, settled);
+
+        } else if (policy == ConsumerErrorPolicy.DELAYED_REQUEUE) {
+            // The message is kept unacked (and it keeps its prefetch slot) until the delay expires.
+            try {
+                scheduler.schedule(() -> nack(deliveryTag, true, settled), requeueDelay, MILLISECONDS);
+            } catch (RejectedExecutionException exception) {
+                // The consumer is shutting down.
+                nack(deliveryTag, true, settled);
+            }
+
+        } else {
+            nack(deliveryTag, true, settled);
+        }
+    }
+
+    private void nack(long deliveryTag, boolean requeue, Runnable settled) {
+        try {
+            if (channel.isOpen()) channel.basicNack(deliveryTag, false, requeue);
+        } catch (IOException exception) {
+            String errorMessage = String.format("An error occurred while sending nack for tag=[%d]: %s", deliveryTag, exception.getMessage());
+            logger.error(errorMessage, exception);
+        } finally {
+            settled.run();
+        }
+    }
+
+    private boolean exceedsMaxRedeliveries(Delivery delivery) {
+        if (maxRedeliveries <= 0) return false;
+        long counted = countedRedeliveries(delivery);
+        if (counted >= 0) return counted >= maxRedeliveries;
+        // Only the redeliver flag is known (classic queues): the actual number of redeliveries
+        // is unknown, hence a redelivered message counts as having reached the max redeliveries.
+        return delivery.getEnvelope().isRedeliver();
+    }
+
+    /**
+     * Quorum queues count the redeliveries in the 'x-delivery-count' header, dead lettering
+     * cycles are counted in the 'x-death' header. Classic queues only provide the redeliver
+     * flag, which counts as a single redelivery.
+     */
+    static long redeliveries(Delivery delivery) {
+        long counted = countedRedeliveries(delivery);
+        if (counted >= 0) return counted;
+        return delivery.getEnvelope().isRedeliver() ? 1 : 0;
+    }
+
+    // Returns -1 if the delivery carries no redeliveries count.
+    private static long countedRedeliveries(Delivery delivery) {
+        AMQP.BasicProperties properties = delivery.getProperties();
+        Map<String, Object> headers = properties != null ? properties.getHeaders() : null;
+        if (headers != null) {
+            Object deliveryCount = headers.get(HEADER_DELIVERY_COUNT);
+            if (deliveryCount instanceof Number) {
+                return ((Number) deliveryCount).longValue();
+            }
+
+            Object deaths = headers.get(HEADER_DEATH);
+            if (deaths instanceof List) {
+                long count = 0;
+                for (Object death : (List<?>) deaths) {
+                    if (death instanceof Map) {
+                        Object deathCount = ((Map<?, ?>) death).get(HEADER_DEATH_COUNT);
+                        if (deathCount instanceof Number) count += ((Number) deathCount).longValue();
+                    }
+                }
+                if (count > 0) return count;
+            }
+        }
+        return -1;
+    }
+}
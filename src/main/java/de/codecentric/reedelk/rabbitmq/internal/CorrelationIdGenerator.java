@@ -0,0 +1,21 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates random (version 4) UUID correlation IDs. Unlike UUID.randomUUID() it does not
+ * use the shared SecureRandom instance: correlation IDs must be unique, not unpredictable.
+ */
+public class CorrelationIdGenerator {
+
+    private CorrelationIdGenerator() {
+    }
+
+    public static String next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (random.nextLong() & 0xffffffffffff0fffL) | 0x0000000000004000L;
+        long leastSigBits = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+}
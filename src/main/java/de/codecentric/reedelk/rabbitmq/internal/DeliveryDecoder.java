@@ -0,0 +1,156 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Delivery;
+import de.codecentric.reedelk.rabbitmq.codec.CompressionCodec;
+import de.codecentric.reedelk.rabbitmq.component.RabbitMQConsumer;
+import de.codecentric.reedelk.rabbitmq.internal.attribute.RabbitMQConsumerAttributes;
+import de.codecentric.reedelk.rabbitmq.internal.attribute.RabbitMQConsumerBatchAttributes;
+import de.codecentric.reedelk.rabbitmq.internal.codec.CompressionCodecs;
+import de.codecentric.reedelk.rabbitmq.internal.commons.CharsetUtils;
+import de.codecentric.reedelk.rabbitmq.internal.exception.RabbitMQConsumerException;
+import de.codecentric.reedelk.runtime.api.message.Message;
+import de.codecentric.reedelk.runtime.api.message.MessageAttributes;
+import de.codecentric.reedelk.runtime.api.message.MessageBuilder;
+import de.codecentric.reedelk.runtime.api.message.content.MimeType;
+import org.reactivestreams.Publisher;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static de.codecentric.reedelk.rabbitmq.internal.commons.Messages.RabbitMQConsumer.DECOMPRESSION_ERROR;
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * Creates the flow message from a delivery. Text content is decoded with the charset
+ * of the delivery 'contentType' property, or with the 'contentEncoding' property when it
+ * names a charset, falling back to the charset of the configured mime type (UTF-8 if none).
+ * When text decoding is disabled, text content is kept as the original bytes together
+ * with its charset: the payload is still text, decoded only if and when a following
+ * component consumes it.
+ * Content whose 'contentEncoding' property names a compression codec is
+ * decompressed before being decoded: decoding fails if the content cannot be
+ * decompressed or if it is larger than the maximum decompressed size.
+ */
+public class DeliveryDecoder {
+
+    public static final int DEFAULT_MAX_DECOMPRESSED_SIZE = 64 * 1024 * 1024;
+
+    private final Class<?> component;
+    private final MimeType mimeType;
+    private final Charset defaultCharset;
+    private final boolean decodeText;
+    private final int maxDecompressedSize;
+
+    public DeliveryDecoder(MimeType mimeType, Charset defaultCharset, boolean decodeText) {
+        this(RabbitMQConsumer.class, mimeType, defaultCharset, decodeText, DEFAULT_MAX_DECOMPRESSED_SIZE);
+    }
+
+    public DeliveryDecoder(Class<?> component, MimeType mimeType, Charset defaultCharset, boolean decodeText) {
+        this(component, mimeType, defaultCharset, decodeText, DEFAULT_MAX_DECOMPRESSED_SIZE);
+    }
+
+    /**
+     * @param component the component the decoded messages are built by.
+     * @param maxDecompressedSize the maximum size in bytes of a decompressed payload.
+     */
+    public DeliveryDecoder(Class<?> component, MimeType mimeType, Charset defaultCharset, boolean decodeText, int maxDecompressedSize) {
+        checkArgument(component != null, "component");
+        checkArgument(mimeType != null, "mimeType");
+        checkArgument(defaultCharset != null, "defaultCharset");
+        checkArgument(maxDecompressedSize > 0, "maxDecompressedSize");
+        this.component = component;
+        this.mimeType = mimeType;
+        this.defaultCharset = defaultCharset;
+        this.decodeText = decodeText;
+        this.maxDecompressedSize = maxDecompressedSize;
+    }
+
+    public Message decode(Delivery delivery) {
+        // Message Content
+        byte[] content = decompressIfNeeded(delivery);
+
+        // Message Attributes
+        MessageAttributes attributes = new RabbitMQConsumerAttributes(delivery);
+
+        // Convert the payload to a suitable type according to the mime type.
+        if (String.class == mimeType.javaType()) {
+            Charset charset = charsetOf(delivery.getProperties());
+            MessageBuilder builder = MessageBuilder.get(component);
+            if (decodeText) {
+                builder.withString(new String(content, charset), mimeType);
+            } else {
+                builder.withString(new LazyTextPublisher(content, charset), mimeType);
+            }
+            return builder
+                    .attributes(attributes)
+                    .build();
+        } else {
+            return MessageBuilder.get(component)
+                    .withBinary(content, mimeType)
+                    .attributes(attributes)
+                    .build();
+        }
+    }
+
+    /**
+     * Creates the flow message of a batch of deliveries: the payload is the list
+     * of the decoded contents, in delivery order. Text contents are always decoded,
+     * so that the list items have the type of the mime type.
+     */
+    public Message decode(List<Delivery> deliveries) {
+        boolean asString = String.class == mimeType.javaType();
+        List<Object> contents = new ArrayList<>(deliveries.size());
+        for (Delivery delivery : deliveries) {
+            byte[] content = decompressIfNeeded(delivery);
+            contents.add(asString ? new String(content, charsetOf(delivery.getProperties())) : content);
+        }
+
+        MessageAttributes attributes = new RabbitMQConsumerBatchAttributes(deliveries);
+        return MessageBuilder.get(component)
+                .withList(contents, asString ? String.class : byte[].class)
+                .attributes(attributes)
+                .build();
+    }
+
+    /**
+     * Creates the flow message of a chunked message: the payload is the stream of the
+     * reassembled chunks, hence it is never decoded by the consumer.
+     */
+    public Message decode(Delivery firstChunk, Publisher<byte[]> stream) {
+        MessageAttributes attributes = new RabbitMQConsumerAttributes(firstChunk);
+        return MessageBuilder.get(component)
+                .withBinary(stream, mimeType)
+                .attributes(attributes)
+                .build();
+    }
+
+    private byte[] decompressIfNeeded(Delivery delivery) {
+        AMQP.BasicProperties properties = delivery.getProperties();
+        if (properties == null || properties.getContentEncoding() == null) return delivery.getBody();
+
+        Optional<CompressionCodec> codec = CompressionCodecs.find(properties.getContentEncoding());
+        if (!codec.isPresent()) return delivery.getBody();
+
+        try {
+            return codec.get().decompress(delivery.getBody(), maxDecompressedSize);
+        } catch (IOException exception) {
+            // The delivery is settled by the error policy of the consumer.
+            String message = DECOMPRESSION_ERROR.format(
+                    delivery.getEnvelope().getDeliveryTag(),
+                    properties.getContentEncoding(),
+                    exception.getMessage());
+            throw new RabbitMQConsumerException(message, exception);
+        }
+    }
+
+    Charset charsetOf(AMQP.BasicProperties properties) {
+        if (properties == null) return defaultCharset;
+        return CharsetUtils.fromContentType(properties.getContentType())
+                .orElseGet(() -> CharsetUtils.fromName(properties.getContentEncoding())
+                        .orElse(defaultCharset));
+    }
+}
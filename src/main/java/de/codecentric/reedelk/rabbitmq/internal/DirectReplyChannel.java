@@ -0,0 +1,165 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.*;
+import de.codecentric.reedelk.rabbitmq.internal.exception.RabbitMQRequestReplyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static de.codecentric.reedelk.rabbitmq.internal.commons.Messages.RabbitMQRequestReply.REQUEST_RETURNED_ERROR;
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * A channel publishing requests with the RabbitMQ Direct Reply-to feature: requests are
+ * published with the 'amq.rabbitmq.reply-to' reply queue and the broker routes the replies
+ * straight back to the consumer of this channel, without declaring a reply queue.
+ * There is a single reply channel (and reply consumer) per connection, shared by all
+ * the components using the connection: replies are matched to the pending requests
+ * by correlation ID. Replies not matching any pending request (e.g. arriving after
+ * the request timed out) are discarded.
+ * <p>
+ * Requests are published as mandatory: a request the broker cannot route to any queue
+ * is returned and fails immediately instead of waiting for the reply timeout. If the
+ * channel is closed, its pending requests fail and the next request opens a new channel.
+ */
+public class DirectReplyChannel {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectReplyChannel.class);
+
+    public static final String REPLY_TO = "amq.rabbitmq.reply-to";
+
+    private static final Map<Connection, DirectReplyChannel> CHANNELS = new IdentityHashMap<>();
+
+    private final Connection connection;
+    private final Map<String, PendingReply> pending = new ConcurrentHashMap<>();
+    private Channel channel;
+    private int references;
+
+    private DirectReplyChannel(Connection connection) throws IOException {
+        this.connection = connection;
+        this.channel = openChannel();
+    }
+
+    public static synchronized DirectReplyChannel acquire(Connection connection) throws IOException {
+        DirectReplyChannel replyChannel = CHANNELS.get(connection);
+        if (replyChannel == null) {
+            replyChannel = new DirectReplyChannel(connection);
+            CHANNELS.put(connection, replyChannel);
+        }
+        replyChannel.references++;
+        return replyChannel;
+    }
+
+    public void release() {
+        synchronized (DirectReplyChannel.class) {
+            if (--references > 0) return;
+            CHANNELS.remove(connection, this);
+        }
+        synchronized (this) {
+            ChannelUtils.closeSilently(channel);
+        }
+    }
+
+    /**
+     * Publishes the request and returns the future completed with its reply. The properties
+     * must carry a correlation ID unique among the requests pending on this channel.
+     */
+    public CompletableFuture<Delivery> request(String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body) throws IOException {
+        String correlationId = properties.getCorrelationId();
+        checkArgument(correlationId != null, "correlationId");
+
+        CompletableFuture<Delivery> reply = new CompletableFuture<>();
+        try {
+            synchronized (this) {
+                Channel current = channel();
+                // The future is registered before publishing: the reply might arrive before basicPublish returns.
+                pending.put(correlationId, new PendingReply(current, reply));
+                current.basicPublish(exchange, routingKey, true, properties.builder().replyTo(REPLY_TO).build(), body);
+            }
+        } catch (IOException | RuntimeException exception) {
+            pending.remove(correlationId);
+            throw exception;
+        }
+        return reply;
+    }
+
+    /**
+     * Stops waiting for the reply of the given request, e.g. because it timed out.
+     */
+    public void cancel(String correlationId) {
+        pending.remove(correlationId);
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    // Must be invoked while holding this channel lock.
+    private Channel channel() throws IOException {
+        if (!channel.isOpen()) {
+            // Replaced channels are closed, so that they are not recovered anymore.
+            ChannelUtils.closeSilently(channel);
+            channel = openChannel();
+        }
+        return channel;
+    }
+
+    private Channel openChannel() throws IOException {
+        Channel newChannel = connection.createChannel();
+        try {
+            // Direct Reply-to requires the reply consumer to be in automatic acknowledgement mode.
+            newChannel.basicConsume(REPLY_TO, true, this::handleReply, consumerTag -> {});
+            newChannel.addReturnListener(this::handleReturn);
+            newChannel.addShutdownListener(cause -> failAll(newChannel, cause));
+        } catch (IOException exception) {
+            ChannelUtils.closeSilently(newChannel);
+            throw exception;
+        }
+        return newChannel;
+    }
+
+    private void handleReply(String consumerTag, Delivery delivery) {
+        String correlationId = delivery.getProperties() == null ? null : delivery.getProperties().getCorrelationId();
+        PendingReply reply = correlationId == null ? null : pending.remove(correlationId);
+        if (reply != null) {
+            reply.future.complete(delivery);
+        } else if (logger.isDebugEnabled()) {
+            logger.debug(String.format("Discarded reply with correlation ID=[%s]: no pending request.", correlationId));
+        }
+    }
+
+    private void handleReturn(Return returned) {
+        String correlationId = returned.getProperties() == null ? null : returned.getProperties().getCorrelationId();
+        PendingReply reply = correlationId == null ? null : pending.remove(correlationId);
+        if (reply != null) {
+            String error = REQUEST_RETURNED_ERROR.format(returned.getRoutingKey(), returned.getReplyCode(), returned.getReplyText());
+            reply.future.completeExceptionally(new RabbitMQRequestReplyException(error));
+        }
+    }
+
+    private void failAll(Channel closed, ShutdownSignalException cause) {
+        // Replies are delivered to the channel which published the requests only:
+        // once the channel is closed its pending requests will never get a reply.
+        pending.forEach((correlationId, reply) -> {
+            if (reply.channel == closed && pending.remove(correlationId, reply)) {
+                reply.future.completeExceptionally(cause);
+            }
+        });
+    }
+
+    private static class PendingReply {
+
+        private final Channel channel;
+        private final CompletableFuture<Delivery> future;
+
+        private PendingReply(Channel channel, CompletableFuture<Delivery> future) {
+            this.channel = channel;
+            this.future = future;
+        }
+    }
+}
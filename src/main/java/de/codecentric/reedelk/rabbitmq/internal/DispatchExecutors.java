@@ -0,0 +1,54 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * Creates the executors consumer deliveries are dispatched to instead of the consumer
+ * work pool of the connection. The module is compiled for Java 8, therefore virtual threads
+ * are looked up reflectively: on JDKs without virtual threads a bounded pool is used instead.
+ */
+public class DispatchExecutors {
+
+    private static final Logger logger = LoggerFactory.getLogger(DispatchExecutors.class);
+
+    private DispatchExecutors() {
+    }
+
+    public static ExecutorService threadPool(String name, int size) {
+        checkArgument(size > 0, "size");
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(size, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns an executor starting a new virtual thread for each task on JDK 21 or later,
+     * or a pool of the given fallback size on older JDKs.
+     */
+    public static ExecutorService virtualThreads(String name, int fallbackSize) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException | LinkageError exception) {
+            logger.warn(String.format("Virtual threads are not available on Java %s, " +
+                    "a pool of %d threads is used by [%s] instead.", System.getProperty("java.version"), fallbackSize, name));
+            return threadPool(name, fallbackSize);
+        }
+    }
+}
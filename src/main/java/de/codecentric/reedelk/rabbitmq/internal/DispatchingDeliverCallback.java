@@ -0,0 +1,93 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DeliverCallback;
+import com.rabbitmq.client.Delivery;
+import de.codecentric.reedelk.rabbitmq.internal.chunk.ChunkHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * Hands the deliveries of a channel over to an executor, so that the consumer work pool
+ * thread of the connection is not blocked for the duration of the flow. If ordered, the
+ * deliveries of the channel are handled one at a time in delivery order; otherwise they are
+ * handled in parallel, except for chunks which must always be reassembled in order.
+ * Deliveries are acknowledged explicitly: a delivery the executor rejects (e.g. because the
+ * consumer is shutting down) is requeued.
+ * <p>
+ * Unordered deliveries might start on the executor in any order: the delivery tag is registered
+ * with the ack aggregator of the channel, if any, before the delivery is handed over, so that a
+ * 'multiple' ack of a higher tag does not acknowledge a delivery whose flow has not started yet.
+ */
+public class DispatchingDeliverCallback implements DeliverCallback {
+
+    private static final Logger logger = LoggerFactory.getLogger(DispatchingDeliverCallback.class);
+
+    private final DeliverCallback delegate;
+    private final Channel channel;
+    private final AckAggregator ackAggregator;
+    private final Executor executor;
+    private final Executor serialExecutor;
+    private final boolean ordered;
+
+    /**
+     * @param ackAggregator the ack aggregator of the channel, or null if acks are not aggregated.
+     */
+    public DispatchingDeliverCallback(DeliverCallback delegate, Executor executor, boolean ordered, Channel channel, AckAggregator ackAggregator) {
+        checkArgument(delegate != null, "delegate");
+        checkArgument(executor != null, "executor");
+        checkArgument(channel != null, "channel");
+        this.delegate = delegate;
+        this.channel = channel;
+        this.ackAggregator = ackAggregator;
+        this.executor = executor;
+        this.serialExecutor = new SerialExecutor(executor);
+        this.ordered = ordered;
+    }
+
+    @Override
+    public void handle(String consumerTag, Delivery delivery) {
+        Runnable task = () -> dispatch(consumerTag, delivery);
+        if (ackAggregator != null) ackAggregator.delivered(delivery.getEnvelope().getDeliveryTag());
+        try {
+            if (ordered || ChunkHeaders.isChunk(delivery)) {
+                serialExecutor.execute(task);
+            } else {
+                executor.execute(task);
+            }
+        } catch (RejectedExecutionException exception) {
+            requeue(delivery, exception);
+        }
+    }
+
+    private void requeue(Delivery delivery, RejectedExecutionException cause) {
+        long deliveryTag = delivery.getEnvelope().getDeliveryTag();
+        logger.warn(String.format("The message with delivery tag=[%d] could not be dispatched and it is requeued: %s",
+                deliveryTag, cause.getMessage()));
+        try {
+            // Once the channel is closed the broker requeues the unacknowledged deliveries anyway.
+            if (channel.isOpen()) channel.basicNack(deliveryTag, false, true);
+        } catch (IOException exception) {
+            String error = String.format("An error occurred while sending nack for tag=[%d]: %s", deliveryTag, exception.getMessage());
+            logger.error(error, exception);
+        } finally {
+            if (ackAggregator != null) ackAggregator.settled(deliveryTag);
+        }
+    }
+
+    private void dispatch(String consumerTag, Delivery delivery) {
+        try {
+            delegate.handle(consumerTag, delivery);
+        } catch (IOException | RuntimeException exception) {
+            String error = String.format("An error occurred while dispatching the message with delivery tag=[%d]: %s",
+                    delivery.getEnvelope().getDeliveryTag(), exception.getMessage());
+            logger.error(error, exception);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.Address;
+import com.rabbitmq.client.AddressResolver;
+
+import java.util.Collections;
+import java.util.List;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * Resolves one address of the cluster at a time: the address chosen by the placement
+ * strategy first, then the next address of the list at every further connection attempt.
+ * The client resolves the addresses again at each recovery attempt, therefore a recovering
+ * connection fails over to the next node. A single address is returned because the client
+ * shuffles the addresses of a recovering connection, which would defeat the placement.
+ */
+class FailoverAddressResolver implements AddressResolver {
+
+    private final List<Address> addresses;
+    private int next;
+
+    FailoverAddressResolver(List<Address> addresses, int start) {
+        checkArgument(addresses != null && !addresses.isEmpty(), "addresses");
+        this.addresses = addresses;
+        this.next = Math.floorMod(start, addresses.size());
+    }
+
+    @Override
+    public synchronized List<Address> getAddresses() {
+        Address address = addresses.get(next);
+        next = (next + 1) % addresses.size();
+        return Collections.singletonList(address);
+    }
+
+    int size() {
+        return addresses.size();
+    }
+}
@@ -0,0 +1,48 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import de.codecentric.reedelk.runtime.api.component.InboundEventListener;
+import de.codecentric.reedelk.runtime.api.component.OnResult;
+import de.codecentric.reedelk.runtime.api.flow.FlowContext;
+import de.codecentric.reedelk.runtime.api.message.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Completes the callback of a flow at most once. Flows must be started with
+ * {@link #start(InboundEventListener, Message, OnResult)}: when the listener throws
+ * instead of starting the flow the callback is completed with the error, so that
+ * what is held for the flow (in-flight budget, unacknowledged deliveries) is released.
+ */
+class FlowCompletion implements OnResult {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlowCompletion.class);
+
+    private final OnResult onResult;
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+
+    private FlowCompletion(OnResult onResult) {
+        this.onResult = onResult;
+    }
+
+    static void start(InboundEventListener listener, Message message, OnResult onResult) {
+        FlowCompletion completion = new FlowCompletion(onResult);
+        try {
+            listener.onEvent(message, completion);
+        } catch (RuntimeException exception) {
+            logger.error(String.format("The flow could not be started: %s", exception.getMessage()), exception);
+            completion.onError(null, exception);
+        }
+    }
+
+    @Override
+    public void onResult(FlowContext flowContext, Message message) {
+        if (completed.compareAndSet(false, true)) onResult.onResult(flowContext, message);
+    }
+
+    @Override
+    public void onError(FlowContext flowContext, Exception exception) {
+        if (completed.compareAndSet(false, true)) onResult.onError(flowContext, exception);
+    }
+}
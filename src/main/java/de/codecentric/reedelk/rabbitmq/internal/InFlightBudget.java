@@ -0,0 +1,84 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ConsumerMetrics;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * Bounds the number of messages and the total body bytes of the flows started by a consumer
+ * and not completed yet. When either limit is reached the consumer is paused, and it is resumed
+ * once both the in-flight messages and bytes are below half of their limit, so that a consumer
+ * close to its limits does not keep pausing and resuming. Deliveries already sent by the broker
+ * when the consumer is paused are still processed, hence the limits might be exceeded by the
+ * messages in transit (at most the prefetch count when acknowledgements are explicit).
+ */
+public class InFlightBudget {
+
+    private final int maxMessages;
+    private final long maxBytes;
+    private final Listener listener;
+    private final ConsumerMetrics metrics;
+
+    private int messages;
+    private long bytes;
+    private boolean paused;
+
+    /**
+     * A limit of zero means unlimited.
+     */
+    public InFlightBudget(int maxMessages, long maxBytes, Listener listener, ConsumerMetrics metrics) {
+        checkArgument(maxMessages > 0 || maxBytes > 0, "maxMessages or maxBytes");
+        checkArgument(listener != null, "listener");
+        checkArgument(metrics != null, "metrics");
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.listener = listener;
+        this.metrics = metrics;
+    }
+
+    public synchronized void acquire(long size) {
+        messages++;
+        bytes += size;
+        metrics.inFlight(1, size);
+        if (!paused && exhausted()) {
+            paused = true;
+            metrics.paused(true);
+            listener.pause();
+        }
+    }
+
+    public synchronized void release(long size) {
+        messages--;
+        bytes -= size;
+        metrics.inFlight(-1, -size);
+        if (paused && belowResumeThreshold()) {
+            paused = false;
+            metrics.paused(false);
+            listener.resume();
+        }
+    }
+
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    private boolean exhausted() {
+        return (maxMessages > 0 && messages >= maxMessages) ||
+                (maxBytes > 0 && bytes >= maxBytes);
+    }
+
+    private boolean belowResumeThreshold() {
+        return (maxMessages == 0 || messages <= maxMessages / 2) &&
+                (maxBytes == 0 || bytes <= maxBytes / 2);
+    }
+
+    /**
+     * Invoked while holding the budget lock: implementations must not block.
+     */
+    public interface Listener {
+
+        void pause();
+
+        void resume();
+    }
+}
@@ -0,0 +1,62 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The text payload of a delivery which is decoded only when it is consumed: it keeps the
+ * original bytes together with the charset resolved from the delivery and it publishes
+ * the decoded text as a single item to each subscriber.
+ */
+class LazyTextPublisher implements Publisher<String> {
+
+    private final byte[] content;
+    private final Charset charset;
+
+    LazyTextPublisher(byte[] content, Charset charset) {
+        this.content = content;
+        this.charset = charset;
+    }
+
+    Charset charset() {
+        return charset;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super String> subscriber) {
+        subscriber.onSubscribe(new TextSubscription(subscriber));
+    }
+
+    private class TextSubscription implements Subscription {
+
+        private final Subscriber<? super String> subscriber;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+
+        TextSubscription(Subscriber<? super String> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                if (done.compareAndSet(false, true)) {
+                    subscriber.onError(new IllegalArgumentException("The number of requested items must be positive"));
+                }
+                return;
+            }
+            if (done.compareAndSet(false, true)) {
+                subscriber.onNext(new String(content, charset));
+                subscriber.onComplete();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            done.set(true);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.AMQP;
+
+import java.util.Map;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * Immutable AMQP properties shared by all the messages published by a producer.
+ * The properties of a single message are created from the template with a single
+ * allocation, without going through an AMQP.BasicProperties.Builder.
+ */
+public class PropertiesTemplate {
+
+    private final AMQP.BasicProperties template;
+
+    public PropertiesTemplate(AMQP.BasicProperties template) {
+        checkArgument(template != null, "template");
+        this.template = template;
+    }
+
+    /**
+     * Returns a template with the same properties of this one and the given content encoding.
+     */
+    public PropertiesTemplate withContentEncoding(String contentEncoding) {
+        return new PropertiesTemplate(template.builder()
+                .contentEncoding(contentEncoding)
+                .build());
+    }
+
+    public AMQP.BasicProperties create(String correlationId) {
+        return create(correlationId, template.getHeaders());
+    }
+
+    public AMQP.BasicProperties create(String correlationId, Map<String, Object> headers) {
+        return create(template.getContentType(), correlationId, headers);
+    }
+
+    /**
+     * Creates the properties of a message whose content type differs from the template one.
+     */
+    public AMQP.BasicProperties create(String contentType, String correlationId) {
+        return create(contentType, correlationId, template.getHeaders());
+    }
+
+    private AMQP.BasicProperties create(String contentType, String correlationId, Map<String, Object> headers) {
+        return new AMQP.BasicProperties(
+                contentType,
+                template.getContentEncoding(),
+                headers,
+                template.getDeliveryMode(),
+                template.getPriority(),
+                correlationId,
+                template.getReplyTo(),
+                template.getExpiration(),
+                template.getMessageId(),
+                template.getTimestamp(),
+                template.getType(),
+                template.getUserId(),
+                template.getAppId(),
+                template.getClusterId());
+    }
+}
@@ -0,0 +1,165 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.AMQP;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * A bounded buffer of messages ready to be published, filled while the broker has
+ * blocked the connection and drained in order once the connection is unblocked.
+ * <p>
+ * The buffer is drained on the given executor by a single drain at a time, which is
+ * requested when the connection is unblocked and on each offer while the connection
+ * is not blocked, so that a message offered while the last drain is completing is
+ * never left behind. Messages are published in batches of at most 'batchSize' and are
+ * removed only once the publisher has published them: if a batch is not fully published,
+ * the messages left are kept and published again after 'retryDelay' milliseconds, hence
+ * they may be published more than once. A buffered message is removed only after it has
+ * been published, so that the buffer is not seen as empty (and new messages do not
+ * overtake it) while its last message is still being published.
+ */
+public class PublishBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PublishBuffer.class);
+
+    private final BlockingQueue<BufferedMessage> messages;
+    private final int batchSize;
+    private final long retryDelay;
+    private final BooleanSupplier blocked;
+    private final Publisher publisher;
+    private final ScheduledExecutorService executor;
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    public PublishBuffer(int capacity, int batchSize, long retryDelay, BooleanSupplier blocked, Publisher publisher, ScheduledExecutorService executor) {
+        checkArgument(capacity > 0, "capacity");
+        checkArgument(batchSize > 0, "batchSize");
+        checkArgument(retryDelay > 0, "retryDelay");
+        checkArgument(blocked != null, "blocked");
+        checkArgument(publisher != null, "publisher");
+        checkArgument(executor != null, "executor");
+        this.messages = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.retryDelay = retryDelay;
+        this.blocked = blocked;
+        this.publisher = publisher;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns false if the buffer is full.
+     */
+    public boolean offer(String orderingKey, String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body) {
+        if (!messages.offer(new BufferedMessage(orderingKey, exchange, routingKey, properties, body))) return false;
+        // The connection might have been unblocked after the caller decided to buffer the message.
+        if (!blocked.getAsBoolean()) drain();
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    /**
+     * Requests the buffered messages to be published. Only one drain runs at a time:
+     * a request received while draining makes the running drain check the buffer again.
+     */
+    public void drain() {
+        if (drainRequests.getAndIncrement() == 0) execute(this::drainLoop);
+    }
+
+    private void drainLoop() {
+        for (;;) {
+            int requests = drainRequests.get();
+            if (!publishBuffered()) {
+                // The drain requests are kept, hence no other drain
+                // is started before the retry runs.
+                schedule(this::drainLoop);
+                return;
+            }
+            if (drainRequests.addAndGet(-requests) == 0) return;
+        }
+    }
+
+    // Returns false if some messages must be published again.
+    private boolean publishBuffered() {
+        while (!blocked.getAsBoolean() && !messages.isEmpty()) {
+            List<BufferedMessage> batch = new ArrayList<>(batchSize);
+            Iterator<BufferedMessage> iterator = messages.iterator();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                batch.add(iterator.next());
+            }
+
+            int published;
+            try {
+                published = publisher.publish(batch);
+            } catch (RuntimeException exception) {
+                logger.error(String.format("Buffered messages could not be published: %s", exception.getMessage()), exception);
+                return false;
+            }
+            // The drain is the only consumer of the queue: its head is the batch.
+            for (int i = 0; i < published; i++) messages.poll();
+            if (published < batch.size()) return false;
+        }
+        return true;
+    }
+
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException exception) {
+            // The producer has been disposed.
+        }
+    }
+
+    private void schedule(Runnable task) {
+        try {
+            executor.schedule(task, retryDelay, MILLISECONDS);
+        } catch (RejectedExecutionException exception) {
+            // The producer has been disposed.
+        }
+    }
+
+    public interface Publisher {
+
+        /**
+         * Publishes the given messages in order and returns the number of messages,
+         * from the first one, which have been published (and confirmed if confirms are
+         * enabled). The messages not published are published again later.
+         */
+        int publish(List<BufferedMessage> messages);
+    }
+
+    public static class BufferedMessage {
+
+        public final String orderingKey;
+        public final String exchange;
+        public final String routingKey;
+        public final AMQP.BasicProperties properties;
+        public final byte[] body;
+
+        private BufferedMessage(String orderingKey, String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body) {
+            this.orderingKey = orderingKey;
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.properties = properties;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import de.codecentric.reedelk.rabbitmq.internal.PublisherConfirmTracker.PendingConfirm;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ProducerMetrics;
+
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A publishing channel of a PublisherChannelPool. A channel must be checked out
+ * from the pool before publishing: only one thread at a time publishes on it, so that
+ * messages sharing the same channel arrive in order and the publish sequence number
+ * of confirm mode matches the published message.
+ */
+public class PublisherChannel {
+
+    private final Channel channel;
+    private final PublisherConfirmTracker confirmTracker;
+    private final ProducerMetrics metrics;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public PublisherChannel(Channel channel, PublisherConfirmTracker confirmTracker, ProducerMetrics metrics) {
+        this.channel = channel;
+        this.confirmTracker = confirmTracker;
+        this.metrics = metrics;
+    }
+
+    public Channel channel() {
+        return channel;
+    }
+
+    /**
+     * Returns the confirm tracker of this channel or null if the channel is not in confirm mode.
+     */
+    public PublisherConfirmTracker confirmTracker() {
+        return confirmTracker;
+    }
+
+    /**
+     * Publishes the message and returns its pending confirm, or null if the channel is not
+     * in confirm mode. In confirm mode a slot of the confirm window must have been acquired:
+     * if the publish fails for any reason the slot is given back.
+     */
+    public PendingConfirm publish(String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body) throws IOException {
+        if (confirmTracker == null) {
+            basicPublish(exchange, routingKey, properties, body);
+            return null;
+        }
+        PendingConfirm pending = null;
+        try {
+            pending = confirmTracker.track(channel.getNextPublishSeqNo());
+            basicPublish(exchange, routingKey, properties, body);
+            return pending;
+        } catch (IOException | RuntimeException exception) {
+            // e.g. AlreadyClosedException is unchecked.
+            if (pending != null) {
+                pending.cancel();
+            } else {
+                confirmTracker.release();
+            }
+            throw exception;
+        }
+    }
+
+    private void basicPublish(String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body) throws IOException {
+        long start = System.nanoTime();
+        channel.basicPublish(exchange, routingKey, properties, body);
+        metrics.published(System.nanoTime() - start, body.length);
+    }
+
+    boolean tryLock() {
+        return lock.tryLock();
+    }
+
+    void lock() {
+        lock.lock();
+    }
+
+    void unlock() {
+        lock.unlock();
+    }
+
+    void close() {
+        ChannelUtils.closeSilently(channel);
+    }
+}
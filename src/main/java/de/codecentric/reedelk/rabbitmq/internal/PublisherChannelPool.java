@@ -0,0 +1,96 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * A fixed size pool of publishing channels opened on the same connection.
+ * Messages without an ordering key are published on the first channel which is not
+ * busy, starting from a round robin position: a checkout waits only when all the
+ * channels are busy. Messages with the same ordering key are always published on the
+ * same channel, hence their relative order is preserved: a keyed checkout waits until
+ * the channel of its key is free, while messages with different keys are published
+ * in parallel.
+ * <p>
+ * In confirm mode the channels share one confirm window: slots must be acquired
+ * before checking out a channel, so that a publisher waiting for a free slot
+ * never holds a channel other publishers could use.
+ */
+public class PublisherChannelPool {
+
+    private final PublisherChannel[] channels;
+    private final Semaphore confirmWindow;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public PublisherChannelPool(List<PublisherChannel> channels) {
+        this(channels, null);
+    }
+
+    /**
+     * @param confirmWindow the confirm window shared by the channels, or null if the channels are not in confirm mode.
+     */
+    public PublisherChannelPool(List<PublisherChannel> channels, Semaphore confirmWindow) {
+        checkArgument(channels != null && !channels.isEmpty(), "channels");
+        this.channels = channels.toArray(new PublisherChannel[0]);
+        this.confirmWindow = confirmWindow;
+    }
+
+    /**
+     * Acquires the given number of confirm window slots. Always succeeds if the
+     * channels are not in confirm mode. Each slot is given back when the message
+     * published with it is settled or its publish fails; slots acquired but not
+     * used must be given back with releaseConfirmSlots.
+     */
+    public boolean tryAcquireConfirmSlots(int slots, long timeout, TimeUnit unit) throws InterruptedException {
+        return confirmWindow == null || confirmWindow.tryAcquire(slots, timeout, unit);
+    }
+
+    public void releaseConfirmSlots(int slots) {
+        if (confirmWindow != null && slots > 0) {
+            confirmWindow.release(slots);
+        }
+    }
+
+    public PublisherChannel checkout(String orderingKey) {
+        if (channels.length == 1) {
+            PublisherChannel channel = channels[0];
+            channel.lock();
+            return channel;
+        }
+
+        if (orderingKey != null) {
+            PublisherChannel channel = channels[Math.floorMod(orderingKey.hashCode(), channels.length)];
+            channel.lock();
+            return channel;
+        }
+
+        int start = Math.floorMod(next.getAndIncrement(), channels.length);
+        for (int i = 0; i < channels.length; i++) {
+            PublisherChannel channel = channels[(start + i) % channels.length];
+            if (channel.tryLock()) return channel;
+        }
+
+        // All the channels are busy: we wait for the one at the round robin position.
+        PublisherChannel channel = channels[start];
+        channel.lock();
+        return channel;
+    }
+
+    public void checkin(PublisherChannel channel) {
+        channel.unlock();
+    }
+
+    public int size() {
+        return channels.length;
+    }
+
+    public void close() {
+        for (PublisherChannel channel : channels) {
+            channel.close();
+        }
+    }
+}
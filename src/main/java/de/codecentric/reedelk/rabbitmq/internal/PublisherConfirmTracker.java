@@ -0,0 +1,142 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.ConfirmListener;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ProducerMetrics;
+
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * Keeps track of the messages published on a channel in confirm mode which
+ * have not been confirmed by the broker yet. The number of outstanding messages
+ * is bounded by the window, shared by the channels of a pool: a publisher must acquire
+ * a slot of the window before publishing and the slot is given back as soon as the
+ * broker acks or nacks the message.
+ * Acks and nacks with the 'multiple' flag set settle all the outstanding messages
+ * up to and including the given sequence number at once.
+ */
+public class PublisherConfirmTracker implements ConfirmListener {
+
+    private final Semaphore window;
+    private final ProducerMetrics metrics;
+    private final ConcurrentNavigableMap<Long, PendingConfirm> outstanding = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param window the window shared with the other channels of a pool,
+     *               so that it bounds the messages outstanding on all of them.
+     */
+    public PublisherConfirmTracker(Semaphore window, ProducerMetrics metrics) {
+        checkArgument(window != null, "window");
+        checkArgument(metrics != null, "metrics");
+        this.window = window;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gives back a slot acquired from the window for a message which has not been tracked,
+     * e.g. because the publish failed before the sequence number could be tracked.
+     */
+    public void release() {
+        window.release();
+    }
+
+    /**
+     * Must be called with the next publish sequence number of the channel
+     * before the message is published.
+     */
+    public PendingConfirm track(long sequenceNumber) {
+        PendingConfirm pending = new PendingConfirm(this, sequenceNumber);
+        outstanding.put(sequenceNumber, pending);
+        metrics.inFlight(1);
+        return pending;
+    }
+
+    /**
+     * Stops tracking the given sequence number, e.g. because the publish failed
+     * or the confirm did not arrive in time, and gives back its slot in the window.
+     */
+    public void cancel(long sequenceNumber) {
+        if (outstanding.remove(sequenceNumber) != null) {
+            window.release();
+            metrics.inFlight(-1);
+        }
+    }
+
+    public int outstandingCount() {
+        return outstanding.size();
+    }
+
+    @Override
+    public void handleAck(long deliveryTag, boolean multiple) {
+        settle(deliveryTag, multiple, true);
+    }
+
+    @Override
+    public void handleNack(long deliveryTag, boolean multiple) {
+        settle(deliveryTag, multiple, false);
+    }
+
+    /**
+     * Fails all the outstanding confirms, e.g. when the channel has been shut down
+     * and the broker will never confirm the messages still in flight.
+     */
+    public void failAll(Throwable cause) {
+        for (Long sequenceNumber : outstanding.keySet()) {
+            PendingConfirm pending = outstanding.remove(sequenceNumber);
+            if (pending != null) {
+                window.release();
+                metrics.inFlight(-1);
+                pending.confirm.completeExceptionally(cause);
+            }
+        }
+    }
+
+    private void settle(long deliveryTag, boolean multiple, boolean ack) {
+        if (multiple) {
+            ConcurrentNavigableMap<Long, PendingConfirm> confirmed = outstanding.headMap(deliveryTag, true);
+            for (Map.Entry<Long, PendingConfirm> entry : confirmed.entrySet()) {
+                if (confirmed.remove(entry.getKey()) != null) {
+                    settled(entry.getValue(), ack);
+                }
+            }
+        } else {
+            PendingConfirm pending = outstanding.remove(deliveryTag);
+            if (pending != null) {
+                settled(pending, ack);
+            }
+        }
+    }
+
+    private void settled(PendingConfirm pending, boolean ack) {
+        window.release();
+        metrics.inFlight(-1);
+        metrics.confirmed(System.nanoTime() - pending.trackedAt);
+        pending.confirm.complete(ack);
+    }
+
+    public static class PendingConfirm {
+
+        private final PublisherConfirmTracker tracker;
+        private final long sequenceNumber;
+        private final long trackedAt = System.nanoTime();
+        private final CompletableFuture<Boolean> confirm = new CompletableFuture<>();
+
+        private PendingConfirm(PublisherConfirmTracker tracker, long sequenceNumber) {
+            this.tracker = tracker;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        /**
+         * Returns true if the broker acked the message, false if it was nacked.
+         */
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return confirm.get(timeout, unit);
+        }
+
+        public void cancel() {
+            tracker.cancel(sequenceNumber);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import de.codecentric.reedelk.rabbitmq.component.QueueOverflow;
+import de.codecentric.reedelk.rabbitmq.component.QueueType;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the arguments of a queue declaration. Arguments which are not supported by the
+ * queue type are left out, since the broker refuses the declaration otherwise: lazy mode and
+ * priorities apply to classic queues only, and stream queues only support a length limit in bytes.
+ * Settings which cannot be left out without changing the queue behaviour, such as the
+ * 'reject-publish-dlx' overflow of a quorum queue, are refused.
+ */
+public class QueueArguments {
+
+    private final QueueType type;
+    private final Map<String, Object> arguments = new HashMap<>();
+
+    public QueueArguments(QueueType type) {
+        this.type = type;
+        if (type != QueueType.CLASSIC) arguments.put("x-queue-type", type.argument());
+    }
+
+    public QueueArguments lazy(boolean lazy) {
+        if (lazy && type == QueueType.CLASSIC) arguments.put("x-queue-mode", "lazy");
+        return this;
+    }
+
+    /**
+     * A zero max length or max length in bytes means unlimited.
+     *
+     * @throws IllegalArgumentException if the overflow behaviour is not supported by the queue type.
+     */
+    public QueueArguments maxLength(int maxLength, long maxLengthBytes, QueueOverflow overflow) {
+        if (maxLengthBytes > 0) arguments.put("x-max-length-bytes", maxLengthBytes);
+        if (type == QueueType.STREAM) return this;
+        if (maxLength > 0) arguments.put("x-max-length", maxLength);
+        if ((maxLength > 0 || maxLengthBytes > 0) && overflow != null) {
+            if (type == QueueType.QUORUM && overflow == QueueOverflow.REJECT_PUBLISH_DLX) {
+                throw new IllegalArgumentException("Queue Configuration: quorum queues do not support the " +
+                        "'Reject Publish to Dead Letter' (x-overflow=reject-publish-dlx) overflow behaviour, " +
+                        "use 'Drop Head' or 'Reject Publish'.");
+            }
+            arguments.put("x-overflow", overflow.argument());
+        }
+        return this;
+    }
+
+    public QueueArguments messageTtl(long messageTtl) {
+        if (messageTtl > 0 && type != QueueType.STREAM) arguments.put("x-message-ttl", messageTtl);
+        return this;
+    }
+
+    public QueueArguments maxPriority(int maxPriority) {
+        if (maxPriority > 0 && type == QueueType.CLASSIC) arguments.put("x-max-priority", maxPriority);
+        return this;
+    }
+
+    public QueueArguments deadLetter(String exchange, String routingKey) {
+        if (exchange == null || type == QueueType.STREAM) return this;
+        arguments.put("x-dead-letter-exchange", exchange);
+        if (routingKey != null) arguments.put("x-dead-letter-routing-key", routingKey);
+        return this;
+    }
+
+    /**
+     * Returns the arguments or null if there are none.
+     */
+    public Map<String, Object> build() {
+        return arguments.isEmpty() ? null : arguments;
+    }
+}
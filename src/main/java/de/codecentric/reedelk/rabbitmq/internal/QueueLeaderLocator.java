@@ -0,0 +1,265 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.Address;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the cluster node hosting the leader of a queue (the node of a classic queue)
+ * using the RabbitMQ management HTTP API, which is reached on the management port of the
+ * cluster addresses, over HTTPS if enabled. The leader of a queue is cached once found,
+ * for as long as the module is running. A failed look up (e.g. because the queue has not
+ * been declared yet) is not cached: the leader is looked up again for the next component.
+ * Over HTTP the management credentials are sent in clear text, a warning is logged.
+ */
+class QueueLeaderLocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueueLeaderLocator.class);
+
+    private static final int TIMEOUT = 5000;
+    private static final Pattern IPV4 = Pattern.compile("\\d+(\\.\\d+){3}");
+    private static final Map<List<Object>, Integer> LEADERS = new ConcurrentHashMap<>();
+
+    private QueueLeaderLocator() {
+    }
+
+    /**
+     * Returns the index of the address of the node hosting the leader of the given queue,
+     * or -1 if it could not be found.
+     */
+    static int leaderIndex(List<Address> addresses, int managementPort, boolean https, String userName, String password, String virtualHost, String queueName) {
+        List<Object> key = Arrays.asList(addresses, managementPort, virtualHost, queueName);
+        Integer cached = LEADERS.get(key);
+        if (cached != null) return cached;
+        int index = locate(addresses, managementPort, https, userName, password, virtualHost, queueName);
+        if (index >= 0) LEADERS.put(key, index);
+        return index;
+    }
+
+    private static int locate(List<Address> addresses, int managementPort, boolean https, String userName, String password, String virtualHost, String queueName) {
+        if (!https) {
+            logger.warn(String.format("The leader of queue=[%s] is looked up with the management API over HTTP: " +
+                    "the credentials of user=[%s] are sent in clear text, enable Management HTTPS.", queueName, userName));
+        }
+        for (Address address : addresses) {
+            try {
+                String node = leaderNode(https ? "https" : "http", address.getHost(), managementPort, userName, password, virtualHost, queueName);
+                if (node == null) continue;
+                int index = indexOf(addresses, node);
+                if (index < 0) {
+                    logger.warn(String.format("The leader node=[%s] of queue=[%s] is not in the connection addresses, " +
+                            "connections are placed round robin.", node, queueName));
+                }
+                return index;
+            } catch (IOException exception) {
+                logger.debug(String.format("Could not look up the leader of queue=[%s] on host=[%s]: %s",
+                        queueName, address.getHost(), exception.getMessage()));
+            }
+        }
+        logger.warn(String.format("Could not look up the leader of queue=[%s] with the management API on port=[%d], " +
+                "connections are placed round robin.", queueName, managementPort));
+        return -1;
+    }
+
+    private static String leaderNode(String protocol, String host, int managementPort, String userName, String password, String virtualHost, String queueName) throws IOException {
+        URL url = new URL(protocol, host, managementPort,
+                "/api/queues/" + encode(virtualHost) + "/" + encode(queueName) + "?columns=node,leader");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setConnectTimeout(TIMEOUT);
+            connection.setReadTimeout(TIMEOUT);
+            String credentials = userName + ":" + password;
+            connection.setRequestProperty("Authorization",
+                    "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP status " + connection.getResponseCode());
+            }
+            return leaderNode(read(connection.getInputStream()));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    // Quorum queues and streams have a leader, classic queues a node. Only the fields of
+    // the queue object itself are matched: not the ones nested in e.g. its arguments.
+    static String leaderNode(String body) throws IOException {
+        Map<String, String> fields = new JsonObjectReader(body).readStringFields();
+        String leader = fields.get("leader");
+        return leader != null ? leader : fields.get("node");
+    }
+
+    // Node names have the form 'rabbit@hostname': the host name is matched either
+    // in full or by its first label with the host names of the addresses.
+    private static int indexOf(List<Address> addresses, String node) {
+        String nodeHost = node.substring(node.indexOf('@') + 1);
+        for (int i = 0; i < addresses.size(); i++) {
+            String host = addresses.get(i).getHost();
+            if (host.equalsIgnoreCase(nodeHost) ||
+                    (!isIpAddress(host) && firstLabel(host).equalsIgnoreCase(firstLabel(nodeHost)))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isIpAddress(String host) {
+        return host.contains(":") || IPV4.matcher(host).matches();
+    }
+
+    private static String firstLabel(String host) {
+        int dot = host.indexOf('.');
+        return dot < 0 ? host : host.substring(0, dot);
+    }
+
+    private static String encode(String value) throws IOException {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8.name()).replace("+", "%20");
+    }
+
+    private static String read(InputStream inputStream) throws IOException {
+        try (InputStream input = inputStream) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Reads the string fields of a JSON object, skipping the values of any other type
+     * and the objects and arrays nested in it.
+     */
+    private static class JsonObjectReader {
+
+        private final String json;
+        private int position;
+
+        JsonObjectReader(String json) {
+            this.json = json;
+        }
+
+        Map<String, String> readStringFields() throws IOException {
+            Map<String, String> fields = new HashMap<>();
+            expect('{');
+            if (peek() == '}') {
+                position++;
+                return fields;
+            }
+            while (true) {
+                String key = readString();
+                expect(':');
+                if (peek() == '"') {
+                    fields.put(key, readString());
+                } else {
+                    skipValue();
+                }
+                char next = next();
+                if (next == '}') return fields;
+                if (next != ',') throw error("',' or '}'");
+            }
+        }
+
+        private String readString() throws IOException {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = json.charAt(advance());
+                if (c == '"') return value.toString();
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = json.charAt(advance());
+                switch (escaped) {
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'u':
+                        advance(4);
+                        try {
+                            value.append((char) Integer.parseInt(json.substring(position - 4, position), 16));
+                        } catch (NumberFormatException exception) {
+                            throw error("a unicode escape");
+                        }
+                        break;
+                    default: value.append(escaped);
+                }
+            }
+        }
+
+        private void skipValue() throws IOException {
+            char c = peek();
+            if (c == '"') {
+                readString();
+            } else if (c == '{' || c == '[') {
+                int depth = 0;
+                do {
+                    c = peek();
+                    if (c == '"') {
+                        readString();
+                        continue;
+                    }
+                    if (c == '{' || c == '[') depth++;
+                    else if (c == '}' || c == ']') depth--;
+                    position++;
+                } while (depth > 0);
+            } else {
+                // Numbers, booleans and null.
+                while (position < json.length() && ",}] \t\r\n".indexOf(json.charAt(position)) < 0) {
+                    position++;
+                }
+            }
+        }
+
+        private void expect(char expected) throws IOException {
+            if (next() != expected) throw error("'" + expected + "'");
+        }
+
+        // Returns the next character which is not a white space and moves past it.
+        private char next() throws IOException {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        // Returns the next character which is not a white space.
+        private char peek() throws IOException {
+            while (position < json.length() && Character.isWhitespace(json.charAt(position))) position++;
+            if (position >= json.length()) throw error("a value");
+            return json.charAt(position);
+        }
+
+        private int advance() throws IOException {
+            advance(1);
+            return position - 1;
+        }
+
+        private void advance(int characters) throws IOException {
+            if (position + characters > json.length()) throw error("a value");
+            position += characters;
+        }
+
+        private IOException error(String expected) {
+            return new IOException(String.format("Invalid JSON, expected %s at position=[%d]", expected, position));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * Runs the submitted tasks one at a time and in submission order on the given executor,
+ * without holding a thread of the executor while there are no tasks to run. After a few
+ * tasks the executor is given back, so that a busy serial executor does not starve the
+ * others sharing the same executor.
+ */
+class SerialExecutor implements Executor {
+
+    private static final int MAX_TASKS_PER_RUN = 16;
+
+    private final Executor executor;
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private boolean scheduled;
+
+    SerialExecutor(Executor executor) {
+        checkArgument(executor != null, "executor");
+        this.executor = executor;
+    }
+
+    /**
+     * @throws RejectedExecutionException if the executor rejects the task: the task is not kept.
+     */
+    @Override
+    public synchronized void execute(Runnable task) {
+        tasks.add(task);
+        if (!scheduled) {
+            try {
+                executor.execute(this::run);
+            } catch (RejectedExecutionException exception) {
+                tasks.remove(task);
+                throw exception;
+            }
+            scheduled = true;
+        }
+    }
+
+    private void run() {
+        boolean drained = false;
+        try {
+            for (int i = 0; i < MAX_TASKS_PER_RUN && !drained; i++) {
+                Runnable task = next();
+                if (task == null) {
+                    drained = true;
+                } else {
+                    task.run();
+                }
+            }
+        } finally {
+            // Also when a task throws, otherwise the remaining tasks would never run.
+            if (!drained) reschedule();
+        }
+    }
+
+    private synchronized Runnable next() {
+        Runnable task = tasks.poll();
+        if (task == null) scheduled = false;
+        return task;
+    }
+
+    private synchronized void reschedule() {
+        if (tasks.isEmpty()) {
+            scheduled = false;
+        } else {
+            try {
+                executor.execute(this::run);
+            } catch (RejectedExecutionException exception) {
+                // The executor has been shut down: the deliveries of the
+                // dropped tasks are redelivered once the channel is closed.
+                tasks.clear();
+                scheduled = false;
+            }
+        }
+    }
+}
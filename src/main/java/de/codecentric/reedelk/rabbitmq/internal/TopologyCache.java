@@ -0,0 +1,159 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * Remembers the queues, exchanges and bindings declared on a connection, so that a declaration
+ * is made only the first time it is seen and publishing does not pay a declaration round trip
+ * for every message. A declaration is identified by the name and by all the declared settings:
+ * the same queue declared with different settings is declared again, so that the broker refuses
+ * the inequivalent declaration instead of the cache hiding it. A declaration round trip holds
+ * no lock: flows publishing to other names are not blocked by it, flows publishing to the same
+ * name wait for its outcome. There is one cache per connection, shared by all the
+ * components using the connection: its capacity is the one of the first component.
+ * When the cache is full the oldest declarations are forgotten (and declared again when
+ * seen again). The cache is cleared when the connection is recovered, so that the
+ * topology is declared again on the recovered connection.
+ * Declarations use a dedicated channel: a failed declaration closes the channel
+ * and it must not close a publishing channel.
+ */
+public class TopologyCache {
+
+    private static final Map<Connection, TopologyCache> CACHES = new IdentityHashMap<>();
+
+    private final Connection connection;
+    private final int capacity;
+    private final Map<List<Object>, CompletableFuture<Void>> declared = new ConcurrentHashMap<>();
+    private final Queue<List<Object>> declarationOrder = new ConcurrentLinkedQueue<>();
+    private final RecoveryListener recoveryListener;
+
+    private Channel channel;
+    private int references;
+
+    private TopologyCache(Connection connection, int capacity) {
+        checkArgument(capacity > 0, "capacity");
+        this.connection = connection;
+        this.capacity = capacity;
+        this.recoveryListener = new RecoveryListener() {
+            @Override
+            public void handleRecovery(Recoverable recoverable) {
+                clear();
+            }
+
+            @Override
+            public void handleRecoveryStarted(Recoverable recoverable) {
+                // Nothing to do, declarations are cleared once the connection is recovered.
+            }
+        };
+        if (connection instanceof Recoverable) {
+            ((Recoverable) connection).addRecoveryListener(recoveryListener);
+        }
+    }
+
+    public static synchronized TopologyCache acquire(Connection connection, int capacity) {
+        TopologyCache cache = CACHES.computeIfAbsent(connection, key -> new TopologyCache(key, capacity));
+        cache.references++;
+        return cache;
+    }
+
+    public void release() {
+        synchronized (TopologyCache.class) {
+            if (--references > 0) return;
+            CACHES.remove(connection, this);
+        }
+        if (connection instanceof Recoverable) {
+            ((Recoverable) connection).removeRecoveryListener(recoveryListener);
+        }
+        synchronized (this) {
+            if (channel != null) ChannelUtils.closeSilently(channel);
+            channel = null;
+        }
+    }
+
+    public void declareQueue(String queue, boolean durable, boolean exclusive, boolean autoDelete, Map<String, Object> arguments) throws IOException {
+        declare(Arrays.asList("queue", queue, durable, exclusive, autoDelete, arguments),
+                declarations -> declarations.queueDeclare(queue, durable, exclusive, autoDelete, arguments));
+    }
+
+    public void declareExchange(String exchange, String type) throws IOException {
+        declare(Arrays.asList("exchange", exchange, type),
+                declarations -> declarations.exchangeDeclare(exchange, type, true));
+    }
+
+    public void bind(String queue, String exchange, String routingKey) throws IOException {
+        declare(Arrays.asList("binding", queue, exchange, routingKey),
+                declarations -> declarations.queueBind(queue, exchange, routingKey));
+    }
+
+    int size() {
+        return declared.size();
+    }
+
+    private void declare(List<Object> key, Declaration declaration) throws IOException {
+        CompletableFuture<Void> declaring = new CompletableFuture<>();
+        CompletableFuture<Void> existing = declared.putIfAbsent(key, declaring);
+        if (existing != null) {
+            // Declared already, or being declared by another flow.
+            await(existing);
+            return;
+        }
+
+        try {
+            declaration.declare(channel());
+        } catch (IOException | RuntimeException exception) {
+            // Forgotten, so that it is declared again the next time it is seen.
+            declared.remove(key, declaring);
+            declaring.completeExceptionally(exception);
+            if (exception instanceof ShutdownSignalException) {
+                // Another declaration failed and closed the channel.
+                throw new IOException(exception.getMessage(), exception);
+            }
+            throw exception;
+        }
+        declaring.complete(null);
+
+        declarationOrder.add(key);
+        while (declared.size() > capacity) {
+            List<Object> oldest = declarationOrder.poll();
+            if (oldest == null) break;
+            declared.remove(oldest);
+        }
+    }
+
+    // The lock is held only to open the channel, not for the declaration round trip.
+    private synchronized Channel channel() throws IOException {
+        if (channel == null || !channel.isOpen()) channel = connection.createChannel();
+        return channel;
+    }
+
+    private static void await(CompletableFuture<Void> declaration) throws IOException {
+        try {
+            declaration.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a declaration");
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private void clear() {
+        declared.clear();
+        declarationOrder.clear();
+    }
+
+    private interface Declaration {
+        void declare(Channel channel) throws IOException;
+    }
+}
@@ -5,7 +5,6 @@ import de.codecentric.reedelk.runtime.api.annotation.Type;
 import de.codecentric.reedelk.runtime.api.annotation.TypeProperty;
 
 import java.io.Serializable;
-import java.util.HashMap;
 
 import static de.codecentric.reedelk.rabbitmq.internal.attribute.EnvelopeAttributes.*;
 
@@ -13,15 +12,23 @@ import static de.codecentric.reedelk.rabbitmq.internal.attribute.EnvelopeAttribu
 @TypeProperty(name = DELIVERY_TAG, type = long.class)
 @TypeProperty(name = ROUTING_KEY, type = String.class)
 @TypeProperty(name = EXCHANGE, type = String.class)
-public class EnvelopeAttributes extends HashMap<String, Serializable> {
+public class EnvelopeAttributes extends LazyAttributes {
 
     static final String DELIVERY_TAG = "deliveryTag";
     static final String ROUTING_KEY = "routingKey";
     static final String EXCHANGE = "exchange";
 
+    private transient Envelope envelope;
+
     public EnvelopeAttributes(Envelope envelope) {
-        put(DELIVERY_TAG, envelope.getDeliveryTag());
-        put(ROUTING_KEY, envelope.getRoutingKey());
-        put(EXCHANGE, envelope.getExchange());
+        this.envelope = envelope;
+    }
+
+    @Override
+    protected void loadAttributes() {
+        set(DELIVERY_TAG, envelope.getDeliveryTag());
+        set(ROUTING_KEY, envelope.getRoutingKey());
+        set(EXCHANGE, envelope.getExchange());
+        envelope = null;
     }
 }
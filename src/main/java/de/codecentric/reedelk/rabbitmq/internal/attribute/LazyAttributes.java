@@ -0,0 +1,214 @@
+package de.codecentric.reedelk.rabbitmq.internal.attribute;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Attributes which are converted from their AMQP source into map entries only when the
+ * map is first accessed: flows which never read them do not pay for the conversion.
+ * Serialized attributes are always loaded.
+ */
+abstract class LazyAttributes extends HashMap<String, Serializable> {
+
+    private transient volatile boolean loaded;
+
+    /**
+     * Puts the attributes into the map with {@link #set(String, Serializable)}
+     * and releases the AMQP source. Invoked once, on first access.
+     */
+    protected abstract void loadAttributes();
+
+    protected final void set(String key, Serializable value) {
+        super.put(key, value);
+    }
+
+    private void load() {
+        if (loaded) return;
+        synchronized (this) {
+            if (loaded) return;
+            loadAttributes();
+            loaded = true;
+        }
+    }
+
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        loaded = true;
+    }
+
+    // Not private: serialization looks up writeReplace in the class of the serialized object.
+    protected final Object writeReplace() {
+        load();
+        return this;
+    }
+
+    @Override
+    public int size() {
+        load();
+        return super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        load();
+        return super.isEmpty();
+    }
+
+    @Override
+    public Serializable get(Object key) {
+        load();
+        return super.get(key);
+    }
+
+    @Override
+    public Serializable getOrDefault(Object key, Serializable defaultValue) {
+        load();
+        return super.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        load();
+        return super.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        load();
+        return super.containsValue(value);
+    }
+
+    @Override
+    public Serializable put(String key, Serializable value) {
+        load();
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends Serializable> map) {
+        load();
+        super.putAll(map);
+    }
+
+    @Override
+    public Serializable putIfAbsent(String key, Serializable value) {
+        load();
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public Serializable remove(Object key) {
+        load();
+        return super.remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        load();
+        return super.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, Serializable oldValue, Serializable newValue) {
+        load();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public Serializable replace(String key, Serializable value) {
+        load();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Serializable, ? extends Serializable> function) {
+        load();
+        super.replaceAll(function);
+    }
+
+    @Override
+    public Serializable computeIfAbsent(String key, Function<? super String, ? extends Serializable> mappingFunction) {
+        load();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public Serializable computeIfPresent(String key, BiFunction<? super String, ? super Serializable, ? extends Serializable> remappingFunction) {
+        load();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public Serializable compute(String key, BiFunction<? super String, ? super Serializable, ? extends Serializable> remappingFunction) {
+        load();
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public Serializable merge(String key, Serializable value, BiFunction<? super Serializable, ? super Serializable, ? extends Serializable> remappingFunction) {
+        load();
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public void clear() {
+        load();
+        super.clear();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        load();
+        return super.keySet();
+    }
+
+    @Override
+    public Collection<Serializable> values() {
+        load();
+        return super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Serializable>> entrySet() {
+        load();
+        return super.entrySet();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Serializable> action) {
+        load();
+        super.forEach(action);
+    }
+
+    @Override
+    public Object clone() {
+        load();
+        return super.clone();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        load();
+        return super.equals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        load();
+        return super.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        load();
+        return super.toString();
+    }
+}
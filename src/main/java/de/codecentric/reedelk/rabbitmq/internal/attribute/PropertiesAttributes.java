@@ -6,7 +6,6 @@ import de.codecentric.reedelk.runtime.api.annotation.TypeProperty;
 import de.codecentric.reedelk.runtime.api.commons.SerializableUtils;
 
 import java.io.Serializable;
-import java.util.HashMap;
 import java.util.Map;
 
 import static de.codecentric.reedelk.rabbitmq.internal.attribute.PropertiesAttributes.*;
@@ -26,7 +25,7 @@ import static de.codecentric.reedelk.rabbitmq.internal.attribute.PropertiesAttri
 @TypeProperty(name = USER_ID, type = String.class)
 @TypeProperty(name = APP_ID, type = String.class)
 @TypeProperty(name = TYPE, type = String.class)
-public class PropertiesAttributes extends HashMap<String, Serializable> {
+public class PropertiesAttributes extends LazyAttributes {
 
     static final String CONTENT_ENCODING = "contentEncoding";
     static final String CORRELATION_ID = "correlationId";
@@ -43,23 +42,31 @@ public class PropertiesAttributes extends HashMap<String, Serializable> {
     static final String APP_ID = "appId";
     static final String TYPE = "type";
 
+    private transient AMQP.BasicProperties properties;
+
     public PropertiesAttributes(AMQP.BasicProperties properties) {
-        put(CONTENT_ENCODING, properties.getContentEncoding());
-        put(CORRELATION_ID, properties.getCorrelationId());
-        put(DELIVERY_MODE, properties.getDeliveryMode());
-        put(CONTENT_TYPE, properties.getContentType());
-        put(EXPIRATION, properties.getExpiration());
-        put(CLUSTER_ID, properties.getClusterId());
-        put(MESSAGE_ID, properties.getMessageId());
-        put(PRIORITY, properties.getPriority());
-        put(REPLY_TO, properties.getReplyTo());
-        put(HEADERS, SerializableUtils.asSafeSerializableMap(properties.getHeaders()));
-        put(USER_ID, properties.getUserId());
-        put(APP_ID, properties.getAppId());
-        put(TYPE, properties.getType());
+        this.properties = properties;
+    }
+
+    @Override
+    protected void loadAttributes() {
+        set(CONTENT_ENCODING, properties.getContentEncoding());
+        set(CORRELATION_ID, properties.getCorrelationId());
+        set(DELIVERY_MODE, properties.getDeliveryMode());
+        set(CONTENT_TYPE, properties.getContentType());
+        set(EXPIRATION, properties.getExpiration());
+        set(CLUSTER_ID, properties.getClusterId());
+        set(MESSAGE_ID, properties.getMessageId());
+        set(PRIORITY, properties.getPriority());
+        set(REPLY_TO, properties.getReplyTo());
+        set(HEADERS, SerializableUtils.asSafeSerializableMap(properties.getHeaders()));
+        set(USER_ID, properties.getUserId());
+        set(APP_ID, properties.getAppId());
+        set(TYPE, properties.getType());
 
         if (properties.getTimestamp() != null) {
-            put(TIMESTAMP, properties.getTimestamp().getTime());
+            set(TIMESTAMP, properties.getTimestamp().getTime());
         }
+        properties = null;
     }
 }
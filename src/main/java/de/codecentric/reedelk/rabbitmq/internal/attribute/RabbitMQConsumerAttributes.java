@@ -8,9 +8,6 @@ import de.codecentric.reedelk.runtime.api.annotation.TypeProperty;
 import de.codecentric.reedelk.runtime.api.message.MessageAttributeKey;
 import de.codecentric.reedelk.runtime.api.message.MessageAttributes;
 
-import java.io.Serializable;
-import java.util.HashMap;
-
 import static de.codecentric.reedelk.rabbitmq.internal.attribute.RabbitMQConsumerAttributes.ENVELOPE;
 import static de.codecentric.reedelk.rabbitmq.internal.attribute.RabbitMQConsumerAttributes.PROPERTIES;
 
@@ -24,22 +21,18 @@ public class RabbitMQConsumerAttributes extends MessageAttributes {
 
     public RabbitMQConsumerAttributes(Delivery delivery) {
         Envelope envelope = delivery.getEnvelope();
-        HashMap<String, Serializable> envelopeAttrs = new EnvelopeAttributes(envelope);
-
         AMQP.BasicProperties properties = delivery.getProperties();
-        HashMap<String, Serializable> propertiesAttrs = new PropertiesAttributes(properties);
-
 
-        put(ENVELOPE, envelopeAttrs);
-        put(PROPERTIES, propertiesAttrs);
+        put(ENVELOPE, new EnvelopeAttributes(envelope));
+        put(PROPERTIES, new PropertiesAttributes(properties));
 
         // We copy the AMQP correlationId to the Internal Correlation ID and we set it
         // as a Message Attribute with the given key: MessageAttributeKey.CORRELATION_ID.
         // This allows to access the correlation ID from the flow context using 'context.correlationId'
-        // from a script or dynamic value.
-        if (propertiesAttrs.containsKey(PropertiesAttributes.CORRELATION_ID)) {
-            put(MessageAttributeKey.CORRELATION_ID,
-                    propertiesAttrs.get(PropertiesAttributes.CORRELATION_ID));
+        // from a script or dynamic value. It is read from the AMQP properties directly so that
+        // the properties attributes are not loaded unless the flow needs them.
+        if (properties.getCorrelationId() != null) {
+            put(MessageAttributeKey.CORRELATION_ID, properties.getCorrelationId());
         }
     }
 }
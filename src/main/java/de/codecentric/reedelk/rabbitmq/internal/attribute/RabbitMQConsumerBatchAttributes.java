@@ -0,0 +1,27 @@
+package de.codecentric.reedelk.rabbitmq.internal.attribute;
+
+import com.rabbitmq.client.Delivery;
+import de.codecentric.reedelk.runtime.api.annotation.Type;
+import de.codecentric.reedelk.runtime.api.annotation.TypeProperty;
+import de.codecentric.reedelk.runtime.api.message.MessageAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.codecentric.reedelk.rabbitmq.internal.attribute.RabbitMQConsumerBatchAttributes.MESSAGES;
+
+@Type
+@TypeProperty(name = MESSAGES, type = List.class)
+public class RabbitMQConsumerBatchAttributes extends MessageAttributes {
+
+    static final String MESSAGES = "messages";
+
+    public RabbitMQConsumerBatchAttributes(List<Delivery> deliveries) {
+        // The attributes of each message are in the same order of the payload list.
+        ArrayList<RabbitMQConsumerAttributes> messages = new ArrayList<>(deliveries.size());
+        for (Delivery delivery : deliveries) {
+            messages.add(new RabbitMQConsumerAttributes(delivery));
+        }
+        put(MESSAGES, messages);
+    }
+}
@@ -0,0 +1,47 @@
+package de.codecentric.reedelk.rabbitmq.internal.chunk;
+
+import com.rabbitmq.client.Delivery;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Headers of the chunking protocol: a large payload is published as a sequence of chunk
+ * messages sharing the same chunk ID, each one with its index in the sequence.
+ * The last chunk of the sequence has the 'last' header set to true.
+ */
+public class ChunkHeaders {
+
+    public static final String CHUNK_ID = "x-reedelk-chunk-id";
+    public static final String CHUNK_INDEX = "x-reedelk-chunk-index";
+    public static final String CHUNK_LAST = "x-reedelk-chunk-last";
+
+    private ChunkHeaders() {
+    }
+
+    public static Map<String, Object> of(String chunkId, long index, boolean last) {
+        Map<String, Object> headers = new HashMap<>(4);
+        headers.put(CHUNK_ID, chunkId);
+        headers.put(CHUNK_INDEX, index);
+        headers.put(CHUNK_LAST, last);
+        return headers;
+    }
+
+    public static boolean isChunk(Delivery delivery) {
+        Map<String, Object> headers = delivery.getProperties().getHeaders();
+        return headers != null && headers.containsKey(CHUNK_ID);
+    }
+
+    public static String chunkId(Delivery delivery) {
+        return String.valueOf(delivery.getProperties().getHeaders().get(CHUNK_ID));
+    }
+
+    public static long index(Delivery delivery) {
+        Object index = delivery.getProperties().getHeaders().get(CHUNK_INDEX);
+        return index instanceof Number ? ((Number) index).longValue() : -1;
+    }
+
+    public static boolean isLast(Delivery delivery) {
+        return Boolean.TRUE.equals(delivery.getProperties().getHeaders().get(CHUNK_LAST));
+    }
+}
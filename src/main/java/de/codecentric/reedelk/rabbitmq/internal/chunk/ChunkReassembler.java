@@ -0,0 +1,195 @@
+package de.codecentric.reedelk.rabbitmq.internal.chunk;
+
+import com.rabbitmq.client.Delivery;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Reassembles chunked messages into streams. The first chunk opens the stream which
+ * becomes the payload of the flow message, the following chunks are appended to it
+ * as they arrive, without blocking the consumer. While the flow of a message has more
+ * than 'bufferSize' chunks to read, the listener is asked to pause the consumer.
+ * <p>
+ * All the chunks of a message are settled together when its flow completes: they are
+ * acked if the flow succeeded and rejected if it failed, including the chunks arriving
+ * after the flow completed. Each chunk is settled with the settler it was received with,
+ * i.e. on the channel it was delivered on. Chunks out of order fail the flow of their
+ * message, chunks of unknown or expired messages are discarded (rejected without requeue).
+ */
+public class ChunkReassembler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkReassembler.class);
+
+    private final int bufferSize;
+    private final long timeout;
+    private final Listener listener;
+    private final Map<String, ChunkedMessage> messages = new ConcurrentHashMap<>();
+    private final ChunkedStream.BufferListener bufferListener = new ChunkedStream.BufferListener() {
+        @Override
+        public void filled() {
+            streamFilled();
+        }
+
+        @Override
+        public void drained() {
+            streamDrained();
+        }
+    };
+
+    private int fullStreams;
+
+    public ChunkReassembler(int bufferSize, long timeout, Listener listener) {
+        checkArgument(bufferSize > 0, "bufferSize");
+        checkArgument(timeout > 0, "timeout");
+        checkArgument(listener != null, "listener");
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
+        this.listener = listener;
+    }
+
+    /**
+     * Opens the stream of the chunked message the given first chunk belongs to.
+     */
+    public Publisher<byte[]> open(Delivery firstChunk, ChunkSettler settler) {
+        removeExpired();
+        String chunkId = ChunkHeaders.chunkId(firstChunk);
+        ChunkedMessage message = new ChunkedMessage(chunkId);
+        messages.put(chunkId, message);
+        message.append(firstChunk, settler);
+        return message.stream;
+    }
+
+    /**
+     * Appends a chunk to the stream of its message.
+     */
+    public void append(Delivery chunk, ChunkSettler settler) {
+        String chunkId = ChunkHeaders.chunkId(chunk);
+        ChunkedMessage message = messages.get(chunkId);
+        if (message == null) {
+            // The message has expired or its first chunk has never been received.
+            logger.warn(String.format("Discarding chunk index=[%d] of unknown or expired chunked message id=[%s]",
+                    ChunkHeaders.index(chunk), chunkId));
+            settler.discard(chunk);
+            return;
+        }
+        message.append(chunk, settler);
+    }
+
+    /**
+     * The flow of the chunked message the given first chunk belongs to has completed:
+     * all the chunks of the message are settled according to the flow outcome.
+     */
+    public void completed(Delivery firstChunk, boolean success) {
+        ChunkedMessage message = messages.get(ChunkHeaders.chunkId(firstChunk));
+        if (message != null) message.settle(success);
+    }
+
+    // Messages whose flow has completed are kept until their last chunk arrives,
+    // or until the timeout expires if the last chunk never arrives.
+    private void removeExpired() {
+        long now = System.nanoTime();
+        messages.values().removeIf(message -> message.isExpired(now));
+    }
+
+    private synchronized void streamFilled() {
+        if (fullStreams++ == 0) listener.pause();
+    }
+
+    private synchronized void streamDrained() {
+        if (--fullStreams == 0) listener.resume();
+    }
+
+    private class ChunkedMessage {
+
+        private final String chunkId;
+        private final ChunkedStream stream;
+        private final List<ReceivedChunk> received = new ArrayList<>();
+
+        private long nextIndex;
+        private boolean lastReceived;
+        private Boolean succeeded;
+        private long settledAt;
+
+        ChunkedMessage(String chunkId) {
+            this.chunkId = chunkId;
+            this.stream = new ChunkedStream(bufferSize, timeout, bufferListener);
+        }
+
+        synchronized void append(Delivery chunk, ChunkSettler settler) {
+            boolean last = ChunkHeaders.isLast(chunk);
+            if (succeeded != null) {
+                // The flow has already completed: the chunk is settled as the rest of the message.
+                settle(new ReceivedChunk(chunk, settler), succeeded);
+            } else {
+                received.add(new ReceivedChunk(chunk, settler));
+                long index = ChunkHeaders.index(chunk);
+                if (index == nextIndex) {
+                    nextIndex++;
+                    stream.offer(chunk.getBody(), last);
+                } else {
+                    String error = String.format("Chunked message id=[%s]: expected chunk index=[%d] but was=[%d]",
+                            chunkId, nextIndex, index);
+                    logger.warn(error);
+                    stream.fail(new IllegalStateException(error));
+                }
+            }
+
+            if (last) {
+                lastReceived = true;
+                if (succeeded != null) messages.remove(chunkId, this);
+            }
+        }
+
+        synchronized void settle(boolean success) {
+            if (succeeded != null) return;
+            succeeded = success;
+            settledAt = System.nanoTime();
+            stream.discard();
+            received.forEach(chunk -> settle(chunk, success));
+            received.clear();
+            if (lastReceived) messages.remove(chunkId, this);
+        }
+
+        synchronized boolean isExpired(long now) {
+            return succeeded != null && now - settledAt > MILLISECONDS.toNanos(timeout);
+        }
+
+        private void settle(ReceivedChunk chunk, boolean success) {
+            if (success) {
+                chunk.settler.ack(chunk.delivery);
+            } else {
+                chunk.settler.reject(chunk.delivery);
+            }
+        }
+    }
+
+    private static class ReceivedChunk {
+
+        private final Delivery delivery;
+        private final ChunkSettler settler;
+
+        private ReceivedChunk(Delivery delivery, ChunkSettler settler) {
+            this.delivery = delivery;
+            this.settler = settler;
+        }
+    }
+
+    /**
+     * Invoked while holding the reassembler lock: implementations must not block.
+     */
+    public interface Listener {
+
+        void pause();
+
+        void resume();
+    }
+}
@@ -0,0 +1,40 @@
+package de.codecentric.reedelk.rabbitmq.internal.chunk;
+
+import com.rabbitmq.client.Delivery;
+
+/**
+ * Settles the chunk deliveries of the messages being reassembled. All the chunks of
+ * a message are settled the same way once the flow of the message has completed.
+ */
+public interface ChunkSettler {
+
+    ChunkSettler NOOP = new ChunkSettler() {
+        @Override
+        public void ack(Delivery chunk) {
+        }
+
+        @Override
+        public void reject(Delivery chunk) {
+        }
+
+        @Override
+        public void discard(Delivery chunk) {
+        }
+    };
+
+    /**
+     * The flow of the message the chunk belongs to completed successfully.
+     */
+    void ack(Delivery chunk);
+
+    /**
+     * The flow of the message the chunk belongs to failed.
+     */
+    void reject(Delivery chunk);
+
+    /**
+     * The chunk does not belong to any message being reassembled (e.g. it expired):
+     * it must be rejected without being requeued.
+     */
+    void discard(Delivery chunk);
+}
@@ -0,0 +1,63 @@
+package de.codecentric.reedelk.rabbitmq.internal.chunk;
+
+import java.io.IOException;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * Splits the bytes written into fixed size chunks. A full chunk is held back until more
+ * data arrives, so that the last chunk can be flagged as such when the writer is closed.
+ * At most two chunks are kept in memory, whatever the size of the data written.
+ */
+public class ChunkWriter {
+
+    private final int chunkSize;
+    private final ChunkPublisher publisher;
+
+    private byte[] current;
+    private int position;
+    private byte[] pending;
+    private long index;
+
+    public ChunkWriter(int chunkSize, ChunkPublisher publisher) {
+        checkArgument(chunkSize > 0, "chunkSize");
+        checkArgument(publisher != null, "publisher");
+        this.chunkSize = chunkSize;
+        this.publisher = publisher;
+        this.current = new byte[chunkSize];
+    }
+
+    public void write(byte[] data) throws IOException {
+        int offset = 0;
+        while (offset < data.length) {
+            if (position == chunkSize) {
+                publishPending();
+                pending = current;
+                current = new byte[chunkSize];
+                position = 0;
+            }
+            int length = Math.min(chunkSize - position, data.length - offset);
+            System.arraycopy(data, offset, current, position, length);
+            position += length;
+            offset += length;
+        }
+    }
+
+    public void close() throws IOException {
+        publishPending();
+        byte[] last = new byte[position];
+        System.arraycopy(current, 0, last, 0, position);
+        publisher.publish(last, index++, true);
+    }
+
+    private void publishPending() throws IOException {
+        if (pending != null) {
+            publisher.publish(pending, index++, false);
+            pending = null;
+        }
+    }
+
+    public interface ChunkPublisher {
+        void publish(byte[] chunk, long index, boolean last) throws IOException;
+    }
+}
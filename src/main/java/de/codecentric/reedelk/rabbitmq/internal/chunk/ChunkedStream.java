@@ -0,0 +1,179 @@
+package de.codecentric.reedelk.rabbitmq.internal.chunk;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The stream of the chunks of a chunked message being reassembled. Chunks are appended
+ * without ever blocking the consumer: when 'bufferSize' chunks are buffered the buffer
+ * listener is notified that the buffer is full, and it is notified again once the flow
+ * has read at least half of them. The stream fails if the next chunk does not arrive
+ * within the timeout. It can be subscribed only once.
+ */
+class ChunkedStream implements Publisher<byte[]> {
+
+    private final BlockingQueue<Chunk> buffer = new LinkedBlockingQueue<>();
+    private final int bufferSize;
+    private final long timeout;
+    private final BufferListener listener;
+    private final AtomicBoolean subscribed = new AtomicBoolean(false);
+
+    private volatile boolean terminated;
+    private boolean full;
+
+    ChunkedStream(int bufferSize, long timeout, BufferListener listener) {
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
+        this.listener = listener;
+    }
+
+    void offer(byte[] body, boolean last) {
+        if (terminated) return;
+        buffer.add(new Chunk(body, last, null));
+        updateFull();
+    }
+
+    /**
+     * Fails the flow reading the stream once it has read the chunks buffered so far.
+     */
+    void fail(Throwable error) {
+        if (terminated) return;
+        buffer.add(new Chunk(null, false, error));
+    }
+
+    /**
+     * Drops the chunks not read yet: the flow does not read the stream anymore.
+     */
+    void discard() {
+        terminated = true;
+        buffer.clear();
+        updateFull();
+    }
+
+    private synchronized void updateFull() {
+        int size = buffer.size();
+        if (!full && !terminated && size >= bufferSize) {
+            full = true;
+            listener.filled();
+        } else if (full && (terminated || size <= bufferSize / 2)) {
+            full = false;
+            listener.drained();
+        }
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super byte[]> subscriber) {
+        if (subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new ChunkSubscription(subscriber));
+        } else {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("A chunked message stream can be consumed only once"));
+        }
+    }
+
+    private class ChunkSubscription implements Subscription {
+
+        private final Subscriber<? super byte[]> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        ChunkSubscription(Subscriber<? super byte[]> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                terminate(new IllegalArgumentException("Requested items must be positive, was " + n));
+                return;
+            }
+            demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (!terminated) discard();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) return;
+            do {
+                while (demand.get() > 0 && !terminated) {
+                    Chunk chunk;
+                    try {
+                        chunk = buffer.poll(timeout, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                        terminate(exception);
+                        return;
+                    }
+                    if (chunk == null) {
+                        terminate(new TimeoutException("The next chunk of the message did not arrive within " + timeout + " ms"));
+                        return;
+                    }
+                    if (chunk.error != null) {
+                        terminate(chunk.error);
+                        return;
+                    }
+
+                    updateFull();
+                    demand.decrementAndGet();
+                    subscriber.onNext(chunk.body);
+                    if (chunk.last) {
+                        discard();
+                        subscriber.onComplete();
+                        return;
+                    }
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        private void terminate(Throwable error) {
+            if (!terminated) {
+                discard();
+                subscriber.onError(error);
+            }
+        }
+    }
+
+    /**
+     * Invoked while holding the stream lock: implementations must not block.
+     */
+    interface BufferListener {
+
+        void filled();
+
+        void drained();
+    }
+
+    private static class Chunk {
+
+        private final byte[] body;
+        private final boolean last;
+        private final Throwable error;
+
+        private Chunk(byte[] body, boolean last, Throwable error) {
+            this.body = body;
+            this.last = last;
+            this.error = error;
+        }
+    }
+}
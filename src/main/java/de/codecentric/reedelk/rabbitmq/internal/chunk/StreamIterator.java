@@ -0,0 +1,88 @@
+package de.codecentric.reedelk.rabbitmq.internal.chunk;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Reads a stream one item at a time from the calling thread: the next
+ * item is requested only when the previous one has been taken, hence
+ * at most one item of the stream is buffered.
+ */
+public class StreamIterator {
+
+    private static final Object COMPLETE = new Object();
+
+    private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+    private final long timeout;
+    private volatile Subscription subscription;
+    private boolean done;
+
+    public StreamIterator(Publisher<?> stream, long timeout) {
+        this.timeout = timeout;
+        stream.subscribe(new Subscriber<Object>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                StreamIterator.this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(Object item) {
+                signals.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                signals.add(new ErrorSignal(throwable));
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add(COMPLETE);
+            }
+        });
+    }
+
+    /**
+     * Returns the next item of the stream or null if the stream is complete.
+     */
+    public Object next() throws Exception {
+        if (done) return null;
+
+        Object signal = signals.poll(timeout, TimeUnit.MILLISECONDS);
+        if (signal == null) {
+            cancel();
+            throw new TimeoutException("No data received from the stream within " + timeout + " ms");
+        } else if (signal == COMPLETE) {
+            done = true;
+            return null;
+        } else if (signal instanceof ErrorSignal) {
+            done = true;
+            Throwable cause = ((ErrorSignal) signal).cause;
+            throw cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+        } else {
+            subscription.request(1);
+            return signal;
+        }
+    }
+
+    public void cancel() {
+        done = true;
+        Subscription current = subscription;
+        if (current != null) current.cancel();
+    }
+
+    private static class ErrorSignal {
+        private final Throwable cause;
+
+        private ErrorSignal(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
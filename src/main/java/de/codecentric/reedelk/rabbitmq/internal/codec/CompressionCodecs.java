@@ -0,0 +1,40 @@
+package de.codecentric.reedelk.rabbitmq.internal.codec;
+
+import de.codecentric.reedelk.rabbitmq.codec.CompressionCodec;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The compression codecs available to producers and consumers: gzip and deflate
+ * are built in, additional codecs are loaded with java.util.ServiceLoader.
+ */
+public class CompressionCodecs {
+
+    public static final String NONE = "none";
+
+    private static final Map<String, CompressionCodec> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        register(new GzipCodec());
+        register(new DeflateCodec());
+        for (CompressionCodec codec : ServiceLoader.load(CompressionCodec.class, CompressionCodecs.class.getClassLoader())) {
+            register(codec);
+        }
+    }
+
+    private CompressionCodecs() {
+    }
+
+    public static Optional<CompressionCodec> find(String encoding) {
+        if (encoding == null || encoding.isEmpty()) return Optional.empty();
+        return Optional.ofNullable(CODECS.get(encoding.trim().toLowerCase(Locale.ROOT)));
+    }
+
+    private static void register(CompressionCodec codec) {
+        CODECS.put(codec.encoding().toLowerCase(Locale.ROOT), codec);
+    }
+}
@@ -0,0 +1,115 @@
+package de.codecentric.reedelk.rabbitmq.internal.codec;
+
+import de.codecentric.reedelk.rabbitmq.codec.CompressionCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The 'deflate' content encoding (zlib format). Deflater and Inflater instances are
+ * pooled: they are reset before each use instead of being allocated for each message.
+ * The pool is bounded, instances which do not fit in it are ended right away so that
+ * their native memory is released, and the pool is not bound to any thread so that
+ * no instance outlives the module on the threads of the runtime.
+ */
+public class DeflateCodec implements CompressionCodec {
+
+    static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_INITIAL_CAPACITY = 1024 * 1024;
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    private final boolean nowrap;
+    private final BlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final BlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    public DeflateCodec() {
+        this(false);
+    }
+
+    DeflateCodec(boolean nowrap) {
+        this.nowrap = nowrap;
+    }
+
+    @Override
+    public String encoding() {
+        return "deflate";
+    }
+
+    @Override
+    public byte[] compress(byte[] data) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+        deflate(data, output);
+        return output.toByteArray();
+    }
+
+    @Override
+    public byte[] decompress(byte[] data) throws IOException {
+        return decompress(data, MAX_ARRAY_SIZE);
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int maxSize) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(initialCapacity(data.length, maxSize));
+        inflate(data, 0, data.length, maxSize, output);
+        return output.toByteArray();
+    }
+
+    void deflate(byte[] data, ByteArrayOutputStream output) {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            deflater.setInput(data);
+            deflater.finish();
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                output.write(buffer, 0, length);
+            }
+        } finally {
+            deflater.reset();
+            if (!deflaters.offer(deflater)) deflater.end();
+        }
+    }
+
+    /**
+     * Returns the number of input bytes which were not part of the compressed data.
+     */
+    int inflate(byte[] data, int offset, int length, int maxSize, ByteArrayOutputStream output) throws IOException {
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) inflater = new Inflater(nowrap);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            inflater.setInput(data, offset, length);
+            long total = 0;
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated or invalid " + encoding() + " data");
+                }
+                total += inflated;
+                if (total > maxSize) {
+                    throw new IOException("The decompressed data exceeds the maximum size of " + maxSize + " bytes");
+                }
+                output.write(buffer, 0, inflated);
+            }
+            return inflater.getRemaining();
+        } catch (DataFormatException exception) {
+            throw new IOException("Invalid " + encoding() + " data: " + exception.getMessage(), exception);
+        } finally {
+            inflater.reset();
+            if (!inflaters.offer(inflater)) inflater.end();
+        }
+    }
+
+    static int initialCapacity(int compressedLength, int maxSize) {
+        long estimate = Math.min(2L * compressedLength, MAX_INITIAL_CAPACITY);
+        return (int) Math.max(64, Math.min(estimate, maxSize));
+    }
+}
@@ -0,0 +1,113 @@
+package de.codecentric.reedelk.rabbitmq.internal.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+/**
+ * The 'gzip' content encoding. It writes the gzip header and trailer around raw deflate
+ * data, so that the pooled Deflater/Inflater instances can be reused
+ * (GZIPOutputStream and GZIPInputStream allocate a new one each time).
+ */
+public class GzipCodec extends DeflateCodec {
+
+    private static final int MAGIC = 0x8b1f;
+    private static final int HEADER_SIZE = 10;
+    private static final int TRAILER_SIZE = 8;
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private static final byte[] HEADER = {
+            (byte) MAGIC, (byte) (MAGIC >> 8), 8, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    public GzipCodec() {
+        super(true);
+    }
+
+    @Override
+    public String encoding() {
+        return "gzip";
+    }
+
+    @Override
+    public byte[] compress(byte[] data) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+        output.write(HEADER, 0, HEADER.length);
+        deflate(data, output);
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        writeInt(output, (int) crc.getValue());
+        writeInt(output, data.length);
+        return output.toByteArray();
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int maxSize) throws IOException {
+        int offset = headerLength(data);
+        ByteArrayOutputStream output = new ByteArrayOutputStream(initialCapacity(data.length, maxSize));
+        int remaining = inflate(data, offset, data.length - offset, maxSize, output);
+        if (remaining < TRAILER_SIZE) {
+            throw new IOException("Truncated gzip data: missing trailer");
+        }
+
+        byte[] decompressed = output.toByteArray();
+        int trailer = data.length - remaining;
+        CRC32 crc = new CRC32();
+        crc.update(decompressed, 0, decompressed.length);
+        if (readInt(data, trailer) != (int) crc.getValue() || readInt(data, trailer + 4) != decompressed.length) {
+            throw new IOException("Corrupt gzip data: trailer mismatch");
+        }
+        return decompressed;
+    }
+
+    private static int headerLength(byte[] data) throws IOException {
+        if (data.length < HEADER_SIZE + TRAILER_SIZE ||
+                (data[0] & 0xff | (data[1] & 0xff) << 8) != MAGIC ||
+                data[2] != 8) {
+            throw new IOException("Not in gzip format");
+        }
+
+        int flags = data[3] & 0xff;
+        int offset = HEADER_SIZE;
+        if ((flags & FEXTRA) != 0) {
+            offset += 2 + (data[offset] & 0xff | (data[offset + 1] & 0xff) << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            offset = skipZeroTerminated(data, offset);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            offset = skipZeroTerminated(data, offset);
+        }
+        if ((flags & FHCRC) != 0) {
+            offset += 2;
+        }
+        if (offset > data.length) {
+            throw new IOException("Truncated gzip header");
+        }
+        return offset;
+    }
+
+    private static int skipZeroTerminated(byte[] data, int offset) throws IOException {
+        while (offset < data.length && data[offset] != 0) offset++;
+        if (offset == data.length) throw new IOException("Truncated gzip header");
+        return offset + 1;
+    }
+
+    private static void writeInt(ByteArrayOutputStream output, int value) {
+        output.write(value);
+        output.write(value >> 8);
+        output.write(value >> 16);
+        output.write(value >> 24);
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xff) |
+                (data[offset + 1] & 0xff) << 8 |
+                (data[offset + 2] & 0xff) << 16 |
+                (data[offset + 3] & 0xff) << 24;
+    }
+}
@@ -0,0 +1,42 @@
+package de.codecentric.reedelk.rabbitmq.internal.commons;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.util.Optional;
+
+public class CharsetUtils {
+
+    private static final String CHARSET_PARAMETER = "charset=";
+
+    private CharsetUtils() {
+    }
+
+    /**
+     * Returns the charset of the 'charset' parameter of the given content type
+     * (e.g. 'text/plain; charset=ISO-8859-1'), if present and supported.
+     */
+    public static Optional<Charset> fromContentType(String contentType) {
+        if (contentType == null) return Optional.empty();
+        String[] parameters = contentType.split(";");
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.regionMatches(true, 0, CHARSET_PARAMETER, 0, CHARSET_PARAMETER.length())) {
+                String name = parameter.substring(CHARSET_PARAMETER.length()).replace("\"", "").trim();
+                return fromName(name);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the charset with the given name, if supported.
+     */
+    public static Optional<Charset> fromName(String name) {
+        if (name == null || name.isEmpty()) return Optional.empty();
+        try {
+            return Charset.isSupported(name) ? Optional.of(Charset.forName(name)) : Optional.empty();
+        } catch (IllegalCharsetNameException exception) {
+            return Optional.empty();
+        }
+    }
+}
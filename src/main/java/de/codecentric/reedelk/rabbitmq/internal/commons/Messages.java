@@ -11,6 +11,20 @@ public class Messages {
 
         CREATE_CHANNEL_ERROR("The channel could not be created, cause=[%s]."),
         PUBLISH_MESSAGE_ERROR("The message could not be published to the queue (Queue name=[%s])."),
+        CONFIRM_NACK_ERROR("The message published to the queue (Queue name=[%s]) was rejected by the broker (nack)."),
+        CONFIRM_TIMEOUT_ERROR("The message published to the queue (Queue name=[%s]) was not confirmed by the broker within [%d] ms."),
+        CONFIRM_WINDOW_TIMEOUT_ERROR("The message could not be published to the queue (Queue name=[%s]): no confirm window slot became available within [%d] ms."),
+        CONFIRM_INTERRUPTED_ERROR("Interrupted while waiting for the broker confirm of the message published to the queue (Queue name=[%s])."),
+        CONFIRM_CHANNEL_ERROR("The message published to the queue (Queue name=[%s]) could not be confirmed, cause=[%s]."),
+        CHUNK_STREAM_ERROR("The stream payload could not be published in chunks to the queue (Queue name=[%s]), cause=[%s]."),
+        CHUNK_COLLECTION_ERROR("The collection payload could not be published to the queue (Queue name=[%s]): the element at index=[%d] is larger (Size=[%d] bytes) than the chunk size=[%d] and collection elements cannot be published in chunks."),
+        COMPRESSION_ERROR("The message payload could not be compressed with codec=[%s] (Queue name=[%s]), cause=[%s]."),
+        CONNECTION_BLOCKED_ERROR("The message could not be published to the queue (Queue name=[%s]): the connection is blocked by the broker, reason=[%s]."),
+        BLOCKED_BUFFER_FULL_ERROR("The message could not be published to the queue (Queue name=[%s]): the connection is blocked by the broker and the publish buffer is full (Buffer size=[%d])."),
+        BLOCKED_BUFFER_CHUNKS_ERROR("The message could not be published to the queue (Queue name=[%s]): the connection is blocked by the broker and chunked messages cannot be buffered."),
+        BUFFERED_PUBLISH_ERROR("A message buffered while the connection was blocked could not be published to the queue (Queue name=[%s]), it is going to be published again, cause=[%s]."),
+        BUFFERED_MESSAGES_DISCARDED("The producer has been disposed while the connection was blocked: [%d] buffered messages have not been published."),
+        DECLARE_ERROR("The topology of the queue (Queue name=[%s]) and exchange (Exchange name=[%s]) could not be declared, cause=[%s]."),
         QUEUE_EMPTY_ERROR("The queue name must not be empty (DynamicValue=[%s]).");
 
         private final String message;
@@ -25,9 +39,33 @@ public class Messages {
         }
     }
 
+    public enum RabbitMQRequestReply implements FormattedMessage {
+
+        CREATE_CHANNEL_ERROR("The reply channel could not be created, cause=[%s]."),
+        REQUEST_ERROR("The request could not be published to the queue (Queue name=[%s]), cause=[%s]."),
+        REQUEST_RETURNED_ERROR("The request published to the queue (Queue name=[%s]) could not be routed by the broker, reply code=[%d], reply text=[%s]."),
+        REPLY_TIMEOUT_ERROR("No reply was received within [%d] ms to the request published to the queue (Queue name=[%s])."),
+        REPLY_INTERRUPTED_ERROR("Interrupted while waiting for the reply to the request published to the queue (Queue name=[%s])."),
+        REPLY_CHANNEL_ERROR("The reply to the request published to the queue (Queue name=[%s]) could not be received, cause=[%s].");
+
+        private final String message;
+
+        RabbitMQRequestReply(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public String template() {
+            return message;
+        }
+    }
+
     public enum RabbitMQConsumer implements FormattedMessage {
 
-        CONSUME_ERROR("An error occurred while consuming message from queue=[%s], cause=[%s].");
+        CONSUME_ERROR("An error occurred while consuming message from queue=[%s], cause=[%s]."),
+        DECODE_ERROR("The message with delivery tag=[%d] could not be decoded, cause=[%s]."),
+        CHUNK_IN_BATCH_ERROR("The chunk with delivery tag=[%d] of the chunked message id=[%s] has been rejected: chunked messages cannot be consumed in batches."),
+        DECOMPRESSION_ERROR("The payload of the message with delivery tag=[%d] could not be decompressed with codec=[%s], cause=[%s].");
 
         private final String message;
 
@@ -40,4 +78,20 @@ public class Messages {
             return message;
         }
     }
+
+    public enum Connection implements FormattedMessage {
+
+        URI_PARAMETER_ERROR("The connection URI parameter (Parameter=[%s]) has an invalid value=[%s].");
+
+        private final String message;
+
+        Connection(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public String template() {
+            return message;
+        }
+    }
 }
@@ -0,0 +1,12 @@
+package de.codecentric.reedelk.rabbitmq.internal.exception;
+
+/**
+ * Thrown by the producer when a message cannot be published
+ * because the broker has blocked the connection.
+ */
+public class RabbitMQConnectionBlockedException extends RabbitMQProducerException {
+
+    public RabbitMQConnectionBlockedException(String message) {
+        super(message);
+    }
+}
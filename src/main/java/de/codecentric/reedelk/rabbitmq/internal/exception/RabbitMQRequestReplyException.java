@@ -0,0 +1,14 @@
+package de.codecentric.reedelk.rabbitmq.internal.exception;
+
+import de.codecentric.reedelk.runtime.api.exception.PlatformException;
+
+public class RabbitMQRequestReplyException extends PlatformException {
+
+    public RabbitMQRequestReplyException(String message) {
+        super(message);
+    }
+
+    public RabbitMQRequestReplyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,64 @@
+package de.codecentric.reedelk.rabbitmq.internal.local;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory broker: a named set of bounded queues shared by all the local
+ * connections of the JVM with the same broker name. Exchanges are not modeled:
+ * a message is routed to the queue named by its routing key, whatever the exchange,
+ * and the queue is created on first use. Messages live in memory only, hence
+ * they are lost when the JVM stops.
+ */
+class LocalBroker {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalBroker.class);
+
+    private static final Map<String, LocalBroker> BROKERS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private volatile int queueCapacity;
+    private final Map<String, LocalQueue> queues = new ConcurrentHashMap<>();
+
+    private LocalBroker(String name, int queueCapacity) {
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * The broker outlives its connections: a connection opened with a different
+     * queue capacity changes the capacity of the broker and of its existing queues.
+     */
+    static LocalBroker get(String name, int queueCapacity) {
+        LocalBroker broker = BROKERS.computeIfAbsent(name, key -> new LocalBroker(key, queueCapacity));
+        broker.queueCapacity(queueCapacity);
+        return broker;
+    }
+
+    int queueCapacity() {
+        return queueCapacity;
+    }
+
+    private synchronized void queueCapacity(int capacity) {
+        if (capacity == queueCapacity) return;
+        logger.info(String.format("Queue capacity of local broker=[%s] changed from=[%d] to=[%d]", name, queueCapacity, capacity));
+        queueCapacity = capacity;
+        queues.values().forEach(queue -> queue.capacity(capacity));
+    }
+
+    LocalQueue queue(String name) {
+        return queues.computeIfAbsent(name, key -> new LocalQueue(key, queueCapacity));
+    }
+
+    LocalQueue existingQueue(String name) {
+        return queues.get(name);
+    }
+
+    int delete(String name) {
+        LocalQueue queue = queues.remove(name);
+        return queue == null ? 0 : queue.delete();
+    }
+}
@@ -0,0 +1,350 @@
+package de.codecentric.reedelk.rabbitmq.internal.local;
+
+import com.rabbitmq.client.*;
+import com.rabbitmq.client.impl.AMQImpl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * A Channel on a local broker, implementing the subset of the AMQP channel operations used by the
+ * module: queue declaration, publishing (with publisher confirms), consuming with automatic or
+ * explicit acknowledgements, basic.qos prefetch, acks, nacks and rejects. Unacknowledged
+ * messages are requeued when the channel is closed. Publisher confirms are sent as soon
+ * as the message is in the queue. Direct Reply-to is emulated with a private reply queue
+ * per channel, deleted when the channel is closed. Exchanges are not modeled: publishing to
+ * a named exchange, declaring exchanges and bindings fail with an IOException, as the other
+ * operations not listed above (UnsupportedOperationException for the operations which
+ * cannot throw an IOException).
+ */
+class LocalChannel implements InvocationHandler {
+
+    static final String DIRECT_REPLY_TO = "amq.rabbitmq.reply-to";
+
+    private final LocalConnection connection;
+    private final LocalBroker broker;
+    private final int channelNumber;
+    private final long publishTimeout;
+    private final Channel proxy;
+
+    private final AtomicLong nextDeliveryTag = new AtomicLong();
+    private final AtomicLong nextPublishSeqNo = new AtomicLong(1);
+    private final ConcurrentNavigableMap<Long, Unacked> unacked = new ConcurrentSkipListMap<>();
+    private final Map<String, LocalConsumer> consumers = new ConcurrentHashMap<>();
+    private final List<ConfirmListener> confirmListeners = new CopyOnWriteArrayList<>();
+    private final List<ShutdownListener> shutdownListeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean confirmMode;
+    private volatile int prefetchCount;
+    private volatile String directReplyQueue;
+    private volatile ShutdownSignalException closeReason;
+
+    LocalChannel(LocalConnection connection, LocalBroker broker, int channelNumber, long publishTimeout) {
+        this.connection = connection;
+        this.broker = broker;
+        this.channelNumber = channelNumber;
+        this.publishTimeout = publishTimeout;
+        this.proxy = (Channel) Proxy.newProxyInstance(
+                LocalChannel.class.getClassLoader(), new Class<?>[]{Channel.class}, this);
+    }
+
+    Channel proxy() {
+        return proxy;
+    }
+
+    int channelNumber() {
+        return channelNumber;
+    }
+
+    @Override
+    public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+            switch (name) {
+                case "hashCode":
+                    return System.identityHashCode(target);
+                case "equals":
+                    return target == args[0];
+                default:
+                    return "LocalChannel(" + channelNumber + ")";
+            }
+        }
+
+        switch (name) {
+            case "getChannelNumber":
+                return channelNumber;
+            case "getConnection":
+                return connection.proxy();
+            case "isOpen":
+                return closeReason == null;
+            case "getCloseReason":
+                return closeReason;
+            case "close":
+            case "abort":
+                close();
+                return null;
+            case "addShutdownListener":
+                shutdownListeners.add((ShutdownListener) args[0]);
+                return null;
+            case "removeShutdownListener":
+                shutdownListeners.remove((ShutdownListener) args[0]);
+                return null;
+            case "queueDeclare":
+                ensureOpen();
+                String queueName = args == null || args.length == 0 ?
+                        "amq.gen-" + UUID.randomUUID() :
+                        (String) args[0];
+                return declareOk(broker.queue(queueName));
+            case "queueDeclarePassive":
+                ensureOpen();
+                LocalQueue existing = broker.existingQueue((String) args[0]);
+                if (existing == null) throw new IOException("NOT_FOUND - no queue '" + args[0] + "'");
+                return declareOk(existing);
+            case "queueDelete":
+                ensureOpen();
+                return new AMQImpl.Queue.DeleteOk(broker.delete((String) args[0]));
+            case "queuePurge":
+                ensureOpen();
+                LocalQueue toPurge = broker.existingQueue((String) args[0]);
+                return new AMQImpl.Queue.PurgeOk(toPurge == null ? 0 : toPurge.purge());
+            case "messageCount":
+                LocalQueue counted = broker.existingQueue((String) args[0]);
+                return counted == null ? 0L : (long) counted.messageCount();
+            case "consumerCount":
+                LocalQueue consumed = broker.existingQueue((String) args[0]);
+                return consumed == null ? 0L : (long) consumed.consumerCount();
+            case "basicQos":
+                // basicQos(prefetchCount), basicQos(prefetchCount, global), basicQos(prefetchSize, prefetchCount, global)
+                prefetchCount = args.length == 3 ? (Integer) args[1] : (Integer) args[0];
+                return null;
+            case "confirmSelect":
+                confirmMode = true;
+                return new AMQImpl.Confirm.SelectOk();
+            case "getNextPublishSeqNo":
+                return confirmMode ? nextPublishSeqNo.get() : 0L;
+            case "addConfirmListener":
+                ConfirmListener confirmListener = args.length == 1 ?
+                        (ConfirmListener) args[0] :
+                        new ConfirmCallbacks((ConfirmCallback) args[0], (ConfirmCallback) args[1]);
+                confirmListeners.add(confirmListener);
+                return confirmListener;
+            case "removeConfirmListener":
+                return confirmListeners.remove((ConfirmListener) args[0]);
+            case "addReturnListener":
+                // Messages are always routed to a queue: they are never returned.
+                ReturnListener returnListener = (replyCode, replyText, exchange, routingKey, properties, body) -> {};
+                return args[0] instanceof ReturnListener ? args[0] : returnListener;
+            case "removeReturnListener":
+                return true;
+            case "basicPublish":
+                publish(args);
+                return null;
+            case "basicConsume":
+                return consume(args);
+            case "basicCancel":
+                LocalConsumer consumer = consumers.remove((String) args[0]);
+                if (consumer != null) consumer.cancel();
+                return null;
+            case "basicAck":
+                settle((Long) args[0], (Boolean) args[1], false);
+                return null;
+            case "basicNack":
+                settle((Long) args[0], (Boolean) args[1], (Boolean) args[2]);
+                return null;
+            case "basicReject":
+                settle((Long) args[0], false, (Boolean) args[1]);
+                return null;
+            case "basicRecover":
+                requeueAll();
+                return new AMQImpl.Basic.RecoverOk();
+            default:
+                break;
+        }
+        throw LocalConnection.unsupported(method, "Channel." + name + " is not supported by the local transport");
+    }
+
+    long delivered(LocalMessage message, LocalConsumer consumer, boolean autoAck) {
+        long deliveryTag = nextDeliveryTag.incrementAndGet();
+        if (!autoAck) unacked.put(deliveryTag, new Unacked(message, consumer));
+        return deliveryTag;
+    }
+
+    void close() {
+        if (closeReason != null) return;
+        closeReason = new ShutdownSignalException(false, true, null, proxy);
+        consumers.values().forEach(LocalConsumer::cancel);
+        consumers.clear();
+        requeueAll();
+        if (directReplyQueue != null) broker.delete(directReplyQueue);
+        connection.closed(this);
+        for (ShutdownListener listener : shutdownListeners) {
+            listener.shutdownCompleted(closeReason);
+        }
+    }
+
+    private void publish(Object[] args) throws IOException {
+        ensureOpen();
+        // basicPublish(exchange, routingKey, [mandatory, [immediate,]] properties, body)
+        String exchange = (String) args[0];
+        String routingKey = (String) args[1];
+        if (exchange != null && !exchange.isEmpty()) {
+            throw new IOException("Exchange=[" + exchange + "] is not supported by the local transport: " +
+                    "messages can only be published to the default exchange");
+        }
+        AMQP.BasicProperties properties = (AMQP.BasicProperties) args[args.length - 2];
+        byte[] body = (byte[]) args[args.length - 1];
+        if (properties != null && DIRECT_REPLY_TO.equals(properties.getReplyTo())) {
+            // Replies are routed to the private reply queue of this channel.
+            if (directReplyQueue == null) throw new IOException("PRECONDITION_FAILED - fast reply consumer does not exist");
+            properties = properties.builder().replyTo(directReplyQueue).build();
+        }
+        // A reply to a requester which has gone away is dropped.
+        LocalQueue queue = routingKey.startsWith(DIRECT_REPLY_TO + ".") ?
+                broker.existingQueue(routingKey) :
+                broker.queue(routingKey);
+        try {
+            LocalMessage message = new LocalMessage("", routingKey,
+                    properties == null ? new AMQP.BasicProperties() : properties, body, false);
+            if (queue != null && !queue.publish(message, publishTimeout, MILLISECONDS)) {
+                throw new IOException("Local queue=[" + routingKey + "] is still full after " + publishTimeout + " ms");
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while publishing to local queue " + routingKey);
+        }
+
+        if (confirmMode) {
+            long sequenceNumber = nextPublishSeqNo.getAndIncrement();
+            for (ConfirmListener listener : confirmListeners) {
+                listener.handleAck(sequenceNumber, false);
+            }
+        }
+    }
+
+    private String consume(Object[] args) throws IOException {
+        ensureOpen();
+        // basicConsume(queue, [autoAck, [consumerTag, | arguments,]] deliverCallback | consumer, ...)
+        String queueName = (String) args[0];
+        boolean autoAck = args.length > 1 && args[1] instanceof Boolean && (Boolean) args[1];
+        String consumerTag = null;
+        DeliverCallback deliverCallback = null;
+        CancelCallback cancelCallback = null;
+        for (int i = 1; i < args.length; i++) {
+            Object arg = args[i];
+            if (arg instanceof String && consumerTag == null) {
+                consumerTag = (String) arg;
+            } else if (arg instanceof DeliverCallback && deliverCallback == null) {
+                deliverCallback = (DeliverCallback) arg;
+            } else if (arg instanceof CancelCallback && cancelCallback == null) {
+                cancelCallback = (CancelCallback) arg;
+            } else if (arg instanceof Consumer) {
+                Consumer consumer = (Consumer) arg;
+                deliverCallback = (tag, delivery) -> consumer.handleDelivery(tag, delivery.getEnvelope(), delivery.getProperties(), delivery.getBody());
+                cancelCallback = consumer::handleCancel;
+            }
+        }
+        if (deliverCallback == null) {
+            throw new IOException("Channel.basicConsume without a deliver callback is not supported by the local transport");
+        }
+        if (consumerTag == null || consumerTag.isEmpty()) {
+            consumerTag = "amq.ctag-" + UUID.randomUUID();
+        }
+
+        if (DIRECT_REPLY_TO.equals(queueName)) {
+            if (!autoAck) throw new IOException("PRECONDITION_FAILED - reply consumer cannot acknowledge");
+            synchronized (this) {
+                if (directReplyQueue == null) directReplyQueue = DIRECT_REPLY_TO + "." + UUID.randomUUID();
+            }
+            queueName = directReplyQueue;
+        }
+
+        LocalQueue queue = broker.queue(queueName);
+        LocalConsumer consumer = new LocalConsumer(consumerTag, this, queue, autoAck, prefetchCount, deliverCallback, cancelCallback);
+        consumers.put(consumerTag, consumer);
+        consumer.start();
+        return consumerTag;
+    }
+
+    private void settle(long deliveryTag, boolean multiple, boolean requeue) throws IOException {
+        ensureOpen();
+        Collection<Unacked> settled;
+        if (multiple) {
+            ConcurrentNavigableMap<Long, Unacked> upTo = unacked.headMap(deliveryTag, true);
+            settled = new ArrayList<>(upTo.values());
+            upTo.clear();
+        } else {
+            Unacked removed = unacked.remove(deliveryTag);
+            if (removed == null) throw new IOException("PRECONDITION_FAILED - unknown delivery tag " + deliveryTag);
+            settled = Collections.singletonList(removed);
+        }
+
+        List<Unacked> toRequeue = new ArrayList<>(settled);
+        // Requeued messages go back to the head of the queue in their original order.
+        Collections.reverse(toRequeue);
+        for (Unacked message : toRequeue) {
+            if (requeue) message.consumer.queue().requeue(message.message, true);
+            message.consumer.settled();
+        }
+    }
+
+    private void requeueAll() {
+        for (Long deliveryTag : unacked.descendingKeySet()) {
+            Unacked message = unacked.remove(deliveryTag);
+            if (message != null) {
+                message.consumer.queue().requeue(message.message, true);
+                message.consumer.settled();
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closeReason != null) throw new AlreadyClosedException(closeReason);
+    }
+
+    private static AMQP.Queue.DeclareOk declareOk(LocalQueue queue) {
+        return new AMQImpl.Queue.DeclareOk(queue.name(), queue.messageCount(), queue.consumerCount());
+    }
+
+    private static class ConfirmCallbacks implements ConfirmListener {
+
+        private final ConfirmCallback ackCallback;
+        private final ConfirmCallback nackCallback;
+
+        ConfirmCallbacks(ConfirmCallback ackCallback, ConfirmCallback nackCallback) {
+            this.ackCallback = ackCallback;
+            this.nackCallback = nackCallback;
+        }
+
+        @Override
+        public void handleAck(long deliveryTag, boolean multiple) throws IOException {
+            ackCallback.handle(deliveryTag, multiple);
+        }
+
+        @Override
+        public void handleNack(long deliveryTag, boolean multiple) throws IOException {
+            nackCallback.handle(deliveryTag, multiple);
+        }
+    }
+
+    private static class Unacked {
+
+        private final LocalMessage message;
+        private final LocalConsumer consumer;
+
+        Unacked(LocalMessage message, LocalConsumer consumer) {
+            this.message = message;
+            this.consumer = consumer;
+        }
+    }
+}
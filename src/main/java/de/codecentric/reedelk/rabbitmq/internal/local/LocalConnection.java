@@ -0,0 +1,222 @@
+package de.codecentric.reedelk.rabbitmq.internal.local;
+
+import com.rabbitmq.client.AlreadyClosedException;
+import com.rabbitmq.client.BlockedListener;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+import de.codecentric.reedelk.rabbitmq.component.ConnectionConfiguration;
+import de.codecentric.reedelk.rabbitmq.component.ConnectionTransport;
+import de.codecentric.reedelk.runtime.api.exception.PlatformException;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Connection to an in-memory broker of this JVM (see LocalBroker), for producers and
+ * consumers running in the same runtime: messages never leave the JVM and they are not
+ * durable. A local connection is opened with a 'local://' URI, e.g. 'local://orders?capacity=1000',
+ * where the host names the broker and the optional 'capacity' query parameter is the
+ * maximum number of messages in each queue: publishers wait while a queue is full, and
+ * publishing fails after 'publish_timeout' milliseconds. A URI without host and a connection
+ * configuration with the default virtual host '/' both connect to the 'default' broker.
+ */
+public class LocalConnection implements InvocationHandler {
+
+    public static final String SCHEME = "local";
+    public static final String DEFAULT_BROKER = "default";
+
+    private static final String CAPACITY_PARAMETER = "capacity";
+    private static final String PUBLISH_TIMEOUT_PARAMETER = "publish_timeout";
+
+    private final String brokerName;
+    private final LocalBroker broker;
+    private final long publishTimeout;
+    private final Connection proxy;
+
+    private final AtomicInteger nextChannelNumber = new AtomicInteger(1);
+    private final Map<Integer, LocalChannel> channels = new ConcurrentHashMap<>();
+    private final List<ShutdownListener> shutdownListeners = new CopyOnWriteArrayList<>();
+
+    private volatile ShutdownSignalException closeReason;
+    private volatile String id;
+
+    private LocalConnection(String brokerName, int queueCapacity, long publishTimeout) {
+        this.brokerName = brokerName;
+        this.broker = LocalBroker.get(brokerName, queueCapacity);
+        this.publishTimeout = publishTimeout;
+        this.proxy = (Connection) Proxy.newProxyInstance(
+                LocalConnection.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+    }
+
+    public static boolean isLocal(String uri) {
+        return uri != null && uri.trim().toLowerCase().startsWith(SCHEME + "://");
+    }
+
+    /**
+     * True if a component connects to a local broker: with the given connection
+     * configuration or, if there is none, with the given connection URI.
+     */
+    public static boolean isLocal(ConnectionConfiguration configuration, String uri) {
+        return configuration == null ?
+                isLocal(uri) :
+                ConnectionConfiguration.transport(configuration) == ConnectionTransport.LOCAL;
+    }
+
+    public static Connection open(String uri) {
+        // Parsed by hand: 'local://' without broker name is not a valid java.net.URI.
+        String location = uri.trim().substring((SCHEME + "://").length());
+        int separator = location.indexOf('?');
+        String brokerName = separator < 0 ? location : location.substring(0, separator);
+        String query = separator < 0 ? null : location.substring(separator + 1);
+        if (brokerName.endsWith("/")) brokerName = brokerName.substring(0, brokerName.length() - 1);
+        try {
+            int capacity = (int) positiveParameter(query, CAPACITY_PARAMETER, ConnectionConfiguration.DEFAULT_LOCAL_QUEUE_CAPACITY);
+            long publishTimeout = positiveParameter(query, PUBLISH_TIMEOUT_PARAMETER, ConnectionConfiguration.DEFAULT_LOCAL_PUBLISH_TIMEOUT);
+            return open(brokerName, capacity, publishTimeout);
+        } catch (NumberFormatException exception) {
+            throw new PlatformException(String.format("Invalid local connection URI=[%s]: %s", uri, exception.getMessage()));
+        }
+    }
+
+    /**
+     * @param brokerName the broker name, null, empty or '/' for the default broker.
+     */
+    public static Connection open(String brokerName, int queueCapacity, long publishTimeout) {
+        return new LocalConnection(brokerName(brokerName), queueCapacity, publishTimeout).proxy;
+    }
+
+    static String brokerName(String name) {
+        return name == null || name.isEmpty() || "/".equals(name) ? DEFAULT_BROKER : name;
+    }
+
+    Connection proxy() {
+        return proxy;
+    }
+
+    void closed(LocalChannel channel) {
+        channels.remove(channel.channelNumber());
+    }
+
+    @Override
+    public Object invoke(Object target, Method method, Object[] args) throws Exception {
+        String name = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+            switch (name) {
+                case "hashCode":
+                    return System.identityHashCode(target);
+                case "equals":
+                    return target == args[0];
+                default:
+                    return "LocalConnection(" + brokerName + ")";
+            }
+        }
+
+        switch (name) {
+            case "createChannel":
+                return createChannel();
+            case "openChannel":
+                return Optional.of(createChannel());
+            case "isOpen":
+                return closeReason == null;
+            case "getCloseReason":
+                return closeReason;
+            case "close":
+            case "abort":
+                close();
+                return null;
+            case "addShutdownListener":
+                shutdownListeners.add((ShutdownListener) args[0]);
+                return null;
+            case "removeShutdownListener":
+                shutdownListeners.remove((ShutdownListener) args[0]);
+                return null;
+            case "addBlockedListener":
+                // Local queues apply back pressure by making publishers wait: the connection is never blocked.
+                return args[0] instanceof BlockedListener ? null : new NoBlockedListener();
+            case "removeBlockedListener":
+                return true;
+            case "clearBlockedListeners":
+            case "notifyListeners":
+                return null;
+            case "getAddress":
+                return InetAddress.getLoopbackAddress();
+            case "getPort":
+            case "getChannelMax":
+            case "getFrameMax":
+            case "getHeartbeat":
+                return 0;
+            case "getClientProperties":
+            case "getServerProperties":
+                return Collections.emptyMap();
+            case "getClientProvidedName":
+                return brokerName;
+            case "getId":
+                return id;
+            case "setId":
+                id = (String) args[0];
+                return null;
+            default:
+                throw unsupported(method, "Connection." + name + " is not supported by the local transport");
+        }
+    }
+
+    // As the client does, an operation declaring an IOException fails with an IOException,
+    // so that the error handling of the components wraps it. The others cannot throw it.
+    static Exception unsupported(Method method, String message) {
+        return Arrays.asList(method.getExceptionTypes()).contains(IOException.class) ?
+                new IOException(message) :
+                new UnsupportedOperationException(message);
+    }
+
+    private Object createChannel() {
+        if (closeReason != null) throw new AlreadyClosedException(closeReason);
+        LocalChannel channel = new LocalChannel(this, broker, nextChannelNumber.getAndIncrement(), publishTimeout);
+        channels.put(channel.channelNumber(), channel);
+        return channel.proxy();
+    }
+
+    private void close() {
+        if (closeReason != null) return;
+        closeReason = new ShutdownSignalException(true, true, null, proxy);
+        channels.values().forEach(LocalChannel::close);
+        channels.clear();
+        for (ShutdownListener listener : shutdownListeners) {
+            listener.shutdownCompleted(closeReason);
+        }
+    }
+
+    private static long positiveParameter(String query, String name, long defaultValue) {
+        if (query == null) return defaultValue;
+        for (String parameter : query.split("&")) {
+            String[] keyValue = parameter.split("=", 2);
+            if (keyValue.length == 2 && name.equals(keyValue[0])) {
+                long value = CAPACITY_PARAMETER.equals(name) ? Integer.parseInt(keyValue[1]) : Long.parseLong(keyValue[1]);
+                if (value > 0) return value;
+            }
+        }
+        return defaultValue;
+    }
+
+    private static class NoBlockedListener implements BlockedListener {
+
+        @Override
+        public void handleBlocked(String reason) {
+        }
+
+        @Override
+        public void handleUnblocked() {
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package de.codecentric.reedelk.rabbitmq.internal.local;
+
+import com.rabbitmq.client.CancelCallback;
+import com.rabbitmq.client.DeliverCallback;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Semaphore;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Delivers the messages of a local queue to a consumer callback, one at a time and in order,
+ * on a dedicated thread. When the prefetch count is greater than zero, at most prefetch count
+ * messages are delivered and not acknowledged yet at any given time.
+ */
+class LocalConsumer implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalConsumer.class);
+
+    private static final long POLL_INTERVAL = 100;
+
+    private final String consumerTag;
+    private final LocalChannel channel;
+    private final LocalQueue queue;
+    private final boolean autoAck;
+    private final Semaphore prefetch;
+    private final DeliverCallback deliverCallback;
+    private final CancelCallback cancelCallback;
+    private final Thread thread;
+
+    private volatile boolean cancelled;
+
+    LocalConsumer(String consumerTag, LocalChannel channel, LocalQueue queue, boolean autoAck, int prefetchCount,
+                  DeliverCallback deliverCallback, CancelCallback cancelCallback) {
+        this.consumerTag = consumerTag;
+        this.channel = channel;
+        this.queue = queue;
+        this.autoAck = autoAck;
+        this.prefetch = !autoAck && prefetchCount > 0 ? new Semaphore(prefetchCount) : null;
+        this.deliverCallback = deliverCallback;
+        this.cancelCallback = cancelCallback;
+        this.thread = new Thread(this, "LocalConsumer-" + queue.name() + "-" + consumerTag);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        queue.addConsumer(this);
+        thread.start();
+    }
+
+    /**
+     * Stops delivering messages, the message being delivered (if any) completes its delivery.
+     */
+    void cancel() {
+        if (cancelled) return;
+        cancelled = true;
+        queue.removeConsumer(this);
+    }
+
+    /**
+     * The queue has been deleted: the consumer is cancelled by the broker.
+     */
+    void cancelByBroker() {
+        cancel();
+        if (cancelCallback == null) return;
+        try {
+            cancelCallback.handle(consumerTag);
+        } catch (Exception exception) {
+            logger.warn(String.format("Cancel callback of consumer=[%s] failed: %s", consumerTag, exception.getMessage()));
+        }
+    }
+
+    void settled() {
+        if (prefetch != null) prefetch.release();
+    }
+
+    LocalQueue queue() {
+        return queue;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!cancelled) {
+                if (prefetch != null && !prefetch.tryAcquire(POLL_INTERVAL, MILLISECONDS)) continue;
+
+                LocalMessage message = queue.poll(POLL_INTERVAL, MILLISECONDS);
+                if (message == null || cancelled) {
+                    if (message != null) queue.requeue(message, false);
+                    settled();
+                    continue;
+                }
+
+                long deliveryTag = channel.delivered(message, this, autoAck);
+                Envelope envelope = new Envelope(deliveryTag, message.redelivered, message.exchange, message.routingKey);
+                try {
+                    deliverCallback.handle(consumerTag, new Delivery(envelope, message.properties, message.body));
+                } catch (Exception exception) {
+                    logger.error(String.format("Consumer=[%s] failed to handle delivery with tag=[%d]: %s",
+                            consumerTag, deliveryTag, exception.getMessage()), exception);
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
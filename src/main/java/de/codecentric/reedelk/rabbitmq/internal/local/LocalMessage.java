@@ -0,0 +1,24 @@
+package de.codecentric.reedelk.rabbitmq.internal.local;
+
+import com.rabbitmq.client.AMQP;
+
+class LocalMessage {
+
+    final String exchange;
+    final String routingKey;
+    final AMQP.BasicProperties properties;
+    final byte[] body;
+    final boolean redelivered;
+
+    LocalMessage(String exchange, String routingKey, AMQP.BasicProperties properties, byte[] body, boolean redelivered) {
+        this.exchange = exchange;
+        this.routingKey = routingKey;
+        this.properties = properties;
+        this.body = body;
+        this.redelivered = redelivered;
+    }
+
+    LocalMessage redelivered() {
+        return redelivered ? this : new LocalMessage(exchange, routingKey, properties, body, true);
+    }
+}
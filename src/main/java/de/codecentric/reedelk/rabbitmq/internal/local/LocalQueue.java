@@ -0,0 +1,134 @@
+package de.codecentric.reedelk.rabbitmq.internal.local;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded in-memory queue. Publishers wait while the queue is full, up to a timeout.
+ * Requeued messages go back to the head of the queue and they are never refused, otherwise
+ * a consumer rejecting a message on a full queue would wait for itself.
+ */
+class LocalQueue {
+
+    private final String name;
+    private volatile int capacity;
+    private final ArrayDeque<LocalMessage> messages = new ArrayDeque<>();
+    private final List<LocalConsumer> consumers = new CopyOnWriteArrayList<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    LocalQueue(String name, int capacity) {
+        this.name = name;
+        this.capacity = capacity;
+    }
+
+    String name() {
+        return name;
+    }
+
+    /**
+     * Returns false if the queue is still full after the given timeout.
+     */
+    boolean publish(LocalMessage message, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (messages.size() >= capacity) {
+                if (nanos <= 0) return false;
+                nanos = notFull.awaitNanos(nanos);
+            }
+            messages.addLast(message);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void capacity(int capacity) {
+        lock.lock();
+        try {
+            this.capacity = capacity;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void requeue(LocalMessage message, boolean redelivered) {
+        lock.lock();
+        try {
+            messages.addFirst(redelivered ? message.redelivered() : message);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the message at the head of the queue, or null if the queue
+     * is still empty after the given timeout.
+     */
+    LocalMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (messages.isEmpty()) {
+                if (nanos <= 0) return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            LocalMessage message = messages.removeFirst();
+            notFull.signal();
+            return message;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int messageCount() {
+        lock.lock();
+        try {
+            return messages.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int purge() {
+        lock.lock();
+        try {
+            int count = messages.size();
+            messages.clear();
+            notFull.signalAll();
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void addConsumer(LocalConsumer consumer) {
+        consumers.add(consumer);
+    }
+
+    void removeConsumer(LocalConsumer consumer) {
+        consumers.remove(consumer);
+    }
+
+    int consumerCount() {
+        return consumers.size();
+    }
+
+    /**
+     * The queue has been deleted: its consumers are cancelled and its messages dropped.
+     */
+    int delete() {
+        consumers.forEach(LocalConsumer::cancelByBroker);
+        return purge();
+    }
+}
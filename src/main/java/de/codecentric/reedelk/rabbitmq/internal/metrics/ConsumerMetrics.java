@@ -0,0 +1,65 @@
+package de.codecentric.reedelk.rabbitmq.internal.metrics;
+
+/**
+ * The metrics of the deliveries received by RabbitMQ consumers.
+ */
+public interface ConsumerMetrics {
+
+    ConsumerMetrics NOOP = new ConsumerMetrics() {
+        @Override
+        public void delivered(boolean redelivered) {
+        }
+
+        @Override
+        public void flowStarted(long latencyNanos) {
+        }
+
+        @Override
+        public void acked(long latencyNanos) {
+        }
+
+        @Override
+        public void unacked(int delta) {
+        }
+
+        @Override
+        public void inFlight(int messagesDelta, long bytesDelta) {
+        }
+
+        @Override
+        public void paused(boolean paused) {
+        }
+    };
+
+    /**
+     * A delivery has been received from the broker.
+     */
+    void delivered(boolean redelivered);
+
+    /**
+     * A flow has been started for a delivery, the latency is measured
+     * from the moment the delivery has been received.
+     */
+    void flowStarted(long latencyNanos);
+
+    /**
+     * A delivery has been acked, the latency is measured from the moment its flow completed.
+     */
+    void acked(long latencyNanos);
+
+    /**
+     * The number of deliveries not acknowledged (or rejected) yet changed.
+     */
+    void unacked(int delta);
+
+    /**
+     * The number of messages (and their total body size) whose flow has
+     * been started and has not completed yet changed.
+     */
+    void inFlight(int messagesDelta, long bytesDelta);
+
+    /**
+     * The consumer has been paused (or resumed) because its in-flight budget was exhausted.
+     */
+    void paused(boolean paused);
+}
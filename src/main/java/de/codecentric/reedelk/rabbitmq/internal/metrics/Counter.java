@@ -0,0 +1,24 @@
+package de.codecentric.reedelk.rabbitmq.internal.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A counter which can be updated concurrently with low contention. It can also
+ * be decremented, to count the number of items currently in a given state.
+ */
+public class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long delta) {
+        count.add(delta);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+}
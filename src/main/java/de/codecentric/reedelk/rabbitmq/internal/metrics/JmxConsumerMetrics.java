@@ -0,0 +1,64 @@
+package de.codecentric.reedelk.rabbitmq.internal.metrics;
+
+class JmxConsumerMetrics implements ConsumerMetrics {
+
+    private final Counter deliveries = new Counter();
+    private final Counter redeliveries = new Counter();
+    private final Counter unacked = new Counter();
+    private final Counter inFlightMessages = new Counter();
+    private final Counter inFlightBytes = new Counter();
+    private final Counter pausedConsumers = new Counter();
+    private final Counter pauses = new Counter();
+    private final Histogram flowStartLatency = new Histogram();
+    private final Histogram ackLatency = new Histogram();
+
+    @Override
+    public void delivered(boolean redelivered) {
+        deliveries.increment();
+        if (redelivered) redeliveries.increment();
+    }
+
+    @Override
+    public void flowStarted(long latencyNanos) {
+        flowStartLatency.record(latencyNanos);
+    }
+
+    @Override
+    public void acked(long latencyNanos) {
+        ackLatency.record(latencyNanos);
+    }
+
+    @Override
+    public void unacked(int delta) {
+        unacked.add(delta);
+    }
+
+    @Override
+    public void inFlight(int messagesDelta, long bytesDelta) {
+        inFlightMessages.add(messagesDelta);
+        inFlightBytes.add(bytesDelta);
+    }
+
+    @Override
+    public void paused(boolean paused) {
+        if (paused) {
+            pausedConsumers.increment();
+            pauses.increment();
+        } else {
+            pausedConsumers.add(-1);
+        }
+    }
+
+    MetricsMBean mbean() {
+        return new MetricsMBean("RabbitMQ Consumer metrics")
+                .counter("Deliveries", deliveries)
+                .counter("Redeliveries", redeliveries)
+                .counter("Unacked", unacked)
+                .counter("InFlightMessages", inFlightMessages)
+                .counter("InFlightBytes", inFlightBytes)
+                .counter("PausedConsumers", pausedConsumers)
+                .counter("Pauses", pauses)
+                .histogram("FlowStartLatency", flowStartLatency)
+                .histogram("AckLatency", ackLatency);
+    }
+}
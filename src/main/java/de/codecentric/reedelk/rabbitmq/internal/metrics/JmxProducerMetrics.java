@@ -0,0 +1,33 @@
+package de.codecentric.reedelk.rabbitmq.internal.metrics;
+
+class JmxProducerMetrics implements ProducerMetrics {
+
+    private final Histogram publishTime = new Histogram();
+    private final Histogram confirmRoundTrip = new Histogram();
+    private final Counter bytesOut = new Counter();
+    private final Counter inFlight = new Counter();
+
+    @Override
+    public void published(long publishTimeNanos, int bytes) {
+        publishTime.record(publishTimeNanos);
+        bytesOut.add(bytes);
+    }
+
+    @Override
+    public void confirmed(long roundTripNanos) {
+        confirmRoundTrip.record(roundTripNanos);
+    }
+
+    @Override
+    public void inFlight(int delta) {
+        inFlight.add(delta);
+    }
+
+    MetricsMBean mbean() {
+        return new MetricsMBean("RabbitMQ Producer metrics")
+                .histogram("PublishTime", publishTime)
+                .histogram("ConfirmRoundTrip", confirmRoundTrip)
+                .counter("BytesOut", bytesOut)
+                .counter("InFlight", inFlight);
+    }
+}
@@ -0,0 +1,87 @@
+package de.codecentric.reedelk.rabbitmq.internal.metrics;
+
+import javax.management.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Exposes counters and histograms as read only JMX attributes. Histogram values are
+ * recorded in nanoseconds and exposed in microseconds. Rates (e.g. deliveries per second)
+ * are derived by the JMX collector from the counts.
+ */
+class MetricsMBean implements DynamicMBean {
+
+    private final String description;
+    private final Map<String, Supplier<Number>> attributes = new LinkedHashMap<>();
+    private final Map<String, Class<? extends Number>> types = new LinkedHashMap<>();
+
+    MetricsMBean(String description) {
+        this.description = description;
+    }
+
+    MetricsMBean counter(String name, Counter counter) {
+        attribute(name, Long.class, counter::count);
+        return this;
+    }
+
+    MetricsMBean histogram(String name, Histogram histogram) {
+        attribute(name + "Count", Long.class, histogram::count);
+        attribute(name + "MeanMicros", Double.class, () -> histogram.mean() / 1000.0);
+        attribute(name + "P50Micros", Double.class, () -> histogram.percentile(50) / 1000.0);
+        attribute(name + "P99Micros", Double.class, () -> histogram.percentile(99) / 1000.0);
+        attribute(name + "P999Micros", Double.class, () -> histogram.percentile(99.9) / 1000.0);
+        attribute(name + "MaxMicros", Double.class, () -> histogram.max() / 1000.0);
+        return this;
+    }
+
+    private void attribute(String name, Class<? extends Number> type, Supplier<Number> value) {
+        attributes.put(name, value);
+        types.put(name, type);
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Supplier<Number> value = attributes.get(attribute);
+        if (value == null) throw new AttributeNotFoundException(attribute);
+        return value.get();
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        AttributeList list = new AttributeList();
+        for (String name : names) {
+            Supplier<Number> value = attributes.get(name);
+            if (value != null) list.add(new Attribute(name, value.get()));
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Attribute " + attribute.getName() + " is read only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        // Types are declared with the attributes: no value is computed to describe the MBean.
+        MBeanAttributeInfo[] infos = types.entrySet().stream()
+                .map(entry -> new MBeanAttributeInfo(
+                        entry.getKey(),
+                        entry.getValue().getName(),
+                        entry.getKey(),
+                        true, false, false))
+                .toArray(MBeanAttributeInfo[]::new);
+        return new MBeanInfo(getClass().getName(), description, infos, null, null, null);
+    }
+}
@@ -0,0 +1,126 @@
+package de.codecentric.reedelk.rabbitmq.internal.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Registers the producer and consumer metrics as JMX MBeans, tagged by exchange and queue:
+ * components publishing to (or consuming from) the same exchange and queue share the same
+ * metrics. The MBean is unregistered when the last component using it releases it.
+ * An MBean registered with the same name by someone else (e.g. another deployment of the
+ * module) is never replaced: the metrics are registered with an additional 'instance' key.
+ */
+public class MetricsRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    private static final String DOMAIN = "de.codecentric.reedelk.rabbitmq";
+
+    private static final Map<ObjectName, Registration> REGISTRATIONS = new HashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    public static synchronized ProducerMetrics producer(String exchange, String queue) {
+        ObjectName name = objectName("RabbitMQProducer", exchange, queue);
+        Registration registration = REGISTRATIONS.get(name);
+        if (registration == null) {
+            JmxProducerMetrics metrics = new JmxProducerMetrics();
+            registration = register(name, metrics, metrics.mbean());
+        }
+        registration.references++;
+        return (ProducerMetrics) registration.metrics;
+    }
+
+    public static synchronized ConsumerMetrics consumer(String queue) {
+        ObjectName name = objectName("RabbitMQConsumer", null, queue);
+        Registration registration = REGISTRATIONS.get(name);
+        if (registration == null) {
+            JmxConsumerMetrics metrics = new JmxConsumerMetrics();
+            registration = register(name, metrics, metrics.mbean());
+        }
+        registration.references++;
+        return (ConsumerMetrics) registration.metrics;
+    }
+
+    public static synchronized void release(Object metrics) {
+        Iterator<Map.Entry<ObjectName, Registration>> iterator = REGISTRATIONS.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<ObjectName, Registration> entry = iterator.next();
+            Registration registration = entry.getValue();
+            if (registration.metrics == metrics && --registration.references == 0) {
+                iterator.remove();
+                if (registration.registered != null) unregister(registration.registered);
+                return;
+            }
+        }
+    }
+
+    private static Registration register(ObjectName name, Object metrics, MetricsMBean mbean) {
+        ObjectName registered = null;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName candidate = name;
+            for (int instance = 1; registered == null; instance++) {
+                try {
+                    registered = server.registerMBean(mbean, candidate).getObjectName();
+                } catch (InstanceAlreadyExistsException exception) {
+                    candidate = instanceName(name, instance);
+                }
+            }
+        } catch (JMException exception) {
+            // Metrics are still recorded, they are just not exported.
+            logger.warn(String.format("Could not register metrics MBean=[%s]: %s", name, exception.getMessage()));
+        }
+        Registration registration = new Registration(metrics, registered);
+        REGISTRATIONS.put(name, registration);
+        return registration;
+    }
+
+    private static void unregister(ObjectName name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+        } catch (JMException exception) {
+            logger.warn(String.format("Could not unregister metrics MBean=[%s]: %s", name, exception.getMessage()));
+        }
+    }
+
+    private static ObjectName objectName(String type, String exchange, String queue) {
+        StringBuilder name = new StringBuilder(DOMAIN).append(":type=").append(type);
+        if (exchange != null) name.append(",exchange=").append(ObjectName.quote(exchange));
+        name.append(",queue=").append(ObjectName.quote(queue == null ? "" : queue));
+        try {
+            return new ObjectName(name.toString());
+        } catch (JMException exception) {
+            throw new IllegalArgumentException(exception);
+        }
+    }
+
+    private static ObjectName instanceName(ObjectName name, int instance) throws MalformedObjectNameException {
+        return new ObjectName(name.getCanonicalName() + ",instance=" + instance);
+    }
+
+    private static class Registration {
+
+        private final Object metrics;
+        // The name the MBean has been registered with, null if it could not be registered.
+        private final ObjectName registered;
+        private int references;
+
+        Registration(Object metrics, ObjectName registered) {
+            this.metrics = metrics;
+            this.registered = registered;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package de.codecentric.reedelk.rabbitmq.internal.metrics;
+
+/**
+ * The metrics of the messages published by RabbitMQ producers.
+ */
+public interface ProducerMetrics {
+
+    ProducerMetrics NOOP = new ProducerMetrics() {
+        @Override
+        public void published(long publishTimeNanos, int bytes) {
+        }
+
+        @Override
+        public void confirmed(long roundTripNanos) {
+        }
+
+        @Override
+        public void inFlight(int delta) {
+        }
+    };
+
+    /**
+     * A message has been written to the channel: the time spent in the
+     * publish call and the size of the message body.
+     */
+    void published(long publishTimeNanos, int bytes);
+
+    /**
+     * The broker confirm (ack or nack) of a message has been received, the round trip
+     * time is measured from the moment the message has been published.
+     */
+    void confirmed(long roundTripNanos);
+
+    /**
+     * The number of published messages waiting for a broker confirm changed.
+     */
+    void inFlight(int delta);
+}
@@ -0,0 +1,54 @@
+package de.codecentric.reedelk.rabbitmq.internal.stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.OptionalLong;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Stores the committed offset of a stream consumer in a file named after the consumer.
+ * The offset is written to a temporary file which then atomically replaces the offset
+ * file, so that a crash while storing never leaves a truncated offset behind.
+ */
+public class FileOffsetStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileOffsetStore.class);
+
+    private final Path file;
+    private final Path temporaryFile;
+
+    public FileOffsetStore(Path directory, String name) {
+        checkArgument(directory != null, "directory");
+        checkArgument(name != null && !name.isEmpty(), "name");
+        // Queue names might contain characters which are not allowed in file names.
+        String fileName = name.replaceAll("[^A-Za-z0-9._-]", "_") + ".offset";
+        this.file = directory.resolve(fileName);
+        this.temporaryFile = directory.resolve(fileName + ".tmp");
+    }
+
+    public OptionalLong load() {
+        if (!Files.exists(file)) return OptionalLong.empty();
+        try {
+            String content = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+            return OptionalLong.of(Long.parseLong(content));
+        } catch (IOException | NumberFormatException exception) {
+            logger.warn(String.format("Could not read the stream offset file=[%s], the configured start offset is used: %s",
+                    file, exception.getMessage()));
+            return OptionalLong.empty();
+        }
+    }
+
+    public void store(long offset) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(temporaryFile, Long.toString(offset).getBytes(StandardCharsets.US_ASCII));
+        Files.move(temporaryFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,108 @@
+package de.codecentric.reedelk.rabbitmq.internal.stream;
+
+import com.rabbitmq.client.Delivery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeSet;
+
+import static de.codecentric.reedelk.runtime.api.commons.Preconditions.checkArgument;
+
+/**
+ * Tracks the offsets of the messages consumed from a stream. Flows might complete out of order,
+ * therefore the committed offset is the highest offset such that the flows of all the messages
+ * delivered up to it have completed. The committed offset is stored (when an offset store is
+ * given) by commit(), which is invoked periodically and when the consumer stops.
+ * When the consumer is subscribed again (e.g. after a pause) consumption resumes
+ * after the last delivered offset.
+ */
+public class StreamOffsetTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamOffsetTracker.class);
+
+    public static final String OFFSET_ARGUMENT = "x-stream-offset";
+
+    private final Object startOffset;
+    private final FileOffsetStore store;
+
+    // Delivered to the flow and not completed yet.
+    private final TreeSet<Long> inProgress = new TreeSet<>();
+    private long lastDelivered = -1;
+    private long lastCompleted = -1;
+    private long lastStored = -1;
+
+    /**
+     * @param startOffset the 'x-stream-offset' consumer argument used when there is no stored offset:
+     *                    'first', 'last', 'next', a java.util.Date or a Long offset.
+     * @param store       the store of the committed offset or null if offsets are not stored.
+     */
+    public StreamOffsetTracker(Object startOffset, FileOffsetStore store) {
+        checkArgument(startOffset != null, "startOffset");
+        this.store = store;
+        OptionalLong stored = store == null ? OptionalLong.empty() : store.load();
+        if (stored.isPresent()) {
+            // Resume after the last committed offset.
+            lastStored = stored.getAsLong();
+            this.startOffset = lastStored + 1;
+        } else {
+            this.startOffset = startOffset;
+        }
+    }
+
+    /**
+     * The consumer arguments of the stream subscription.
+     */
+    public synchronized Map<String, Object> arguments() {
+        Object offset = lastDelivered >= 0 ? lastDelivered + 1 : startOffset;
+        return Collections.singletonMap(OFFSET_ARGUMENT, offset);
+    }
+
+    public synchronized void delivered(Delivery delivery) {
+        long offset = offsetOf(delivery);
+        if (offset < 0) return;
+        inProgress.add(offset);
+        lastDelivered = Math.max(lastDelivered, offset);
+    }
+
+    public synchronized void completed(Delivery delivery) {
+        long offset = offsetOf(delivery);
+        if (offset < 0 || !inProgress.remove(offset)) return;
+        lastCompleted = Math.max(lastCompleted, offset);
+    }
+
+    public synchronized long committed() {
+        if (inProgress.isEmpty()) return lastCompleted;
+        return Math.min(lastCompleted, inProgress.first() - 1);
+    }
+
+    public void commit() {
+        if (store == null) return;
+        long committed;
+        long previouslyStored;
+        synchronized (this) {
+            committed = committed();
+            if (committed <= lastStored) return;
+            previouslyStored = lastStored;
+            lastStored = committed;
+        }
+        try {
+            store.store(committed);
+        } catch (IOException exception) {
+            logger.warn(String.format("Could not store the stream offset=[%d]: %s", committed, exception.getMessage()));
+            // The offset is stored again by the next commit.
+            synchronized (this) {
+                if (lastStored == committed) lastStored = previouslyStored;
+            }
+        }
+    }
+
+    private static long offsetOf(Delivery delivery) {
+        Map<String, Object> headers = delivery.getProperties() == null ? null : delivery.getProperties().getHeaders();
+        Object offset = headers == null ? null : headers.get(OFFSET_ARGUMENT);
+        return offset instanceof Number ? ((Number) offset).longValue() : -1;
+    }
+}
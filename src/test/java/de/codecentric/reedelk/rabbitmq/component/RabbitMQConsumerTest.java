@@ -0,0 +1,100 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import de.codecentric.reedelk.rabbitmq.internal.local.LocalConnection;
+import de.codecentric.reedelk.runtime.api.component.OnResult;
+import de.codecentric.reedelk.runtime.api.message.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RabbitMQConsumerTest {
+
+    private static final String QUEUE = "queue";
+
+    private final BlockingQueue<OnResult> flows = new LinkedBlockingQueue<>();
+    private RabbitMQConsumer consumer;
+    private Connection connection;
+
+    @AfterEach
+    void tearDown() {
+        if (consumer != null) consumer.onShutdown();
+        if (connection != null) connection.abort();
+    }
+
+    @Test
+    void shouldSubscribeConcurrentConsumers() throws IOException {
+        // Given
+        RabbitMQConsumerConcurrencyConfiguration concurrency = new RabbitMQConsumerConcurrencyConfiguration();
+        concurrency.setConsumers(3);
+        consumer = consumer("local://consumer-concurrency", concurrency);
+        Channel channel = open("local://consumer-concurrency");
+
+        // When
+        consumer.onStart();
+
+        // Then
+        assertEquals(3, channel.consumerCount(QUEUE));
+
+        // When
+        consumer.onShutdown();
+        consumer = null;
+
+        // Then
+        assertEquals(0, channel.consumerCount(QUEUE));
+    }
+
+    @Test
+    void shouldNotDeliverMoreUnackedMessagesThanPrefetchCount() throws Exception {
+        // Given
+        RabbitMQConsumerConcurrencyConfiguration concurrency = new RabbitMQConsumerConcurrencyConfiguration();
+        concurrency.setPrefetchCount(1);
+        consumer = consumer("local://consumer-prefetch", concurrency);
+        Channel channel = open("local://consumer-prefetch");
+        consumer.onStart();
+
+        // When
+        channel.basicPublish("", QUEUE, null, "first".getBytes());
+        channel.basicPublish("", QUEUE, null, "second".getBytes());
+
+        // Then
+        OnResult first = flows.poll(5, SECONDS);
+        assertNotNull(first);
+        assertNull(flows.poll(200, MILLISECONDS));
+        assertEquals(1, channel.messageCount(QUEUE));
+
+        // When
+        first.onResult(null, null);
+
+        // Then
+        assertNotNull(flows.poll(5, SECONDS));
+        assertEquals(0, channel.messageCount(QUEUE));
+    }
+
+    private RabbitMQConsumer consumer(String uri, RabbitMQConsumerConcurrencyConfiguration concurrency) {
+        RabbitMQConsumer consumer = new RabbitMQConsumer() {
+            @Override
+            public void onEvent(Message message, OnResult onResult) {
+                flows.add(onResult);
+            }
+        };
+        consumer.setConnectionURI(uri);
+        consumer.setQueueName(QUEUE);
+        consumer.setAutoAck(false);
+        consumer.setConcurrencyConfiguration(concurrency);
+        return consumer;
+    }
+
+    private Channel open(String uri) throws IOException {
+        connection = LocalConnection.open(uri);
+        return connection.createChannel();
+    }
+}
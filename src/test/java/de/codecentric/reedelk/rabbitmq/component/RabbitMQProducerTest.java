@@ -0,0 +1,139 @@
+package de.codecentric.reedelk.rabbitmq.component;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Connection;
+import de.codecentric.reedelk.rabbitmq.internal.exception.RabbitMQProducerException;
+import de.codecentric.reedelk.runtime.api.message.Message;
+import de.codecentric.reedelk.runtime.api.message.MessageBuilder;
+import de.codecentric.reedelk.runtime.api.script.dynamicvalue.DynamicString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RabbitMQProducerTest {
+
+    private static final long CONFIRM_TIMEOUT = 300;
+
+    @Mock
+    private Connection connection;
+    @Mock
+    private Channel channel;
+
+    private final AtomicLong nextPublishSeqNo = new AtomicLong(1);
+    private RabbitMQProducer producer;
+    private ConfirmListener confirmListener;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(connection.createChannel()).thenReturn(channel);
+        lenient().when(channel.getNextPublishSeqNo()).thenAnswer(invocation -> nextPublishSeqNo.get());
+
+        RabbitMQProducerConfirmConfiguration confirmConfiguration = new RabbitMQProducerConfirmConfiguration();
+        confirmConfiguration.setEnabled(true);
+        confirmConfiguration.setWindowSize(2);
+        confirmConfiguration.setTimeout(CONFIRM_TIMEOUT);
+
+        producer = new RabbitMQProducer();
+        producer.setQueueName(DynamicString.from("queue"));
+        producer.setSplitCollection(true);
+        producer.setConfirmConfiguration(confirmConfiguration);
+        producer.configure();
+        producer.openChannels(connection, 1);
+
+        ArgumentCaptor<ConfirmListener> listener = ArgumentCaptor.forClass(ConfirmListener.class);
+        verify(channel).addConfirmListener(listener.capture());
+        confirmListener = listener.getValue();
+    }
+
+    @AfterEach
+    void tearDown() {
+        producer.dispose();
+    }
+
+    @Test
+    void shouldGiveBackConfirmSlotsOfBatchFailedMidway() throws IOException {
+        // Given
+        doAnswer(invocation -> published())
+                .doThrow(new IOException("connection reset"))
+                .doAnswer(invocation -> ackPublished())
+                .when(channel).basicPublish(anyString(), anyString(), any(AMQP.BasicProperties.class), any(byte[].class));
+        assertThrows(RabbitMQProducerException.class, () -> producer.apply(null, batch(2)));
+
+        // When
+        Message result = producer.apply(null, batch(2));
+
+        // Then
+        assertNotNull(result);
+    }
+
+    @Test
+    void shouldAwaitBatchConfirmsAgainstSingleDeadline() throws IOException {
+        // Given
+        doAnswer(invocation -> published())
+                .when(channel).basicPublish(anyString(), anyString(), any(AMQP.BasicProperties.class), any(byte[].class));
+        long start = System.currentTimeMillis();
+
+        // When
+        assertThrows(RabbitMQProducerException.class, () -> producer.apply(null, batch(2)));
+
+        // Then
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue(elapsed < 2 * CONFIRM_TIMEOUT, "Batch confirms awaited for " + elapsed + " ms");
+    }
+
+    @Test
+    void shouldRejectBatchWithElementLargerThanChunkSize() throws IOException {
+        // Given
+        RabbitMQProducerChunkConfiguration chunkConfiguration = new RabbitMQProducerChunkConfiguration();
+        chunkConfiguration.setChunkSize(2);
+        producer.setChunkConfiguration(chunkConfiguration);
+        producer.configure();
+        Message message = MessageBuilder.get(RabbitMQProducerTest.class)
+                .withList(Arrays.asList(new byte[]{0, 1}, new byte[]{0, 1, 2}), byte[].class)
+                .build();
+
+        // When
+        RabbitMQProducerException thrown = assertThrows(RabbitMQProducerException.class, () -> producer.apply(null, message));
+
+        // Then
+        assertTrue(thrown.getMessage().contains("index=[1]"), thrown.getMessage());
+        verify(channel, never()).basicPublish(anyString(), anyString(), any(AMQP.BasicProperties.class), any(byte[].class));
+    }
+
+    private Object published() {
+        nextPublishSeqNo.incrementAndGet();
+        return null;
+    }
+
+    private Object ackPublished() throws IOException {
+        long sequenceNumber = nextPublishSeqNo.getAndIncrement();
+        confirmListener.handleAck(sequenceNumber, false);
+        return null;
+    }
+
+    private static Message batch(int size) {
+        byte[][] bodies = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            bodies[i] = new byte[]{(byte) i};
+        }
+        return MessageBuilder.get(RabbitMQProducerTest.class)
+                .withList(Arrays.asList(bodies), byte[].class)
+                .build();
+    }
+}
@@ -0,0 +1,146 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.Channel;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ConsumerMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AckAggregatorTest {
+
+    @Mock
+    private Channel channel;
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    private AckAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(channel.isOpen()).thenReturn(true);
+        aggregator = new AckAggregator(channel, 100, 1000, scheduler, ConsumerMetrics.NOOP);
+    }
+
+    @Test
+    void shouldAckAllCompletedTagsAtOnce() throws IOException {
+        // Given
+        aggregator.delivered(1);
+        aggregator.delivered(2);
+        aggregator.delivered(3);
+        aggregator.completed(1);
+        aggregator.completed(2);
+        aggregator.completed(3);
+
+        // When
+        aggregator.flush();
+
+        // Then
+        verify(channel).basicAck(3, true);
+        verify(channel, times(1)).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void shouldNotAckTagsAboveLowestTagInProgress() throws IOException {
+        // Given
+        aggregator.delivered(1);
+        aggregator.delivered(2);
+        aggregator.delivered(3);
+        aggregator.completed(1);
+        aggregator.completed(3);
+
+        // When
+        aggregator.flush();
+
+        // Then
+        verify(channel).basicAck(1, true);
+        verify(channel, never()).basicAck(3, true);
+    }
+
+    @Test
+    void shouldAckHigherTagsOnceLowerTagIsSettled() throws IOException {
+        // Given
+        aggregator.delivered(1);
+        aggregator.delivered(2);
+        aggregator.completed(2);
+        aggregator.flush();
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+        // When
+        aggregator.settled(1);
+        aggregator.flush();
+
+        // Then
+        verify(channel).basicAck(2, true);
+    }
+
+    @Test
+    void shouldFlushWhenBatchSizeIsReached() throws IOException {
+        // Given
+        aggregator = new AckAggregator(channel, 2, 1000, scheduler, ConsumerMetrics.NOOP);
+        aggregator.delivered(1);
+        aggregator.delivered(2);
+        aggregator.completed(1);
+
+        // When
+        aggregator.completed(2);
+
+        // Then
+        verify(channel).basicAck(2, true);
+    }
+
+    @Test
+    void shouldNotAckWhenChannelIsClosed() throws IOException {
+        // Given
+        aggregator.delivered(1);
+        aggregator.completed(1);
+        when(channel.isOpen()).thenReturn(false);
+
+        // When
+        aggregator.flush();
+
+        // Then
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void shouldDecrementUnackedWhenCompletedOnClosedChannel() {
+        // Given
+        ConsumerMetrics metrics = mock(ConsumerMetrics.class);
+        aggregator = new AckAggregator(channel, 100, 1000, scheduler, metrics);
+        when(channel.isOpen()).thenReturn(false);
+        aggregator.delivered(1);
+
+        // When
+        aggregator.completed(1);
+
+        // Then
+        verify(metrics).unacked(-1);
+        verifyNoInteractions(scheduler);
+    }
+
+    @Test
+    void shouldRecordAckLatencyFromFlowCompletion() throws IOException {
+        // Given
+        ConsumerMetrics metrics = mock(ConsumerMetrics.class);
+        aggregator = new AckAggregator(channel, 1, 1000, scheduler, metrics);
+        long completedAt = System.nanoTime() - 5_000_000;
+        aggregator.delivered(1);
+
+        // When
+        aggregator.completed(1, completedAt);
+
+        // Then
+        verify(channel).basicAck(1, true);
+        verify(metrics).acked(longThat(latency -> latency >= 5_000_000));
+    }
+}
@@ -0,0 +1,176 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
+import de.codecentric.reedelk.rabbitmq.component.ConsumerErrorPolicy;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ConsumerMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchAckerTest {
+
+    @Mock
+    private Channel channel;
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(channel.isOpen()).thenReturn(true);
+    }
+
+    @Test
+    void shouldAckBatchWithSingleMultipleAck() throws IOException {
+        // Given
+        BatchAcker acker = acker(ConsumerErrorPolicy.REQUEUE);
+        acker.delivered(deliveries(1, 3));
+
+        // When
+        acker.completed(3, true);
+
+        // Then
+        verify(channel).basicAck(3, true);
+    }
+
+    @Test
+    void shouldAckBatchOnlyWhenPreviousBatchesAreSettled() throws IOException {
+        // Given
+        BatchAcker acker = acker(ConsumerErrorPolicy.REQUEUE);
+        acker.delivered(deliveries(1, 2));
+        acker.delivered(deliveries(3, 4));
+
+        // When
+        acker.completed(4, true);
+
+        // Then
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+        // When
+        acker.completed(2, true);
+
+        // Then
+        verify(channel).basicAck(4, true);
+    }
+
+    @Test
+    void shouldSettleEachDeliveryOfFailedBatchWithErrorPolicy() throws IOException {
+        // Given
+        BatchAcker acker = acker(ConsumerErrorPolicy.DEAD_LETTER);
+        acker.delivered(deliveries(1, 2));
+
+        // When
+        acker.completed(2, false);
+
+        // Then
+        verify(channel).basicNack(1, false, false);
+        verify(channel).basicNack(2, false, false);
+        verify(channel, never()).basicNack(anyLong(), eq(true), anyBoolean());
+    }
+
+    @Test
+    void shouldSendPendingAcksBeforeSettlingFailedBatch() throws IOException {
+        // Given
+        BatchAcker acker = acker(ConsumerErrorPolicy.REQUEUE);
+        acker.delivered(deliveries(1, 2));
+        acker.delivered(deliveries(3, 4));
+        acker.delivered(deliveries(5, 6));
+        acker.completed(4, false);
+        acker.completed(6, true);
+
+        // When
+        acker.completed(2, true);
+
+        // Then
+        InOrder inOrder = inOrder(channel);
+        inOrder.verify(channel).basicAck(2, true);
+        inOrder.verify(channel).basicNack(3, false, true);
+        inOrder.verify(channel).basicNack(4, false, true);
+        inOrder.verify(channel).basicAck(6, true);
+    }
+
+    @Test
+    void shouldNotAckNextBatchesWhileFailedBatchWaitsForDelayedRequeue() throws IOException {
+        // Given
+        BatchAcker acker = acker(ConsumerErrorPolicy.DELAYED_REQUEUE);
+        acker.delivered(deliveries(1, 1));
+        acker.delivered(deliveries(2, 2));
+        acker.completed(1, false);
+
+        // When
+        acker.completed(2, true);
+
+        // Then: the multiple ack would settle the delivery waiting to be requeued.
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+        // When
+        ArgumentCaptor<Runnable> requeue = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(requeue.capture(), eq(100L), eq(MILLISECONDS));
+        requeue.getValue().run();
+
+        // Then
+        InOrder inOrder = inOrder(channel);
+        inOrder.verify(channel).basicNack(1, false, true);
+        inOrder.verify(channel).basicAck(2, true);
+    }
+
+    @Test
+    void shouldNotSettleWhenChannelIsClosed() throws IOException {
+        // Given
+        BatchAcker acker = acker(ConsumerErrorPolicy.REQUEUE);
+        acker.delivered(deliveries(1, 2));
+        when(channel.isOpen()).thenReturn(false);
+
+        // When
+        acker.completed(2, true);
+
+        // Then
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void shouldSettleBatchOnlyOnce() throws IOException {
+        // Given
+        BatchAcker acker = acker(ConsumerErrorPolicy.REQUEUE);
+        acker.delivered(deliveries(1, 2));
+        acker.completed(2, false);
+
+        // When
+        acker.completed(2, false);
+
+        // Then
+        verify(channel, times(1)).basicNack(1, false, true);
+        verify(channel, times(1)).basicNack(2, false, true);
+    }
+
+    private BatchAcker acker(ConsumerErrorPolicy policy) {
+        ConsumerErrorHandler errorHandler = new ConsumerErrorHandler(channel, policy, 100, 0, scheduler);
+        return new BatchAcker(channel, errorHandler, ConsumerMetrics.NOOP);
+    }
+
+    private static List<Delivery> deliveries(long fromTag, long toTag) {
+        List<Delivery> deliveries = new ArrayList<>();
+        for (long tag = fromTag; tag <= toTag; tag++) {
+            deliveries.add(new Delivery(new Envelope(tag, false, "", "queue"), new AMQP.BasicProperties(), new byte[0]));
+        }
+        return deliveries;
+    }
+}
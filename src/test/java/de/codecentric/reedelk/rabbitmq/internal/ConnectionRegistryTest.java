@@ -0,0 +1,71 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.Connection;
+import de.codecentric.reedelk.runtime.api.exception.PlatformException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionRegistryTest {
+
+    @Test
+    void shouldShareConnectionWithSameParameters() {
+        // Given
+        ConnectionLease first = ConnectionRegistry.acquire("local://registry-shared", 1);
+
+        // When
+        ConnectionLease second = ConnectionRegistry.acquire("local://registry-shared", 1);
+
+        // Then
+        assertSame(first.connection(), second.connection());
+        first.release();
+        second.release();
+    }
+
+    @Test
+    void shouldCloseConnectionWhenLastLeaseIsReleased() {
+        // Given
+        ConnectionLease first = ConnectionRegistry.acquire("local://registry-release", 1);
+        ConnectionLease second = ConnectionRegistry.acquire("local://registry-release", 1);
+        Connection connection = first.connection();
+
+        // When
+        first.release();
+        first.release();
+
+        // Then
+        assertTrue(connection.isOpen());
+        second.release();
+        assertFalse(connection.isOpen());
+    }
+
+    @Test
+    void shouldNotShareClosedConnection() {
+        // Given
+        ConnectionLease first = ConnectionRegistry.acquire("local://registry-closed", 1);
+        Connection closed = first.connection();
+        closed.abort();
+
+        // When
+        ConnectionLease second = ConnectionRegistry.acquire("local://registry-closed", 1);
+
+        // Then
+        assertNotSame(closed, second.connection());
+        assertTrue(second.connection().isOpen());
+        first.release();
+        second.release();
+    }
+
+    @Test
+    void shouldReleaseConnectionWhichCannotBeOpened() {
+        // Given
+        String uri = "local://registry-failed?capacity=not-a-number";
+
+        // When
+        assertThrows(PlatformException.class, () -> ConnectionRegistry.acquire(uri, 1));
+
+        // Then
+        PlatformException second = assertThrows(PlatformException.class, () -> ConnectionRegistry.acquire(uri, 1));
+        assertTrue(second.getMessage().contains("capacity=not-a-number"));
+    }
+}
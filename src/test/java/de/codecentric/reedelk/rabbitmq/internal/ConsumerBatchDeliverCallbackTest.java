@@ -0,0 +1,144 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
+import de.codecentric.reedelk.rabbitmq.component.ConsumerErrorPolicy;
+import de.codecentric.reedelk.rabbitmq.internal.chunk.ChunkHeaders;
+import de.codecentric.reedelk.rabbitmq.internal.exception.RabbitMQConsumerException;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ConsumerMetrics;
+import de.codecentric.reedelk.rabbitmq.internal.stream.StreamOffsetTracker;
+import de.codecentric.reedelk.runtime.api.component.InboundEventListener;
+import de.codecentric.reedelk.runtime.api.component.OnResult;
+import de.codecentric.reedelk.runtime.api.message.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConsumerBatchDeliverCallbackTest {
+
+    @Mock
+    private InboundEventListener listener;
+    @Mock
+    private DeliveryDecoder decoder;
+    @Mock
+    private Channel channel;
+    @Mock
+    private ScheduledExecutorService scheduler;
+    @Mock
+    private Message message;
+    @Mock
+    private InFlightBudget budget;
+    @Mock
+    private StreamOffsetTracker offsetTracker;
+
+    private ConsumerBatchDeliverCallback callback;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(channel.isOpen()).thenReturn(true);
+        ConsumerErrorHandler errorHandler = new ConsumerErrorHandler(channel, ConsumerErrorPolicy.DEAD_LETTER, 0, 0, null);
+        BatchAcker batchAcker = new BatchAcker(channel, errorHandler, ConsumerMetrics.NOOP);
+        callback = new ConsumerBatchDeliverCallback(listener, decoder, 2, 1000, scheduler, batchAcker, null, null, ConsumerMetrics.NOOP);
+    }
+
+    @Test
+    void shouldStartFlowWhenBatchIsFull() {
+        // Given
+        when(decoder.decode(anyList())).thenReturn(message);
+
+        // When
+        callback.handle("consumer", delivery(1, null));
+        callback.handle("consumer", delivery(2, null));
+
+        // Then
+        verify(listener).onEvent(eq(message), any(OnResult.class));
+    }
+
+    @Test
+    void shouldSettleBatchWhichCannotBeDecoded() throws IOException {
+        // Given
+        doThrow(new RabbitMQConsumerException("payload cannot be decompressed", null)).when(decoder).decode(anyList());
+
+        // When
+        callback.handle("consumer", delivery(1, null));
+        callback.handle("consumer", delivery(2, null));
+
+        // Then
+        verify(listener, never()).onEvent(any(Message.class), any(OnResult.class));
+        verify(channel).basicNack(1, false, false);
+        verify(channel).basicNack(2, false, false);
+    }
+
+    @Test
+    void shouldRejectChunkWithoutAddingItToTheBatch() throws IOException {
+        // Given
+        when(decoder.decode(anyList())).thenReturn(message);
+        callback.handle("consumer", delivery(1, null));
+
+        // When
+        callback.handle("consumer", delivery(2, ChunkHeaders.of("chunk-id", 0, false)));
+
+        // Then
+        verify(decoder).decode(argThat((List<Delivery> deliveries) -> deliveries.size() == 1));
+        ArgumentCaptor<OnResult> onResult = ArgumentCaptor.forClass(OnResult.class);
+        verify(listener).onEvent(eq(message), onResult.capture());
+
+        // When
+        onResult.getValue().onResult(null, message);
+
+        // Then
+        InOrder inOrder = inOrder(channel);
+        inOrder.verify(channel).basicAck(1, true);
+        inOrder.verify(channel).basicNack(2, false, false);
+    }
+
+    @Test
+    void shouldRegisterBatchToBudgetAndOffsetTrackerWhileTakingIt() {
+        // Given
+        ConsumerBatchDeliverCallback tracked = new ConsumerBatchDeliverCallback(
+                listener, decoder, 2, 1000, scheduler, null, offsetTracker, budget, ConsumerMetrics.NOOP);
+        AtomicInteger registeredUnderLock = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (Thread.holdsLock(tracked)) registeredUnderLock.incrementAndGet();
+            return null;
+        }).when(budget).acquire(anyLong());
+        doAnswer(invocation -> {
+            if (Thread.holdsLock(tracked)) registeredUnderLock.incrementAndGet();
+            return null;
+        }).when(offsetTracker).delivered(any(Delivery.class));
+        when(decoder.decode(anyList())).thenReturn(message);
+
+        // When
+        tracked.handle("consumer", delivery(1, null));
+        tracked.handle("consumer", delivery(2, null));
+
+        // Then
+        assertEquals(4, registeredUnderLock.get());
+        verify(listener).onEvent(eq(message), any(OnResult.class));
+    }
+
+    private static Delivery delivery(long deliveryTag, Map<String, Object> headers) {
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder().headers(headers).build();
+        return new Delivery(new Envelope(deliveryTag, false, "", "queue"), properties, new byte[0]);
+    }
+}
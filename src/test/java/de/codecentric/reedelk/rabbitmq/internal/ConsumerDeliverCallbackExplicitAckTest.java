@@ -0,0 +1,199 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
+import de.codecentric.reedelk.rabbitmq.component.ConsumerErrorPolicy;
+import de.codecentric.reedelk.rabbitmq.internal.chunk.ChunkHeaders;
+import de.codecentric.reedelk.rabbitmq.internal.chunk.ChunkReassembler;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ConsumerMetrics;
+import de.codecentric.reedelk.runtime.api.component.InboundEventListener;
+import de.codecentric.reedelk.runtime.api.component.OnResult;
+import de.codecentric.reedelk.runtime.api.message.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConsumerDeliverCallbackExplicitAckTest {
+
+    @Mock
+    private Channel channel;
+    @Mock
+    private InboundEventListener listener;
+    @Mock
+    private DeliveryDecoder decoder;
+    @Mock
+    private ScheduledExecutorService scheduler;
+    @Mock
+    private Message message;
+
+    private AckAggregator aggregator;
+    private ConsumerDeliverCallbackExplicitAck callback;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(channel.isOpen()).thenReturn(true);
+        aggregator = new AckAggregator(channel, 100, 1000, scheduler, ConsumerMetrics.NOOP);
+        ConsumerErrorHandler errorHandler = new ConsumerErrorHandler(channel, ConsumerErrorPolicy.DEAD_LETTER, 0, 0, null);
+        callback = new ConsumerDeliverCallbackExplicitAck(listener, decoder, null, channel, errorHandler, aggregator, null, null, ConsumerMetrics.NOOP);
+    }
+
+    @Test
+    void shouldNackDeliveryWhichCannotBeDecoded() throws IOException {
+        // Given
+        Delivery delivery = delivery(1);
+        when(decoder.decode(delivery)).thenThrow(new IllegalStateException("corrupted"));
+
+        // When
+        callback.handle("consumer", delivery);
+
+        // Then
+        verify(channel).basicNack(1, false, false);
+        verifyNoInteractions(listener);
+    }
+
+    @Test
+    void shouldNotAckUndecodableDeliveryWithHigherTags() throws IOException {
+        // Given
+        Delivery undecodable = delivery(1);
+        Delivery decodable = delivery(2);
+        when(decoder.decode(undecodable)).thenThrow(new IllegalStateException("corrupted"));
+        when(decoder.decode(decodable)).thenReturn(message);
+        callback.handle("consumer", undecodable);
+        callback.handle("consumer", decodable);
+        ArgumentCaptor<OnResult> onResult = ArgumentCaptor.forClass(OnResult.class);
+        verify(listener).onEvent(any(Message.class), onResult.capture());
+
+        // When
+        onResult.getValue().onResult(null, message);
+        aggregator.flush();
+
+        // Then
+        InOrder inOrder = inOrder(channel);
+        inOrder.verify(channel).basicNack(1, false, false);
+        inOrder.verify(channel).basicAck(2, true);
+    }
+
+    @Test
+    void shouldKeepLowerTagInProgressUntilFlowCompletes() throws IOException {
+        // Given
+        Delivery first = delivery(1);
+        Delivery second = delivery(2);
+        when(decoder.decode(any(Delivery.class))).thenReturn(message);
+        callback.handle("consumer", first);
+        callback.handle("consumer", second);
+        ArgumentCaptor<OnResult> onResult = ArgumentCaptor.forClass(OnResult.class);
+        verify(listener, times(2)).onEvent(any(Message.class), onResult.capture());
+
+        // When
+        onResult.getAllValues().get(1).onResult(null, message);
+        aggregator.flush();
+
+        // Then
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void shouldAckAllChunksWhenChunkedFlowSucceeds() throws IOException {
+        // Given
+        ChunkReassembler reassembler = new ChunkReassembler(16, 1000, mock(ChunkReassembler.Listener.class));
+        ConsumerErrorHandler errorHandler = new ConsumerErrorHandler(channel, ConsumerErrorPolicy.DEAD_LETTER, 0, 0, null);
+        callback = new ConsumerDeliverCallbackExplicitAck(listener, decoder, reassembler, channel, errorHandler, aggregator, null, null, ConsumerMetrics.NOOP);
+        when(decoder.decode(any(Delivery.class), any())).thenReturn(message);
+        callback.handle("consumer", chunk(1, 0, false));
+        callback.handle("consumer", chunk(2, 1, true));
+        ArgumentCaptor<OnResult> onResult = ArgumentCaptor.forClass(OnResult.class);
+        verify(listener).onEvent(any(Message.class), onResult.capture());
+        aggregator.flush();
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+        // When
+        onResult.getValue().onResult(null, message);
+        aggregator.flush();
+
+        // Then
+        verify(channel).basicAck(2, true);
+    }
+
+    @Test
+    void shouldRejectAllChunksWhenChunkedFlowFails() throws IOException {
+        // Given
+        ChunkReassembler reassembler = new ChunkReassembler(16, 1000, mock(ChunkReassembler.Listener.class));
+        ConsumerErrorHandler errorHandler = new ConsumerErrorHandler(channel, ConsumerErrorPolicy.DEAD_LETTER, 0, 0, null);
+        callback = new ConsumerDeliverCallbackExplicitAck(listener, decoder, reassembler, channel, errorHandler, aggregator, null, null, ConsumerMetrics.NOOP);
+        when(decoder.decode(any(Delivery.class), any())).thenReturn(message);
+        callback.handle("consumer", chunk(1, 0, false));
+        callback.handle("consumer", chunk(2, 1, true));
+        ArgumentCaptor<OnResult> onResult = ArgumentCaptor.forClass(OnResult.class);
+        verify(listener).onEvent(any(Message.class), onResult.capture());
+
+        // When
+        onResult.getValue().onError(null, new IllegalStateException("flow error"));
+
+        // Then
+        verify(channel).basicNack(1, false, false);
+        verify(channel).basicNack(2, false, false);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void shouldDiscardChunkOfUnknownMessage() throws IOException {
+        // Given
+        ChunkReassembler reassembler = new ChunkReassembler(16, 1000, mock(ChunkReassembler.Listener.class));
+        ConsumerErrorHandler errorHandler = new ConsumerErrorHandler(channel, ConsumerErrorPolicy.REQUEUE, 0, 0, null);
+        callback = new ConsumerDeliverCallbackExplicitAck(listener, decoder, reassembler, channel, errorHandler, aggregator, null, null, ConsumerMetrics.NOOP);
+
+        // When
+        callback.handle("consumer", chunk(7, 3, false));
+
+        // Then
+        verify(channel).basicNack(7, false, false);
+        verifyNoInteractions(listener);
+    }
+
+    @Test
+    void shouldReleaseBudgetAndSettleWhenFlowCannotBeStarted() throws IOException {
+        // Given
+        InFlightBudget budget = new InFlightBudget(1, 0, mock(InFlightBudget.Listener.class), ConsumerMetrics.NOOP);
+        ConsumerErrorHandler errorHandler = new ConsumerErrorHandler(channel, ConsumerErrorPolicy.DEAD_LETTER, 0, 0, null);
+        callback = new ConsumerDeliverCallbackExplicitAck(listener, decoder, null, channel, errorHandler, aggregator, null, budget, ConsumerMetrics.NOOP);
+        Delivery delivery = delivery(1);
+        when(decoder.decode(delivery)).thenReturn(message);
+        doThrow(new IllegalStateException("flow not found")).when(listener).onEvent(any(Message.class), any(OnResult.class));
+
+        // When
+        callback.handle("consumer", delivery);
+
+        // Then
+        assertFalse(budget.isPaused());
+        verify(channel).basicNack(1, false, false);
+    }
+
+    private static Delivery chunk(long deliveryTag, long index, boolean last) {
+        Envelope envelope = new Envelope(deliveryTag, false, "", "queue");
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+                .headers(ChunkHeaders.of("chunked", index, last))
+                .build();
+        return new Delivery(envelope, properties, new byte[]{1});
+    }
+
+    private static Delivery delivery(long deliveryTag) {
+        Envelope envelope = new Envelope(deliveryTag, false, "", "queue");
+        return new Delivery(envelope, new AMQP.BasicProperties(), new byte[]{1});
+    }
+}
@@ -0,0 +1,144 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
+import de.codecentric.reedelk.rabbitmq.component.ConsumerErrorPolicy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConsumerErrorHandlerTest {
+
+    @Mock
+    private Channel channel;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(channel.isOpen()).thenReturn(true);
+    }
+
+    @Test
+    void shouldRequeueFirstDelivery() throws IOException {
+        // Given
+        ConsumerErrorHandler handler = handler(ConsumerErrorPolicy.REQUEUE, 1);
+
+        // When
+        handler.handle(delivery(false, null), () -> {});
+
+        // Then
+        verify(channel).basicNack(1, false, true);
+    }
+
+    @Test
+    void shouldDeadLetterRedeliveredMessageOfClassicQueue() throws IOException {
+        // Given
+        ConsumerErrorHandler handler = handler(ConsumerErrorPolicy.REQUEUE, 5);
+
+        // When
+        handler.handle(delivery(true, null), () -> {});
+
+        // Then
+        verify(channel).basicNack(1, false, false);
+    }
+
+    @Test
+    void shouldRequeueQuorumQueueMessageBelowMaxRedeliveries() throws IOException {
+        // Given
+        ConsumerErrorHandler handler = handler(ConsumerErrorPolicy.REQUEUE, 3);
+
+        // When
+        handler.handle(delivery(true, Collections.singletonMap("x-delivery-count", 2)), () -> {});
+
+        // Then
+        verify(channel).basicNack(1, false, true);
+    }
+
+    @Test
+    void shouldDeadLetterQuorumQueueMessageReachingMaxRedeliveries() throws IOException {
+        // Given
+        ConsumerErrorHandler handler = handler(ConsumerErrorPolicy.REQUEUE, 3);
+
+        // When
+        handler.handle(delivery(true, Collections.singletonMap("x-delivery-count", 3)), () -> {});
+
+        // Then
+        verify(channel).basicNack(1, false, false);
+    }
+
+    @Test
+    void shouldRequeueWithoutLimitWhenMaxRedeliveriesIsZero() throws IOException {
+        // Given
+        ConsumerErrorHandler handler = handler(ConsumerErrorPolicy.REQUEUE, 0);
+
+        // When
+        handler.handle(delivery(true, Collections.singletonMap("x-delivery-count", 100)), () -> {});
+
+        // Then
+        verify(channel).basicNack(1, false, true);
+    }
+
+    @Test
+    void shouldRunSettledCallbackAfterNack() throws IOException {
+        // Given
+        ConsumerErrorHandler handler = handler(ConsumerErrorPolicy.DEAD_LETTER, 0);
+        AtomicBoolean settled = new AtomicBoolean();
+
+        // When
+        handler.handle(delivery(false, null), () -> settled.set(true));
+
+        // Then
+        verify(channel).basicNack(1, false, false);
+        assertTrue(settled.get());
+    }
+
+    @Test
+    void shouldCountRedeliveriesFromDeathHeader() {
+        // Given
+        Map<String, Object> death = Collections.singletonMap("count", 4L);
+        Delivery delivery = delivery(true, Collections.singletonMap("x-death", Collections.singletonList(death)));
+
+        // When
+        long redeliveries = ConsumerErrorHandler.redeliveries(delivery);
+
+        // Then
+        assertEquals(4, redeliveries);
+    }
+
+    @Test
+    void shouldDeadLetterRedeliveredMessageWithoutProperties() throws IOException {
+        // Given
+        ConsumerErrorHandler handler = handler(ConsumerErrorPolicy.REQUEUE, 5);
+        Delivery delivery = new Delivery(new Envelope(1, true, "", "queue"), null, new byte[]{1});
+
+        // When
+        handler.handle(delivery, () -> {});
+
+        // Then
+        verify(channel).basicNack(1, false, false);
+        assertEquals(1, ConsumerErrorHandler.redeliveries(delivery));
+    }
+
+    private ConsumerErrorHandler handler(ConsumerErrorPolicy policy, int maxRedeliveries) {
+        return new ConsumerErrorHandler(channel, policy, 0, maxRedeliveries, null);
+    }
+
+    private static Delivery delivery(boolean redeliver, Map<String, Object> headers) {
+        Envelope envelope = new Envelope(1, redeliver, "", "queue");
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder().headers(headers).build();
+        return new Delivery(envelope, properties, new byte[]{1});
+    }
+}
@@ -0,0 +1,32 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CorrelationIdGeneratorTest {
+
+    @Test
+    void shouldGenerateRandomVersion4Uuid() {
+        // When
+        UUID uuid = UUID.fromString(CorrelationIdGenerator.next());
+
+        // Then
+        assertEquals(4, uuid.version());
+        assertEquals(2, uuid.variant());
+    }
+
+    @Test
+    void shouldGenerateUniqueIds() {
+        // When
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 10000; i++) ids.add(CorrelationIdGenerator.next());
+
+        // Then
+        assertEquals(10000, ids.size());
+    }
+}
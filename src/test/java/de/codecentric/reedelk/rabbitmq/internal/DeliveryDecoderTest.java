@@ -0,0 +1,161 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
+import de.codecentric.reedelk.rabbitmq.internal.codec.DeflateCodec;
+import de.codecentric.reedelk.rabbitmq.internal.codec.GzipCodec;
+import de.codecentric.reedelk.rabbitmq.internal.exception.RabbitMQConsumerException;
+import de.codecentric.reedelk.runtime.api.message.Message;
+import de.codecentric.reedelk.runtime.api.message.content.MimeType;
+import de.codecentric.reedelk.runtime.api.message.content.TypedContent;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeliveryDecoderTest {
+
+    private static final String TEXT = "Gr\u00fc\u00dfe";
+
+    @Test
+    void shouldDecodeTextWithCharsetOfContentType() {
+        // Given
+        DeliveryDecoder decoder = new DeliveryDecoder(MimeType.TEXT_PLAIN, StandardCharsets.UTF_8, true);
+        Delivery delivery = delivery(TEXT.getBytes(StandardCharsets.ISO_8859_1), "text/plain; charset=ISO-8859-1");
+
+        // When
+        Message message = decoder.decode(delivery);
+
+        // Then
+        assertEquals(TEXT, message.payload());
+    }
+
+    @Test
+    void shouldDecodeTextWithDefaultCharset() {
+        // Given
+        DeliveryDecoder decoder = new DeliveryDecoder(MimeType.TEXT_PLAIN, StandardCharsets.UTF_8, true);
+        Delivery delivery = delivery(TEXT.getBytes(StandardCharsets.UTF_8), null);
+
+        // When
+        Message message = decoder.decode(delivery);
+
+        // Then
+        assertEquals(TEXT, message.payload());
+    }
+
+    @Test
+    void shouldKeepCharsetOfLazilyDecodedText() {
+        // Given
+        DeliveryDecoder decoder = new DeliveryDecoder(MimeType.TEXT_PLAIN, StandardCharsets.UTF_8, false);
+        Delivery delivery = delivery(TEXT.getBytes(StandardCharsets.ISO_8859_1), "text/plain; charset=ISO-8859-1");
+
+        // When
+        Message message = decoder.decode(delivery);
+
+        // Then
+        TypedContent<?, ?> content = message.content();
+        assertTrue(content.isStream());
+        assertEquals(Arrays.asList(TEXT), consume(content.stream()));
+    }
+
+    @Test
+    void shouldDecodeTextOfBatch() {
+        // Given
+        DeliveryDecoder decoder = new DeliveryDecoder(MimeType.TEXT_PLAIN, StandardCharsets.UTF_8, false);
+        Delivery first = delivery(TEXT.getBytes(StandardCharsets.ISO_8859_1), "text/plain; charset=ISO-8859-1");
+        Delivery second = delivery("second".getBytes(StandardCharsets.UTF_8), null);
+
+        // When
+        Message message = decoder.decode(Arrays.asList(first, second));
+
+        // Then
+        assertEquals(Arrays.asList(TEXT, "second"), message.payload());
+    }
+
+    @Test
+    void shouldDecompressContent() {
+        // Given
+        DeliveryDecoder decoder = new DeliveryDecoder(MimeType.TEXT_PLAIN, StandardCharsets.UTF_8, true);
+        byte[] compressed = new GzipCodec().compress(TEXT.getBytes(StandardCharsets.UTF_8));
+        Delivery delivery = delivery(compressed, "text/plain", "gzip");
+
+        // When
+        Message message = decoder.decode(delivery);
+
+        // Then
+        assertEquals(TEXT, message.payload());
+    }
+
+    @Test
+    void shouldFailWhenContentCannotBeDecompressed() {
+        // Given
+        DeliveryDecoder decoder = new DeliveryDecoder(MimeType.TEXT_PLAIN, StandardCharsets.UTF_8, true);
+        Delivery delivery = delivery("not compressed".getBytes(StandardCharsets.UTF_8), "text/plain", "gzip");
+
+        // When
+        RabbitMQConsumerException exception = assertThrows(RabbitMQConsumerException.class, () -> decoder.decode(delivery));
+
+        // Then
+        assertTrue(exception.getMessage().contains("codec=[gzip]"));
+    }
+
+    @Test
+    void shouldFailWhenDecompressedContentExceedsMaxSize() {
+        // Given
+        DeliveryDecoder decoder = new DeliveryDecoder(DeliveryDecoderTest.class, MimeType.APPLICATION_BINARY, StandardCharsets.UTF_8, true, 1024);
+        byte[] compressed = new DeflateCodec().compress(new byte[1025]);
+        Delivery delivery = delivery(compressed, null, "deflate");
+
+        // When
+        RabbitMQConsumerException exception = assertThrows(RabbitMQConsumerException.class, () -> decoder.decode(delivery));
+
+        // Then
+        assertTrue(exception.getMessage().contains("maximum size of 1024 bytes"));
+    }
+
+    private static List<Object> consume(Publisher<?> publisher) {
+        List<Object> items = new ArrayList<>();
+        publisher.subscribe(new Subscriber<Object>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Object item) {
+                items.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                fail(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        return items;
+    }
+
+    private static Delivery delivery(byte[] body, String contentType) {
+        return delivery(body, contentType, null);
+    }
+
+    private static Delivery delivery(byte[] body, String contentType, String contentEncoding) {
+        Envelope envelope = new Envelope(1, false, "", "queue");
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+                .contentType(contentType)
+                .contentEncoding(contentEncoding)
+                .build();
+        return new Delivery(envelope, properties, body);
+    }
+}
@@ -0,0 +1,151 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.*;
+import de.codecentric.reedelk.rabbitmq.internal.exception.RabbitMQRequestReplyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DirectReplyChannelTest {
+
+    @Mock
+    private Connection connection;
+    @Mock
+    private Channel channel;
+
+    private DirectReplyChannel replyChannel;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(connection.createChannel()).thenReturn(channel);
+        replyChannel = DirectReplyChannel.acquire(connection);
+    }
+
+    @AfterEach
+    void tearDown() {
+        replyChannel.release();
+    }
+
+    @Test
+    void shouldPublishMandatoryRequestWithDirectReplyTo() throws IOException {
+        // Given
+        when(channel.isOpen()).thenReturn(true);
+
+        // When
+        replyChannel.request("", "requests", properties("id1"), new byte[0]);
+
+        // Then
+        ArgumentCaptor<AMQP.BasicProperties> properties = ArgumentCaptor.forClass(AMQP.BasicProperties.class);
+        verify(channel).basicPublish(eq(""), eq("requests"), eq(true), properties.capture(), any(byte[].class));
+        assertEquals(DirectReplyChannel.REPLY_TO, properties.getValue().getReplyTo());
+        assertEquals("text/plain", properties.getValue().getContentType());
+    }
+
+    @Test
+    void shouldCompleteRequestWithReply() throws Exception {
+        // Given
+        when(channel.isOpen()).thenReturn(true);
+        CompletableFuture<Delivery> reply = replyChannel.request("", "requests", properties("id1"), new byte[0]);
+        Delivery delivery = new Delivery(new Envelope(1, false, "", DirectReplyChannel.REPLY_TO), properties("id1"), new byte[0]);
+
+        // When
+        deliverCallback().handle("consumer", delivery);
+
+        // Then
+        assertSame(delivery, reply.get());
+        assertEquals(0, replyChannel.pendingCount());
+    }
+
+    @Test
+    void shouldFailRequestReturnedByTheBroker() throws IOException {
+        // Given
+        when(channel.isOpen()).thenReturn(true);
+        CompletableFuture<Delivery> reply = replyChannel.request("", "missing", properties("id1"), new byte[0]);
+
+        // When
+        returnCallback().handle(new Return(312, "NO_ROUTE", "", "missing", properties("id1"), new byte[0]));
+
+        // Then
+        ExecutionException exception = assertThrows(ExecutionException.class, reply::get);
+        assertTrue(exception.getCause() instanceof RabbitMQRequestReplyException);
+        assertTrue(exception.getCause().getMessage().contains("NO_ROUTE"));
+        assertEquals(0, replyChannel.pendingCount());
+    }
+
+    @Test
+    void shouldOpenNewChannelWhenClosedAndFailOnlyItsPendingRequests() throws IOException {
+        // Given
+        when(channel.isOpen()).thenReturn(true);
+        CompletableFuture<Delivery> first = replyChannel.request("", "requests", properties("id1"), new byte[0]);
+        ShutdownListener shutdownListener = shutdownListener(channel);
+
+        Channel newChannel = mock(Channel.class);
+        when(channel.isOpen()).thenReturn(false);
+        when(connection.createChannel()).thenReturn(newChannel);
+
+        // When
+        CompletableFuture<Delivery> second = replyChannel.request("", "requests", properties("id2"), new byte[0]);
+        shutdownListener.shutdownCompleted(new ShutdownSignalException(false, false, null, channel));
+
+        // Then
+        verify(newChannel).basicPublish(eq(""), eq("requests"), eq(true), any(AMQP.BasicProperties.class), any(byte[].class));
+        assertTrue(first.isCompletedExceptionally());
+        assertFalse(second.isDone());
+        assertEquals(1, replyChannel.pendingCount());
+    }
+
+    @Test
+    void shouldNotRegisterRequestWhenPublishFails() throws IOException {
+        // Given
+        when(channel.isOpen()).thenReturn(true);
+        doThrow(new IOException("channel error")).when(channel)
+                .basicPublish(anyString(), anyString(), anyBoolean(), any(AMQP.BasicProperties.class), any(byte[].class));
+
+        // When
+        assertThrows(IOException.class, () -> replyChannel.request("", "requests", properties("id1"), new byte[0]));
+
+        // Then
+        assertEquals(0, replyChannel.pendingCount());
+    }
+
+    private DeliverCallback deliverCallback() throws IOException {
+        ArgumentCaptor<DeliverCallback> callback = ArgumentCaptor.forClass(DeliverCallback.class);
+        verify(channel).basicConsume(eq(DirectReplyChannel.REPLY_TO), eq(true), callback.capture(), any(CancelCallback.class));
+        return callback.getValue();
+    }
+
+    private ReturnCallback returnCallback() {
+        ArgumentCaptor<ReturnCallback> callback = ArgumentCaptor.forClass(ReturnCallback.class);
+        verify(channel).addReturnListener(callback.capture());
+        return callback.getValue();
+    }
+
+    private static ShutdownListener shutdownListener(Channel channel) {
+        ArgumentCaptor<ShutdownListener> listener = ArgumentCaptor.forClass(ShutdownListener.class);
+        verify(channel).addShutdownListener(listener.capture());
+        return listener.getValue();
+    }
+
+    private static AMQP.BasicProperties properties(String correlationId) {
+        return new AMQP.BasicProperties.Builder()
+                .contentType("text/plain")
+                .correlationId(correlationId)
+                .build();
+    }
+}
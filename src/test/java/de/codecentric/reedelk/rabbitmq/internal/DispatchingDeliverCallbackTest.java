@@ -0,0 +1,138 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DeliverCallback;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ConsumerMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DispatchingDeliverCallbackTest {
+
+    private static final Executor REJECTING = command -> {
+        throw new RejectedExecutionException("shut down");
+    };
+
+    @Mock
+    private Channel channel;
+    @Mock
+    private DeliverCallback delegate;
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    @Test
+    void shouldDispatchDeliveryToExecutor() throws IOException {
+        // Given
+        DispatchingDeliverCallback callback = new DispatchingDeliverCallback(delegate, Runnable::run, false, channel, null);
+        Delivery delivery = delivery(1);
+
+        // When
+        callback.handle("consumerTag", delivery);
+
+        // Then
+        verify(delegate).handle("consumerTag", delivery);
+    }
+
+    @Test
+    void shouldRequeueDeliveryRejectedByExecutor() throws IOException {
+        // Given
+        doReturn(true).when(channel).isOpen();
+        DispatchingDeliverCallback callback = new DispatchingDeliverCallback(delegate, REJECTING, false, channel, null);
+
+        // When
+        callback.handle("consumerTag", delivery(7));
+
+        // Then
+        verify(channel).basicNack(7, false, true);
+        verify(delegate, never()).handle(any(), any());
+    }
+
+    @Test
+    void shouldRequeueOrderedDeliveryRejectedByExecutor() throws IOException {
+        // Given
+        doReturn(true).when(channel).isOpen();
+        DispatchingDeliverCallback callback = new DispatchingDeliverCallback(delegate, REJECTING, true, channel, null);
+
+        // When
+        callback.handle("consumerTag", delivery(7));
+
+        // Then
+        verify(channel).basicNack(7, false, true);
+    }
+
+    @Test
+    void shouldNotNackRejectedDeliveryWhenChannelIsClosed() throws IOException {
+        // Given
+        doReturn(false).when(channel).isOpen();
+        DispatchingDeliverCallback callback = new DispatchingDeliverCallback(delegate, REJECTING, false, channel, null);
+
+        // When
+        callback.handle("consumerTag", delivery(7));
+
+        // Then
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    void shouldNotAckDeliveryWhoseFlowHasNotStartedWhenDispatchedOutOfOrder() throws IOException {
+        // Given
+        doReturn(true).when(channel).isOpen();
+        AckAggregator aggregator = new AckAggregator(channel, 1, 1000, scheduler, ConsumerMetrics.NOOP);
+        Deque<Runnable> tasks = new ArrayDeque<>();
+        DeliverCallback completing = (consumerTag, delivery) ->
+                aggregator.completed(delivery.getEnvelope().getDeliveryTag());
+        DispatchingDeliverCallback callback = new DispatchingDeliverCallback(completing, tasks::add, false, channel, aggregator);
+        callback.handle("consumerTag", delivery(1));
+        callback.handle("consumerTag", delivery(2));
+
+        // When
+        tasks.pollLast().run();
+
+        // Then
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+        // When
+        tasks.pollLast().run();
+
+        // Then
+        verify(channel).basicAck(2, true);
+    }
+
+    @Test
+    void shouldSettleRejectedDeliveryWithAggregator() throws IOException {
+        // Given
+        doReturn(true).when(channel).isOpen();
+        AckAggregator aggregator = new AckAggregator(channel, 1, 1000, scheduler, ConsumerMetrics.NOOP);
+        DispatchingDeliverCallback callback = new DispatchingDeliverCallback(delegate, REJECTING, false, channel, aggregator);
+        callback.handle("consumerTag", delivery(1));
+
+        // When
+        aggregator.delivered(2);
+        aggregator.completed(2);
+
+        // Then
+        verify(channel).basicNack(1, false, true);
+        verify(channel).basicAck(2, true);
+    }
+
+    private static Delivery delivery(long deliveryTag) {
+        return new Delivery(new Envelope(deliveryTag, false, "", "queue"), new AMQP.BasicProperties(), new byte[0]);
+    }
+}
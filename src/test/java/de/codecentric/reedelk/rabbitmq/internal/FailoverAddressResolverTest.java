@@ -0,0 +1,66 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.Address;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FailoverAddressResolverTest {
+
+    private static final Address NODE1 = new Address("node1", 5672);
+    private static final Address NODE2 = new Address("node2", 5672);
+    private static final Address NODE3 = new Address("node3", 5672);
+    private static final List<Address> ADDRESSES = Arrays.asList(NODE1, NODE2, NODE3);
+
+    @Test
+    void shouldResolveStartAddressFirst() {
+        // Given
+        FailoverAddressResolver resolver = new FailoverAddressResolver(ADDRESSES, 1);
+
+        // When
+        List<Address> resolved = resolver.getAddresses();
+
+        // Then
+        assertEquals(Collections.singletonList(NODE2), resolved);
+    }
+
+    @Test
+    void shouldFailOverToNextAddressAndWrapAround() {
+        // Given
+        FailoverAddressResolver resolver = new FailoverAddressResolver(ADDRESSES, 2);
+
+        // When
+        List<Address> first = resolver.getAddresses();
+        List<Address> second = resolver.getAddresses();
+        List<Address> third = resolver.getAddresses();
+
+        // Then
+        assertEquals(Collections.singletonList(NODE3), first);
+        assertEquals(Collections.singletonList(NODE1), second);
+        assertEquals(Collections.singletonList(NODE2), third);
+    }
+
+    @Test
+    void shouldWrapStartOutsideOfAddresses() {
+        // Given
+        FailoverAddressResolver overflow = new FailoverAddressResolver(ADDRESSES, 4);
+        FailoverAddressResolver negative = new FailoverAddressResolver(ADDRESSES, -1);
+
+        // Expect
+        assertEquals(Collections.singletonList(NODE2), overflow.getAddresses());
+        assertEquals(Collections.singletonList(NODE3), negative.getAddresses());
+    }
+
+    @Test
+    void shouldReturnNumberOfAddresses() {
+        // Given
+        FailoverAddressResolver resolver = new FailoverAddressResolver(ADDRESSES, 0);
+
+        // Expect
+        assertEquals(3, resolver.size());
+    }
+}
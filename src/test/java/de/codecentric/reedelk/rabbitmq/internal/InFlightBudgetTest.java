@@ -0,0 +1,94 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ConsumerMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InFlightBudgetTest {
+
+    @Mock
+    private InFlightBudget.Listener listener;
+
+    @Test
+    void shouldPauseWhenMaxMessagesIsReached() {
+        // Given
+        InFlightBudget budget = new InFlightBudget(2, 0, listener, ConsumerMetrics.NOOP);
+        budget.acquire(10);
+
+        // When
+        budget.acquire(10);
+
+        // Then
+        verify(listener).pause();
+        assertTrue(budget.isPaused());
+    }
+
+    @Test
+    void shouldPauseWhenMaxBytesIsReached() {
+        // Given
+        InFlightBudget budget = new InFlightBudget(0, 100, listener, ConsumerMetrics.NOOP);
+
+        // When
+        budget.acquire(100);
+
+        // Then
+        verify(listener).pause();
+    }
+
+    @Test
+    void shouldResumeOnlyBelowHalfOfTheLimits() {
+        // Given
+        InFlightBudget budget = new InFlightBudget(4, 0, listener, ConsumerMetrics.NOOP);
+        for (int i = 0; i < 4; i++) budget.acquire(1);
+
+        // When
+        budget.release(1);
+
+        // Then
+        verify(listener, never()).resume();
+
+        // When
+        budget.release(1);
+
+        // Then
+        verify(listener).resume();
+        assertFalse(budget.isPaused());
+    }
+
+    @Test
+    void shouldPauseOnlyOnceWhileExhausted() {
+        // Given
+        InFlightBudget budget = new InFlightBudget(1, 0, listener, ConsumerMetrics.NOOP);
+
+        // When
+        budget.acquire(1);
+        budget.acquire(1);
+        budget.acquire(1);
+
+        // Then
+        verify(listener, times(1)).pause();
+    }
+
+    @Test
+    void shouldRecordInFlightMetrics() {
+        // Given
+        ConsumerMetrics metrics = mock(ConsumerMetrics.class);
+        InFlightBudget budget = new InFlightBudget(1, 0, listener, metrics);
+
+        // When
+        budget.acquire(42);
+        budget.release(42);
+
+        // Then
+        verify(metrics).inFlight(1, 42);
+        verify(metrics).inFlight(-1, -42);
+        verify(metrics).paused(true);
+        verify(metrics).paused(false);
+    }
+}
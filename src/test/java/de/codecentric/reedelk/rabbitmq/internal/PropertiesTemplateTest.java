@@ -0,0 +1,108 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.AMQP;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PropertiesTemplateTest {
+
+    private static final AMQP.BasicProperties TEMPLATE = new AMQP.BasicProperties.Builder()
+            .contentType("application/json")
+            .contentEncoding("utf-8")
+            .headers(Collections.singletonMap("header", "value"))
+            .deliveryMode(2)
+            .priority(5)
+            .replyTo("replies")
+            .expiration("60000")
+            .messageId("message")
+            .timestamp(new Date(1600000000000L))
+            .type("order")
+            .userId("guest")
+            .appId("app")
+            .clusterId("cluster")
+            .build();
+
+    @Test
+    void shouldCreateSamePropertiesAsBuilder() {
+        // Given
+        PropertiesTemplate template = new PropertiesTemplate(TEMPLATE);
+
+        // When
+        AMQP.BasicProperties properties = template.create("correlation");
+
+        // Then
+        assertSameProperties(TEMPLATE.builder().correlationId("correlation").build(), properties);
+    }
+
+    @Test
+    void shouldCreateSamePropertiesAsBuilderWithHeaders() {
+        // Given
+        PropertiesTemplate template = new PropertiesTemplate(TEMPLATE);
+        Map<String, Object> headers = Collections.singletonMap("chunk", 1);
+
+        // When
+        AMQP.BasicProperties properties = template.create("correlation", headers);
+
+        // Then
+        assertSameProperties(TEMPLATE.builder().correlationId("correlation").headers(headers).build(), properties);
+    }
+
+    @Test
+    void shouldCreateSamePropertiesAsBuilderWithContentType() {
+        // Given
+        PropertiesTemplate template = new PropertiesTemplate(TEMPLATE);
+
+        // When
+        AMQP.BasicProperties properties = template.create("text/plain", "correlation");
+
+        // Then
+        assertSameProperties(TEMPLATE.builder().contentType("text/plain").correlationId("correlation").build(), properties);
+    }
+
+    @Test
+    void shouldCreateSamePropertiesAsBuilderWithContentEncoding() {
+        // Given
+        PropertiesTemplate template = new PropertiesTemplate(TEMPLATE).withContentEncoding("gzip");
+
+        // When
+        AMQP.BasicProperties properties = template.create("correlation");
+
+        // Then
+        assertSameProperties(TEMPLATE.builder().contentEncoding("gzip").correlationId("correlation").build(), properties);
+    }
+
+    @Test
+    void shouldCreateSamePropertiesAsBuilderFromEmptyTemplate() {
+        // Given
+        PropertiesTemplate template = new PropertiesTemplate(new AMQP.BasicProperties());
+
+        // When
+        AMQP.BasicProperties properties = template.create("correlation");
+
+        // Then
+        assertSameProperties(new AMQP.BasicProperties.Builder().correlationId("correlation").build(), properties);
+    }
+
+    private static void assertSameProperties(AMQP.BasicProperties expected, AMQP.BasicProperties actual) {
+        assertEquals(expected.getContentType(), actual.getContentType());
+        assertEquals(expected.getContentEncoding(), actual.getContentEncoding());
+        assertEquals(expected.getHeaders(), actual.getHeaders());
+        assertEquals(expected.getDeliveryMode(), actual.getDeliveryMode());
+        assertEquals(expected.getPriority(), actual.getPriority());
+        assertEquals(expected.getCorrelationId(), actual.getCorrelationId());
+        assertEquals(expected.getReplyTo(), actual.getReplyTo());
+        assertEquals(expected.getExpiration(), actual.getExpiration());
+        assertEquals(expected.getMessageId(), actual.getMessageId());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getUserId(), actual.getUserId());
+        assertEquals(expected.getAppId(), actual.getAppId());
+        assertEquals(expected.getClusterId(), actual.getClusterId());
+        assertEquals(expected.toString(), actual.toString());
+    }
+}
@@ -0,0 +1,187 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.AMQP;
+import de.codecentric.reedelk.rabbitmq.internal.PublishBuffer.BufferedMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PublishBufferTest {
+
+    @Mock
+    private ScheduledExecutorService executor;
+
+    private boolean blocked;
+    private Function<List<BufferedMessage>, Integer> outcome;
+    private final List<List<String>> published = new ArrayList<>();
+    private PublishBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        blocked = true;
+        outcome = List::size;
+        // Drains run on the calling thread.
+        lenient().doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(executor).execute(any(Runnable.class));
+        buffer = new PublishBuffer(3, 2, 500, () -> blocked, messages -> {
+            published.add(messages.stream().map(message -> message.routingKey).collect(toList()));
+            return outcome.apply(messages);
+        }, executor);
+    }
+
+    @Test
+    void shouldNotPublishWhileBlocked() {
+        // When
+        assertTrue(offer("q1"));
+
+        // Then
+        assertTrue(published.isEmpty());
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    void shouldPublishInOrderAndInBatchesWhenDrained() {
+        // Given
+        offer("q1");
+        offer("q2");
+        offer("q3");
+        blocked = false;
+
+        // When
+        buffer.drain();
+
+        // Then
+        assertEquals(asList(asList("q1", "q2"), asList("q3")), published);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void shouldPublishMessageOfferedWhileNotBlocked() {
+        // Given
+        blocked = false;
+
+        // When
+        offer("q1");
+
+        // Then
+        assertEquals(asList(asList("q1")), published);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void shouldPublishMessageOfferedWhileDraining() {
+        // Given
+        offer("q1");
+        blocked = false;
+        outcome = messages -> {
+            // A flow buffers a message while the last one is being published.
+            if (published.size() == 1) offer("q2");
+            return messages.size();
+        };
+
+        // When
+        buffer.drain();
+
+        // Then
+        assertEquals(asList(asList("q1"), asList("q2")), published);
+        assertTrue(buffer.isEmpty());
+        verify(executor, times(1)).execute(any(Runnable.class));
+    }
+
+    @Test
+    void shouldKeepMessagesNotPublishedAndRetryThem() {
+        // Given
+        offer("q1");
+        offer("q2");
+        blocked = false;
+        outcome = messages -> 1;
+
+        // When
+        buffer.drain();
+
+        // Then
+        assertEquals(1, buffer.size());
+        ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).schedule(retry.capture(), eq(500L), eq(MILLISECONDS));
+
+        // When
+        outcome = List::size;
+        retry.getValue().run();
+
+        // Then
+        assertEquals(asList(asList("q1", "q2"), asList("q2")), published);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void shouldNotStartAnotherDrainWhileRetryIsPending() {
+        // Given
+        offer("q1");
+        blocked = false;
+        outcome = messages -> 0;
+        buffer.drain();
+
+        // When
+        offer("q2");
+
+        // Then
+        assertEquals(1, published.size());
+        assertEquals(2, buffer.size());
+        verify(executor, times(1)).execute(any(Runnable.class));
+    }
+
+    @Test
+    void shouldKeepMessagesWhenPublisherThrows() {
+        // Given
+        offer("q1");
+        blocked = false;
+        outcome = messages -> {
+            throw new IllegalStateException("channel closed");
+        };
+
+        // When
+        buffer.drain();
+
+        // Then
+        assertEquals(1, buffer.size());
+        verify(executor).schedule(any(Runnable.class), eq(500L), eq(MILLISECONDS));
+    }
+
+    @Test
+    void shouldRejectMessagesWhenFull() {
+        // Given
+        offer("q1");
+        offer("q2");
+        offer("q3");
+
+        // When
+        boolean offered = offer("q4");
+
+        // Then
+        assertFalse(offered);
+        assertEquals(3, buffer.size());
+    }
+
+    private boolean offer(String routingKey) {
+        return buffer.offer(null, "", routingKey, new AMQP.BasicProperties(), new byte[0]);
+    }
+}
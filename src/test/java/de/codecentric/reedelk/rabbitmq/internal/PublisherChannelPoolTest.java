@@ -0,0 +1,93 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.Channel;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ProducerMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class PublisherChannelPoolTest {
+
+    @Test
+    void shouldCheckoutSameChannelForSameOrderingKey() {
+        // Given
+        PublisherChannelPool pool = new PublisherChannelPool(channels(4));
+
+        // When
+        PublisherChannel first = pool.checkout("my-queue");
+        pool.checkin(first);
+        PublisherChannel second = pool.checkout("my-queue");
+        pool.checkin(second);
+
+        // Then
+        assertSame(first, second);
+    }
+
+    @Test
+    void shouldCheckoutFreeChannelWhenOthersAreBusy() {
+        // Given
+        PublisherChannelPool pool = new PublisherChannelPool(channels(2));
+        PublisherChannel busy = pool.checkout(null);
+
+        // When
+        PublisherChannel free = pool.checkout(null);
+
+        // Then
+        assertNotSame(busy, free);
+        pool.checkin(free);
+        pool.checkin(busy);
+    }
+
+    @Test
+    void shouldShareConfirmWindowAcrossChannels() throws InterruptedException {
+        // Given
+        Semaphore window = new Semaphore(2);
+        PublisherChannelPool pool = new PublisherChannelPool(channels(2), window);
+
+        // When
+        boolean acquired = pool.tryAcquireConfirmSlots(2, 0, MILLISECONDS);
+
+        // Then
+        assertTrue(acquired);
+        assertFalse(pool.tryAcquireConfirmSlots(1, 0, MILLISECONDS));
+    }
+
+    @Test
+    void shouldGiveBackUnusedConfirmSlots() throws InterruptedException {
+        // Given
+        PublisherChannelPool pool = new PublisherChannelPool(channels(1), new Semaphore(2));
+        assertTrue(pool.tryAcquireConfirmSlots(2, 0, MILLISECONDS));
+
+        // When
+        pool.releaseConfirmSlots(2);
+
+        // Then
+        assertTrue(pool.tryAcquireConfirmSlots(2, 0, MILLISECONDS));
+    }
+
+    @Test
+    void shouldAlwaysAcquireConfirmSlotsWhenNotInConfirmMode() throws InterruptedException {
+        // Given
+        PublisherChannelPool pool = new PublisherChannelPool(channels(1));
+
+        // When
+        boolean acquired = pool.tryAcquireConfirmSlots(Integer.MAX_VALUE, 0, MILLISECONDS);
+
+        // Then
+        assertTrue(acquired);
+    }
+
+    private static List<PublisherChannel> channels(int size) {
+        List<PublisherChannel> channels = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            channels.add(new PublisherChannel(mock(Channel.class), null, ProducerMetrics.NOOP));
+        }
+        return channels;
+    }
+}
@@ -0,0 +1,89 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.AlreadyClosedException;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ShutdownSignalException;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ProducerMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PublisherChannelTest {
+
+    @Mock
+    private Channel channel;
+
+    private Semaphore window;
+    private PublisherConfirmTracker tracker;
+    private PublisherChannel publisherChannel;
+
+    @BeforeEach
+    void setUp() {
+        window = new Semaphore(1);
+        tracker = new PublisherConfirmTracker(window, ProducerMetrics.NOOP);
+        publisherChannel = new PublisherChannel(channel, tracker, ProducerMetrics.NOOP);
+    }
+
+    @Test
+    void shouldGiveBackSlotWhenPublishFailsWithIOException() throws Exception {
+        // Given
+        when(channel.getNextPublishSeqNo()).thenReturn(1L);
+        doThrow(new IOException("error")).when(channel)
+                .basicPublish(anyString(), anyString(), any(AMQP.BasicProperties.class), any(byte[].class));
+        assertTrue(window.tryAcquire(0, MILLISECONDS));
+
+        // When
+        assertThrows(IOException.class, this::publish);
+
+        // Then
+        assertEquals(0, tracker.outstandingCount());
+        assertTrue(window.tryAcquire(0, MILLISECONDS));
+    }
+
+    @Test
+    void shouldGiveBackSlotWhenPublishFailsWithUncheckedException() throws Exception {
+        // Given
+        when(channel.getNextPublishSeqNo()).thenReturn(1L);
+        doThrow(new AlreadyClosedException(new ShutdownSignalException(false, false, null, null))).when(channel)
+                .basicPublish(anyString(), anyString(), any(AMQP.BasicProperties.class), any(byte[].class));
+        assertTrue(window.tryAcquire(0, MILLISECONDS));
+
+        // When
+        assertThrows(AlreadyClosedException.class, this::publish);
+
+        // Then
+        assertEquals(0, tracker.outstandingCount());
+        assertTrue(window.tryAcquire(0, MILLISECONDS));
+    }
+
+    @Test
+    void shouldGiveBackSlotWhenSequenceNumberCannotBeRead() throws Exception {
+        // Given
+        when(channel.getNextPublishSeqNo()).thenThrow(new IllegalStateException("closed"));
+        assertTrue(window.tryAcquire(0, MILLISECONDS));
+
+        // When
+        assertThrows(IllegalStateException.class, this::publish);
+
+        // Then
+        assertTrue(window.tryAcquire(0, MILLISECONDS));
+    }
+
+    private void publish() throws IOException {
+        publisherChannel.publish("", "queue", new AMQP.BasicProperties(), new byte[]{1});
+    }
+}
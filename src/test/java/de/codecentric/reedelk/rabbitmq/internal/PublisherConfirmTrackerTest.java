@@ -0,0 +1,138 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import de.codecentric.reedelk.rabbitmq.internal.PublisherConfirmTracker.PendingConfirm;
+import de.codecentric.reedelk.rabbitmq.internal.metrics.ProducerMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublisherConfirmTrackerTest {
+
+    private Semaphore window;
+    private PublisherConfirmTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        window = new Semaphore(2);
+        tracker = new PublisherConfirmTracker(window, ProducerMetrics.NOOP);
+    }
+
+    @Test
+    void shouldCompleteConfirmWithAck() throws Exception {
+        // Given
+        assertTrue(window.tryAcquire(0, MILLISECONDS));
+        PendingConfirm pending = tracker.track(1);
+
+        // When
+        tracker.handleAck(1, false);
+
+        // Then
+        assertTrue(pending.await(0, MILLISECONDS));
+        assertEquals(0, tracker.outstandingCount());
+    }
+
+    @Test
+    void shouldCompleteConfirmWithNack() throws Exception {
+        // Given
+        assertTrue(window.tryAcquire(0, MILLISECONDS));
+        PendingConfirm pending = tracker.track(1);
+
+        // When
+        tracker.handleNack(1, false);
+
+        // Then
+        assertFalse(pending.await(0, MILLISECONDS));
+    }
+
+    @Test
+    void shouldSettleAllConfirmsUpToTagWhenMultiple() throws Exception {
+        // Given
+        window = new Semaphore(3);
+        tracker = new PublisherConfirmTracker(window, ProducerMetrics.NOOP);
+        PendingConfirm first = acquireAndTrack(1);
+        PendingConfirm second = acquireAndTrack(2);
+        PendingConfirm third = acquireAndTrack(3);
+
+        // When
+        tracker.handleAck(2, true);
+
+        // Then
+        assertTrue(first.await(0, MILLISECONDS));
+        assertTrue(second.await(0, MILLISECONDS));
+        assertThrows(TimeoutException.class, () -> third.await(0, MILLISECONDS));
+        assertEquals(1, tracker.outstandingCount());
+    }
+
+    @Test
+    void shouldBoundOutstandingConfirmsByWindowSize() throws Exception {
+        // Given
+        acquireAndTrack(1);
+        acquireAndTrack(2);
+
+        // Then
+        assertFalse(window.tryAcquire(0, MILLISECONDS));
+
+        // When
+        tracker.handleAck(1, false);
+
+        // Then
+        assertTrue(window.tryAcquire(0, MILLISECONDS));
+    }
+
+    @Test
+    void shouldGiveBackSlotWhenCancelled() throws Exception {
+        // Given
+        acquireAndTrack(1);
+        PendingConfirm second = acquireAndTrack(2);
+
+        // When
+        second.cancel();
+
+        // Then
+        assertTrue(window.tryAcquire(0, MILLISECONDS));
+        assertEquals(1, tracker.outstandingCount());
+    }
+
+    @Test
+    void shouldGiveBackSlotWhenReleasedWithoutTracking() throws Exception {
+        // Given
+        assertTrue(window.tryAcquire(0, MILLISECONDS));
+        assertTrue(window.tryAcquire(0, MILLISECONDS));
+
+        // When
+        tracker.release();
+
+        // Then
+        assertTrue(window.tryAcquire(0, MILLISECONDS));
+    }
+
+    @Test
+    void shouldFailAllOutstandingConfirms() throws Exception {
+        // Given
+        PendingConfirm first = acquireAndTrack(1);
+        PendingConfirm second = acquireAndTrack(2);
+        IOException cause = new IOException("channel closed");
+
+        // When
+        tracker.failAll(cause);
+
+        // Then
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> first.await(0, MILLISECONDS));
+        assertSame(cause, thrown.getCause());
+        assertThrows(ExecutionException.class, () -> second.await(0, MILLISECONDS));
+        assertTrue(window.tryAcquire(0, MILLISECONDS));
+        assertTrue(window.tryAcquire(0, MILLISECONDS));
+    }
+
+    private PendingConfirm acquireAndTrack(long sequenceNumber) throws InterruptedException {
+        assertTrue(window.tryAcquire(0, MILLISECONDS));
+        return tracker.track(sequenceNumber);
+    }
+}
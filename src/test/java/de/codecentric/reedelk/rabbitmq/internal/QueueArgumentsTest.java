@@ -0,0 +1,100 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import de.codecentric.reedelk.rabbitmq.component.QueueOverflow;
+import de.codecentric.reedelk.rabbitmq.component.QueueType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueueArgumentsTest {
+
+    @Test
+    void shouldRefuseRejectPublishDeadLetterOverflowOfQuorumQueue() {
+        // Given
+        QueueArguments arguments = new QueueArguments(QueueType.QUORUM);
+
+        // When
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> arguments.maxLength(100, 0, QueueOverflow.REJECT_PUBLISH_DLX));
+
+        // Then
+        assertTrue(exception.getMessage().contains("reject-publish-dlx"));
+    }
+
+    @Test
+    void shouldPassSupportedOverflowOfQuorumQueue() {
+        // When
+        Map<String, Object> arguments = new QueueArguments(QueueType.QUORUM)
+                .maxLength(100, 0, QueueOverflow.REJECT_PUBLISH)
+                .build();
+
+        // Then
+        assertEquals("quorum", arguments.get("x-queue-type"));
+        assertEquals(100, arguments.get("x-max-length"));
+        assertEquals("reject-publish", arguments.get("x-overflow"));
+    }
+
+    @Test
+    void shouldPassRejectPublishDeadLetterOverflowOfClassicQueue() {
+        // When
+        Map<String, Object> arguments = new QueueArguments(QueueType.CLASSIC)
+                .maxLength(0, 1024, QueueOverflow.REJECT_PUBLISH_DLX)
+                .build();
+
+        // Then
+        assertEquals(1024L, arguments.get("x-max-length-bytes"));
+        assertEquals("reject-publish-dlx", arguments.get("x-overflow"));
+    }
+
+    @Test
+    void shouldIgnoreOverflowWithoutMaxLength() {
+        // When
+        Map<String, Object> arguments = new QueueArguments(QueueType.QUORUM)
+                .maxLength(0, 0, QueueOverflow.REJECT_PUBLISH_DLX)
+                .build();
+
+        // Then
+        assertFalse(arguments.containsKey("x-overflow"));
+    }
+
+    @Test
+    void shouldLeaveOutArgumentsNotSupportedByStreamQueue() {
+        // When
+        Map<String, Object> arguments = new QueueArguments(QueueType.STREAM)
+                .lazy(true)
+                .maxLength(100, 1024, QueueOverflow.REJECT_PUBLISH_DLX)
+                .messageTtl(1000)
+                .maxPriority(10)
+                .deadLetter("dlx", "dead")
+                .build();
+
+        // Then
+        assertEquals(2, arguments.size());
+        assertEquals("stream", arguments.get("x-queue-type"));
+        assertEquals(1024L, arguments.get("x-max-length-bytes"));
+    }
+
+    @Test
+    void shouldLeaveOutClassicOnlyArgumentsOfQuorumQueue() {
+        // When
+        Map<String, Object> arguments = new QueueArguments(QueueType.QUORUM)
+                .lazy(true)
+                .maxPriority(10)
+                .build();
+
+        // Then
+        assertFalse(arguments.containsKey("x-queue-mode"));
+        assertFalse(arguments.containsKey("x-max-priority"));
+    }
+
+    @Test
+    void shouldReturnNullWithoutArguments() {
+        // When
+        Map<String, Object> arguments = new QueueArguments(QueueType.CLASSIC).build();
+
+        // Then
+        assertNull(arguments);
+    }
+}
@@ -0,0 +1,153 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.Address;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueueLeaderLocatorTest {
+
+    private static final List<Address> ADDRESSES = Arrays.asList(
+            new Address("127.0.0.1", 5672),
+            new Address("localhost", 5672));
+
+    private HttpServer server;
+    private final AtomicReference<String> leader = new AtomicReference<>();
+    private final AtomicReference<String> queue = new AtomicReference<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicReference<String> authorization = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/queues/", exchange -> {
+            requests.incrementAndGet();
+            authorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            String node = leader.get();
+            String json = queue.get() != null ? queue.get() :
+                    node == null ? "{\"error\":\"Object Not Found\"}" : "{\"leader\":\"" + node + "\"}";
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(json.contains("error") ? 404 : 200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void shouldFindAddressOfLeaderNode() {
+        // Given
+        leader.set("rabbit@localhost");
+
+        // When
+        int index = leaderIndex("found");
+
+        // Then
+        assertEquals(1, index);
+        assertEquals("Basic Z3Vlc3Q6c2VjcmV0", authorization.get());
+    }
+
+    @Test
+    void shouldLookUpLeaderAgainAfterFailedLookUp() {
+        // Given
+        assertEquals(-1, leaderIndex("declared-later"));
+
+        // When
+        leader.set("rabbit@localhost");
+        int index = leaderIndex("declared-later");
+
+        // Then
+        assertEquals(1, index);
+    }
+
+    @Test
+    void shouldCacheFoundLeader() {
+        // Given
+        leader.set("rabbit@localhost");
+        leaderIndex("cached");
+        int lookUps = requests.get();
+
+        // When
+        int index = leaderIndex("cached");
+
+        // Then
+        assertEquals(1, index);
+        assertEquals(lookUps, requests.get());
+    }
+
+    @Test
+    void shouldNotPlaceOnLeaderOutsideOfAddresses() {
+        // Given
+        leader.set("rabbit@node3");
+
+        // Expect
+        assertEquals(-1, leaderIndex("elsewhere"));
+    }
+
+    @Test
+    void shouldNotPlaceOnLeaderNestedInQueueArguments() {
+        // Given
+        queue.set("{\"arguments\":{\"leader\":\"rabbit@localhost\"},\"name\":\"\\\"leader\\\":\\\"rabbit@localhost\\\"\"}");
+
+        // Expect
+        assertEquals(-1, leaderIndex("nested"));
+    }
+
+    @Test
+    void shouldMatchLeaderOfQueueObjectOnly() throws IOException {
+        // Given
+        String body = "{\"arguments\":{\"x-queue-type\":\"quorum\",\"leader\":\"rabbit@node1\"}," +
+                "\"name\":\"\\\"leader\\\":\\\"rabbit@node2\\\"\",\"durable\":true," +
+                "\"members\":[\"rabbit@node1\",{\"leader\":\"rabbit@node2\"}],\"leader\":\"rabbit@node3\"}";
+
+        // Expect
+        assertEquals("rabbit@node3", QueueLeaderLocator.leaderNode(body));
+    }
+
+    @Test
+    void shouldMatchNodeOfClassicQueue() throws IOException {
+        // Given
+        String body = " { \"name\" : \"orders\" , \"consumers\" : 2, \"exclusive\": null, \"node\" : \"rabbit@node\\u0031\" } ";
+
+        // Expect
+        assertEquals("rabbit@node1", QueueLeaderLocator.leaderNode(body));
+    }
+
+    @Test
+    void shouldNotMatchNodeMissingFromQueueObject() throws IOException {
+        // Expect
+        assertNull(QueueLeaderLocator.leaderNode("{\"arguments\":{\"node\":\"rabbit@node1\"}}"));
+        assertNull(QueueLeaderLocator.leaderNode("{}"));
+    }
+
+    @Test
+    void shouldThrowWhenBodyIsNotJsonObject() {
+        // Expect
+        assertThrows(IOException.class, () -> QueueLeaderLocator.leaderNode("[\"leader\"]"));
+        assertThrows(IOException.class, () -> QueueLeaderLocator.leaderNode("{\"leader\":\"rabbit@node1"));
+        assertThrows(IOException.class, () -> QueueLeaderLocator.leaderNode("{\"leader\":\"\\uZZZZ\"}"));
+    }
+
+    private int leaderIndex(String queueName) {
+        return QueueLeaderLocator.leaderIndex(ADDRESSES, server.getAddress().getPort(), false,
+                "guest", "secret", "/", queueName + "-" + server.getAddress().getPort());
+    }
+}
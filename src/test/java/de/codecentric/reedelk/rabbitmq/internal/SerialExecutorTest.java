@@ -0,0 +1,139 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SerialExecutorTest {
+
+    private ManualExecutor executor;
+    private SerialExecutor serialExecutor;
+    private List<Integer> executed;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ManualExecutor();
+        serialExecutor = new SerialExecutor(executor);
+        executed = new ArrayList<>();
+    }
+
+    @Test
+    void shouldRunTasksOneAtATimeInSubmissionOrder() {
+        // Given
+        serialExecutor.execute(() -> executed.add(1));
+        serialExecutor.execute(() -> executed.add(2));
+        serialExecutor.execute(() -> executed.add(3));
+
+        // Then
+        assertEquals(1, executor.submitted());
+
+        // When
+        executor.runNext();
+
+        // Then
+        assertEquals(Arrays.asList(1, 2, 3), executed);
+        assertEquals(0, executor.submitted());
+    }
+
+    @Test
+    void shouldGiveBackExecutorAfterMaxTasksPerRun() {
+        // Given
+        for (int i = 0; i < 20; i++) {
+            int task = i;
+            serialExecutor.execute(() -> executed.add(task));
+        }
+
+        // When
+        executor.runNext();
+
+        // Then
+        assertEquals(16, executed.size());
+        assertEquals(1, executor.submitted());
+
+        // When
+        executor.runNext();
+
+        // Then
+        assertEquals(20, executed.size());
+        assertEquals(0, executor.submitted());
+    }
+
+    @Test
+    void shouldRunRemainingTasksWhenTaskThrows() {
+        // Given
+        serialExecutor.execute(() -> { throw new IllegalStateException("failed"); });
+        serialExecutor.execute(() -> executed.add(2));
+
+        // When
+        assertThrows(IllegalStateException.class, executor::runNext);
+
+        // Then
+        assertEquals(1, executor.submitted());
+
+        // When
+        executor.runNext();
+
+        // Then
+        assertEquals(Arrays.asList(2), executed);
+    }
+
+    @Test
+    void shouldNotKeepTaskRejectedByExecutor() {
+        // Given
+        executor.rejecting = true;
+
+        // When
+        assertThrows(RejectedExecutionException.class, () -> serialExecutor.execute(() -> executed.add(1)));
+
+        // Then
+        executor.rejecting = false;
+        serialExecutor.execute(() -> executed.add(2));
+        executor.runNext();
+        assertEquals(Arrays.asList(2), executed);
+    }
+
+    @Test
+    void shouldScheduleAgainOnceDrained() {
+        // Given
+        serialExecutor.execute(() -> executed.add(1));
+        executor.runNext();
+
+        // When
+        serialExecutor.execute(() -> executed.add(2));
+
+        // Then
+        assertEquals(1, executor.submitted());
+        executor.runNext();
+        assertEquals(Arrays.asList(1, 2), executed);
+    }
+
+    private static class ManualExecutor implements Executor {
+
+        private final Queue<Runnable> runs = new ArrayDeque<>();
+        private boolean rejecting;
+
+        @Override
+        public void execute(Runnable command) {
+            if (rejecting) throw new RejectedExecutionException("shut down");
+            runs.add(command);
+        }
+
+        void runNext() {
+            runs.poll().run();
+        }
+
+        int submitted() {
+            return runs.size();
+        }
+    }
+}
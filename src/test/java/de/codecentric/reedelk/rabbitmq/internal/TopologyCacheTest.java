@@ -0,0 +1,148 @@
+package de.codecentric.reedelk.rabbitmq.internal;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TopologyCacheTest {
+
+    @Mock
+    private Connection connection;
+    @Mock
+    private Channel channel;
+
+    private TopologyCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        lenient().when(connection.createChannel()).thenReturn(channel);
+        lenient().when(channel.isOpen()).thenReturn(true);
+        cache = TopologyCache.acquire(connection, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.release();
+    }
+
+    @Test
+    void shouldDeclareQueueOnlyOnce() throws IOException {
+        // When
+        cache.declareQueue("queue", true, false, false, null);
+        cache.declareQueue("queue", true, false, false, null);
+
+        // Then
+        verify(channel, times(1)).queueDeclare("queue", true, false, false, null);
+    }
+
+    @Test
+    void shouldDeclareQueueAgainWithDifferentSettings() throws IOException {
+        // Given
+        cache.declareQueue("queue", true, false, false, null);
+
+        // When
+        cache.declareQueue("queue", false, false, false, null);
+        cache.declareQueue("queue", true, false, false, Collections.singletonMap("x-queue-type", "quorum"));
+
+        // Then
+        verify(channel).queueDeclare("queue", true, false, false, null);
+        verify(channel).queueDeclare("queue", false, false, false, null);
+        verify(channel).queueDeclare("queue", true, false, false, Collections.singletonMap("x-queue-type", "quorum"));
+    }
+
+    @Test
+    void shouldDeclareExchangeAgainWithDifferentType() throws IOException {
+        // When
+        cache.declareExchange("exchange", "direct");
+        cache.declareExchange("exchange", "topic");
+
+        // Then
+        verify(channel).exchangeDeclare("exchange", "direct", true);
+        verify(channel).exchangeDeclare("exchange", "topic", true);
+    }
+
+    @Test
+    void shouldDeclareAgainAfterFailure() throws IOException {
+        // Given
+        when(channel.queueDeclare("queue", true, false, false, null))
+                .thenThrow(new IOException("inequivalent arg"))
+                .thenReturn(null);
+        assertThrows(IOException.class, () -> cache.declareQueue("queue", true, false, false, null));
+
+        // When
+        cache.declareQueue("queue", true, false, false, null);
+
+        // Then
+        verify(channel, times(2)).queueDeclare("queue", true, false, false, null);
+    }
+
+    @Test
+    void shouldForgetOldestDeclarationWhenFull() throws IOException {
+        // Given
+        cache.declareQueue("q1", true, false, false, null);
+        cache.declareQueue("q2", true, false, false, null);
+        cache.declareQueue("q3", true, false, false, null);
+
+        // When
+        cache.declareQueue("q1", true, false, false, null);
+
+        // Then
+        verify(channel, times(2)).queueDeclare("q1", true, false, false, null);
+    }
+
+    @Test
+    void shouldNotBlockOtherDeclarationsDuringRoundTrip() throws Exception {
+        // Given
+        CountDownLatch declaring = new CountDownLatch(1);
+        CountDownLatch declared = new CountDownLatch(1);
+        when(channel.queueDeclare(eq("slow"), anyBoolean(), anyBoolean(), anyBoolean(), any())).thenAnswer(invocation -> {
+            declaring.countDown();
+            assertTrue(declared.await(5, SECONDS));
+            return null;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> slow = executor.submit(() -> {
+                cache.declareQueue("slow", true, false, false, null);
+                return null;
+            });
+            assertTrue(declaring.await(5, SECONDS));
+
+            // When
+            cache.declareQueue("fast", true, false, false, null);
+            Future<?> sameName = executor.submit(() -> {
+                cache.declareQueue("slow", true, false, false, null);
+                return null;
+            });
+            declared.countDown();
+
+            // Then
+            slow.get(5, SECONDS);
+            sameName.get(5, SECONDS);
+            verify(channel).queueDeclare("fast", true, false, false, null);
+            verify(channel, times(1)).queueDeclare("slow", true, false, false, null);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package de.codecentric.reedelk.rabbitmq.internal.attribute;
+
+import com.rabbitmq.client.AMQP;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PropertiesAttributesTest {
+
+    @Test
+    void shouldNotReadPropertiesUntilAccessed() {
+        // Given
+        AMQP.BasicProperties properties = spy(new AMQP.BasicProperties.Builder().messageId("id").build());
+
+        // When
+        PropertiesAttributes attributes = new PropertiesAttributes(properties);
+
+        // Then
+        verifyNoInteractions(properties);
+
+        // When
+        Serializable messageId = attributes.get(PropertiesAttributes.MESSAGE_ID);
+
+        // Then
+        assertEquals("id", messageId);
+    }
+
+    @Test
+    void shouldReadPropertiesOnlyOnce() {
+        // Given
+        AMQP.BasicProperties properties = spy(new AMQP.BasicProperties.Builder().type("order").build());
+        PropertiesAttributes attributes = new PropertiesAttributes(properties);
+
+        // When
+        attributes.get(PropertiesAttributes.TYPE);
+        attributes.containsKey(PropertiesAttributes.APP_ID);
+        attributes.size();
+
+        // Then
+        verify(properties, times(1)).getType();
+    }
+
+    @Test
+    void shouldLoadAllProperties() {
+        // Given
+        Date timestamp = new Date(1600000000000L);
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+                .contentEncoding("gzip")
+                .correlationId("correlation")
+                .deliveryMode(2)
+                .contentType("application/json")
+                .expiration("60000")
+                .clusterId("cluster")
+                .messageId("message")
+                .timestamp(timestamp)
+                .priority(5)
+                .replyTo("replies")
+                .headers(Collections.singletonMap("header", "value"))
+                .userId("guest")
+                .appId("app")
+                .type("order")
+                .build();
+
+        // When
+        Map<String, Serializable> attributes = new HashMap<>(new PropertiesAttributes(properties));
+
+        // Then
+        assertEquals(14, attributes.size());
+        assertEquals("gzip", attributes.get(PropertiesAttributes.CONTENT_ENCODING));
+        assertEquals("correlation", attributes.get(PropertiesAttributes.CORRELATION_ID));
+        assertEquals(2, attributes.get(PropertiesAttributes.DELIVERY_MODE));
+        assertEquals("application/json", attributes.get(PropertiesAttributes.CONTENT_TYPE));
+        assertEquals("60000", attributes.get(PropertiesAttributes.EXPIRATION));
+        assertEquals("cluster", attributes.get(PropertiesAttributes.CLUSTER_ID));
+        assertEquals("message", attributes.get(PropertiesAttributes.MESSAGE_ID));
+        assertEquals(1600000000000L, attributes.get(PropertiesAttributes.TIMESTAMP));
+        assertEquals(5, attributes.get(PropertiesAttributes.PRIORITY));
+        assertEquals("replies", attributes.get(PropertiesAttributes.REPLY_TO));
+        assertEquals("value", ((Map<?, ?>) attributes.get(PropertiesAttributes.HEADERS)).get("header"));
+        assertEquals("guest", attributes.get(PropertiesAttributes.USER_ID));
+        assertEquals("app", attributes.get(PropertiesAttributes.APP_ID));
+        assertEquals("order", attributes.get(PropertiesAttributes.TYPE));
+    }
+
+    @Test
+    void shouldNotSetTimestampWhenAbsent() {
+        // Given
+        PropertiesAttributes attributes = new PropertiesAttributes(new AMQP.BasicProperties());
+
+        // Expect
+        assertFalse(attributes.containsKey(PropertiesAttributes.TIMESTAMP));
+    }
+
+    @Test
+    void shouldKeepPropertiesWhenSerializedBeforeAccess() throws Exception {
+        // Given
+        PropertiesAttributes attributes = new PropertiesAttributes(
+                new AMQP.BasicProperties.Builder().correlationId("correlation").build());
+
+        // When
+        PropertiesAttributes copy = roundTrip(attributes);
+
+        // Then
+        assertEquals("correlation", copy.get(PropertiesAttributes.CORRELATION_ID));
+        assertEquals(attributes, copy);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Serializable> T roundTrip(T object) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(object);
+        }
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (T) input.readObject();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package de.codecentric.reedelk.rabbitmq.internal.attribute;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
+import de.codecentric.reedelk.runtime.api.message.MessageAttributeKey;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RabbitMQConsumerAttributesTest {
+
+    @Test
+    void shouldNotReadEnvelopeAndPropertiesUntilAccessed() {
+        // Given
+        Envelope envelope = spy(new Envelope(7, false, "exchange", "key"));
+        AMQP.BasicProperties properties = spy(new AMQP.BasicProperties.Builder().correlationId("id").build());
+
+        // When
+        RabbitMQConsumerAttributes attributes = new RabbitMQConsumerAttributes(new Delivery(envelope, properties, new byte[0]));
+
+        // Then
+        assertEquals("id", attributes.get(MessageAttributeKey.CORRELATION_ID));
+        verifyNoInteractions(envelope);
+        verify(properties, never()).getHeaders();
+    }
+
+    @Test
+    void shouldLoadEnvelopeOnFirstAccess() {
+        // Given
+        EnvelopeAttributes attributes = new EnvelopeAttributes(new Envelope(7, false, "exchange", "key"));
+
+        // When
+        Serializable deliveryTag = attributes.get(EnvelopeAttributes.DELIVERY_TAG);
+
+        // Then
+        assertEquals(7L, deliveryTag);
+        assertEquals("exchange", attributes.get(EnvelopeAttributes.EXCHANGE));
+        assertEquals("key", attributes.get(EnvelopeAttributes.ROUTING_KEY));
+        assertEquals(3, attributes.size());
+    }
+
+    @Test
+    void shouldLoadPropertiesOnFirstAccess() {
+        // Given
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+                .contentType("application/json")
+                .headers(Collections.singletonMap("header", "value"))
+                .build();
+        PropertiesAttributes attributes = new PropertiesAttributes(properties);
+
+        // When
+        Serializable contentType = attributes.get(PropertiesAttributes.CONTENT_TYPE);
+
+        // Then
+        assertEquals("application/json", contentType);
+        assertEquals("value", ((Map<?, ?>) attributes.get(PropertiesAttributes.HEADERS)).get("header"));
+    }
+
+    @Test
+    void shouldKeepAttributesWhenSerialized() throws Exception {
+        // Given
+        EnvelopeAttributes attributes = new EnvelopeAttributes(new Envelope(7, false, "exchange", "key"));
+
+        // When
+        EnvelopeAttributes copy = roundTrip(attributes);
+
+        // Then
+        assertEquals(attributes, copy);
+        assertEquals(7L, copy.get(EnvelopeAttributes.DELIVERY_TAG));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Serializable> T roundTrip(T object) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(object);
+        }
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (T) input.readObject();
+        }
+    }
+}
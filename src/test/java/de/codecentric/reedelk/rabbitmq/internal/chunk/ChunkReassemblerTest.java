@@ -0,0 +1,265 @@
+package de.codecentric.reedelk.rabbitmq.internal.chunk;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkReassemblerTest {
+
+    @Mock
+    private ChunkSettler settler;
+    @Mock
+    private ChunkReassembler.Listener listener;
+
+    private ChunkReassembler reassembler;
+
+    @BeforeEach
+    void setUp() {
+        reassembler = new ChunkReassembler(2, 1000, listener);
+    }
+
+    @Test
+    void shouldAckAllChunksWhenFlowSucceeds() {
+        // Given
+        Delivery first = chunk("message", 0, false);
+        Delivery second = chunk("message", 1, true);
+        reassembler.open(first, settler);
+        reassembler.append(second, settler);
+
+        // When
+        reassembler.completed(first, true);
+
+        // Then
+        verify(settler).ack(first);
+        verify(settler).ack(second);
+        verify(settler, never()).reject(any());
+        verify(settler, never()).discard(any());
+    }
+
+    @Test
+    void shouldSettleEachChunkWithSettlerItWasReceivedWith() {
+        // Given
+        ChunkSettler otherSettler = mock(ChunkSettler.class);
+        Delivery first = chunk("message", 0, false);
+        Delivery second = chunk("message", 1, false);
+        Delivery late = chunk("message", 2, true);
+        reassembler.open(first, settler);
+        reassembler.append(second, otherSettler);
+
+        // When
+        reassembler.completed(first, true);
+        reassembler.append(late, otherSettler);
+
+        // Then
+        verify(settler).ack(first);
+        verify(otherSettler).ack(second);
+        verify(otherSettler).ack(late);
+        verify(settler, never()).ack(second);
+        verify(settler, never()).ack(late);
+    }
+
+    @Test
+    void shouldRejectAllChunksWhenFlowFails() {
+        // Given
+        Delivery first = chunk("message", 0, false);
+        Delivery second = chunk("message", 1, true);
+        reassembler.open(first, settler);
+        reassembler.append(second, settler);
+
+        // When
+        reassembler.completed(first, false);
+
+        // Then
+        verify(settler).reject(first);
+        verify(settler).reject(second);
+        verify(settler, never()).ack(any());
+    }
+
+    @Test
+    void shouldNotSettleChunksBeforeFlowCompletes() {
+        // Given
+        Delivery first = chunk("message", 0, false);
+
+        // When
+        reassembler.open(first, settler);
+        reassembler.append(chunk("message", 1, true), settler);
+
+        // Then
+        verifyNoInteractions(settler);
+    }
+
+    @Test
+    void shouldSettleChunksArrivingAfterFlowCompletedLikeTheMessage() {
+        // Given
+        Delivery first = chunk("message", 0, false);
+        reassembler.open(first, settler);
+        reassembler.completed(first, false);
+        Delivery late = chunk("message", 1, true);
+
+        // When
+        reassembler.append(late, settler);
+
+        // Then
+        verify(settler).reject(late);
+        verify(settler, never()).discard(any());
+    }
+
+    @Test
+    void shouldDiscardChunkOfUnknownMessage() {
+        // Given
+        Delivery orphan = chunk("unknown", 3, false);
+
+        // When
+        reassembler.append(orphan, settler);
+
+        // Then
+        verify(settler).discard(orphan);
+        verify(settler, never()).ack(any());
+    }
+
+    @Test
+    void shouldDiscardChunkOfCompletedMessageOnceLastChunkReceived() {
+        // Given
+        Delivery first = chunk("message", 0, false);
+        reassembler.open(first, settler);
+        reassembler.append(chunk("message", 1, true), settler);
+        reassembler.completed(first, true);
+        Delivery duplicate = chunk("message", 1, true);
+
+        // When
+        reassembler.append(duplicate, settler);
+
+        // Then
+        verify(settler).discard(duplicate);
+    }
+
+    @Test
+    void shouldFailStreamWhenChunkIsOutOfOrder() {
+        // Given
+        Delivery first = chunk("message", 0, false);
+        Publisher<byte[]> stream = reassembler.open(first, settler);
+        reassembler.append(chunk("message", 2, true), settler);
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+
+        // When
+        stream.subscribe(subscriber);
+
+        // Then
+        assertEquals(1, subscriber.items.size());
+        assertTrue(subscriber.error instanceof IllegalStateException);
+    }
+
+    @Test
+    void shouldPauseWhenBufferIsFullAndResumeWhenDrained() {
+        // Given
+        Delivery first = chunk("message", 0, false);
+        Publisher<byte[]> stream = reassembler.open(first, settler);
+
+        // When
+        reassembler.append(chunk("message", 1, false), settler);
+
+        // Then
+        verify(listener).pause();
+        verify(listener, never()).resume();
+
+        // When
+        CollectingSubscriber subscriber = new CollectingSubscriber(1);
+        stream.subscribe(subscriber);
+
+        // Then
+        verify(listener).resume();
+    }
+
+    @Test
+    void shouldResumeWhenFlowCompletesWithFullBuffer() {
+        // Given
+        Delivery first = chunk("message", 0, false);
+        reassembler.open(first, settler);
+        reassembler.append(chunk("message", 1, false), settler);
+
+        // When
+        reassembler.completed(first, false);
+
+        // Then
+        verify(listener).pause();
+        verify(listener).resume();
+    }
+
+    @Test
+    void shouldStreamChunksInOrder() {
+        // Given
+        Delivery first = chunk("message", 0, false);
+        Publisher<byte[]> stream = reassembler.open(first, settler);
+        reassembler.append(chunk("message", 1, false), settler);
+        reassembler.append(chunk("message", 2, true), settler);
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+
+        // When
+        stream.subscribe(subscriber);
+
+        // Then
+        assertTrue(subscriber.completed);
+        assertEquals(3, subscriber.items.size());
+        assertEquals("2", new String(subscriber.items.get(2)));
+    }
+
+    private static Delivery chunk(String chunkId, long index, boolean last) {
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+                .headers(ChunkHeaders.of(chunkId, index, last))
+                .build();
+        Envelope envelope = new Envelope(index + 1, false, "", "queue");
+        return new Delivery(envelope, properties, String.valueOf(index).getBytes());
+    }
+
+    static class CollectingSubscriber implements Subscriber<byte[]> {
+
+        private final long request;
+        final List<byte[]> items = new ArrayList<>();
+        Throwable error;
+        boolean completed;
+
+        CollectingSubscriber() {
+            this(Long.MAX_VALUE);
+        }
+
+        CollectingSubscriber(long request) {
+            this.request = request;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            subscription.request(request);
+        }
+
+        @Override
+        public void onNext(byte[] item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
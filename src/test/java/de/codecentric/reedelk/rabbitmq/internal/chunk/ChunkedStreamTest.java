@@ -0,0 +1,122 @@
+package de.codecentric.reedelk.rabbitmq.internal.chunk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkedStreamTest {
+
+    @Mock
+    private ChunkedStream.BufferListener listener;
+
+    @Test
+    void shouldNotBlockWhenBufferIsFull() {
+        // Given
+        ChunkedStream stream = new ChunkedStream(2, 1000, listener);
+
+        // When
+        stream.offer(new byte[]{1}, false);
+        stream.offer(new byte[]{2}, false);
+        stream.offer(new byte[]{3}, true);
+
+        // Then
+        verify(listener, times(1)).filled();
+        verify(listener, never()).drained();
+    }
+
+    @Test
+    void shouldNotNotifyDrainedBeforeHalfOfBufferIsRead() {
+        // Given
+        ChunkedStream stream = new ChunkedStream(4, 1000, listener);
+        for (int i = 0; i < 4; i++) stream.offer(new byte[]{(byte) i}, false);
+
+        // When
+        stream.subscribe(new ChunkReassemblerTest.CollectingSubscriber(1));
+
+        // Then
+        verify(listener).filled();
+        verify(listener, never()).drained();
+    }
+
+    @Test
+    void shouldNotifyDrainedWhenHalfOfBufferIsRead() {
+        // Given
+        ChunkedStream stream = new ChunkedStream(4, 1000, listener);
+        for (int i = 0; i < 4; i++) stream.offer(new byte[]{(byte) i}, false);
+
+        // When
+        stream.subscribe(new ChunkReassemblerTest.CollectingSubscriber(2));
+
+        // Then
+        verify(listener).filled();
+        verify(listener).drained();
+    }
+
+    @Test
+    void shouldNotifyDrainedWhenDiscarded() {
+        // Given
+        ChunkedStream stream = new ChunkedStream(1, 1000, listener);
+        stream.offer(new byte[]{1}, false);
+
+        // When
+        stream.discard();
+
+        // Then
+        verify(listener).filled();
+        verify(listener).drained();
+    }
+
+    @Test
+    void shouldFailWhenNextChunkDoesNotArriveInTime() {
+        // Given
+        ChunkedStream stream = new ChunkedStream(2, 10, listener);
+        stream.offer(new byte[]{1}, false);
+        ChunkReassemblerTest.CollectingSubscriber subscriber = new ChunkReassemblerTest.CollectingSubscriber();
+
+        // When
+        stream.subscribe(subscriber);
+
+        // Then
+        assertEquals(1, subscriber.items.size());
+        assertTrue(subscriber.error instanceof TimeoutException);
+    }
+
+    @Test
+    void shouldFailAfterChunksReadSoFar() {
+        // Given
+        ChunkedStream stream = new ChunkedStream(4, 1000, listener);
+        stream.offer(new byte[]{1}, false);
+        stream.fail(new IllegalStateException("out of order"));
+        ChunkReassemblerTest.CollectingSubscriber subscriber = new ChunkReassemblerTest.CollectingSubscriber();
+
+        // When
+        stream.subscribe(subscriber);
+
+        // Then
+        assertEquals(1, subscriber.items.size());
+        assertEquals("out of order", subscriber.error.getMessage());
+    }
+
+    @Test
+    void shouldBeConsumedOnlyOnce() {
+        // Given
+        ChunkedStream stream = new ChunkedStream(4, 1000, listener);
+        stream.offer(new byte[]{1}, true);
+        stream.subscribe(new ChunkReassemblerTest.CollectingSubscriber());
+        ChunkReassemblerTest.CollectingSubscriber second = new ChunkReassemblerTest.CollectingSubscriber();
+
+        // When
+        stream.subscribe(second);
+
+        // Then
+        assertTrue(second.error instanceof IllegalStateException);
+        assertTrue(second.items.isEmpty());
+    }
+}
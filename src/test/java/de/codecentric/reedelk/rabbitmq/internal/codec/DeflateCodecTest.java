@@ -0,0 +1,90 @@
+package de.codecentric.reedelk.rabbitmq.internal.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeflateCodecTest {
+
+    private static final byte[] DATA = "the quick brown fox jumps over the lazy dog, the quick brown fox"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final DeflateCodec codec = new DeflateCodec();
+
+    @Test
+    void shouldDecompressCompressedData() throws IOException {
+        // Given
+        byte[] compressed = codec.compress(DATA);
+
+        // When
+        byte[] decompressed = codec.decompress(compressed);
+
+        // Then
+        assertArrayEquals(DATA, decompressed);
+    }
+
+    @Test
+    void shouldDecompressDataOfDeflater() throws IOException {
+        // Given
+        Deflater deflater = new Deflater();
+        deflater.setInput(DATA);
+        deflater.finish();
+        byte[] buffer = new byte[1024];
+        int length = deflater.deflate(buffer);
+        deflater.end();
+        byte[] compressed = java.util.Arrays.copyOf(buffer, length);
+
+        // When
+        byte[] decompressed = codec.decompress(compressed);
+
+        // Then
+        assertArrayEquals(DATA, decompressed);
+    }
+
+    @Test
+    void shouldReuseCodecAfterFailure() throws IOException {
+        // Given
+        assertThrows(IOException.class, () -> codec.decompress(DATA));
+
+        // When
+        byte[] decompressed = codec.decompress(codec.compress(DATA));
+
+        // Then
+        assertArrayEquals(DATA, decompressed);
+    }
+
+    @Test
+    void shouldFailWhenDecompressedDataExceedsMaxSize() {
+        // Given
+        byte[] compressed = codec.compress(new byte[100_000]);
+
+        // When
+        IOException exception = assertThrows(IOException.class, () -> codec.decompress(compressed, 99_999));
+
+        // Then
+        assertTrue(exception.getMessage().contains("maximum size of 99999 bytes"));
+    }
+
+    @Test
+    void shouldNotOverflowInitialCapacity() {
+        // When
+        int capacity = DeflateCodec.initialCapacity(Integer.MAX_VALUE, DeflateCodec.MAX_ARRAY_SIZE);
+
+        // Then
+        assertTrue(capacity > 0);
+        assertTrue(capacity <= 1024 * 1024);
+    }
+
+    @Test
+    void shouldNotExceedMaxSizeWithInitialCapacity() {
+        // When
+        int capacity = DeflateCodec.initialCapacity(1000, 100);
+
+        // Then
+        assertEquals(100, capacity);
+    }
+}
@@ -0,0 +1,110 @@
+package de.codecentric.reedelk.rabbitmq.internal.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GzipCodecTest {
+
+    private static final byte[] DATA = "the quick brown fox jumps over the lazy dog, the quick brown fox"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final GzipCodec codec = new GzipCodec();
+
+    @Test
+    void shouldDecompressCompressedData() throws IOException {
+        // Given
+        byte[] compressed = codec.compress(DATA);
+
+        // When
+        byte[] decompressed = codec.decompress(compressed);
+
+        // Then
+        assertArrayEquals(DATA, decompressed);
+    }
+
+    @Test
+    void shouldBeReadableByGzipInputStream() throws IOException {
+        // Given
+        byte[] compressed = codec.compress(DATA);
+
+        // When
+        byte[] decompressed = readAll(new GZIPInputStream(new java.io.ByteArrayInputStream(compressed)));
+
+        // Then
+        assertArrayEquals(DATA, decompressed);
+    }
+
+    @Test
+    void shouldDecompressDataOfGzipOutputStream() throws IOException {
+        // Given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(DATA);
+        }
+
+        // When
+        byte[] decompressed = codec.decompress(output.toByteArray());
+
+        // Then
+        assertArrayEquals(DATA, decompressed);
+    }
+
+    @Test
+    void shouldFailWhenDataIsNotGzip() {
+        // When
+        IOException exception = assertThrows(IOException.class, () -> codec.decompress(DATA));
+
+        // Then
+        assertEquals("Not in gzip format", exception.getMessage());
+    }
+
+    @Test
+    void shouldFailWhenTrailerIsCorrupt() {
+        // Given
+        byte[] compressed = codec.compress(DATA);
+        compressed[compressed.length - 5]++;
+
+        // When
+        IOException exception = assertThrows(IOException.class, () -> codec.decompress(compressed));
+
+        // Then
+        assertEquals("Corrupt gzip data: trailer mismatch", exception.getMessage());
+    }
+
+    @Test
+    void shouldFailWhenDataIsTruncated() {
+        // Given
+        byte[] compressed = codec.compress(DATA);
+
+        // When
+        assertThrows(IOException.class, () -> codec.decompress(Arrays.copyOf(compressed, compressed.length - 4)));
+    }
+
+    @Test
+    void shouldFailWhenDecompressedDataExceedsMaxSize() {
+        // Given
+        byte[] compressed = codec.compress(new byte[100_000]);
+
+        // When
+        IOException exception = assertThrows(IOException.class, () -> codec.decompress(compressed, 50_000));
+
+        // Then
+        assertTrue(exception.getMessage().contains("maximum size of 50000 bytes"));
+    }
+
+    private static byte[] readAll(GZIPInputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = input.read(buffer)) != -1) output.write(buffer, 0, read);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,189 @@
+package de.codecentric.reedelk.rabbitmq.internal.local;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.BuiltinExchangeType;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.Delivery;
+import de.codecentric.reedelk.rabbitmq.component.ConnectionConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalConnectionTest {
+
+    private final List<Connection> connections = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        connections.forEach(Connection::abort);
+    }
+
+    @Test
+    void shouldConsumePublishedMessage() throws Exception {
+        // Given
+        Channel channel = open("local://consume").createChannel();
+        BlockingQueue<Delivery> deliveries = consume(channel, "queue", true);
+
+        // When
+        channel.basicPublish("", "queue", null, "hello".getBytes());
+
+        // Then
+        Delivery delivery = deliveries.poll(5, SECONDS);
+        assertNotNull(delivery);
+        assertEquals("hello", new String(delivery.getBody()));
+        assertEquals("queue", delivery.getEnvelope().getRoutingKey());
+        assertFalse(delivery.getEnvelope().isRedeliver());
+    }
+
+    @Test
+    void shouldRedeliverRequeuedMessage() throws Exception {
+        // Given
+        Channel channel = open("local://requeue").createChannel();
+        BlockingQueue<Delivery> deliveries = consume(channel, "queue", false);
+        channel.basicPublish("", "queue", null, "hello".getBytes());
+        Delivery first = deliveries.poll(5, SECONDS);
+        assertNotNull(first);
+
+        // When
+        channel.basicNack(first.getEnvelope().getDeliveryTag(), false, true);
+
+        // Then
+        Delivery redelivered = deliveries.poll(5, SECONDS);
+        assertNotNull(redelivered);
+        assertTrue(redelivered.getEnvelope().isRedeliver());
+    }
+
+    @Test
+    void shouldRequeueUnackedMessagesWhenChannelIsClosed() throws Exception {
+        // Given
+        Connection connection = open("local://close");
+        Channel channel = connection.createChannel();
+        BlockingQueue<Delivery> deliveries = consume(channel, "queue", false);
+        channel.basicPublish("", "queue", null, "hello".getBytes());
+        assertNotNull(deliveries.poll(5, SECONDS));
+
+        // When
+        channel.close();
+
+        // Then
+        assertEquals(1, connection.createChannel().messageCount("queue"));
+    }
+
+    @Test
+    void shouldConfirmPublishedMessages() throws Exception {
+        // Given
+        Channel channel = open("local://confirm").createChannel();
+        channel.confirmSelect();
+        AtomicLong confirmed = new AtomicLong();
+        channel.addConfirmListener((deliveryTag, multiple) -> confirmed.set(deliveryTag), (deliveryTag, multiple) -> {});
+
+        // When
+        channel.basicPublish("", "queue", null, new byte[]{1});
+        channel.basicPublish("", "queue", null, new byte[]{2});
+
+        // Then
+        assertEquals(2, confirmed.get());
+    }
+
+    @Test
+    void shouldNotPublishToNamedExchange() throws IOException {
+        // Given
+        Channel channel = open("local://exchange").createChannel();
+
+        // When
+        IOException exception = assertThrows(IOException.class,
+                () -> channel.basicPublish("orders", "queue", null, new byte[]{1}));
+
+        // Then
+        assertTrue(exception.getMessage().contains("orders"));
+        assertEquals(0, channel.messageCount("queue"));
+    }
+
+    @Test
+    void shouldNotDeclareExchange() throws IOException {
+        // Given
+        Channel channel = open("local://exchange-declare").createChannel();
+
+        // Expect
+        assertThrows(IOException.class,
+                () -> channel.exchangeDeclare("orders", BuiltinExchangeType.DIRECT));
+        assertThrows(IOException.class,
+                () -> channel.queueBind("queue", "orders", "queue"));
+    }
+
+    @Test
+    void shouldThrowUnsupportedOperationWhenOperationCannotThrowIOException() throws IOException {
+        // Given
+        Channel channel = open("local://unsupported").createChannel();
+
+        // Expect
+        assertThrows(UnsupportedOperationException.class, channel::getDefaultConsumer);
+    }
+
+    @Test
+    void shouldFailPublishingWhenQueueIsStillFullAfterTimeout() throws IOException {
+        // Given
+        Channel channel = open("local://full?capacity=1&publish_timeout=50").createChannel();
+        channel.basicPublish("", "queue", null, new byte[]{1});
+
+        // When
+        IOException exception = assertThrows(IOException.class,
+                () -> channel.basicPublish("", "queue", null, new byte[]{2}));
+
+        // Then
+        assertTrue(exception.getMessage().contains("still full"));
+        assertEquals(1, channel.messageCount("queue"));
+    }
+
+    @Test
+    void shouldApplyCapacityOfLaterConnection() throws IOException {
+        // Given
+        Channel first = open("local://capacity?capacity=1&publish_timeout=50").createChannel();
+        first.basicPublish("", "queue", null, new byte[]{1});
+
+        // When
+        Channel second = open("local://capacity?capacity=2&publish_timeout=50").createChannel();
+        second.basicPublish("", "queue", null, new byte[]{2});
+
+        // Then
+        assertEquals(2, second.messageCount("queue"));
+    }
+
+    @Test
+    void shouldShareDefaultBrokerBetweenUriAndDefaultVirtualHost() throws IOException {
+        // Given
+        Channel uriChannel = open("local://").createChannel();
+        uriChannel.queuePurge("default-broker");
+        Connection configured = LocalConnection.open("/", ConnectionConfiguration.DEFAULT_LOCAL_QUEUE_CAPACITY, ConnectionConfiguration.DEFAULT_LOCAL_PUBLISH_TIMEOUT);
+        connections.add(configured);
+
+        // When
+        configured.createChannel().basicPublish("", "default-broker", new AMQP.BasicProperties(), new byte[]{1});
+
+        // Then
+        assertEquals(1, uriChannel.messageCount("default-broker"));
+    }
+
+    private Connection open(String uri) {
+        Connection connection = LocalConnection.open(uri);
+        connections.add(connection);
+        return connection;
+    }
+
+    private static BlockingQueue<Delivery> consume(Channel channel, String queue, boolean autoAck) throws IOException {
+        BlockingQueue<Delivery> deliveries = new LinkedBlockingQueue<>();
+        channel.queueDeclare(queue, false, false, false, null);
+        channel.basicConsume(queue, autoAck, (consumerTag, delivery) -> deliveries.add(delivery), consumerTag -> {});
+        return deliveries;
+    }
+}
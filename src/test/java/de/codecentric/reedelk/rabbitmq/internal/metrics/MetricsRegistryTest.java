@@ -0,0 +1,74 @@
+package de.codecentric.reedelk.rabbitmq.internal.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @Test
+    void shouldShareMetricsOfSameQueue() {
+        // Given
+        ConsumerMetrics first = MetricsRegistry.consumer("registry-shared");
+
+        // When
+        ConsumerMetrics second = MetricsRegistry.consumer("registry-shared");
+
+        // Then
+        assertSame(first, second);
+        MetricsRegistry.release(first);
+        assertEquals(1, registered("registry-shared").size());
+        MetricsRegistry.release(second);
+        assertTrue(registered("registry-shared").isEmpty());
+    }
+
+    @Test
+    void shouldNotReplaceMBeanRegisteredByOthers() throws JMException {
+        // Given
+        ObjectName name = new ObjectName("de.codecentric.reedelk.rabbitmq:type=RabbitMQConsumer,queue=" + ObjectName.quote("registry-other"));
+        MetricsMBean other = new MetricsMBean("other");
+        server.registerMBean(other, name);
+
+        // When
+        ConsumerMetrics metrics = MetricsRegistry.consumer("registry-other");
+
+        // Then
+        assertEquals(2, registered("registry-other").size());
+        assertEquals("other", server.getMBeanInfo(name).getDescription());
+        MetricsRegistry.release(metrics);
+        assertEquals(1, registered("registry-other").size());
+        server.unregisterMBean(name);
+    }
+
+    @Test
+    void shouldDeclareAttributeTypesStatically() {
+        // Given
+        Counter counter = new Counter();
+        MetricsMBean mbean = new MetricsMBean("test")
+                .counter("Deliveries", counter)
+                .histogram("AckLatency", new Histogram());
+
+        // When
+        MBeanAttributeInfo[] attributes = mbean.getMBeanInfo().getAttributes();
+
+        // Then
+        assertEquals("Deliveries", attributes[0].getName());
+        assertEquals(Long.class.getName(), attributes[0].getType());
+        assertEquals(Long.class.getName(), attributes[1].getType());
+        assertEquals(Double.class.getName(), attributes[2].getType());
+    }
+
+    private Set<ObjectName> registered(String queue) {
+        try {
+            return server.queryNames(new ObjectName("de.codecentric.reedelk.rabbitmq:type=RabbitMQConsumer,queue=" + ObjectName.quote(queue) + ",*"), null);
+        } catch (MalformedObjectNameException exception) {
+            throw new IllegalArgumentException(exception);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package de.codecentric.reedelk.rabbitmq.internal.stream;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamOffsetTrackerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldStartFromConfiguredOffsetWhenNothingIsStored() {
+        // Given
+        StreamOffsetTracker tracker = new StreamOffsetTracker("first", new FileOffsetStore(directory, "stream"));
+
+        // When
+        Object offset = tracker.arguments().get(StreamOffsetTracker.OFFSET_ARGUMENT);
+
+        // Then
+        assertEquals("first", offset);
+    }
+
+    @Test
+    void shouldResumeAfterLastDeliveredOffset() {
+        // Given
+        StreamOffsetTracker tracker = new StreamOffsetTracker("first", null);
+        tracker.delivered(delivery(7));
+        tracker.delivered(delivery(8));
+
+        // When
+        Object offset = tracker.arguments().get(StreamOffsetTracker.OFFSET_ARGUMENT);
+
+        // Then
+        assertEquals(9L, offset);
+    }
+
+    @Test
+    void shouldCommitOnlyOffsetsWhoseFlowsHaveAllCompleted() {
+        // Given
+        StreamOffsetTracker tracker = new StreamOffsetTracker("first", null);
+        tracker.delivered(delivery(0));
+        tracker.delivered(delivery(1));
+        tracker.delivered(delivery(2));
+
+        // When
+        tracker.completed(delivery(0));
+        tracker.completed(delivery(2));
+
+        // Then
+        assertEquals(0, tracker.committed());
+
+        // When
+        tracker.completed(delivery(1));
+
+        // Then
+        assertEquals(2, tracker.committed());
+    }
+
+    @Test
+    void shouldNotCommitBeforeAnyFlowHasCompleted() {
+        // Given
+        StreamOffsetTracker tracker = new StreamOffsetTracker("first", null);
+
+        // When
+        tracker.delivered(delivery(5));
+
+        // Then
+        assertEquals(-1, tracker.committed());
+    }
+
+    @Test
+    void shouldIgnoreDeliveriesWithoutOffset() {
+        // Given
+        StreamOffsetTracker tracker = new StreamOffsetTracker("first", null);
+        Delivery withoutOffset = new Delivery(new Envelope(1, false, "", "stream"), new AMQP.BasicProperties(), new byte[0]);
+
+        // When
+        tracker.delivered(withoutOffset);
+        tracker.completed(withoutOffset);
+
+        // Then
+        assertEquals(-1, tracker.committed());
+        assertEquals("first", tracker.arguments().get(StreamOffsetTracker.OFFSET_ARGUMENT));
+    }
+
+    @Test
+    void shouldStoreCommittedOffsetAndResumeAfterIt() {
+        // Given
+        FileOffsetStore store = new FileOffsetStore(directory, "stream");
+        StreamOffsetTracker tracker = new StreamOffsetTracker("first", store);
+        tracker.delivered(delivery(10));
+        tracker.delivered(delivery(11));
+        tracker.completed(delivery(10));
+
+        // When
+        tracker.commit();
+
+        // Then
+        assertEquals(OptionalLong.of(10), store.load());
+        StreamOffsetTracker restarted = new StreamOffsetTracker("first", store);
+        assertEquals(11L, restarted.arguments().get(StreamOffsetTracker.OFFSET_ARGUMENT));
+    }
+
+    @Test
+    void shouldNotStoreOffsetBelowTheStoredOne() throws IOException {
+        // Given
+        FileOffsetStore store = new FileOffsetStore(directory, "stream");
+        store.store(20);
+        StreamOffsetTracker tracker = new StreamOffsetTracker("first", store);
+
+        // When
+        tracker.commit();
+
+        // Then
+        assertEquals(OptionalLong.of(20), store.load());
+    }
+
+    @Test
+    void shouldStoreOffsetAgainAfterStoreFailure() throws IOException {
+        // Given: the store directory is a file, hence the offset cannot be stored.
+        Path notADirectory = Files.createFile(directory.resolve("offsets"));
+        FileOffsetStore failing = new FileOffsetStore(notADirectory, "stream");
+        StreamOffsetTracker tracker = new StreamOffsetTracker("first", failing);
+        tracker.delivered(delivery(3));
+        tracker.completed(delivery(3));
+        tracker.commit();
+
+        // When
+        Files.delete(notADirectory);
+        tracker.commit();
+
+        // Then
+        assertEquals(OptionalLong.of(3), failing.load());
+    }
+
+    @Test
+    void shouldUseConfiguredOffsetWhenStoredOffsetIsCorrupted() throws IOException {
+        // Given
+        Files.write(directory.resolve("stream.offset"), "not a number".getBytes());
+
+        // When
+        StreamOffsetTracker tracker = new StreamOffsetTracker("last", new FileOffsetStore(directory, "stream"));
+
+        // Then
+        assertEquals("last", tracker.arguments().get(StreamOffsetTracker.OFFSET_ARGUMENT));
+    }
+
+    private static Delivery delivery(long offset) {
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+                .headers(Collections.singletonMap(StreamOffsetTracker.OFFSET_ARGUMENT, offset))
+                .build();
+        return new Delivery(new Envelope(offset + 1, false, "", "stream"), properties, new byte[0]);
+    }
+}